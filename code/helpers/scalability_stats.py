@@ -24,6 +24,16 @@ def get_step_times_df(result_path):
     return pd.DataFrame(data)
 
 
+def get_end_to_end_scalability_df(result_path):
+    with open(result_path) as f:
+        result = json.load(f)
+    df = pd.DataFrame(result["scalingStats"])
+    return df.rename(columns={
+        "numTransactions": num_trans_title,
+        "sampler": algo_title,
+    })
+
+
 def get_data_dict(result_path, result_file):
     data_dict = {num_trans_title: [], step_time_title: [], algo_title: []}
     num_trans = 0
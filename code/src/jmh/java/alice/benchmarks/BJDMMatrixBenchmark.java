@@ -0,0 +1,147 @@
+package alice.benchmarks;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.config.DatasetNames;
+import alice.config.Paths;
+import alice.helpers.SwappableLists;
+import alice.helpers.Swappables;
+import alice.structures.BJDMMatrix;
+import alice.structures.Vector;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Transformer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the steps of the ALICE-A and ALICE-B chains on a
+ * {@link BJDMMatrix}, in ns per call. The proposals used by
+ * getLogNumEquivAdjMatrices are sampled in the setup, so that the benchmark
+ * measures only the method; transition samples a proposal and always moves
+ * to the adjacent matrix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BJDMMatrixBenchmark {
+
+    /**
+     * The number of proposals sampled in the setup, a power of two.
+     */
+    private static final int NUM_PROPOSALS = 1024;
+
+    @Param({
+        DatasetNames.foodmart,
+        DatasetNames.chess,
+        DatasetNames.retail,
+        DatasetNames.bms1,
+        "synthetic-5-25-0.1.txt",
+        "synthetic-10-25-0.1.txt",
+        "synthetic-20-25-0.1.txt",
+        "synthetic-40-25-0.1.txt"})
+    public String dataset;
+
+    private BJDMMatrix matrix;
+
+    private Random rnd;
+
+    private double logNumEquivMatrices;
+
+    private Vector[][] swappableRows;
+
+    private Vector[][] newRows;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        final Transformer transformer = new Transformer();
+        this.matrix = new BJDMMatrix(transformer.createMatrix(Paths.concat(Config.datasetsDir, this.dataset)));
+        this.rnd = new FastRandom(Config.seed);
+        this.logNumEquivMatrices = this.matrix.getLogNumEquivMatrices();
+        this.swappableRows = new Vector[NUM_PROPOSALS][];
+        this.newRows = new Vector[NUM_PROPOSALS][];
+        for (int i = 0; i < NUM_PROPOSALS; i++) {
+            final Swappables sne = nextSwappables(this.matrix, this.rnd);
+            this.swappableRows[i] = new Vector[]{
+                this.matrix.getRowInstance(sne.swappableEdge1.row),
+                this.matrix.getRowInstance(sne.swappableEdge2.row)};
+            this.newRows[i] = this.matrix.getNewRows(this.swappableRows[i][0], this.swappableRows[i][1], sne);
+        }
+    }
+
+    /**
+     *
+     * @param matrix a matrix
+     * @param rnd a Random instance
+     * @return the first pair of swappable edges sampled by the matrix
+     */
+    static Swappables nextSwappables(BJDMMatrix matrix, Random rnd) {
+        for (int attempt = 0; attempt < 1000000; attempt++) {
+            final Swappables sne = matrix.getSwappables(rnd);
+            if (sne != null) {
+                return sne;
+            }
+        }
+        throw new IllegalStateException("The matrix has no swappable pair of edges");
+    }
+
+    @Benchmark
+    public Swappables getSwappables() {
+        return this.matrix.getSwappables(this.rnd);
+    }
+
+    @Benchmark
+    public SwappableLists getSwappablesNewEdges() {
+        return this.matrix.getSwappablesNewEdges(this.rnd);
+    }
+
+    @Benchmark
+    public double getLogNumEquivAdjMatrices() {
+        final int i = this.next++ & (NUM_PROPOSALS - 1);
+        return this.matrix.getLogNumEquivAdjMatrices(
+                this.logNumEquivMatrices,
+                this.swappableRows[i][0],
+                this.swappableRows[i][1],
+                this.newRows[i][0],
+                this.newRows[i][1]);
+    }
+
+    @Benchmark
+    public void transition() {
+        final Swappables sne = nextSwappables(this.matrix, this.rnd);
+        final Vector swappableRow1 = this.matrix.getRowInstance(sne.swappableEdge1.row);
+        final Vector swappableRow2 = this.matrix.getRowInstance(sne.swappableEdge2.row);
+        final Vector[] adjRows = this.matrix.getNewRows(swappableRow1, swappableRow2, sne);
+        this.matrix.transition(sne, swappableRow1, swappableRow2, adjRows[0], adjRows[1]);
+    }
+}
@@ -0,0 +1,101 @@
+package alice.benchmarks;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.config.DatasetNames;
+import alice.config.Paths;
+import alice.helpers.Swappables;
+import alice.structures.GmmtMatrix;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Transformer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the steps of the GMMT chain on a {@link GmmtMatrix}, in ns
+ * per call. The proposals used by getAdjMatrixDegree are sampled in the
+ * setup, so that the benchmark measures only the method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GmmtMatrixBenchmark {
+
+    /**
+     * The number of proposals sampled in the setup, a power of two.
+     */
+    private static final int NUM_PROPOSALS = 1024;
+
+    @Param({
+        DatasetNames.foodmart,
+        DatasetNames.chess,
+        DatasetNames.retail,
+        DatasetNames.bms1,
+        "synthetic-5-25-0.1.txt",
+        "synthetic-10-25-0.1.txt",
+        "synthetic-20-25-0.1.txt",
+        "synthetic-40-25-0.1.txt"})
+    public String dataset;
+
+    private GmmtMatrix matrix;
+
+    private Random rnd;
+
+    private long degree;
+
+    private Swappables[] proposals;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        final Transformer transformer = new Transformer();
+        this.matrix = new GmmtMatrix(transformer.createMatrix(Paths.concat(Config.datasetsDir, this.dataset)));
+        this.rnd = new FastRandom(Config.seed);
+        this.degree = this.matrix.getDegree();
+        this.proposals = new Swappables[NUM_PROPOSALS];
+        for (int i = 0; i < NUM_PROPOSALS; i++) {
+            this.proposals[i] = this.matrix.getSwappableAndNewEdges(this.rnd);
+        }
+    }
+
+    @Benchmark
+    public Swappables getSwappableAndNewEdges() {
+        return this.matrix.getSwappableAndNewEdges(this.rnd);
+    }
+
+    @Benchmark
+    public long getAdjMatrixDegree() {
+        final Swappables sne = this.proposals[this.next++ & (NUM_PROPOSALS - 1)];
+        return this.matrix.getAdjMatrixDegree(sne.swappableEdge1, sne.swappableEdge2, this.degree);
+    }
+}
@@ -0,0 +1,135 @@
+package alice.benchmarks;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.config.Paths;
+import alice.fpm.AlgoNegFIN;
+import alice.fpm.AlgoNegFINMod;
+import alice.fpm.Itemsets;
+import alice.structures.SparseMatrix;
+import alice.utils.Config;
+import alice.utils.Transformer;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the frequent itemset miners, of the parsing of their results,
+ * and of the parsing of the transactional datasets, in ops per second.
+ * Each dataset is paired with its minimum frequency, by default the one in
+ * scripts/config.cfg; other pairs can be given with
+ * -p datasetAndMinFreq=dataset:minFreq.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ItemsetMiningBenchmark {
+
+    /**
+     * The number of result files read by getFreqItemsetToSumMap, as for
+     * numEstSamples estimate datasets.
+     */
+    private static final int NUM_EST_SAMPLES = 8;
+
+    @Param({
+        "foodmart.txt:0.0003",
+        "chess.txt:0.8",
+        "retail.txt:0.002",
+        "BMS1.txt:0.001",
+        "synthetic-20-25-0.1.txt:0.003"})
+    public String datasetAndMinFreq;
+
+    private String datasetPath;
+
+    private double minFreq;
+
+    private File resultsDir;
+
+    private Paths paths;
+
+    private String freqItemsetsPath;
+
+    private Object2IntOpenHashMap<IntOpenHashSet> freqItemsetToSup;
+
+    @Setup
+    public void setup() throws IOException {
+        final String[] datasetAndMinFreq = this.datasetAndMinFreq.split(":");
+        this.datasetPath = Paths.concat(Config.datasetsDir, datasetAndMinFreq[0]);
+        this.minFreq = Double.parseDouble(datasetAndMinFreq[1]);
+        this.resultsDir = Files.createTempDirectory("alice-bench").toFile();
+        this.paths = new Paths(this.datasetPath, this.resultsDir.getPath() + File.separator);
+        Paths.makeDir(this.paths.freqItemsetsDirPath);
+        // the frequent itemsets of the dataset stand in for the ones of the
+        // estimate datasets
+        this.freqItemsetsPath = this.paths.getFreqItemsetsPath(Paths.estTag, 0);
+        new AlgoNegFIN().runAlgorithm(this.datasetPath, this.minFreq, this.freqItemsetsPath);
+        for (int i = 1; i < NUM_EST_SAMPLES; i++) {
+            FileUtils.copyFile(new File(this.freqItemsetsPath), new File(this.paths.getFreqItemsetsPath(Paths.estTag, i)));
+        }
+        this.freqItemsetToSup = Itemsets.getFreqItemsetToSupMap(this.freqItemsetsPath);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(this.resultsDir);
+    }
+
+    @Benchmark
+    public void negFIN() throws IOException {
+        new AlgoNegFIN().runAlgorithm(this.datasetPath, this.minFreq,
+                new File(this.resultsDir, "negFIN.txt").getPath());
+    }
+
+    @Benchmark
+    public Object2IntOpenHashMap<IntOpenHashSet> negFINMod() throws IOException {
+        return new AlgoNegFINMod().runAlgorithm(this.datasetPath, this.minFreq);
+    }
+
+    @Benchmark
+    public Object2IntOpenHashMap<IntOpenHashSet> getFreqItemsetToSupMap() {
+        return Itemsets.getFreqItemsetToSupMap(this.freqItemsetsPath);
+    }
+
+    @Benchmark
+    public Object2IntOpenHashMap<IntOpenHashSet> getFreqItemsetToSumMap() {
+        return Itemsets.getFreqItemsetToSumMap(this.paths, this.freqItemsetToSup, NUM_EST_SAMPLES);
+    }
+
+    @Benchmark
+    public SparseMatrix createMatrix() {
+        return new Transformer().createMatrix(this.datasetPath);
+    }
+}
@@ -0,0 +1,70 @@
+package alice.benchmarks;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.config.Paths;
+import alice.helpers.Swappables;
+import alice.structures.MultiGraph;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Transformer;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the proposals of the ALICE-S chain on a {@link MultiGraph}
+ * built from a sequence dataset, in ns per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiGraphBenchmark {
+
+    @Param({"SIGN.txt", "BIKE.txt"})
+    public String dataset;
+
+    private MultiGraph graph;
+
+    private Random rnd;
+
+    @Setup
+    public void setup() throws IOException {
+        final Transformer transformer = new Transformer();
+        this.graph = transformer.createMultiGraph(Paths.concat(Config.datasetsDir, "sequential/" + this.dataset));
+        this.rnd = new FastRandom(Config.seed);
+    }
+
+    @Benchmark
+    public Swappables getSwappables() {
+        return this.graph.getSwappables(this.rnd);
+    }
+}
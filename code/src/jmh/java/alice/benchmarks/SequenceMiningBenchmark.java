@@ -0,0 +1,88 @@
+package alice.benchmarks;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.config.Paths;
+import alice.spm.AlgoPrefixSpan;
+import alice.spm.SequenceDatabase;
+import alice.spm.SequentialPatterns;
+import alice.structures.MultiGraph;
+import alice.utils.Config;
+import alice.utils.Transformer;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the frequent sequential pattern miner and of the parsing of
+ * the sequence datasets, in ops per second.
+ * Each dataset is paired with its minimum frequency, by default the one in
+ * scripts/config_seq.cfg; other pairs can be given with
+ * -p datasetAndMinFreq=dataset:minFreq.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SequenceMiningBenchmark {
+
+    @Param({
+        "SIGN.txt:0.4",
+        "BIKE.txt:0.025",
+        "LEVIATHAN.txt:0.15"})
+    public String datasetAndMinFreq;
+
+    private String datasetPath;
+
+    private double minFreq;
+
+    @Setup
+    public void setup() {
+        final String[] datasetAndMinFreq = this.datasetAndMinFreq.split(":");
+        this.datasetPath = Paths.concat(Config.datasetsDir, "sequential/" + datasetAndMinFreq[0]);
+        this.minFreq = Double.parseDouble(datasetAndMinFreq[1]);
+    }
+
+    @Benchmark
+    public SequentialPatterns prefixSpan() throws IOException {
+        return new AlgoPrefixSpan().runAlgorithm(this.datasetPath, this.minFreq, null);
+    }
+
+    @Benchmark
+    public SequenceDatabase loadFile() throws IOException {
+        final SequenceDatabase database = new SequenceDatabase();
+        database.loadFile(this.datasetPath);
+        return database;
+    }
+
+    @Benchmark
+    public MultiGraph createMultiGraph() throws IOException {
+        return new Transformer().createMultiGraph(this.datasetPath);
+    }
+}
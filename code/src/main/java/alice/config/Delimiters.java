@@ -23,4 +23,5 @@ public class Delimiters {
     public static final String space = " ";
     public static final String sup = " #SUP: ";
     public static final String dash = "-";
+    public static final String comma = ",";
 }
@@ -29,6 +29,10 @@ public class JsonKeys {
     public static final String minFreq = "minFreq";
     public static final String fwer = "fwer";
     public static final String numThreads = "numThreads";
+    public static final String numSamplerThreads = "numSamplerThreads";
+    public static final String numMinerThreads = "numMinerThreads";
+    public static final String sampleQueueCapacity = "sampleQueueCapacity";
+    public static final String maxNumActiveSamples = "maxNumActiveSamples";
     public static final String seed = "seed";
     public static final String resultsDir = "resultsDir";
     public static final String cleanup = "cleanup";
@@ -42,6 +46,7 @@ public class JsonKeys {
     public static final String q3StepTime = "q3StepTime";
     public static final String c90StepTime = "c90StepTime";
     public static final String maxStepTime = "maxStepTime";
+    public static final String numRetries = "numRetries";
     public static final String totalTime = "totalTime";
     public static final String logNumEquivMatricesStats = "logNumEquivMatricesStats";
     public static final String saveCount = "saveCount";
@@ -67,6 +72,9 @@ public class JsonKeys {
     public static final String numSigFreqItemsets = "numSigFreqItemsets";
     public static final String adjustedCriticalValue = "adjustedCriticalValue";
     public static final String minPvalues = "minPvalues";
+    public static final String maxExceedances = "maxExceedances";
+    public static final String numUsedEstSamples = "numUsedEstSamples";
+    public static final String boundsOnly = "boundsOnly";
     public static final String totalRuntime = "totalRuntime";
     public static final String createMatrixTime = "createMatrixTime";
     public static final String estSampleAndMinetime = "estSampleAndMineTime";
@@ -79,4 +87,16 @@ public class JsonKeys {
     public static final String freqItemsetLenToCount = "freqItemsetLenToCount";
     public static final String freqItemsetLenToCountQuartiles = "freqItemsetLenToCountQuartiles";
     public static final String sampleAndMine = "sampleAndMine";
+    public static final String scalingStats = "scalingStats";
+    public static final String numTransactions = "numTransactions";
+    public static final String sampleAndMineTime = "sampleAndMineTime";
+    public static final String sampleTime = "sampleTime";
+    public static final String createDatasetTime = "createDatasetTime";
+    public static final String mineTime = "mineTime";
+    public static final String throughput = "throughput";
+    public static final String speedup = "speedup";
+    public static final String peakRss = "peakRss";
+    public static final String peakHeap = "peakHeap";
+    public static final String gcTime = "gcTime";
+    public static final String gcCount = "gcCount";
 }
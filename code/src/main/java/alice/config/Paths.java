@@ -32,6 +32,7 @@ public class Paths {
     private static final String jsonExt = ".json";
     public static final String estTag = "-est";
     public static final String wyTag = "-wy";
+    public static final String observedTag = "-obs";
 
     public final String datasetBaseName;
     public final String samplesPath;
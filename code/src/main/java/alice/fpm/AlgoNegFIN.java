@@ -1,14 +1,15 @@
 package alice.fpm;
 
 
+import alice.utils.BatchedOutput;
+import alice.utils.Config;
 import alice.utils.MemoryLogger;
+import alice.utils.PatternsWriter;
 import com.google.common.collect.Lists;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /*
@@ -66,7 +67,14 @@ public class AlgoNegFIN {
 
     public Map<Integer, ArrayList<BMCTreeNode>> mapItemNodeset; // nodessets of 1-itemsets
 
-    BufferedWriter writer = null; // object to write the output file
+    BatchedOutput writer = null; // object to write the output file
+    PatternsWriter patternsWriter = null; // object to write the output file in binary
+    int[] patternItems; // the items of an itemset written in binary
+
+    /**
+     * The tag before the support of an itemset in the output file.
+     */
+    private static final byte[] SUPPORT_TAG = "#SUP: ".getBytes(StandardCharsets.US_ASCII);
 
     /**
      * Comparator to sort items by decreasing order of frequency
@@ -94,7 +102,7 @@ public class AlgoNegFIN {
         Int2IntOpenHashMap mapItemCount = new Int2IntOpenHashMap();
         mapItemCount.defaultReturnValue(0);
         // scan the database
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        BufferedReader reader = BatchedOutput.newReader(filename);
         String line;
         // for each line (transaction) until the end of the file
         while (((line = reader.readLine()) != null)) {
@@ -158,7 +166,7 @@ public class AlgoNegFIN {
         bmcTreeRoot.bitmapCode = new MyBitVector(numOfFItem);
 
         // READ THE FILE
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        BufferedReader reader = BatchedOutput.newReader(filename);
         String line;
 
         // we will use a buffer to store each transaction that is read.
@@ -391,19 +399,21 @@ public class AlgoNegFIN {
      */
     public void writeItemsetsToFile(SetEnumerationTreeNode curNode, int sameCount) throws IOException {
 
-        // create a stringuffer
-        StringBuilder buffer = new StringBuilder();
+        if (patternsWriter != null) {
+            writeItemsetsToPatterns(curNode, sameCount);
+            return;
+        }
 
         outputCount++;
-        // append items from the itemset to the StringBuilder
+        // write the items of the itemset, formatted straight into the writer
         for (int i = 0; i < itemsetLen; i++) {
-            buffer.append(item[itemset[i]].index);
-            buffer.append(' ');
+            writer.writeInt(item[itemset[i]].index);
+            writer.writeByte(' ');
         }
-        // append the count of the itemset
-        buffer.append("#SUP: ");
-        buffer.append(curNode.count);
-        buffer.append("\n");
+        // write the count of the itemset
+        writer.write(SUPPORT_TAG);
+        writer.writeInt(curNode.count);
+        writer.newLine();
 
         // === Write all combination that can be made using the node list of
         // this itemset
@@ -411,8 +421,8 @@ public class AlgoNegFIN {
             // generate all subsets of the node list except the empty set
             for (long i = 1, max = 1 << sameCount; i < max; i++) {
                 for (int k = 0; k < itemsetLen; k++) {
-                    buffer.append(item[itemset[k]].index);
-                    buffer.append(' ');
+                    writer.writeInt(item[itemset[k]].index);
+                    writer.writeByte(' ');
                 }
 
                 // we create a new subset
@@ -421,20 +431,48 @@ public class AlgoNegFIN {
                     int isSet = (int) i & (1 << j);
                     if (isSet > 0) {
                         // if yes, add it to the set
-                        buffer.append(item[sameItems[j]].index);
-                        buffer.append(' ');
-                        // newSet.add(item[sameItems[j]].index);
+                        writer.writeInt(item[sameItems[j]].index);
+                        writer.writeByte(' ');
                     }
                 }
-                buffer.append("#SUP: ");
-                buffer.append(curNode.count);
-                buffer.append("\n");
+                writer.write(SUPPORT_TAG);
+                writer.writeInt(curNode.count);
+                writer.newLine();
                 outputCount++;
             }
         }
-        // write the strinbuffer to file and create a new line
-        // so that we are ready for writing the next itemset.
-        writer.write(buffer.toString());
+    }
+
+    /**
+     * This method adds an itemset to the binary output + all itemsets that can
+     * be made using its node list.
+     *
+     * @param curNode the current node
+     * @param sameCount the same count
+     * @throws IOException if error while spilling the itemsets to a run
+     */
+    private void writeItemsetsToPatterns(SetEnumerationTreeNode curNode, int sameCount) throws IOException {
+        for (int i = 0; i < itemsetLen; i++) {
+            patternItems[i] = item[itemset[i]].index;
+        }
+        patternsWriter.add(patternItems, itemsetLen, curNode.count);
+        outputCount++;
+
+        // generate all subsets of the node list except the empty set
+        for (long i = 1, max = 1 << sameCount; i < max; i++) {
+            int len = 0;
+            for (int k = 0; k < itemsetLen; k++) {
+                patternItems[len++] = item[itemset[k]].index;
+            }
+            for (int j = 0; j < sameCount; j++) {
+                // check if the j bit is set to 1
+                if (((int) i & (1 << j)) > 0) {
+                    patternItems[len++] = item[sameItems[j]].index;
+                }
+            }
+            patternsWriter.add(patternItems, len, curNode.count);
+            outputCount++;
+        }
     }
 
     /**
@@ -466,7 +504,13 @@ public class AlgoNegFIN {
         MemoryLogger.getInstance().reset();
 
         // create object for writing the output file
-        writer = new BufferedWriter(new FileWriter(output));
+        if (Config.binaryPatterns) {
+            patternsWriter = new PatternsWriter(output, false);
+            writer = null;
+        } else {
+            patternsWriter = null;
+            writer = new BatchedOutput(output);
+        }
 
         // record the start time
         startTimestamp = System.currentTimeMillis();
@@ -477,6 +521,7 @@ public class AlgoNegFIN {
 
         itemsetLen = 0;
         itemset = new int[numOfFItem];
+        patternItems = new int[numOfFItem];
 
         // Build BMC-tree
         construct_BMC_tree(filename); // Lines 2 to 6 of algorithm 3 in the paper
@@ -501,7 +546,11 @@ public class AlgoNegFIN {
             curNode.next = null;
             curNode = next;
         }
-        writer.close();
+        if (patternsWriter != null) {
+            patternsWriter.close();
+        } else {
+            writer.close();
+        }
 
         MemoryLogger.getInstance().checkMemory();
 
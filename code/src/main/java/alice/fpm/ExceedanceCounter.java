@@ -0,0 +1,271 @@
+package alice.fpm;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.utils.PatternsReader;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A class to count, for each frequent itemset of a dataset, the number of
+ * est samples where the itemset has a support no less than its support in the
+ * dataset, i.e., its exceedances.
+ * The frequent itemsets of the dataset and of the est samples are in files
+ * written by {@link alice.utils.PatternsWriter}, i.e., in the same canonical
+ * order, so the counts are a merge of the files: the current itemsets of the
+ * est samples are kept in a heap, and the samples whose current itemset comes
+ * before the itemset of the dataset are moved forward, without any map and
+ * with memory independent of the number of itemsets.
+ * The canonical order is split into ranges with the same number of itemsets
+ * of the dataset, which are merged in parallel.
+ */
+public class ExceedanceCounter {
+
+    /**
+     * The readers of the frequent itemsets of the est samples.
+     */
+    private final PatternsReader[] samples;
+
+    /**
+     * The number of ranges merged in parallel.
+     */
+    private final int numPartitions;
+
+    /**
+     * The executor of the merges of the ranges.
+     */
+    private final Executor executor;
+
+    /**
+     * A consumer of the itemsets of the dataset with their exceedances.
+     */
+    private interface ExceedanceConsumer {
+
+        /**
+         *
+         * @param items the items of the itemset, of which only the first
+         * numItems are valid
+         * @param numItems the number of items
+         * @param sum the number of est samples where the itemset has a support
+         * no less than its support in the dataset
+         */
+        void accept(int[] items, int numItems, int sum);
+    }
+
+    /**
+     *
+     * @param estFreqItemsetsPaths the paths of the frequent itemsets of the est
+     * samples
+     * @param numPartitions the number of ranges merged in parallel
+     * @param executor the executor of the merges of the ranges
+     * @throws IOException if a file cannot be read or is not a file of
+     * patterns
+     */
+    public ExceedanceCounter(String[] estFreqItemsetsPaths, int numPartitions, Executor executor)
+            throws IOException {
+        if (numPartitions < 1) {
+            throw new IllegalArgumentException("The number of partitions must be positive");
+        }
+        this.samples = new PatternsReader[estFreqItemsetsPaths.length];
+        for (int i = 0; i < estFreqItemsetsPaths.length; i++) {
+            this.samples[i] = new PatternsReader(estFreqItemsetsPaths[i]);
+        }
+        this.numPartitions = numPartitions;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts to get the map where each key is a frequent itemset of the
+     * dataset with at least one exceedance and the value is the number of its
+     * exceedances, as {@link Itemsets#getFreqItemsetToSumMap}.
+     *
+     * @param freqItemsets a reader of the frequent itemsets of the dataset
+     * @return a future completed with the map
+     */
+    public CompletableFuture<Object2IntOpenHashMap<IntOpenHashSet>> getFreqItemsetToSumMapAsync(
+            PatternsReader freqItemsets) {
+        final int numRanges = this.getNumRanges(freqItemsets);
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<Object2IntOpenHashMap<IntOpenHashSet>>[] ranges
+                = new CompletableFuture[numRanges];
+        for (int r = 0; r < numRanges; r++) {
+            final int from = getRangeStart(freqItemsets, numRanges, r);
+            final int to = getRangeStart(freqItemsets, numRanges, r + 1);
+            ranges[r] = CompletableFuture.supplyAsync(() -> {
+                final Object2IntOpenHashMap<IntOpenHashSet> freqItemsetToSum = new Object2IntOpenHashMap();
+                this.merge(freqItemsets.duplicate(), from, to, (items, numItems, sum) -> {
+                    if (sum > 0) {
+                        final IntOpenHashSet freqItemset = new IntOpenHashSet(numItems);
+                        for (int i = 0; i < numItems; i++) {
+                            freqItemset.add(items[i]);
+                        }
+                        freqItemsetToSum.put(freqItemset, sum);
+                    }
+                });
+                return freqItemsetToSum;
+            }, this.executor);
+        }
+        return CompletableFuture.allOf(ranges).thenApply(v -> {
+            final Object2IntOpenHashMap<IntOpenHashSet> freqItemsetToSum = ranges[0].join();
+            for (int r = 1; r < numRanges; r++) {
+                freqItemsetToSum.putAll(ranges[r].join());
+            }
+            return freqItemsetToSum;
+        });
+    }
+
+    /**
+     * Gets the minimum number of exceedances of the frequent itemsets of a
+     * dataset, as {@link Itemsets#getMinPvalue}, i.e., among the itemsets with
+     * at least one exceedance, or 0 if there is none.
+     * The merge runs in the calling thread.
+     *
+     * @param freqItemsets a reader of the frequent itemsets of the dataset
+     * @return the minimum number of exceedances
+     */
+    public int getMinSum(PatternsReader freqItemsets) {
+        final int[] minSum = {Integer.MAX_VALUE};
+        this.merge(freqItemsets.duplicate(), 0, freqItemsets.getNumPatterns(), (items, numItems, sum) -> {
+            if (sum > 0) {
+                minSum[0] = Math.min(minSum[0], sum);
+            }
+        });
+        return minSum[0] == Integer.MAX_VALUE ? 0 : minSum[0];
+    }
+
+    /**
+     *
+     * @param freqItemsets a reader of the frequent itemsets of the dataset
+     * @return the number of ranges, so that each one has some itemsets
+     */
+    private int getNumRanges(PatternsReader freqItemsets) {
+        return Math.max(1, Math.min(this.numPartitions, freqItemsets.getNumPatterns()));
+    }
+
+    /**
+     *
+     * @param freqItemsets a reader of the frequent itemsets of the dataset
+     * @param numRanges the number of ranges
+     * @param r the index of a range
+     * @return the rank of the first itemset of the dataset in the range
+     */
+    private static int getRangeStart(PatternsReader freqItemsets, int numRanges, int r) {
+        return (int) ((long) freqItemsets.getNumPatterns() * r / numRanges);
+    }
+
+    /**
+     * Merges the frequent itemsets of the dataset with ranks in [from, to)
+     * with the ones of the est samples.
+     *
+     * @param freqItemsets a reader of the frequent itemsets of the dataset,
+     * used only by this merge
+     * @param from the rank of the first itemset of the dataset
+     * @param to the rank after the last itemset of the dataset
+     * @param consumer the consumer of the itemsets of the dataset with their
+     * exceedances
+     */
+    private void merge(PatternsReader freqItemsets, int from, int to, ExceedanceConsumer consumer) {
+        if (from >= to) {
+            return;
+        }
+        freqItemsets.seek(from);
+        freqItemsets.next();
+        final int[] first = Arrays.copyOf(freqItemsets.getTokens(), freqItemsets.getNumTokens());
+
+        // the heap of the est samples by their current itemset, from the
+        // first one that does not come before the range
+        final PatternsReader[] heap = new PatternsReader[this.samples.length];
+        int heapSize = 0;
+        for (PatternsReader sample : this.samples) {
+            final PatternsReader cursor = sample.duplicate();
+            cursor.seek(cursor.lowerBound(first, first.length));
+            if (cursor.next()) {
+                heap[heapSize++] = cursor;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i);
+        }
+
+        freqItemsets.seek(from);
+        for (int rank = from; rank < to && freqItemsets.next(); rank++) {
+            final int[] items = freqItemsets.getTokens();
+            final int numItems = freqItemsets.getNumTokens();
+            final int length = freqItemsets.getLength();
+            final int sup = freqItemsets.getSupport();
+            int sum = 0;
+            // move forward the est samples up to the itemset, counting the
+            // ones where it has no less support
+            while (heapSize > 0) {
+                final PatternsReader top = heap[0];
+                final int comparison = top.compareTo(length, items, numItems);
+                if (comparison > 0) {
+                    break;
+                }
+                if (comparison == 0 && top.getSupport() >= sup) {
+                    sum++;
+                }
+                if (!top.next()) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, 0);
+            }
+            consumer.accept(items, numItems, sum);
+        }
+    }
+
+    /**
+     * Moves down a reader of the heap until its current itemset does not come
+     * after the ones of its children.
+     *
+     * @param heap the readers of the heap
+     * @param heapSize the number of readers in the heap
+     * @param i the index of the reader to move
+     */
+    private static void siftDown(PatternsReader[] heap, int heapSize, int i) {
+        final PatternsReader reader = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compare(heap[child], reader) >= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = reader;
+    }
+
+    /**
+     *
+     * @param a a reader
+     * @param b another reader
+     * @return the comparison of the current itemsets of the readers
+     */
+    private static int compare(PatternsReader a, PatternsReader b) {
+        return a.compareTo(b.getLength(), b.getTokens(), b.getNumTokens());
+    }
+}
@@ -18,11 +18,12 @@ package alice.fpm;
  */
 import alice.config.Paths;
 import alice.config.Delimiters;
+import alice.utils.BatchedOutput;
+import alice.utils.PatternsReader;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
@@ -65,9 +66,25 @@ public class Itemsets {
      */
     public static Object2DoubleOpenHashMap<IntOpenHashSet> getFreqItemsetToPvalueMap(
             Paths paths, Object2IntOpenHashMap<IntOpenHashSet> freqItemsetToSup, int numEstSamples) {
-        final Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue = new Object2DoubleOpenHashMap();
         final Object2IntOpenHashMap<IntOpenHashSet> freqItemsetToSum
                 = getFreqItemsetToSumMap(paths, freqItemsetToSup, numEstSamples);
+        return getFreqItemsetToPvalueMap(freqItemsetToSum, numEstSamples);
+    }
+
+    /**
+     * Gets a map where each key is a frequent itemset and the value is the
+     * p-value for the frequent itemset.
+     *
+     * @param freqItemsetToSum a map where each key is a frequent itemset and
+     * the value is the number of estimate (sampled) datasets where the itemset
+     * has a support no less than its support in the input dataset
+     * @param numEstSamples the number of samples used to estimate p-values
+     * @return a map where each key is a frequent itemset and the value is the
+     * p-value for the frequent itemset.
+     */
+    public static Object2DoubleOpenHashMap<IntOpenHashSet> getFreqItemsetToPvalueMap(
+            Object2IntOpenHashMap<IntOpenHashSet> freqItemsetToSum, int numEstSamples) {
+        final Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue = new Object2DoubleOpenHashMap();
         for (IntOpenHashSet freqItemset : freqItemsetToSum.keySet()) {
             final int sum = freqItemsetToSum.getInt(freqItemset);
             final double pvalue = getPvalue(sum, numEstSamples);
@@ -96,8 +113,19 @@ public class Itemsets {
         for (int i = 0; i < numEstSamples; i++) {
             final String estFreqItemsetsPath = paths.getFreqItemsetsPath(Paths.estTag, i);
 
+            if (PatternsReader.isPatternsFile(estFreqItemsetsPath)) {
+                final PatternsReader reader = openPatterns(estFreqItemsetsPath);
+                while (reader.next()) {
+                    final IntOpenHashSet freqItemset = getFreqItemset(reader);
+                    if (reader.getSupport() >= freqItemsetToSup.getOrDefault(freqItemset, Integer.MAX_VALUE)) {
+                        freqItemsetToSum.merge(freqItemset, 1, Integer::sum);
+                    }
+                }
+                continue;
+            }
+
             try {
-                final BufferedReader br = new BufferedReader(new FileReader(estFreqItemsetsPath));
+                final BufferedReader br = BatchedOutput.newReader(estFreqItemsetsPath);
                 String line = br.readLine();
                 while (line != null) {
                     final String[] freqItemsetAndSup = line.split(Delimiters.sup);
@@ -150,8 +178,16 @@ public class Itemsets {
     public static Object2IntOpenHashMap<IntOpenHashSet> getFreqItemsetToSupMap(String freqItemsetsPath) {
         final Object2IntOpenHashMap<IntOpenHashSet> freqItemsetToSup = new Object2IntOpenHashMap();
 
+        if (PatternsReader.isPatternsFile(freqItemsetsPath)) {
+            final PatternsReader reader = openPatterns(freqItemsetsPath);
+            while (reader.next()) {
+                freqItemsetToSup.put(getFreqItemset(reader), reader.getSupport());
+            }
+            return freqItemsetToSup;
+        }
+
         try {
-            final BufferedReader br = new BufferedReader(new FileReader(freqItemsetsPath));
+            final BufferedReader br = BatchedOutput.newReader(freqItemsetsPath);
 
             String line = br.readLine();
             while (line != null) {
@@ -171,6 +207,24 @@ public class Itemsets {
         return freqItemsetToSup;
     }
 
+    /**
+     * Opens a file of frequent itemsets written in binary.
+     *
+     * @param freqItemsetsPath the path for the set of frequent itemsets
+     * @return a reader of the frequent itemsets
+     */
+    public static PatternsReader openPatterns(String freqItemsetsPath) {
+        PatternsReader reader = null;
+        try {
+            reader = new PatternsReader(freqItemsetsPath);
+        } catch (IOException e) {
+            System.err.println("Error reading frequent itemsets from " + freqItemsetsPath);
+            e.printStackTrace();
+            System.exit(1);
+        }
+        return reader;
+    }
+
     /**
      * Gets the estimated p-value.
      *
@@ -192,6 +246,15 @@ public class Itemsets {
         return freqItemset;
     }
 
+    public static IntOpenHashSet getFreqItemset(PatternsReader reader) {
+        final IntOpenHashSet freqItemset = new IntOpenHashSet(reader.getNumTokens());
+        final int[] items = reader.getTokens();
+        for (int i = 0; i < reader.getNumTokens(); i++) {
+            freqItemset.add(items[i]);
+        }
+        return freqItemset;
+    }
+
     public static int getSup(String[] itemsetAndSup) {
         return Integer.parseInt(itemsetAndSup[1]);
     }
@@ -51,19 +51,41 @@ public class MinPvaluesTask implements Runnable {
      */
     private final int id;
 
+    /**
+     * The counter of the exceedances in the est samples, or null if the
+     * frequent itemsets are written as text.
+     */
+    private final ExceedanceCounter estCounter;
+
     public MinPvaluesTask(
             Paths paths, String freqItemsetsPath, int numEstSamples, double[] minPvalues, int id) {
+        this(paths, freqItemsetsPath, numEstSamples, minPvalues, id, null);
+    }
+
+    public MinPvaluesTask(
+            Paths paths,
+            String freqItemsetsPath,
+            int numEstSamples,
+            double[] minPvalues,
+            int id,
+            ExceedanceCounter estCounter) {
         this.paths = paths;
         this.freqItemsetsPath = freqItemsetsPath;
         this.numEstSamples = numEstSamples;
         this.minPvalues = minPvalues;
         this.id = id;
+        this.estCounter = estCounter;
     }
 
     @Override
     public void run() {
-        final double minPvalue
-                = Itemsets.getMinPvalue(this.paths, this.freqItemsetsPath, this.numEstSamples);
+        final double minPvalue;
+        if (this.estCounter != null) {
+            final int minSum = this.estCounter.getMinSum(Itemsets.openPatterns(this.freqItemsetsPath));
+            minPvalue = Itemsets.getPvalue(minSum, this.numEstSamples);
+        } else {
+            minPvalue = Itemsets.getMinPvalue(this.paths, this.freqItemsetsPath, this.numEstSamples);
+        }
         this.minPvalues[this.id] = minPvalue;
         System.out.println("Minimum p-value for " + this.freqItemsetsPath + ": " + minPvalue);
     }
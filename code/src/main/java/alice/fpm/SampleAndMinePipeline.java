@@ -0,0 +1,469 @@
+package alice.fpm;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.samplers.GmmtSampler;
+import alice.samplers.Sampler;
+import alice.structures.CompressedMatrix;
+import alice.structures.GmmtProposalIndex;
+import alice.structures.SparseMatrix;
+import alice.utils.AdmissionController;
+import alice.utils.Config;
+import alice.utils.Timer;
+import alice.utils.Transformer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import org.javatuples.Pair;
+
+/**
+ * A class to sample transactional datasets and mine them for frequent
+ * itemsets with two pools of threads joined by a bounded queue.
+ * The threads of the sampler pool run the chains, put the compressed samples
+ * in the queue, and submit their mining to the miner pool, whose threads take
+ * them from the queue, write them, and mine them.
+ * Since no thread of the miner pool waits for a sample, the miner pool can
+ * also run other tasks between the samples, see {@link #getMinerExecutor}.
+ * A sampler thread waits while the queue is full, so at most
+ * numSamplerThreads chains, queueCapacity samples in the queue, and
+ * numMinerThreads samples being mined are alive at once.
+ * A sampler thread also waits, before starting its chain, until an
+ * {@link AdmissionController} estimates that the alive samples fit in the
+ * heap budget in {@link Config}.
+ */
+public class SampleAndMinePipeline {
+
+    /**
+     * The sampler used to sample matrices.
+     */
+    private final Sampler sampler;
+
+    /**
+     * The transformer to create the datasets from the matrices.
+     */
+    private final Transformer transformer;
+
+    /**
+     * The matrix of the observed dataset.
+     */
+    private final SparseMatrix matrix;
+
+    /**
+     * The degree of the matrix.
+     */
+    private final long degree;
+
+    /**
+     * The number of swaps to perform.
+     */
+    private final int numSwaps;
+
+    /**
+     * The minimum frequency threshold used to mine the sets of frequent
+     * itemsets.
+     */
+    private final double minFreq;
+
+    /**
+     * The number of threads that sample the matrices.
+     */
+    private final int numSamplerThreads;
+
+    /**
+     * The number of threads that mine the samples.
+     */
+    private final int numMinerThreads;
+
+    /**
+     * The maximum number of samples waiting to be mined.
+     */
+    private final int queueCapacity;
+
+    /**
+     * The pool of the threads that sample the matrices.
+     */
+    private final ExecutorService samplerPool;
+
+    /**
+     * The pool of the threads that mine the samples.
+     */
+    private final ExecutorService minerPool;
+
+    /**
+     * The time in ns spent sampling the matrices, summed over the samples.
+     */
+    private final LongAdder sampleTime = new LongAdder();
+
+    /**
+     * The time in ns spent writing the samples, summed over the samples.
+     */
+    private final LongAdder createDatasetTime = new LongAdder();
+
+    /**
+     * The time in ns spent mining the samples, summed over the samples.
+     */
+    private final LongAdder mineTime = new LongAdder();
+
+    /**
+     * The controller that limits the samples alive at once to the heap
+     * budget, for the last run.
+     */
+    private AdmissionController admissionController;
+
+    /**
+     * Whether the samples not yet started are skipped, in this run and in
+     * the later ones.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates a pipeline whose pools and queue have the sizes in
+     * {@link Config}. When those are 0, the numThreads threads are split
+     * between the two pools, so that together they do not use more threads
+     * than numThreads, and a single sample waits to be mined, so that few
+     * samples are alive at once.
+     *
+     * @param sampler the sampler to use for sampling datasets
+     * @param transformer the transformer of the observed dataset
+     * @param matrix the matrix of the observed dataset
+     * @param degree the degree of the matrix; 0 if the sampler does not use
+     * it
+     * @param numSwaps the number of swaps to use for sampling
+     * @param minFreq the minimum frequency threshold for mining frequent
+     * itemsets
+     * @param numThreads the default number of threads of the two pools
+     */
+    public SampleAndMinePipeline(
+            Sampler sampler,
+            Transformer transformer,
+            SparseMatrix matrix,
+            long degree,
+            int numSwaps,
+            double minFreq,
+            int numThreads) {
+        this(sampler,
+                transformer,
+                matrix,
+                degree,
+                numSwaps,
+                minFreq,
+                Config.numSamplerThreads > 0 ? Config.numSamplerThreads : Math.max(1, numThreads / 2),
+                Config.numMinerThreads > 0 ? Config.numMinerThreads : Math.max(1, numThreads - numThreads / 2),
+                Config.sampleQueueCapacity > 0 ? Config.sampleQueueCapacity : 1);
+    }
+
+    /**
+     *
+     * @param sampler the sampler to use for sampling datasets
+     * @param transformer the transformer of the observed dataset
+     * @param matrix the matrix of the observed dataset
+     * @param degree the degree of the matrix; 0 if the sampler does not use
+     * it
+     * @param numSwaps the number of swaps to use for sampling
+     * @param minFreq the minimum frequency threshold for mining frequent
+     * itemsets
+     * @param numSamplerThreads the number of threads that sample the matrices
+     * @param numMinerThreads the number of threads that mine the samples
+     * @param queueCapacity the maximum number of samples waiting to be mined
+     */
+    public SampleAndMinePipeline(
+            Sampler sampler,
+            Transformer transformer,
+            SparseMatrix matrix,
+            long degree,
+            int numSwaps,
+            double minFreq,
+            int numSamplerThreads,
+            int numMinerThreads,
+            int queueCapacity) {
+        if (numSamplerThreads < 1 || numMinerThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The pools and the queue must have a positive size");
+        }
+        this.sampler = sampler;
+        this.transformer = transformer;
+        this.matrix = matrix;
+        this.degree = degree;
+        this.numSwaps = numSwaps;
+        this.minFreq = minFreq;
+        this.numSamplerThreads = numSamplerThreads;
+        this.numMinerThreads = numMinerThreads;
+        this.queueCapacity = queueCapacity;
+        this.samplerPool = Executors.newFixedThreadPool(numSamplerThreads);
+        this.minerPool = Executors.newFixedThreadPool(numMinerThreads);
+    }
+
+    /**
+     * Samples a dataset for each seed, writes it to the sample path with the
+     * same index, and saves its frequent itemsets to the frequent itemsets
+     * path with the same index.
+     *
+     * @param seeds the random seeds of the samples
+     * @param samplePaths the paths to save the sampled datasets
+     * @param freqItemsetsPaths the paths to save the sets of frequent itemsets
+     */
+    public void sampleAndMine(long[] seeds, String[] samplePaths, String[] freqItemsetsPaths) {
+        CompletableFuture.allOf(this.sampleAndMineAsync(seeds, samplePaths, freqItemsetsPaths)).join();
+    }
+
+    /**
+     * Starts to sample a dataset for each seed and mine it, as
+     * {@link #sampleAndMine}, and returns without waiting for the samples.
+     * The samples are started in the order of the seeds.
+     * A pipeline can run several times, and its pools live until
+     * {@link #shutdown}, which the caller calls once it no longer needs the
+     * pipeline or its miner pool.
+     *
+     * @param seeds the random seeds of the samples
+     * @param samplePaths the paths to save the sampled datasets
+     * @param freqItemsetsPaths the paths to save the sets of frequent itemsets
+     * @return a future for each sample, completed once its frequent itemsets
+     * are saved
+     */
+    public CompletableFuture<Void>[] sampleAndMineAsync(
+            long[] seeds, String[] samplePaths, String[] freqItemsetsPaths) {
+        final BlockingQueue<Pair<Integer, CompressedMatrix>> queue
+                = new ArrayBlockingQueue<>(this.queueCapacity);
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<Void>[] mined = new CompletableFuture[seeds.length];
+        // a sample is alive from the start of its chain to the end of its
+        // mining, so the pools and the queue hold at most this many
+        long numOnes = 0;
+        for (int r = 0; r < this.matrix.getNumRows(); r++) {
+            numOnes += this.matrix.getNumNonzeroIndices(r);
+        }
+        long footprint = AdmissionController.estimateFootprint(
+                this.matrix.getNumRows(), this.matrix.getNumCols(), numOnes);
+        if (this.sampler instanceof GmmtSampler) {
+            // the chain may sample the swappable pairs with an index of the
+            // overlaps of the rows
+            footprint += GmmtProposalIndex.estimateFootprint(this.matrix.getNumRows(), numOnes);
+        }
+        final AdmissionController admission = new AdmissionController(
+                this.numSamplerThreads + this.queueCapacity + this.numMinerThreads, footprint);
+        this.admissionController = admission;
+
+        for (int i = 0; i < seeds.length; i++) {
+            final int id = i;
+            mined[i] = new CompletableFuture<>();
+            this.samplerPool.execute(
+                    () -> this.sample(id, seeds[id], queue, samplePaths, freqItemsetsPaths, mined, admission));
+        }
+        return mined;
+    }
+
+    /**
+     * Skips the samples that are not yet started, in this run and in the
+     * later ones: their futures are completed without sampling and mining
+     * them, and their files are not written.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Returns the executor of the miner pool, to run tasks that use the
+     * mined samples without adding threads to the ones of the pipeline.
+     * The tasks are queued with the mining of the samples, so a task that
+     * waits for a sample must not block a thread of the pool.
+     *
+     * @return the executor of the miner pool
+     */
+    public Executor getMinerExecutor() {
+        return this.minerPool;
+    }
+
+    /**
+     * Shuts down the pools: the tasks already submitted are run, and then the
+     * threads terminate.
+     * The pipeline cannot run again afterwards.
+     */
+    public void shutdown() {
+        this.samplerPool.shutdown();
+        this.minerPool.shutdown();
+    }
+
+    /**
+     * Samples a matrix, puts it in the queue, waiting until the sample fits
+     * in the heap budget and while the queue is full, and submits its mining.
+     * If the pipeline is stopped, it completes the future of the sample
+     * without sampling it instead.
+     * If the sampling fails, the future of the sample is completed
+     * exceptionally.
+     *
+     * @param id the index of the sample
+     * @param seed the random seed of the sample
+     * @param queue the queue of the samples to mine
+     * @param samplePaths the paths to save the sampled datasets
+     * @param freqItemsetsPaths the paths to save the sets of frequent itemsets
+     * @param mined the futures of the samples
+     * @param admission the controller of the samples alive at once
+     */
+    private void sample(
+            int id,
+            long seed,
+            BlockingQueue<Pair<Integer, CompressedMatrix>> queue,
+            String[] samplePaths,
+            String[] freqItemsetsPaths,
+            CompletableFuture<Void>[] mined,
+            AdmissionController admission) {
+        if (this.stopped) {
+            mined[id].complete(null);
+            return;
+        }
+        boolean admitted = false;
+        try {
+            admission.acquire();
+            admitted = true;
+            if (this.stopped) {
+                admission.release();
+                mined[id].complete(null);
+                return;
+            }
+            final long sampleStart = System.nanoTime();
+            // the compressed sample is much smaller than the state of the
+            // chain, which can be collected while the sample waits
+            final CompressedMatrix sample = this.sampler.sampleCompressed(
+                    this.matrix, this.degree, this.numSwaps, seed, new Timer(false));
+            this.sampleTime.add(System.nanoTime() - sampleStart);
+            queue.put(Pair.with(id, sample));
+        } catch (InterruptedException e) {
+            // the interrupt is kept for the owner of the thread
+            System.err.println("Interrupted while sampling dataset " + id);
+            Thread.currentThread().interrupt();
+            if (admitted) {
+                admission.release();
+            }
+            mined[id].completeExceptionally(e);
+            return;
+        } catch (Throwable e) {
+            // an Error too must complete the future, or its waiters hang
+            System.err.println("Error sampling dataset " + id);
+            if (admitted) {
+                admission.release();
+            }
+            mined[id].completeExceptionally(e);
+            return;
+        }
+        // each mining task mines the first sample in the queue, which holds
+        // at least the sample put by its submitter
+        this.minerPool.execute(() -> this.mine(queue, samplePaths, freqItemsetsPaths, mined, admission));
+    }
+
+    /**
+     * Takes a sample from the queue, writes it, and mines it.
+     *
+     * @param queue the queue of the samples to mine
+     * @param samplePaths the paths to save the sampled datasets
+     * @param freqItemsetsPaths the paths to save the sets of frequent itemsets
+     * @param mined the futures of the samples
+     * @param admission the controller of the samples alive at once
+     */
+    private void mine(
+            BlockingQueue<Pair<Integer, CompressedMatrix>> queue,
+            String[] samplePaths,
+            String[] freqItemsetsPaths,
+            CompletableFuture<Void>[] mined,
+            AdmissionController admission) {
+        final Pair<Integer, CompressedMatrix> sample = queue.poll();
+        final int id = sample.getValue0();
+        try {
+            final long createDatasetStart = System.nanoTime();
+            this.transformer.createDataset(samplePaths[id], sample.getValue1());
+            System.out.println("Sample created: " + samplePaths[id]);
+
+            final long mineStart = System.nanoTime();
+            this.createDatasetTime.add(mineStart - createDatasetStart);
+            FreqItemsetMiner.mine(samplePaths[id], this.minFreq, freqItemsetsPaths[id]);
+            this.mineTime.add(System.nanoTime() - mineStart);
+            System.out.println("Frequent itemsets mined: " + freqItemsetsPaths[id]);
+            mined[id].complete(null);
+        } catch (Throwable e) {
+            // an Error too must complete the future, or its waiters hang
+            System.err.println("Error mining dataset " + id);
+            if (e instanceof InterruptedException || e.getCause() instanceof InterruptedException) {
+                // the interrupt of a wrapped wait is kept too
+                Thread.currentThread().interrupt();
+            }
+            mined[id].completeExceptionally(e);
+        } finally {
+            admission.release();
+        }
+    }
+
+    /**
+     *
+     * @return the number of threads that sample the matrices
+     */
+    public int getNumSamplerThreads() {
+        return this.numSamplerThreads;
+    }
+
+    /**
+     *
+     * @return the number of threads that mine the samples
+     */
+    public int getNumMinerThreads() {
+        return this.numMinerThreads;
+    }
+
+    /**
+     *
+     * @return the maximum number of samples waiting to be mined
+     */
+    public int getQueueCapacity() {
+        return this.queueCapacity;
+    }
+
+    /**
+     *
+     * @return the largest number of samples alive at once in the last run
+     */
+    public int getMaxNumActiveSamples() {
+        return this.admissionController == null ? 0 : this.admissionController.getMaxNumActive();
+    }
+
+    /**
+     *
+     * @return the time in ns spent sampling the matrices, summed over the
+     * samples
+     */
+    public long getSampleTime() {
+        return this.sampleTime.sum();
+    }
+
+    /**
+     *
+     * @return the time in ns spent writing the samples, summed over the
+     * samples
+     */
+    public long getCreateDatasetTime() {
+        return this.createDatasetTime.sum();
+    }
+
+    /**
+     *
+     * @return the time in ns spent mining the samples, summed over the
+     * samples
+     */
+    public long getMineTime() {
+        return this.mineTime.sum();
+    }
+}
@@ -21,11 +21,8 @@ import alice.config.Paths;
 import alice.samplers.GmmtSampler;
 import alice.samplers.Sampler;
 import alice.structures.GmmtMatrix;
+import alice.utils.FastRandom;
 import alice.utils.Transformer;
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 /**
  * A class to sample transactional datasets using DiFfuSR or GMMT and then mine
@@ -36,7 +33,8 @@ public class SampleAndMiner {
     /**
      * Samples transactional datasets using the sampler and mines the sampled
      * datasets for frequent itemsets. 
-     * The sampling and mining are done in parallel.
+     * The sampling and mining are done in parallel, by the pools of a
+     * {@link SampleAndMinePipeline}.
      *
      * @param datasetPath the path to the dataset
      * @param sampler the sampler to use for sampling datasets
@@ -65,36 +63,28 @@ public class SampleAndMiner {
             degree = new GmmtMatrix(matrix).getDegree();
         }
         final Paths paths = new Paths(datasetPath, resultsDir);
-        final Random rnd = new Random(seed);
-        final ExecutorService pool = Executors.newFixedThreadPool(numThreads);
 
         Paths.makeDir(paths.samplesPath);
         Paths.makeDir(paths.freqItemsetsDirPath);
 
+        final long[] seeds = new long[numSamples];
+        final String[] samplePaths = new String[numSamples];
+        final String[] freqItemsetsPaths = new String[numSamples];
         for (int i = 0; i < numSamples; i++) {
-            final String samplePath = paths.getSamplePath("-ds", i);
-            final String freqItemsetsPath = paths.getFreqItemsetsPath("-fis", i);
-            final SampleAndMineTask sampleTask
-                    = new SampleAndMineTask(
-                            sampler,
-                            transformer,
-                            matrix,
-                            degree,
-                            numSwaps,
-                            rnd.nextLong(),
-                            minFreq,
-                            samplePath,
-                            freqItemsetsPath);
-            pool.execute(sampleTask);
-        }
-
-        pool.shutdown();
-        try {
-            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            System.err.println("Error executing sample and mine tasks");
-            e.printStackTrace();
-            System.exit(1);
+            seeds[i] = FastRandom.streamSeed(seed, i);
+            samplePaths[i] = paths.getSamplePath("-ds", i);
+            freqItemsetsPaths[i] = paths.getFreqItemsetsPath("-fis", i);
         }
+        final SampleAndMinePipeline pipeline
+                = new SampleAndMinePipeline(
+                        sampler,
+                        transformer,
+                        matrix,
+                        degree,
+                        numSwaps,
+                        minFreq,
+                        numThreads);
+        pipeline.sampleAndMine(seeds, samplePaths, freqItemsetsPaths);
+        pipeline.shutdown();
     }
 }
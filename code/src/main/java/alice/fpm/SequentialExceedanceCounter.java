@@ -0,0 +1,396 @@
+package alice.fpm;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.utils.PatternsReader;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A class to count the exceedances of the frequent itemsets of the observed
+ * dataset and of the WY samples one est sample at a time, stopping as in the
+ * sequential p-values of Besag and Clifford.
+ * The counting of an itemset stops once it has maxExceedances exceedances,
+ * after L est samples, and its p-value is maxExceedances / L; the p-value of
+ * the other itemsets is {@link Itemsets#getPvalue} of their exceedances in all
+ * the est samples.
+ * After each est sample, the p-values that the itemsets can still get in the
+ * remaining est samples bound the minimum p-values of the WY samples and the
+ * adjusted critical value, and the drawing of the est samples can stop once
+ * every frequent itemset of the observed dataset is significant or not for
+ * any value in the bounds.
+ * The significant frequent itemsets are then the same as with all the est
+ * samples, but the adjusted critical value is its lower bound, and the
+ * p-value of a significant frequent itemset is its upper bound.
+ * As in {@link Itemsets}, only the itemsets with at least one exceedance get
+ * a p-value.
+ * The frequent itemsets are in files written by
+ * {@link alice.utils.PatternsWriter}, so that the counts of an est sample are
+ * a merge of the files.
+ */
+public class SequentialExceedanceCounter {
+
+    /**
+     * The readers of the frequent itemsets of the observed dataset, first,
+     * and of the WY samples.
+     */
+    private final PatternsReader[] freqItemsets;
+
+    /**
+     * The number of exceedances of each frequent itemset of each reader, up
+     * to maxExceedances.
+     */
+    private final int[][] sums;
+
+    /**
+     * The number of est samples after which each frequent itemset of each
+     * reader has maxExceedances exceedances, or 0 if it has fewer.
+     */
+    private final int[][] stops;
+
+    /**
+     * The maximum number of est samples.
+     */
+    private final int numEstSamples;
+
+    /**
+     * The number of exceedances after which the counting of an itemset stops.
+     */
+    private final int maxExceedances;
+
+    /**
+     * The family wise error rate.
+     */
+    private final double fwer;
+
+    /**
+     * The number of est samples counted.
+     */
+    private int numAddedSamples = 0;
+
+    /**
+     * The lower bound of the minimum p-value of each WY sample.
+     */
+    private final double[] minPvalueLowerBounds;
+
+    /**
+     * The upper bound of the minimum p-value of each WY sample.
+     */
+    private final double[] minPvalueUpperBounds;
+
+    /**
+     * The lower bound of the adjusted critical value.
+     */
+    private double adjustedCriticalValueLowerBound;
+
+    /**
+     * The upper bound of the adjusted critical value.
+     */
+    private double adjustedCriticalValueUpperBound;
+
+    /**
+     * Whether every frequent itemset of the observed dataset is significant
+     * or not for any adjusted critical value in the bounds.
+     */
+    private boolean resolved = false;
+
+    /**
+     *
+     * @param freqItemsets a reader of the frequent itemsets of the observed
+     * dataset
+     * @param wyFreqItemsets the readers of the frequent itemsets of the WY
+     * samples
+     * @param numEstSamples the maximum number of est samples
+     * @param maxExceedances the number of exceedances after which the counting
+     * of an itemset stops
+     * @param fwer the family wise error rate
+     */
+    public SequentialExceedanceCounter(
+            PatternsReader freqItemsets,
+            PatternsReader[] wyFreqItemsets,
+            int numEstSamples,
+            int maxExceedances,
+            double fwer) {
+        if (maxExceedances < 1) {
+            throw new IllegalArgumentException("The number of exceedances must be positive");
+        }
+        this.freqItemsets = new PatternsReader[1 + wyFreqItemsets.length];
+        this.freqItemsets[0] = freqItemsets;
+        System.arraycopy(wyFreqItemsets, 0, this.freqItemsets, 1, wyFreqItemsets.length);
+        this.sums = new int[this.freqItemsets.length][];
+        this.stops = new int[this.freqItemsets.length][];
+        for (int i = 0; i < this.freqItemsets.length; i++) {
+            this.sums[i] = new int[this.freqItemsets[i].getNumPatterns()];
+            this.stops[i] = new int[this.freqItemsets[i].getNumPatterns()];
+        }
+        this.numEstSamples = numEstSamples;
+        this.maxExceedances = maxExceedances;
+        this.fwer = fwer;
+        this.minPvalueLowerBounds = new double[wyFreqItemsets.length];
+        this.minPvalueUpperBounds = new double[wyFreqItemsets.length];
+    }
+
+    /**
+     * Starts to count the exceedances in the next est sample, merging it with
+     * the frequent itemsets of each reader in parallel, and then updates the
+     * bounds.
+     * The next est sample can be added once the future is completed.
+     *
+     * @param estFreqItemsets a reader of the frequent itemsets of the est
+     * sample
+     * @param executor the executor of the merges
+     * @return a future completed once the bounds are updated
+     */
+    public CompletableFuture<Void> addAsync(PatternsReader estFreqItemsets, Executor executor) {
+        if (this.numAddedSamples == this.numEstSamples) {
+            throw new IllegalStateException("All the est samples are counted");
+        }
+        final int numSamples = ++this.numAddedSamples;
+        final CompletableFuture<?>[] merged = new CompletableFuture<?>[this.freqItemsets.length];
+        for (int i = 0; i < this.freqItemsets.length; i++) {
+            final int id = i;
+            merged[i] = CompletableFuture.runAsync(
+                    () -> this.count(id, estFreqItemsets.duplicate(), numSamples), executor);
+        }
+        return CompletableFuture.allOf(merged).thenRun(this::update);
+    }
+
+    /**
+     * Counts the exceedances of the frequent itemsets of a reader in an est
+     * sample.
+     *
+     * @param id the index of the reader
+     * @param estFreqItemsets a reader of the frequent itemsets of the est
+     * sample, used only by this merge
+     * @param numSamples the number of est samples counted with this one
+     */
+    private void count(int id, PatternsReader estFreqItemsets, int numSamples) {
+        final PatternsReader freqItemsets = this.freqItemsets[id].duplicate();
+        final int[] sums = this.sums[id];
+        final int[] stops = this.stops[id];
+        boolean hasNext = estFreqItemsets.next();
+        for (int rank = 0; hasNext && freqItemsets.next(); rank++) {
+            final int length = freqItemsets.getLength();
+            final int[] items = freqItemsets.getTokens();
+            final int numItems = freqItemsets.getNumTokens();
+            int comparison;
+            while ((comparison = estFreqItemsets.compareTo(length, items, numItems)) < 0
+                    && (hasNext = estFreqItemsets.next())) {
+                // move forward the est sample up to the itemset
+            }
+            if (hasNext && comparison == 0 && stops[rank] == 0
+                    && estFreqItemsets.getSupport() >= freqItemsets.getSupport()
+                    && ++sums[rank] == this.maxExceedances) {
+                stops[rank] = numSamples;
+            }
+        }
+    }
+
+    /**
+     * Updates the bounds of the minimum p-values and of the adjusted critical
+     * value, and whether the observed frequent itemsets are resolved.
+     */
+    private void update() {
+        final int numWySamples = this.minPvalueLowerBounds.length;
+        for (int i = 0; i < numWySamples; i++) {
+            this.setMinPvalueBounds(i);
+        }
+        if (numWySamples > 0) {
+            final int criticalIndex = (int) (numWySamples * this.fwer);
+            final double[] lowerBounds = this.minPvalueLowerBounds.clone();
+            final double[] upperBounds = this.minPvalueUpperBounds.clone();
+            Arrays.sort(lowerBounds);
+            Arrays.sort(upperBounds);
+            this.adjustedCriticalValueLowerBound = lowerBounds[criticalIndex];
+            this.adjustedCriticalValueUpperBound = upperBounds[criticalIndex];
+        }
+
+        final int[] sums = this.sums[0];
+        final int[] stops = this.stops[0];
+        for (int rank = 0; rank < sums.length; rank++) {
+            if (this.isCounted(sums[rank], stops[rank])) {
+                if (this.getUpperPvalue(sums[rank], stops[rank]) > this.adjustedCriticalValueLowerBound
+                        && this.getLowerPvalue(sums[rank], stops[rank]) <= this.adjustedCriticalValueUpperBound) {
+                    return;
+                }
+            } else if (this.numAddedSamples < this.numEstSamples
+                    && this.getLowerPvalue(0, 0) <= this.adjustedCriticalValueUpperBound) {
+                // the itemset may get an exceedance and a p-value that is
+                // significant
+                return;
+            }
+        }
+        this.resolved = true;
+    }
+
+    /**
+     * Sets the bounds of the minimum p-value of a WY sample, i.e., of the
+     * minimum p-value of its frequent itemsets with an exceedance, or of
+     * {@link Itemsets#getPvalue} of 0 if there is none.
+     *
+     * @param wyId the index of the WY sample
+     */
+    private void setMinPvalueBounds(int wyId) {
+        final int[] sums = this.sums[1 + wyId];
+        final int[] stops = this.stops[1 + wyId];
+        double lowerBound = Double.POSITIVE_INFINITY;
+        double upperBound = Double.POSITIVE_INFINITY;
+        boolean hasCounted = false;
+        boolean hasUncounted = false;
+        for (int rank = 0; rank < sums.length; rank++) {
+            if (this.isCounted(sums[rank], stops[rank])) {
+                hasCounted = true;
+                lowerBound = Math.min(lowerBound, this.getLowerPvalue(sums[rank], stops[rank]));
+                upperBound = Math.min(upperBound, this.getUpperPvalue(sums[rank], stops[rank]));
+            } else if (this.numAddedSamples < this.numEstSamples) {
+                hasUncounted = true;
+            }
+        }
+        if (hasUncounted) {
+            lowerBound = Math.min(lowerBound, this.getLowerPvalue(0, 0));
+        }
+        if (!hasCounted) {
+            // either no itemset gets an exceedance, or the minimum p-value is
+            // at most the one of any itemset that gets one
+            final double noExceedancePvalue = Itemsets.getPvalue(0, this.numEstSamples);
+            lowerBound = Math.min(lowerBound, noExceedancePvalue);
+            upperBound = hasUncounted
+                    ? Math.max(noExceedancePvalue, this.getUpperPvalue(0, 0))
+                    : noExceedancePvalue;
+        }
+        this.minPvalueLowerBounds[wyId] = lowerBound;
+        this.minPvalueUpperBounds[wyId] = upperBound;
+    }
+
+    /**
+     *
+     * @param sum the number of exceedances of an itemset
+     * @param stop the number of est samples after which the itemset has
+     * maxExceedances exceedances, or 0
+     * @return whether the itemset has an exceedance, and then gets a p-value
+     */
+    private boolean isCounted(int sum, int stop) {
+        return sum > 0 || stop > 0;
+    }
+
+    /**
+     *
+     * @param sum the number of exceedances of an itemset
+     * @param stop the number of est samples after which the itemset has
+     * maxExceedances exceedances, or 0
+     * @return the minimum p-value of the itemset over the remaining est
+     * samples, given that it has an exceedance
+     */
+    private double getLowerPvalue(int sum, int stop) {
+        if (stop > 0) {
+            return (double) this.maxExceedances / stop;
+        }
+        // the counting may still stop, after more est samples than the
+        // maximum number
+        return Math.min(Itemsets.getPvalue(Math.max(sum, 1), this.numEstSamples),
+                (double) this.maxExceedances / this.numEstSamples);
+    }
+
+    /**
+     *
+     * @param sum the number of exceedances of an itemset
+     * @param stop the number of est samples after which the itemset has
+     * maxExceedances exceedances, or 0
+     * @return the maximum p-value of the itemset over the remaining est
+     * samples
+     */
+    private double getUpperPvalue(int sum, int stop) {
+        if (stop > 0) {
+            return (double) this.maxExceedances / stop;
+        }
+        final int numRemainingSamples = this.numEstSamples - this.numAddedSamples;
+        double upperPvalue = Itemsets.getPvalue(
+                Math.min(this.maxExceedances - 1, sum + numRemainingSamples), this.numEstSamples);
+        final int numMissingExceedances = this.maxExceedances - sum;
+        if (numMissingExceedances <= numRemainingSamples) {
+            // the counting stops at the earliest in the next est samples
+            upperPvalue = Math.max(upperPvalue,
+                    (double) this.maxExceedances / (this.numAddedSamples + numMissingExceedances));
+        }
+        return upperPvalue;
+    }
+
+    /**
+     *
+     * @return whether every frequent itemset of the observed dataset is
+     * significant or not for any adjusted critical value in the bounds, so
+     * that no more est samples are needed
+     */
+    public boolean isResolved() {
+        return this.resolved || this.numAddedSamples == this.numEstSamples;
+    }
+
+    /**
+     *
+     * @return the number of est samples counted
+     */
+    public int getNumAddedSamples() {
+        return this.numAddedSamples;
+    }
+
+    /**
+     *
+     * @return the lower bound of the minimum p-value of each WY sample, which
+     * is the minimum p-value once all the est samples are counted
+     */
+    public double[] getMinPvalues() {
+        return this.minPvalueLowerBounds.clone();
+    }
+
+    /**
+     *
+     * @return the lower bound of the adjusted critical value
+     */
+    public double getAdjustedCriticalValue() {
+        return this.adjustedCriticalValueLowerBound;
+    }
+
+    /**
+     * Gets the map where each key is a frequent itemset of the observed
+     * dataset with an exceedance and the value is its p-value: the upper
+     * bound of the p-value for a significant itemset, and the lower bound
+     * otherwise, so that the itemsets with a p-value no greater than the
+     * lower bound of the adjusted critical value are the significant ones
+     * once the itemsets are resolved.
+     *
+     * @return the map
+     */
+    public Object2DoubleOpenHashMap<IntOpenHashSet> getFreqItemsetToPvalueMap() {
+        final Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue = new Object2DoubleOpenHashMap();
+        final PatternsReader freqItemsets = this.freqItemsets[0].duplicate();
+        final int[] sums = this.sums[0];
+        final int[] stops = this.stops[0];
+        for (int rank = 0; freqItemsets.next(); rank++) {
+            if (this.isCounted(sums[rank], stops[rank])) {
+                final double upperPvalue = this.getUpperPvalue(sums[rank], stops[rank]);
+                freqItemsetToPvalue.put(Itemsets.getFreqItemset(freqItemsets),
+                        upperPvalue <= this.adjustedCriticalValueLowerBound
+                        ? upperPvalue
+                        : this.getLowerPvalue(sums[rank], stops[rank]));
+            }
+        }
+        return freqItemsetToPvalue;
+    }
+}
@@ -22,8 +22,11 @@ import alice.structures.SparseMatrix;
 import alice.config.Paths;
 import alice.config.JsonKeys;
 import alice.samplers.GmmtSampler;
+import alice.utils.FastRandom;
 import alice.utils.Config;
 import alice.utils.JsonFile;
+import alice.utils.PatternsReader;
+import alice.utils.PatternsWriter;
 import alice.samplers.Sampler;
 import alice.structures.GmmtMatrix;
 import alice.utils.Transformer;
@@ -31,14 +34,17 @@ import com.google.common.collect.Maps;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.json.JSONObject;
 
 /**
@@ -87,11 +93,6 @@ public class SigFreqItemsetMiner {
      */
     private final long seed;
 
-    /**
-     * A random object.
-     */
-    private final Random rnd;
-
     /**
      * An object to get necessary paths.
      */
@@ -102,11 +103,27 @@ public class SigFreqItemsetMiner {
      */
     private final boolean cleanup;
 
+    /**
+     * Whether the p-values are estimated sequentially, stopping the est
+     * samples once the significant frequent itemsets are resolved.
+     */
+    private final boolean sequential;
+
     /**
      * An object to convert between matrices and datasets.
      */
     private final Transformer transformer = new Transformer();
 
+    /**
+     * The pipeline that samples and mines the est and the WY samples.
+     */
+    private SampleAndMinePipeline pipeline;
+
+    /**
+     * The number of est samples used to estimate the p-values.
+     */
+    private int numUsedEstSamples;
+
     /**
      * An array of minimum p-values.
      */
@@ -140,18 +157,21 @@ public class SigFreqItemsetMiner {
     private long createMatrixTime = 0;
 
     /**
-     * The runtime to sample and mine the samples used to estimate p-values.
+     * The runtime to sample and mine the samples used to estimate p-values,
+     * from the start of the sampling.
      */
     private long estSampleAndMineTime = 0;
 
     /**
      * The runtime to sample and mine the samples used to compute the adjusted
-     * critical value.
+     * critical value, from the start of the sampling, which they share with
+     * the samples used to estimate p-values.
      */
     private long wySampleAndMineTime = 0;
 
     /**
-     * The runtime to get the minimum p-values.
+     * The runtime to get the minimum p-values, from the end of the sampling
+     * and mining of the samples used to estimate p-values.
      */
     private long getMinPvaluesTime = 0;
 
@@ -161,9 +181,12 @@ public class SigFreqItemsetMiner {
     private long setAdjustedCriticalValueTime = 0;
 
     /**
-     * The runtime to mine the significant frequent itemsets.
+     * The runtime to mine the significant frequent itemsets, i.e., to mine the
+     * observed dataset, which overlaps the sampling, to get the p-values of
+     * its frequent itemsets, and to select the significant ones.
+     * It is summed by the tasks of the pool and by the main thread.
      */
-    private long mineSigFreqItemsetsTime = 0;
+    private final LongAdder mineSigFreqItemsetsTime = new LongAdder();
 
     public SigFreqItemsetMiner(
             String datasetPath,
@@ -185,9 +208,10 @@ public class SigFreqItemsetMiner {
         this.fwer = fwer;
         this.numThreads = numThreads;
         this.seed = seed;
-        this.rnd = new Random(seed);
         this.paths = new Paths(datasetPath, resultsDir);
         this.cleanup = cleanup;
+        this.sequential = Config.maxExceedances > 0 && Config.binaryPatterns;
+        this.numUsedEstSamples = numEstSamples;
     }
 
     /**
@@ -206,6 +230,10 @@ public class SigFreqItemsetMiner {
         System.out.println("\t" + JsonKeys.seed + ": " + this.seed);
         System.out.println("\t" + JsonKeys.resultsDir + ": " + Config.resultsDir);
         System.out.println("\t" + JsonKeys.cleanup + ": " + this.cleanup);
+        System.out.println("\t" + JsonKeys.maxExceedances + ": " + Config.maxExceedances);
+        if (Config.maxExceedances > 0 && !this.sequential) {
+            System.out.println("The sequential p-values need binary patterns: using all the est samples");
+        }
 
         setup();
 
@@ -217,36 +245,108 @@ public class SigFreqItemsetMiner {
         final SparseMatrix matrix = this.transformer.createMatrix(datasetPath);
         this.createMatrixTime = System.currentTimeMillis() - createMatrixTimeStart;
 
-        System.out.println("Sampling and mining datasets for p-value estimation");
-        final long estSampleAndMineTimeStart = System.currentTimeMillis();
-        this.sampleAndMine(matrix, this.numEstSamples, Paths.estTag);
-        this.estSampleAndMineTime = System.currentTimeMillis() - estSampleAndMineTimeStart;
-
-        System.out.println("Sampling and mining datasets for WY adjusted critical value computation");
-        final long wySmpleAndMineTimeStart = System.currentTimeMillis();
-        this.sampleAndMine(matrix, this.numWySamples, Paths.wyTag);
-        this.wySampleAndMineTime = System.currentTimeMillis() - wySmpleAndMineTimeStart;
-
-        System.out.println("Getting minimum p-values");
-        final long getMinPvaluesTimeStart = System.currentTimeMillis();
-        this.setMinPvalues();
-        this.getMinPvaluesTime = System.currentTimeMillis() - getMinPvaluesTimeStart;
-
-        final long setAdjustedCriticalValueTimeStart = System.currentTimeMillis();
-        this.setAdjustedCriticalValue();
-        this.setAdjustedCriticalValueTime
-                = System.currentTimeMillis() - setAdjustedCriticalValueTimeStart;
-        System.out.println("Adjusted critical value: " + this.adjustedCriticalValue);
-
-        // if adjusted critical value is equal to minimum possible value
-        if (this.adjustedCriticalValue == Itemsets.getPvalue(0, this.numEstSamples)) {
-            System.out.println("No significant frequent itemsets found");
+        System.out.println("Sampling and mining datasets for p-value estimation and WY adjusted "
+                + "critical value computation, and mining the observed dataset");
+        final long sampleAndMineTimeStart = System.currentTimeMillis();
+        this.pipeline = this.newPipeline(matrix);
+        // the other tasks run on the miner pool of the pipeline, so that they
+        // do not add threads to the ones of the pipeline
+        final Executor pool = this.pipeline.getMinerExecutor();
+        // the mining of the observed dataset does not depend on the samples
+        final CompletableFuture<Object2IntOpenHashMap<IntOpenHashSet>> observedMined
+                = CompletableFuture.supplyAsync(() -> this.mineObserved(datasetPath), pool);
+        // the WY samples are sampled after the est samples, so that the
+        // minimum p-values can be computed while the last WY samples are mined,
+        // unless the p-values are estimated sequentially
+        final CompletableFuture<Void>[] mined = this.sampleAndMineAsync();
+        CompletableFuture<Void> estMined
+                = CompletableFuture.allOf(Arrays.copyOfRange(mined, 0, this.numEstSamples));
+        if (!this.sequential) {
+            estMined = estMined.thenRun(() -> this.estSampleAndMineTime
+                    = System.currentTimeMillis() - sampleAndMineTimeStart);
+        }
+        final CompletableFuture<Void> wyMined
+                = CompletableFuture.allOf(Arrays.copyOfRange(mined, this.numEstSamples, mined.length))
+                        .thenRun(() -> this.wySampleAndMineTime
+                        = System.currentTimeMillis() - sampleAndMineTimeStart);
+
+        final CompletableFuture<Void> minPvaluesDone;
+        // the p-values of the frequent itemsets of the observed dataset are
+        // computed once the adjusted critical value is known, and only if
+        // some frequent itemset can be significant
+        final Supplier<Object2DoubleOpenHashMap<IntOpenHashSet>> observedPvalues;
+        if (this.sequential) {
+            // each est sample is counted once it is mined, in order, until
+            // the significant frequent itemsets are resolved
+            final CompletableFuture<SequentialExceedanceCounter> counted
+                    = this.countSequentiallyAsync(observedMined, wyMined, mined, sampleAndMineTimeStart, pool);
+            minPvaluesDone = counted.thenAccept(counter -> {
+                this.minPvalues = counter.getMinPvalues();
+                this.numUsedEstSamples = counter.getNumAddedSamples();
+                this.getMinPvaluesTime = System.currentTimeMillis()
+                        - sampleAndMineTimeStart - this.estSampleAndMineTime;
+                System.out.println("Number of est samples used: " + this.numUsedEstSamples);
+            });
+            // the counter has the p-values once it is resolved
+            observedPvalues = () -> counted.join().getFreqItemsetToPvalueMap();
         } else {
-            System.out.println("Mining significant frequent itemsets");
-            final long mineSigFreqItemsetsTimeStart = System.currentTimeMillis();
-            this.mineSigFreqItemsets();
-            this.mineSigFreqItemsetsTime = System.currentTimeMillis() - mineSigFreqItemsetsTimeStart;
+            // the est samples are opened once for all the merges with them
+            final CompletableFuture<ExceedanceCounter> estCounter
+                    = estMined.thenApplyAsync(est -> this.newEstCounter(pool), pool);
+
+            // the minimum p-value of a WY sample needs the sample and all the
+            // est samples
+            this.minPvalues = new double[this.numWySamples];
+            final CompletableFuture<?>[] minPvaluesSet = new CompletableFuture<?>[this.numWySamples];
+            for (int i = 0; i < this.numWySamples; i++) {
+                final String wyFreqItemsetsPath = this.paths.getFreqItemsetsPath(Paths.wyTag, i);
+                final int id = i;
+                minPvaluesSet[i] = estCounter.thenAcceptBothAsync(mined[this.numEstSamples + i],
+                        (counter, wy) -> new MinPvaluesTask(
+                                this.paths, wyFreqItemsetsPath, this.numEstSamples, this.minPvalues, id, counter)
+                                .run(), pool);
+            }
+            minPvaluesDone = CompletableFuture.allOf(minPvaluesSet)
+                    .thenRun(() -> this.getMinPvaluesTime = System.currentTimeMillis()
+                    - sampleAndMineTimeStart - this.estSampleAndMineTime);
+            observedPvalues = () -> observedMined
+                    .thenCombineAsync(estCounter, this::getObservedPvaluesAsync, pool)
+                    .thenCompose(Function.identity())
+                    .join();
+        }
+
+        try {
+            // the est samples skipped by the sequential estimation complete
+            // at once, and the ones being mined are waited for
+            CompletableFuture.allOf(estMined, wyMined, minPvaluesDone).join();
+            System.out.println("Got minimum p-values");
+
+            final long setAdjustedCriticalValueTimeStart = System.currentTimeMillis();
+            this.setAdjustedCriticalValue();
+            this.setAdjustedCriticalValueTime
+                    = System.currentTimeMillis() - setAdjustedCriticalValueTimeStart;
+            System.out.println("Adjusted critical value: " + this.adjustedCriticalValue);
+
+            // if adjusted critical value is equal to minimum possible value
+            if (this.adjustedCriticalValue == Itemsets.getPvalue(0, this.numEstSamples)) {
+                System.out.println("No significant frequent itemsets found");
+                // no task reads the est samples, which may be cleaned up,
+                // once the observed dataset is mined
+                observedMined.join();
+            } else {
+                System.out.println("Mining significant frequent itemsets");
+                final Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue = observedPvalues.get();
+                final long mineSigFreqItemsetsTimeStart = System.currentTimeMillis();
+                this.freqItemsetToSup = observedMined.join();
+                this.mineSigFreqItemsets(freqItemsetToPvalue);
+                this.mineSigFreqItemsetsTime.add(System.currentTimeMillis() - mineSigFreqItemsetsTimeStart);
+            }
+        } catch (CompletionException e) {
+            System.err.println("Error executing sample and mine tasks");
+            e.printStackTrace();
+            System.exit(1);
         }
+        this.pipeline.shutdown();
 
         this.totalRuntime = System.currentTimeMillis() - totalRuntimeStart;
 
@@ -278,94 +378,226 @@ public class SigFreqItemsetMiner {
     }
 
     /**
-     * Obtains samples using the observed matrix and mines the samples for
-     * frequent itemsets all in parallel.
+     * Starts to obtain the est and the WY samples with the pipeline and to
+     * mine them for frequent itemsets, all in parallel.
+     * When the p-values are estimated sequentially, the WY samples are
+     * started first, since each est sample is counted in all of them.
      *
-     * @param matrix the observed matrix
-     * @param numSamples the number of samples to obtain
-     * @param tag the tag to use to denote the type of sample (i.e., est or wy)
+     * @return a future for each est sample followed by a future for each WY
+     * sample, completed once its frequent itemsets are saved
      */
-    private void sampleAndMine(SparseMatrix matrix, int numSamples, String tag) {
-        final ExecutorService pool = Executors.newFixedThreadPool(this.numThreads);
+    private CompletableFuture<Void>[] sampleAndMineAsync() {
+        final int numSamples = this.numEstSamples + this.numWySamples;
+        final int firstSample = this.sequential ? this.numEstSamples : 0;
+        final long[] seeds = new long[numSamples];
+        final String[] samplePaths = new String[numSamples];
+        final String[] freqItemsetsPaths = new String[numSamples];
+        for (int j = 0; j < numSamples; j++) {
+            final int i = (firstSample + j) % numSamples;
+            // each sample of each type has its own random stream
+            seeds[j] = FastRandom.streamSeed(this.seed, i);
+            final String tag = i < this.numEstSamples ? Paths.estTag : Paths.wyTag;
+            final int id = i < this.numEstSamples ? i : i - this.numEstSamples;
+            samplePaths[j] = this.paths.getSamplePath(tag, id);
+            freqItemsetsPaths[j] = this.paths.getFreqItemsetsPath(tag, id);
+        }
+        final CompletableFuture<Void>[] started
+                = this.pipeline.sampleAndMineAsync(seeds, samplePaths, freqItemsetsPaths);
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<Void>[] mined = new CompletableFuture[numSamples];
+        for (int j = 0; j < numSamples; j++) {
+            mined[(firstSample + j) % numSamples] = started[j];
+        }
+        return mined;
+    }
 
+    /**
+     * Creates the pipeline that samples and mines the est and the WY samples.
+     *
+     * @param matrix the observed matrix
+     * @return the pipeline
+     */
+    private SampleAndMinePipeline newPipeline(SparseMatrix matrix) {
         long degree = 0;
         if (sampler.getClass().getName().equals(GmmtSampler.class.getName())) {
             degree = new GmmtMatrix(matrix).getDegree();
         }
-        for (int i = 0; i < numSamples; i++) {
-            final long thisSeed = rnd.nextLong();
-            final String samplePath = this.paths.getSamplePath(tag, i);
-            final String freqItemsetsPath = this.paths.getFreqItemsetsPath(tag, i);
-            final SampleAndMineTask sampleTask
-                    = new SampleAndMineTask(
-                            this.sampler,
-                            this.transformer,
-                            matrix,
-                            degree,
-                            this.numSwaps,
-                            thisSeed,
-                            this.minFreq,
-                            samplePath,
-                            freqItemsetsPath);
-            pool.execute(sampleTask);
-        }
+        return new SampleAndMinePipeline(
+                this.sampler,
+                this.transformer,
+                matrix,
+                degree,
+                this.numSwaps,
+                this.minFreq,
+                this.numThreads);
+    }
 
-        pool.shutdown();
+    /**
+     * Computes and sets the adjusted critical value.
+     */
+    private void setAdjustedCriticalValue() {
+        Arrays.sort(this.minPvalues);
+        this.adjustedCriticalValue = this.minPvalues[(int) (this.numWySamples * this.fwer)];
+    }
+
+    /**
+     * Mines the frequent itemsets of the observed dataset.
+     *
+     * @param datasetPath the path of the observed dataset
+     * @return a map where each key is a frequent itemset and the value is the
+     * frequent itemset's support
+     */
+    private Object2IntOpenHashMap<IntOpenHashSet> mineObserved(String datasetPath) {
+        final long mineObservedTimeStart = System.currentTimeMillis();
+        final Object2IntOpenHashMap<IntOpenHashSet> observedFreqItemsetToSup
+                = FreqItemsetMiner.mine(datasetPath, this.minFreq);
+        this.mineSigFreqItemsetsTime.add(System.currentTimeMillis() - mineObservedTimeStart);
+        System.out.println("Number of frequent itemsets: " + observedFreqItemsetToSup.size());
+        return observedFreqItemsetToSup;
+    }
+
+    /**
+     * Opens the frequent itemsets of the est samples to merge them with the
+     * other frequent itemsets, once they are mined.
+     *
+     * @param pool the pool that merges ranges of the itemsets in parallel
+     * @return the counter of the exceedances in the est samples, or null if
+     * the frequent itemsets are written as text
+     */
+    private ExceedanceCounter newEstCounter(Executor pool) {
+        if (!Config.binaryPatterns) {
+            return null;
+        }
+        final String[] estFreqItemsetsPaths = new String[this.numEstSamples];
+        for (int i = 0; i < this.numEstSamples; i++) {
+            estFreqItemsetsPaths[i] = this.paths.getFreqItemsetsPath(Paths.estTag, i);
+        }
         try {
-            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            System.err.println("Error executing sample and mine tasks");
+            return new ExceedanceCounter(estFreqItemsetsPaths, this.numThreads, pool);
+        } catch (IOException e) {
+            System.err.println("Error opening the frequent itemsets of the est samples");
             e.printStackTrace();
             System.exit(1);
         }
+        return null;
     }
 
     /**
-     * Computes and sets the minimum p-values in parallel.
+     * Starts to get the p-values of the frequent itemsets of the observed
+     * dataset, once the est samples are mined.
+     * With binary outputs, the observed itemsets are written in the canonical
+     * order and merged with the est samples; otherwise, the est samples are
+     * read into maps.
+     *
+     * @param observedFreqItemsetToSup a map where each key is a frequent
+     * itemset of the observed dataset and the value is its support
+     * @param estCounter the counter of the exceedances in the est samples, or
+     * null if the frequent itemsets are written as text
+     * @return a future completed with a map where each key is a frequent
+     * itemset and the value is the p-value for the frequent itemset
      */
-    private void setMinPvalues() {
-        this.minPvalues = new double[this.numWySamples];
-
-        final ExecutorService pool = Executors.newFixedThreadPool(this.numThreads);
-
-        for (int i = 0; i < this.numWySamples; i++) {
-            final String wyFreqItemsetsPath = this.paths.getFreqItemsetsPath(Paths.wyTag, i);
-            final MinPvaluesTask minPvalueTask
-                    = new MinPvaluesTask(
-                            this.paths, wyFreqItemsetsPath, this.numEstSamples, this.minPvalues, i);
-            pool.execute(minPvalueTask);
+    private CompletableFuture<Object2DoubleOpenHashMap<IntOpenHashSet>> getObservedPvaluesAsync(
+            Object2IntOpenHashMap<IntOpenHashSet> observedFreqItemsetToSup, ExceedanceCounter estCounter) {
+        final long getObservedPvaluesTimeStart = System.currentTimeMillis();
+        if (estCounter == null) {
+            final Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue
+                    = Itemsets.getFreqItemsetToPvalueMap(this.paths, observedFreqItemsetToSup, this.numEstSamples);
+            this.mineSigFreqItemsetsTime.add(System.currentTimeMillis() - getObservedPvaluesTimeStart);
+            return CompletableFuture.completedFuture(freqItemsetToPvalue);
         }
+        final PatternsReader observedFreqItemsets = this.writeObserved(observedFreqItemsetToSup);
+        return estCounter.getFreqItemsetToSumMapAsync(observedFreqItemsets).thenApply(freqItemsetToSum -> {
+            final Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue
+                    = Itemsets.getFreqItemsetToPvalueMap(freqItemsetToSum, this.numEstSamples);
+            this.mineSigFreqItemsetsTime.add(System.currentTimeMillis() - getObservedPvaluesTimeStart);
+            return freqItemsetToPvalue;
+        });
+    }
 
-        pool.shutdown();
+    /**
+     * Writes the frequent itemsets of the observed dataset in the canonical
+     * order, to merge them with the ones of the samples.
+     *
+     * @param observedFreqItemsetToSup a map where each key is a frequent
+     * itemset of the observed dataset and the value is its support
+     * @return a reader of the written frequent itemsets
+     */
+    private PatternsReader writeObserved(Object2IntOpenHashMap<IntOpenHashSet> observedFreqItemsetToSup) {
+        final String observedFreqItemsetsPath = this.paths.getFreqItemsetsPath(Paths.observedTag, 0);
+        PatternsReader observedFreqItemsets = null;
         try {
-            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            System.err.println("Error executing minimum p-values tasks");
+            final PatternsWriter writer = new PatternsWriter(observedFreqItemsetsPath, false);
+            for (IntOpenHashSet freqItemset : observedFreqItemsetToSup.keySet()) {
+                final int[] items = freqItemset.toIntArray();
+                writer.add(items, items.length, observedFreqItemsetToSup.getInt(freqItemset));
+            }
+            writer.close();
+            observedFreqItemsets = new PatternsReader(observedFreqItemsetsPath);
+        } catch (IOException e) {
+            System.err.println("Error writing the frequent itemsets of the observed dataset");
             e.printStackTrace();
             System.exit(1);
         }
+        return observedFreqItemsets;
     }
 
     /**
-     * Computes and sets the adjusted critical value.
+     * Starts to count the exceedances of the frequent itemsets of the
+     * observed dataset and of the WY samples one est sample at a time, in the
+     * order of the est samples, once the observed dataset and the WY samples
+     * are mined; once the significant frequent itemsets are resolved, the est
+     * samples not yet started are skipped.
+     *
+     * @param observedMined a future completed with a map where each key is a
+     * frequent itemset of the observed dataset and the value is its support
+     * @param wyMined a future completed once the WY samples are mined
+     * @param mined the futures of the est samples followed by the ones of the
+     * WY samples
+     * @param sampleAndMineTimeStart the start time of the sampling
+     * @param pool the pool that counts the exceedances
+     * @return a future completed with the counter once the est samples it
+     * needs are counted
      */
-    private void setAdjustedCriticalValue() {
-        Arrays.sort(this.minPvalues);
-        this.adjustedCriticalValue = this.minPvalues[(int) (this.numWySamples * this.fwer)];
+    private CompletableFuture<SequentialExceedanceCounter> countSequentiallyAsync(
+            CompletableFuture<Object2IntOpenHashMap<IntOpenHashSet>> observedMined,
+            CompletableFuture<Void> wyMined,
+            CompletableFuture<Void>[] mined,
+            long sampleAndMineTimeStart,
+            Executor pool) {
+        CompletableFuture<SequentialExceedanceCounter> counted = observedMined.thenCombineAsync(wyMined,
+                (observedFreqItemsetToSup, wy) -> {
+                    final PatternsReader[] wyFreqItemsets = new PatternsReader[this.numWySamples];
+                    for (int i = 0; i < this.numWySamples; i++) {
+                        wyFreqItemsets[i] = Itemsets.openPatterns(this.paths.getFreqItemsetsPath(Paths.wyTag, i));
+                    }
+                    return new SequentialExceedanceCounter(this.writeObserved(observedFreqItemsetToSup),
+                            wyFreqItemsets, this.numEstSamples, Config.maxExceedances, this.fwer);
+                }, pool);
+        for (int i = 0; i < this.numEstSamples; i++) {
+            final String estFreqItemsetsPath = this.paths.getFreqItemsetsPath(Paths.estTag, i);
+            counted = counted.thenCombine(mined[i], (counter, est) -> counter).thenComposeAsync(counter -> {
+                if (counter.isResolved()) {
+                    return CompletableFuture.completedFuture(counter);
+                }
+                this.estSampleAndMineTime = System.currentTimeMillis() - sampleAndMineTimeStart;
+                return counter.addAsync(Itemsets.openPatterns(estFreqItemsetsPath), pool).thenApply(v -> {
+                    if (counter.isResolved()) {
+                        this.pipeline.stop();
+                    }
+                    return counter;
+                });
+            }, pool);
+        }
+        return counted;
     }
 
     /**
      * Mines the set of significant frequent itemsets.
+     *
+     * @param freqItemsetToPvalue a map where each key is a frequent itemset
+     * and the value is the p-value for the frequent itemset
      */
-    private void mineSigFreqItemsets() {
-        final String datasetPath = Config.datasetPath;
-
-        this.freqItemsetToSup = FreqItemsetMiner.mine(datasetPath, this.minFreq);
-        System.out.println("Number of frequent itemsets: " + this.freqItemsetToSup.size());
-
-        final Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue
-                = Itemsets.getFreqItemsetToPvalueMap(this.paths, this.freqItemsetToSup, this.numEstSamples);
-
+    private void mineSigFreqItemsets(Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue) {
         for (IntOpenHashSet  itemset: freqItemsetToPvalue.keySet()) {
             final double pvalue = freqItemsetToPvalue.getDouble(itemset);
             
@@ -430,6 +662,7 @@ public class SigFreqItemsetMiner {
         args.put(JsonKeys.fwer, this.fwer);
         args.put(JsonKeys.numThreads, this.numThreads);
         args.put(JsonKeys.seed, this.seed);
+        args.put(JsonKeys.maxExceedances, this.sequential ? Config.maxExceedances : 0);
 
         // create object for runtimes
         final JSONObject runtimes = new JSONObject();
@@ -439,7 +672,7 @@ public class SigFreqItemsetMiner {
         runtimes.put(JsonKeys.wySampleAndMineTime, this.wySampleAndMineTime);
         runtimes.put(JsonKeys.getMinPvaluesTime, this.getMinPvaluesTime);
         runtimes.put(JsonKeys.setAdjustedCriticalValueTime, this.setAdjustedCriticalValueTime);
-        runtimes.put(JsonKeys.mineSigFreqItemsetsTime, this.mineSigFreqItemsetsTime);
+        runtimes.put(JsonKeys.mineSigFreqItemsetsTime, this.mineSigFreqItemsetsTime.sum());
 
         // create object for runInfo
         final JSONObject runInfo = new JSONObject();
@@ -450,6 +683,12 @@ public class SigFreqItemsetMiner {
         runInfo.put(JsonKeys.numFreqItemsets, this.freqItemsetToSup.size());
         runInfo.put(JsonKeys.numSigFreqItemsets, this.sigFreqItemsetToSupAndPvalue.size());
         runInfo.put(JsonKeys.minPvalues, this.minPvalues);
+        runInfo.put(JsonKeys.maxExceedances, this.sequential ? Config.maxExceedances : 0);
+        runInfo.put(JsonKeys.numUsedEstSamples, this.numUsedEstSamples);
+        // when the est samples stop early, minPvalues and the adjusted
+        // critical value are lower bounds, and the p-values of the
+        // significant frequent itemsets are upper bounds
+        runInfo.put(JsonKeys.boundsOnly, this.numUsedEstSamples < this.numEstSamples);
 
         // create base object
         final JSONObject results = new JSONObject();
@@ -0,0 +1,289 @@
+package alice.helpers;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.samplers.SwapListener;
+import alice.structures.Edge;
+import alice.structures.SparseMatrix;
+import java.util.List;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.ml.distance.EarthMoversDistance;
+
+/**
+ * A {@link SwapListener} that keeps the BJDM and the number of caterpillars
+ * of the current state of the chain. Since the row and column sums do not
+ * change along the chain, each changed cell updates a single entry of the
+ * BJDM.
+ * The tracker also keeps the earth mover's distance between the BJDM of the
+ * current state and the one of the initial state. The distance is the sum
+ * of the absolute prefix sums of the difference of the two BJDM vectors, and
+ * a swap moves one edge between two entries of a BJDM row for each swapped
+ * row, so it changes only the prefix sums between those entries. A swap
+ * thus updates the distance in time linear in the difference of the column
+ * sums of the swapped edges, instead of the time linear in the size of the
+ * BJDM of {@link #getDistanceFrom(double[], boolean)}.
+ */
+public class BJDMTracker implements SwapListener {
+
+    /**
+     * The sum of each row.
+     */
+    private final int[] rowSums;
+
+    /**
+     * The sum of each column.
+     */
+    private final int[] colSums;
+
+    /**
+     * The number of edges with row sum r + 1 and column sum c + 1.
+     */
+    private final long[][] bjdm;
+
+    /**
+     * The number of edges.
+     */
+    private final long numEdges;
+
+    /**
+     * The number of paths of length 3.
+     */
+    private long numCaterpillars;
+
+    /**
+     * The prefix sums of the difference between the BJDM vector of the
+     * current state and the one of the initial state, not normalized.
+     */
+    private final long[] prefixDiff;
+
+    /**
+     * The sum of the absolute values of prefixDiff.
+     */
+    private long distanceFromStart;
+
+    /**
+     * Creates a tracker starting from the input matrix.
+     *
+     * @param matrix the initial state of the chain
+     */
+    public BJDMTracker(SparseMatrix matrix) {
+        this.rowSums = new int[matrix.getNumRows()];
+        this.colSums = new int[matrix.getNumCols()];
+        int maxRowSum = 0;
+        int maxColSum = 0;
+        long edges = 0;
+        for (int r = 0; r < this.rowSums.length; r++) {
+            this.rowSums[r] = matrix.getNumNonzeroIndices(r);
+            maxRowSum = Math.max(maxRowSum, this.rowSums[r]);
+            edges += this.rowSums[r];
+        }
+        for (int c = 0; c < this.colSums.length; c++) {
+            this.colSums[c] = matrix.getNonzeroColIndices(c).size();
+            maxColSum = Math.max(maxColSum, this.colSums[c]);
+        }
+        this.numEdges = edges;
+        this.bjdm = new long[maxRowSum][maxColSum];
+        for (int r = 0; r < this.rowSums.length; r++) {
+            for (int c : matrix.getNonzeroIndices(r)) {
+                this.add(r, c);
+            }
+        }
+        this.prefixDiff = new long[maxRowSum * maxColSum];
+    }
+
+    @Override
+    public void onSwap(Edge[] removed, Edge[] added) {
+        for (int i = 0; i < removed.length; i++) {
+            if (i < added.length && removed[i].row == added[i].row) {
+                // an edge moved within its row, as in the swaps
+                this.move(removed[i].row, removed[i].col, added[i].col);
+            } else {
+                this.remove(removed[i].row, removed[i].col);
+                this.shiftPrefixDiff(this.getIndex(removed[i].row, removed[i].col), this.prefixDiff.length, -1);
+            }
+        }
+        for (int i = 0; i < added.length; i++) {
+            if (i >= removed.length || removed[i].row != added[i].row) {
+                this.add(added[i].row, added[i].col);
+                this.shiftPrefixDiff(this.getIndex(added[i].row, added[i].col), this.prefixDiff.length, 1);
+            }
+        }
+    }
+
+    @Override
+    public void onSwap(long removed1, long removed2, long added1, long added2) {
+        // each swapped row keeps its row sum and gets a new col
+        this.move(Edge.row(removed1), Edge.col(removed1), Edge.col(added1));
+        this.move(Edge.row(removed2), Edge.col(removed2), Edge.col(added2));
+    }
+
+    @Override
+    public void onSwap(List<Swappables> swappables) {
+        for (Swappables sne : swappables) {
+            this.onSwap(sne);
+        }
+    }
+
+    private void add(int r, int c) {
+        this.bjdm[this.rowSums[r] - 1][this.colSums[c] - 1]++;
+        this.numCaterpillars += (long) (this.rowSums[r] - 1) * (this.colSums[c] - 1);
+    }
+
+    private void remove(int r, int c) {
+        this.bjdm[this.rowSums[r] - 1][this.colSums[c] - 1]--;
+        this.numCaterpillars -= (long) (this.rowSums[r] - 1) * (this.colSums[c] - 1);
+    }
+
+    /**
+     * Replaces the edge (r, from) with the edge (r, to), which moves one edge
+     * between two entries of the same row of the BJDM.
+     *
+     * @param r row id
+     * @param from col of the removed edge
+     * @param to col of the added edge
+     */
+    private void move(int r, int from, int to) {
+        this.remove(r, from);
+        this.add(r, to);
+        final int fromIndex = this.getIndex(r, from);
+        final int toIndex = this.getIndex(r, to);
+        // the prefix sums change only between the two entries
+        if (fromIndex < toIndex) {
+            this.shiftPrefixDiff(fromIndex, toIndex, -1);
+        } else {
+            this.shiftPrefixDiff(toIndex, fromIndex, 1);
+        }
+    }
+
+    /**
+     *
+     * @param r row id
+     * @param c col id
+     * @return the position of the BJDM entry of the edge (r, c) in the BJDM
+     * vector
+     */
+    private int getIndex(int r, int c) {
+        return (this.rowSums[r] - 1) * this.bjdm[0].length + this.colSums[c] - 1;
+    }
+
+    /**
+     * Adds delta to the prefix sums in [from, to), and updates the distance
+     * from the initial state.
+     *
+     * @param from first position
+     * @param to last position, excluded
+     * @param delta the change of each prefix sum
+     */
+    private void shiftPrefixDiff(int from, int to, long delta) {
+        for (int i = from; i < to; i++) {
+            this.distanceFromStart -= Math.abs(this.prefixDiff[i]);
+            this.prefixDiff[i] += delta;
+            this.distanceFromStart += Math.abs(this.prefixDiff[i]);
+        }
+    }
+
+    /**
+     *
+     * @param rowSum a row sum
+     * @param colSum a column sum
+     * @return number of edges between rows with sum rowSum and columns with
+     * sum colSum
+     */
+    public long getBJDMEntry(int rowSum, int colSum) {
+        if (rowSum < 1 || rowSum > this.bjdm.length
+                || colSum < 1 || colSum > this.bjdm[0].length) {
+            return 0;
+        }
+        return this.bjdm[rowSum - 1][colSum - 1];
+    }
+
+    /**
+     * Returns the BJDM of the current state, where the rows are concatenated
+     * to obtain a vector of dimension 1 x (maxRowSum * maxColSum), as in
+     * {@link alice.structures.Matrix#getBJDMVector(boolean)}.
+     *
+     * @param normalize if the BJDM should be divided by the number of edges
+     * @return BJDM of the current state
+     */
+    public double[] getBJDMVector(boolean normalize) {
+        final int maxRowSum = this.bjdm.length;
+        final int maxColSum = maxRowSum == 0 ? 0 : this.bjdm[0].length;
+        final double[] bjdmV = new double[maxRowSum * maxColSum];
+        for (int i = 0; i < maxRowSum; i++) {
+            for (int j = 0; j < maxColSum; j++) {
+                bjdmV[i * maxColSum + j] = normalize
+                        ? this.bjdm[i][j] / (1. * this.numEdges)
+                        : this.bjdm[i][j];
+            }
+        }
+        return bjdmV;
+    }
+
+    /**
+     * Computes the earth's mover distance between the BJDM of the current
+     * state and the other BJDM vector, with the same result as
+     * {@link EarthMoversDistance}, but without materializing the BJDM vector
+     * of the current state.
+     *
+     * @param otherBJDM other BJDM vector
+     * @param normalize whether the BJDM vector should be normalized
+     * @return earth's mover distance between the BJDM of the current state and
+     * the other
+     */
+    public double getDistanceFrom(double[] otherBJDM, boolean normalize) {
+        final int maxRowSum = this.bjdm.length;
+        final int maxColSum = maxRowSum == 0 ? 0 : this.bjdm[0].length;
+        if (otherBJDM.length != maxRowSum * maxColSum) {
+            throw new DimensionMismatchException(otherBJDM.length, maxRowSum * maxColSum);
+        }
+        double lastDistance = 0;
+        double totalDistance = 0;
+        for (int i = 0; i < maxRowSum; i++) {
+            for (int j = 0; j < maxColSum; j++) {
+                final double value = normalize
+                        ? this.bjdm[i][j] / (1. * this.numEdges)
+                        : this.bjdm[i][j];
+                final double currentDistance = (value + lastDistance) - otherBJDM[i * maxColSum + j];
+                totalDistance += Math.abs(currentDistance);
+                lastDistance = currentDistance;
+            }
+        }
+        return totalDistance;
+    }
+
+    /**
+     * Gets the earth's mover distance between the normalized BJDM of the
+     * current state and the one of the initial state, i.e., the value of
+     * {@link #getDistanceFrom(double[], boolean)} for the normalized BJDM
+     * vector of the initial state, kept up to date at each swap and computed
+     * exactly on the counts.
+     *
+     * @return earth's mover distance between the BJDM of the current state and
+     * the one of the initial state
+     */
+    public double getDistanceFromStart() {
+        return this.distanceFromStart / (1. * this.numEdges);
+    }
+
+    /**
+     *
+     * @return number of paths of length 3 in the current state
+     */
+    public long getNumCaterpillars() {
+        return this.numCaterpillars;
+    }
+}
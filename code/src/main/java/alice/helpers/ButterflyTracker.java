@@ -0,0 +1,105 @@
+package alice.helpers;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.samplers.SwapListener;
+import alice.structures.Edge;
+import alice.structures.SparseMatrix;
+
+/**
+ * A {@link SwapListener} that keeps the number of butterflies (K22 cliques) of
+ * the current state of the chain. Each changed cell (r, c) only affects the
+ * butterflies containing the edge, i.e., one for each row r' adjacent to c and
+ * each other column shared by r and r'.
+ */
+public class ButterflyTracker implements SwapListener {
+
+    /**
+     * A copy of the current state of the chain.
+     */
+    private final SparseMatrix matrix;
+
+    /**
+     * The number of butterflies in the current state.
+     */
+    private long numButterflies;
+
+    /**
+     * Creates a tracker starting from the input matrix.
+     *
+     * @param matrix the initial state of the chain
+     */
+    public ButterflyTracker(SparseMatrix matrix) {
+        this.matrix = new SparseMatrix(matrix.getRows(), matrix.getCols());
+        this.numButterflies = ButterflyCounter.countButterflies(this.matrix);
+    }
+
+    @Override
+    public void onSwap(Edge[] removed, Edge[] added) {
+        for (Edge edge : removed) {
+            this.remove(edge.row, edge.col);
+        }
+        for (Edge edge : added) {
+            this.add(edge.row, edge.col);
+        }
+    }
+
+    @Override
+    public void onSwap(long removed1, long removed2, long added1, long added2) {
+        this.remove(Edge.row(removed1), Edge.col(removed1));
+        this.remove(Edge.row(removed2), Edge.col(removed2));
+        this.add(Edge.row(added1), Edge.col(added1));
+        this.add(Edge.row(added2), Edge.col(added2));
+    }
+
+    private void add(int r, int c) {
+        this.matrix.setInRow(r, c, 1);
+        this.matrix.setInCol(r, c, 1);
+        this.numButterflies += this.getNumButterfliesWith(r, c);
+    }
+
+    private void remove(int r, int c) {
+        this.numButterflies -= this.getNumButterfliesWith(r, c);
+        this.matrix.setInRow(r, c, 0);
+        this.matrix.setInCol(r, c, 0);
+    }
+
+    /**
+     *
+     * @param r row id
+     * @param c col id
+     * @return number of butterflies containing the edge (r, c), which must be
+     * in the current state
+     */
+    private long getNumButterfliesWith(int r, int c) {
+        final long[] num = {0};
+        this.matrix.getColInstance(c).forEachIndex(other -> {
+            if (other != r) {
+                num[0] += this.matrix.getRowDotProd(r, other) - 1;
+            }
+        });
+        return num[0];
+    }
+
+    /**
+     *
+     * @return number of butterflies in the current state
+     */
+    public long getNumButterflies() {
+        return this.numButterflies;
+    }
+}
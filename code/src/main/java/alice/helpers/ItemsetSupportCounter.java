@@ -0,0 +1,292 @@
+package alice.helpers;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.structures.BitsetColumnIndex;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the supports of many itemsets at once over a
+ * {@link BitsetColumnIndex}. The columns of each itemset are ordered by
+ * increasing column sum and the itemsets are visited in lexicographic order,
+ * i.e., in the order of a depth-first visit of their prefix trie, so that the
+ * intersection of a common prefix is computed only once. Itemsets starting with
+ * different columns are processed in parallel.
+ */
+public class ItemsetSupportCounter {
+
+    /**
+     * The column index of the dataset.
+     */
+    private final BitsetColumnIndex index;
+
+    /**
+     * Per-thread buffers storing the intersections of the prefixes.
+     */
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * The per-thread buffers storing, for each level of the trie, the
+     * intersection of the first level + 1 columns of the current itemset.
+     */
+    private static class Scratch {
+
+        long[][] denseLevels = new long[0][];
+        int[][] sparseLevels = new int[0][];
+        int[] counts = new int[0];
+    }
+
+    /**
+     * Creates a support counter over the column index.
+     *
+     * @param index the column index of the dataset
+     */
+    public ItemsetSupportCounter(BitsetColumnIndex index) {
+        this.index = index;
+        this.scratch = ThreadLocal.withInitial(Scratch::new);
+    }
+
+    /**
+     * Computes the support of each itemset.
+     *
+     * @param itemsetCols the itemsets, each given as the array of its col ids
+     * @return an array where the i-th entry is the support of the i-th itemset
+     */
+    public int[] getSupports(int[][] itemsetCols) {
+        final int numCols = this.index.getNumCols();
+        final int[] supports = new int[itemsetCols.length];
+        if (itemsetCols.length == 0) {
+            return supports;
+        }
+
+        // rank the columns by increasing column sum, breaking ties by col id
+        final int[] rankToCol = new int[numCols];
+        for (int c = 0; c < numCols; c++) {
+            rankToCol[c] = c;
+        }
+        IntArrays.quickSort(rankToCol, (c1, c2) -> {
+            final int cmp = Integer.compare(this.index.getColSum(c1), this.index.getColSum(c2));
+            return cmp != 0 ? cmp : Integer.compare(c1, c2);
+        });
+        final int[] colToRank = new int[numCols];
+        for (int r = 0; r < numCols; r++) {
+            colToRank[rankToCol[r]] = r;
+        }
+
+        // represent each itemset as the sorted array of the ranks of its columns
+        final int[][] rankedItemsets = new int[itemsetCols.length][];
+        for (int i = 0; i < itemsetCols.length; i++) {
+            final int[] ranks = new int[itemsetCols[i].length];
+            for (int j = 0; j < ranks.length; j++) {
+                ranks[j] = colToRank[itemsetCols[i][j]];
+            }
+            Arrays.sort(ranks);
+            rankedItemsets[i] = ranks;
+        }
+
+        // visit the itemsets in lexicographic order
+        final int[] order = new int[itemsetCols.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        IntArrays.quickSort(order, (i1, i2) -> compare(rankedItemsets[i1], rankedItemsets[i2]));
+
+        // split the itemsets in groups sharing the first column
+        final int[] groupStarts = new int[order.length + 1];
+        int numGroups = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i == 0 || firstRank(rankedItemsets[order[i]]) != firstRank(rankedItemsets[order[i - 1]])) {
+                groupStarts[numGroups++] = i;
+            }
+        }
+        groupStarts[numGroups] = order.length;
+
+        IntStream.range(0, numGroups).parallel().forEach(g -> {
+            countGroup(rankedItemsets, rankToCol, order, groupStarts[g], groupStarts[g + 1], supports);
+        });
+        return supports;
+    }
+
+    /**
+     * Computes the supports of the itemsets in order[from, to), which share
+     * the first column and are sorted in lexicographic order.
+     *
+     * @param rankedItemsets the itemsets as sorted arrays of column ranks
+     * @param rankToCol the col id of each rank
+     * @param order the lexicographic order of the itemsets
+     * @param from first position in order of the group (inclusive)
+     * @param to last position in order of the group (exclusive)
+     * @param supports the array where the supports are stored
+     */
+    private void countGroup(int[][] rankedItemsets,
+            int[] rankToCol,
+            int[] order,
+            int from,
+            int to,
+            int[] supports) {
+
+        final Scratch s = this.scratch.get();
+        int[] prev = null;
+        for (int p = from; p < to; p++) {
+            final int[] ranks = rankedItemsets[order[p]];
+            if (ranks.length == 0) {
+                supports[order[p]] = this.index.getNumRows();
+                continue;
+            }
+            ensureCapacity(s, ranks.length);
+            final int firstCol = rankToCol[ranks[0]];
+            // the first column has the smallest column sum, so it is sparse
+            // iff the intersection of any prefix is stored as a sparse array
+            final boolean dense = this.index.isDense(firstCol);
+            s.counts[0] = this.index.getColSum(firstCol);
+
+            final int lcp = prev == null ? 1 : Math.max(1, commonPrefixLength(prev, ranks));
+            for (int k = lcp; k < ranks.length; k++) {
+                if (s.counts[k - 1] == 0) {
+                    s.counts[k] = 0;
+                    continue;
+                }
+                final int col = rankToCol[ranks[k]];
+                if (dense) {
+                    final long[] in = k == 1 ? this.index.getDenseCol(firstCol) : s.denseLevels[k - 1];
+                    s.counts[k] = intersectDense(in, this.index.getDenseCol(col), getDenseLevel(s, k));
+                } else {
+                    final int[] in = k == 1 ? this.index.getSparseCol(firstCol) : s.sparseLevels[k - 1];
+                    final int[] out = getSparseLevel(s, k, s.counts[k - 1]);
+                    s.counts[k] = this.index.isDense(col)
+                            ? intersectSparseDense(in, s.counts[k - 1], this.index.getDenseCol(col), out)
+                            : intersectSparseSparse(in, s.counts[k - 1], this.index.getSparseCol(col), out);
+                }
+            }
+            supports[order[p]] = s.counts[ranks.length - 1];
+            prev = ranks;
+        }
+    }
+
+    /**
+     * Stores in out the bitwise and of the bitsets a and b.
+     *
+     * @param a a bitset
+     * @param b a bitset
+     * @param out the bitset where the result is stored
+     * @return number of bits set in out
+     */
+    static int intersectDense(long[] a, long[] b, long[] out) {
+        int count = 0;
+        for (int w = 0; w < out.length; w++) {
+            final long word = a[w] & b[w];
+            out[w] = word;
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Stores in out the row ids in the first aSize entries of a whose bit is
+     * set in b.
+     *
+     * @param a a sorted array of row ids
+     * @param aSize number of valid entries in a
+     * @param b a bitset
+     * @param out the array where the result is stored
+     * @return number of entries stored in out
+     */
+    static int intersectSparseDense(int[] a, int aSize, long[] b, int[] out) {
+        int count = 0;
+        for (int i = 0; i < aSize; i++) {
+            final int r = a[i];
+            if ((b[r >>> 6] & (1L << r)) != 0) {
+                out[count++] = r;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stores in out the row ids in both the first aSize entries of a and b.
+     *
+     * @param a a sorted array of row ids
+     * @param aSize number of valid entries in a
+     * @param b a sorted array of row ids
+     * @param out the array where the result is stored
+     * @return number of entries stored in out
+     */
+    static int intersectSparseSparse(int[] a, int aSize, int[] b, int[] out) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < aSize && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private void ensureCapacity(Scratch s, int numLevels) {
+        if (s.counts.length < numLevels) {
+            s.counts = Arrays.copyOf(s.counts, numLevels);
+            s.denseLevels = Arrays.copyOf(s.denseLevels, numLevels);
+            s.sparseLevels = Arrays.copyOf(s.sparseLevels, numLevels);
+        }
+    }
+
+    private long[] getDenseLevel(Scratch s, int k) {
+        if (s.denseLevels[k] == null) {
+            s.denseLevels[k] = new long[this.index.getNumWords()];
+        }
+        return s.denseLevels[k];
+    }
+
+    private int[] getSparseLevel(Scratch s, int k, int size) {
+        if (s.sparseLevels[k] == null || s.sparseLevels[k].length < size) {
+            s.sparseLevels[k] = new int[size];
+        }
+        return s.sparseLevels[k];
+    }
+
+    private static int firstRank(int[] ranks) {
+        return ranks.length == 0 ? -1 : ranks[0];
+    }
+
+    private static int commonPrefixLength(int[] a, int[] b) {
+        final int len = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < len && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int compare(int[] a, int[] b) {
+        final int len = Math.min(a.length, b.length);
+        for (int i = 0; i < len; i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+}
@@ -0,0 +1,170 @@
+package alice.helpers;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.samplers.SwapListener;
+import alice.structures.BitsetColumnIndex;
+import alice.structures.Edge;
+import alice.structures.SparseMatrix;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import java.util.Arrays;
+
+/**
+ * A {@link SwapListener} that keeps the supports of a fixed collection of
+ * itemsets in the current state of the chain. Only the itemsets containing a
+ * changed column of a changed row are checked again, so each transition costs
+ * time proportional to the number of such itemsets.
+ */
+public class ItemsetSupportTracker implements SwapListener {
+
+    /**
+     * A copy of the current state of the chain.
+     */
+    private final SparseMatrix matrix;
+
+    /**
+     * The itemsets, each given as the array of its col ids.
+     */
+    private final int[][] itemsetCols;
+
+    /**
+     * The ids of the itemsets containing each column.
+     */
+    private final int[][] colToItemsets;
+
+    /**
+     * The support of each itemset in the current state.
+     */
+    private final int[] supports;
+
+    /**
+     * The last transition in which each itemset was checked.
+     */
+    private final int[] stamps;
+
+    /**
+     * The number of transitions seen so far.
+     */
+    private int stamp;
+
+    /**
+     * Creates a tracker starting from the input matrix.
+     *
+     * @param matrix the initial state of the chain
+     * @param itemsetCols the itemsets to track, each given as the array of its
+     * col ids
+     */
+    public ItemsetSupportTracker(SparseMatrix matrix, int[][] itemsetCols) {
+        this.matrix = new SparseMatrix(matrix.getRows(), matrix.getCols());
+        this.itemsetCols = itemsetCols;
+        this.supports = new ItemsetSupportCounter(new BitsetColumnIndex(matrix)).getSupports(itemsetCols);
+        this.stamps = new int[itemsetCols.length];
+
+        final IntArrayList[] lists = new IntArrayList[matrix.getNumCols()];
+        for (int i = 0; i < itemsetCols.length; i++) {
+            for (int c : itemsetCols[i]) {
+                if (lists[c] == null) {
+                    lists[c] = new IntArrayList();
+                }
+                lists[c].add(i);
+            }
+        }
+        this.colToItemsets = new int[lists.length][];
+        for (int c = 0; c < lists.length; c++) {
+            this.colToItemsets[c] = lists[c] == null ? new int[0] : lists[c].toIntArray();
+        }
+    }
+
+    @Override
+    public void onSwap(Edge[] removed, Edge[] added) {
+        final IntLinkedOpenHashSet rows = new IntLinkedOpenHashSet();
+        for (Edge edge : removed) {
+            rows.add(edge.row);
+        }
+        for (Edge edge : added) {
+            rows.add(edge.row);
+        }
+        final IntArrayList affected = new IntArrayList();
+        for (int r : rows) {
+            this.stamp++;
+            affected.clear();
+            this.collectAffected(r, removed, affected);
+            this.collectAffected(r, added, affected);
+            for (int i = 0; i < affected.size(); i++) {
+                if (this.isInRow(r, affected.getInt(i))) {
+                    this.supports[affected.getInt(i)]--;
+                }
+            }
+            for (Edge edge : removed) {
+                if (edge.row == r) {
+                    this.matrix.setInRow(r, edge.col, 0);
+                }
+            }
+            for (Edge edge : added) {
+                if (edge.row == r) {
+                    this.matrix.setInRow(r, edge.col, 1);
+                }
+            }
+            for (int i = 0; i < affected.size(); i++) {
+                if (this.isInRow(r, affected.getInt(i))) {
+                    this.supports[affected.getInt(i)]++;
+                }
+            }
+        }
+    }
+
+    private void collectAffected(int r, Edge[] edges, IntArrayList affected) {
+        for (Edge edge : edges) {
+            if (edge.row != r) {
+                continue;
+            }
+            for (int i : this.colToItemsets[edge.col]) {
+                if (this.stamps[i] != this.stamp) {
+                    this.stamps[i] = this.stamp;
+                    affected.add(i);
+                }
+            }
+        }
+    }
+
+    private boolean isInRow(int r, int itemset) {
+        for (int c : this.itemsetCols[itemset]) {
+            if (this.matrix.isInRow(r, c) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @param i itemset id
+     * @return support of the i-th itemset in the current state
+     */
+    public int getSupport(int i) {
+        return this.supports[i];
+    }
+
+    /**
+     *
+     * @return the support of each itemset in the current state
+     */
+    public int[] getSupports() {
+        return Arrays.copyOf(this.supports, this.supports.length);
+    }
+}
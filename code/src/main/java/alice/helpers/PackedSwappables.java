@@ -0,0 +1,87 @@
+package alice.helpers;
+
+import alice.structures.Edge;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A mutable counterpart of {@link Swappables} holding the pair of swappable
+ * edges packed with {@link Edge#pack(int, int)}. A sampler creates a single
+ * instance and the matrix overwrites it at each step, so that the steps of
+ * the chain do not allocate a {@link Swappables} and its {@link Edge}s.
+ */
+public class PackedSwappables {
+
+    public long edge1;
+    public int e1Index;
+    public long edge2;
+    public int e2Index;
+
+    /**
+     * Overwrites the pair of edges.
+     *
+     * @param edge1 the first packed swappable edge
+     * @param edge2 the second packed swappable edge
+     * @param e1Index position of the first edge in the edge array
+     * @param e2Index position of the second edge in the edge array
+     */
+    public void set(long edge1, long edge2, int e1Index, int e2Index) {
+        this.edge1 = edge1;
+        this.edge2 = edge2;
+        this.e1Index = e1Index;
+        this.e2Index = e2Index;
+    }
+
+    /**
+     * Overwrites the pair of edges with the one of a {@link Swappables}.
+     *
+     * @param sne the swappable edges
+     */
+    public void set(Swappables sne) {
+        this.set(sne.swappableEdge1.pack(), sne.swappableEdge2.pack(), sne.e1Index, sne.e2Index);
+    }
+
+    /**
+     *
+     * @return the packed edge that replaces the first edge after the swap
+     */
+    public long getNewEdge1() {
+        return Edge.pack(Edge.row(this.edge1), Edge.col(this.edge2));
+    }
+
+    /**
+     *
+     * @return the packed edge that replaces the second edge after the swap
+     */
+    public long getNewEdge2() {
+        return Edge.pack(Edge.row(this.edge2), Edge.col(this.edge1));
+    }
+
+    /**
+     *
+     * @return a new instance of {@link Swappables} with the same edges
+     */
+    public Swappables toSwappables() {
+        return new Swappables(Edge.unpack(this.edge1), Edge.unpack(this.edge2), this.e1Index, this.e2Index);
+    }
+
+    @Override
+    public String toString() {
+        return Edge.unpack(this.edge1).toString() + "," + Edge.unpack(this.edge2).toString()
+                + "-" + this.e1Index + "," + this.e2Index;
+    }
+}
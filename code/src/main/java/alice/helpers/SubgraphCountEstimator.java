@@ -0,0 +1,304 @@
+package alice.helpers;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.structures.RawFastIntCollectionFixedSize;
+import alice.structures.Vector;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+/**
+ * Sampling-based estimators of the number of caterpillars (paths of length 3)
+ * and of butterflies (K22 cliques) of a bipartite graph.
+ * The caterpillars are estimated by sampling edges uniformly at random, since
+ * the edge (r, c) is the middle edge of (deg(r) - 1) * (deg(c) - 1)
+ * caterpillars. The butterflies are estimated by sampling uniformly at random
+ * the wedges r - c - r' centered at a column, since each wedge is contained in
+ * |N(r) &cap; N(r')| - 1 butterflies and each butterfly contains two such
+ * wedges.
+ * Samples are drawn in batches until the half-width of the confidence interval
+ * is at most the requested relative error of the estimate, or until the
+ * sample budget is exhausted, so the running time is proportional to the
+ * number of samples and not to the size of the graph (apart from a linear
+ * pass over the degrees).
+ */
+public class SubgraphCountEstimator {
+
+    /**
+     * Number of samples drawn between two checks of the stopping condition.
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * An estimate with its confidence interval.
+     */
+    public static class Estimate {
+
+        /**
+         * The estimated count.
+         */
+        public final double value;
+
+        /**
+         * The half-width of the confidence interval.
+         */
+        public final double halfWidth;
+
+        /**
+         * The confidence of the interval.
+         */
+        public final double confidence;
+
+        /**
+         * The number of samples used.
+         */
+        public final int numSamples;
+
+        public Estimate(double value, double halfWidth, double confidence, int numSamples) {
+            this.value = value;
+            this.halfWidth = halfWidth;
+            this.confidence = confidence;
+            this.numSamples = numSamples;
+        }
+
+        public double getLower() {
+            return Math.max(0, this.value - this.halfWidth);
+        }
+
+        public double getUpper() {
+            return this.value + this.halfWidth;
+        }
+
+        @Override
+        public String toString() {
+            return this.value + " +/- " + this.halfWidth
+                    + " (confidence " + this.confidence + ", " + this.numSamples + " samples)";
+        }
+    }
+
+    /**
+     * Random access to the neighborhoods of one side of the graph.
+     */
+    private interface Neighborhoods {
+
+        int size(int v);
+
+        int get(int v, int i);
+
+        int interSize(int v, int w);
+    }
+
+    private static Neighborhoods of(Vector[] vectors) {
+        return new Neighborhoods() {
+            @Override
+            public int size(int v) {
+                return vectors[v].getNumNonzeroIndices();
+            }
+
+            @Override
+            public int get(int v, int i) {
+                return vectors[v].getNthNonzeroIndex(i);
+            }
+
+            @Override
+            public int interSize(int v, int w) {
+                return (int) vectors[v].interSize(vectors[w]);
+            }
+        };
+    }
+
+    private static Neighborhoods of(RawFastIntCollectionFixedSize[] collections) {
+        return new Neighborhoods() {
+            @Override
+            public int size(int v) {
+                return collections[v].size();
+            }
+
+            @Override
+            public int get(int v, int i) {
+                return collections[v].values[i];
+            }
+
+            @Override
+            public int interSize(int v, int w) {
+                return collections[v].computeInterSize(collections[w]);
+            }
+        };
+    }
+
+    /**
+     *
+     * @param rows the neighborhoods of the rows
+     * @param cols the neighborhoods of the columns
+     * @param relError the target relative half-width of the confidence interval
+     * @param confidence the confidence of the interval
+     * @param maxSamples the maximum number of samples
+     * @param rnd a Random instance
+     * @return an estimate of the number of caterpillars
+     */
+    public static Estimate estimateCaterpillars(Vector[] rows, Vector[] cols,
+            double relError, double confidence, int maxSamples, Random rnd) {
+        return estimateCaterpillars(of(rows), rows.length, of(cols), relError, confidence, maxSamples, rnd);
+    }
+
+    /**
+     *
+     * @param rows the neighborhoods of the rows
+     * @param cols the neighborhoods of the columns
+     * @param relError the target relative half-width of the confidence interval
+     * @param confidence the confidence of the interval
+     * @param maxSamples the maximum number of samples
+     * @param rnd a Random instance
+     * @return an estimate of the number of caterpillars
+     */
+    public static Estimate estimateCaterpillars(RawFastIntCollectionFixedSize[] rows, RawFastIntCollectionFixedSize[] cols,
+            double relError, double confidence, int maxSamples, Random rnd) {
+        return estimateCaterpillars(of(rows), rows.length, of(cols), relError, confidence, maxSamples, rnd);
+    }
+
+    /**
+     *
+     * @param rows the neighborhoods of the rows
+     * @param cols the neighborhoods of the columns
+     * @param relError the target relative half-width of the confidence interval
+     * @param confidence the confidence of the interval
+     * @param maxSamples the maximum number of samples
+     * @param rnd a Random instance
+     * @return an estimate of the number of butterflies
+     */
+    public static Estimate estimateButterflies(Vector[] rows, Vector[] cols,
+            double relError, double confidence, int maxSamples, Random rnd) {
+        return estimateButterflies(of(rows), of(cols), cols.length, relError, confidence, maxSamples, rnd);
+    }
+
+    /**
+     *
+     * @param rows the neighborhoods of the rows
+     * @param cols the neighborhoods of the columns
+     * @param relError the target relative half-width of the confidence interval
+     * @param confidence the confidence of the interval
+     * @param maxSamples the maximum number of samples
+     * @param rnd a Random instance
+     * @return an estimate of the number of butterflies
+     */
+    public static Estimate estimateButterflies(RawFastIntCollectionFixedSize[] rows, RawFastIntCollectionFixedSize[] cols,
+            double relError, double confidence, int maxSamples, Random rnd) {
+        return estimateButterflies(of(rows), of(cols), cols.length, relError, confidence, maxSamples, rnd);
+    }
+
+    private static Estimate estimateCaterpillars(Neighborhoods rows, int numRows, Neighborhoods cols,
+            double relError, double confidence, int maxSamples, Random rnd) {
+        // an edge is sampled by sampling a row proportionally to its degree
+        // and then one of its neighbors uniformly at random
+        final long[] cumDegrees = new long[numRows];
+        long numEdges = 0;
+        for (int r = 0; r < numRows; r++) {
+            numEdges += rows.size(r);
+            cumDegrees[r] = numEdges;
+        }
+        if (numEdges == 0) {
+            return new Estimate(0, 0, confidence, 0);
+        }
+        final long total = numEdges;
+        return estimate(() -> {
+            final int r = sample(cumDegrees, total, rnd);
+            final int c = rows.get(r, rnd.nextInt(rows.size(r)));
+            return (double) (rows.size(r) - 1) * (cols.size(c) - 1);
+        }, numEdges, relError, confidence, maxSamples);
+    }
+
+    private static Estimate estimateButterflies(Neighborhoods rows, Neighborhoods cols, int numCols,
+            double relError, double confidence, int maxSamples, Random rnd) {
+        // a wedge is sampled by sampling a column proportionally to the number
+        // of wedges centered at it and then two distinct neighbors
+        final long[] cumWedges = new long[numCols];
+        long numWedges = 0;
+        for (int c = 0; c < numCols; c++) {
+            final long deg = cols.size(c);
+            numWedges += deg * (deg - 1) / 2;
+            cumWedges[c] = numWedges;
+        }
+        if (numWedges == 0) {
+            return new Estimate(0, 0, confidence, 0);
+        }
+        final long total = numWedges;
+        return estimate(() -> {
+            final int c = sample(cumWedges, total, rnd);
+            final int deg = cols.size(c);
+            final int i = rnd.nextInt(deg);
+            int j = rnd.nextInt(deg - 1);
+            if (j >= i) {
+                j++;
+            }
+            return rows.interSize(cols.get(c, i), cols.get(c, j)) - 1;
+        }, numWedges / 2., relError, confidence, maxSamples);
+    }
+
+    /**
+     * A random variable whose expectation times a scale is the target count.
+     */
+    private interface Observation {
+
+        double next();
+    }
+
+    private static Estimate estimate(Observation obs, double scale,
+            double relError, double confidence, int maxSamples) {
+        final double z = new NormalDistribution().inverseCumulativeProbability(1 - (1 - confidence) / 2);
+        // Welford's running mean and variance
+        double mean = 0;
+        double m2 = 0;
+        int n = 0;
+        while (n < maxSamples) {
+            final int end = Math.min(maxSamples, n + BATCH_SIZE);
+            while (n < end) {
+                final double x = obs.next();
+                n++;
+                final double delta = x - mean;
+                mean += delta / n;
+                m2 += delta * (x - mean);
+            }
+            if (n >= 2 * BATCH_SIZE || n == maxSamples) {
+                final double halfWidth = n > 1 ? z * Math.sqrt(m2 / (n - 1) / n) : Double.POSITIVE_INFINITY;
+                if (halfWidth <= relError * Math.abs(mean)) {
+                    break;
+                }
+            }
+        }
+        final double halfWidth = n > 1 ? z * Math.sqrt(m2 / (n - 1) / n) : Double.POSITIVE_INFINITY;
+        return new Estimate(scale * mean, scale * halfWidth, confidence, n);
+    }
+
+    /**
+     *
+     * @param cumWeights the cumulative weights
+     * @param total the sum of the weights
+     * @param rnd a Random instance
+     * @return an index sampled proportionally to its weight
+     */
+    private static int sample(long[] cumWeights, long total, Random rnd) {
+        final long x = Math.min(total - 1, (long) (rnd.nextDouble() * total));
+        final int pos = Arrays.binarySearch(cumWeights, x);
+        // first index whose cumulative weight is greater than x
+        int i = pos >= 0 ? pos + 1 : -pos - 1;
+        while (cumWeights[i] == x) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -22,6 +22,9 @@ import alice.structures.Edge;
 /**
  * A class to hold the pair of swappable edges and the pair of new edges that
  * transition to the adjacent matrix.
+ * The matrices store their edges packed in longs, and each proposal they
+ * return is a new instance holding two new {@link Edge} objects; the chains
+ * that run for many steps reuse a single {@link PackedSwappables} instead.
  */
 public class Swappables {
 
@@ -4,6 +4,7 @@ import alice.helpers.Swappables;
 import alice.structures.Edge;
 import alice.structures.MultiGraph;
 import alice.structures.RawFastIntCollectionFixedSizeWithOrder;
+import alice.utils.FastRandom;
 import alice.utils.Timer;
 import java.util.Random;
 
@@ -28,6 +29,16 @@ import java.util.Random;
  */
 public class AliceSSampler implements SeqSampler {
 
+    /**
+     * The listener notified of every accepted transition; null if none.
+     */
+    private SwapListener listener;
+
+    @Override
+    public void setSwapListener(SwapListener listener) {
+        this.listener = listener;
+    }
+
     /**
      * @param inGraph observed graph
      * @param numSwaps the number of swaps to make such that the chain
@@ -41,7 +52,7 @@ public class AliceSSampler implements SeqSampler {
         
         final long setupTimeStart = System.currentTimeMillis();
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
         
         final MultiGraph graph = new MultiGraph(inGraph);
 
@@ -78,6 +89,9 @@ public class AliceSSampler implements SeqSampler {
             if (rnd.nextDouble() <= acceptanceProb) {
                 actualSwaps ++;
                 graph.transition(sne, swappableRow1, swappableRow2, newRow1, newRow2);
+                if (this.listener != null) {
+                    this.listener.onSwap(sne);
+                }
                 logNumEquivMatrices = logNumEquivAdjMatrices;
             }
             timer.stop();
@@ -1,11 +1,15 @@
 package alice.samplers;
 
+import alice.structures.CompressedMatrix;
 import alice.structures.BJDMMatrix;
+import alice.helpers.BJDMTracker;
 import alice.helpers.Swappables;
 import alice.structures.SparseMatrix;
 import alice.helpers.LogNumEquivMatricesTracker;
 import alice.structures.Vector;
 import alice.structures.Edge;
+import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.utils.Timer;
 import java.util.Random;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
@@ -31,6 +35,16 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
  */
 public class BJDMSampler implements Sampler {
 
+    /**
+     * The listener notified of every accepted transition; null if none.
+     */
+    private SwapListener listener;
+
+    @Override
+    public void setSwapListener(SwapListener listener) {
+        this.listener = listener;
+    }
+
     /**
      * @param inMatrix a {@link SparseMatrix} representation of the dataset
      * @param numSwaps the number of swaps to make such that the chain
@@ -45,7 +59,7 @@ public class BJDMSampler implements Sampler {
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         double logNumEquivMatrices = matrix.getLogNumEquivMatrices();
 
@@ -65,9 +79,7 @@ public class BJDMSampler implements Sampler {
             final Edge swappableEdge2 = sne.swappableEdge2;
             final Vector swappableRow1 = matrix.getRowInstance(swappableEdge1.row);
             final Vector swappableRow2 = matrix.getRowInstance(swappableEdge2.row);
-            final Edge newEdge1 = new Edge(swappableEdge1.row, swappableEdge2.col);
-            final Edge newEdge2 = new Edge(swappableEdge2.row, swappableEdge1.col);
-            final Vector[] newRows = matrix.getNewRows(newEdge1, newEdge2);
+            final Vector[] newRows = matrix.getNewRows(sne);
             final Vector newRow1 = newRows[0];
             final Vector newRow2 = newRows[1];
 
@@ -82,6 +94,9 @@ public class BJDMSampler implements Sampler {
                 matrix.transition(sne,
                         swappableRow1, swappableRow2,
                         newRow1, newRow2);
+                if (this.listener != null) {
+                    this.listener.onSwap(sne);
+                }
                 
                 logNumEquivMatrices = logNumEquivAdjMatrices;
             }
@@ -102,11 +117,42 @@ public class BJDMSampler implements Sampler {
      */
     @Override
     public SparseMatrix sample(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, degree, numSwaps, seed, timer).getMatrix();
+    }
+
+    /**
+     * 
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix in the Markov graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the compressed sampled matrix, built from the rows and the
+     * cols of the chain
+     */
+    @Override
+    public CompressedMatrix sampleCompressed(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, degree, numSwaps, seed, timer).getCompressedMatrix();
+    }
+
+    /**
+     * Runs a chain from the dataset for the given number of swaps.
+     *
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix in the Markov graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the chain after the swaps
+     */
+    private BJDMMatrix walk(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
         final long setupTimeStart = System.currentTimeMillis();
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         double logNumEquivMatrices = matrix.getLogNumEquivMatrices();
 
@@ -123,11 +169,9 @@ public class BJDMSampler implements Sampler {
             }
             final Edge swappableEdge1 = sne.swappableEdge1;
             final Edge swappableEdge2 = sne.swappableEdge2;
-            final Edge newEdge1 = new Edge(swappableEdge1.row, swappableEdge2.col);
-            final Edge newEdge2 = new Edge(swappableEdge2.row, swappableEdge1.col);
             final Vector swappableRow1 = matrix.getRowInstance(swappableEdge1.row);
             final Vector swappableRow2 = matrix.getRowInstance(swappableEdge2.row);
-            final Vector[] newRows = matrix.getNewRows(newEdge1, newEdge2);
+            final Vector[] newRows = matrix.getNewRows(sne);
             final Vector newRow1 = newRows[0];
             final Vector newRow2 = newRows[1];
 
@@ -142,12 +186,15 @@ public class BJDMSampler implements Sampler {
                 matrix.transition(sne,
                         swappableRow1, swappableRow2,
                         newRow1, newRow2);
+                if (this.listener != null) {
+                    this.listener.onSwap(sne);
+                }
                 
                 logNumEquivMatrices = logNumEquivAdjMatrices;
             }
             timer.stop();
         }
-        return matrix.getMatrix();
+        return matrix;
     }
 
     /**
@@ -173,7 +220,7 @@ public class BJDMSampler implements Sampler {
         
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         double logNumEquivMatrices = matrix.getLogNumEquivMatrices();
 
@@ -188,11 +235,9 @@ public class BJDMSampler implements Sampler {
             
             final Edge swappableEdge1 = sne.swappableEdge1;
             final Edge swappableEdge2 = sne.swappableEdge2;
-            final Edge newEdge1 = new Edge(swappableEdge1.row, swappableEdge2.col);
-            final Edge newEdge2 = new Edge(swappableEdge2.row, swappableEdge1.col);
             final Vector swappableRow1 = matrix.getRowInstance(swappableEdge1.row);
             final Vector swappableRow2 = matrix.getRowInstance(swappableEdge2.row);
-            final Vector[] newRows = matrix.getNewRows(newEdge1, newEdge2);
+            final Vector[] newRows = matrix.getNewRows(sne);
             final Vector newRow1 = newRows[0];
             final Vector newRow2 = newRows[1];
 
@@ -230,15 +275,16 @@ public class BJDMSampler implements Sampler {
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         double logNumEquivMatrices = matrix.getLogNumEquivMatrices();
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
         
-        // starting BJDM vector
-        double[] start = matrix.getBJDMVector(true);
+        // BJDM of the current matrix and its distance from the starting one,
+        // updated at each accepted swap
+        final BJDMTracker bjdm = new BJDMTracker(inMatrix);
 
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
@@ -251,11 +297,9 @@ public class BJDMSampler implements Sampler {
             
             final Edge swappableEdge1 = sne.swappableEdge1;
             final Edge swappableEdge2 = sne.swappableEdge2;
-            final Edge newEdge1 = new Edge(swappableEdge1.row, swappableEdge2.col);
-            final Edge newEdge2 = new Edge(swappableEdge2.row, swappableEdge1.col);
             final Vector swappableRow1 = matrix.getRowInstance(swappableEdge1.row);
             final Vector swappableRow2 = matrix.getRowInstance(swappableEdge2.row);
-            final Vector[] newRows = matrix.getNewRows(newEdge1, newEdge2);
+            final Vector[] newRows = matrix.getNewRows(sne);
             final Vector newRow1 = newRows[0];
             final Vector newRow2 = newRows[1];
 
@@ -270,17 +314,21 @@ public class BJDMSampler implements Sampler {
                 matrix.transition(sne,
                         swappableRow1, swappableRow2,
                         newRow1, newRow2);
+                bjdm.onSwap(sne);
+                if (this.listener != null) {
+                    this.listener.onSwap(sne);
+                }
 
                 logNumEquivMatrices = logNumEquivAdjMatrices;
             }
             timer.stop();
             
-            if (i % 100 == 0) {
-                double distance = matrix.getDistanceFrom(start, true);
+            if (i % Config.bjdmInterval == 0) {
+                double distance = bjdm.getDistanceFromStart();
                 stats.addValue(distance);
             } 
         }
-        catNum.addValue(matrix.getNumCaterpillars());
+        catNum.addValue(bjdm.getNumCaterpillars());
         
         return matrix.getMatrix();
     
@@ -1,12 +1,15 @@
 package alice.samplers;
 
+import alice.structures.CompressedMatrix;
 import alice.structures.BJDMMatrix;
+import alice.helpers.BJDMTracker;
 import alice.helpers.Swappables;
 import alice.structures.SparseMatrix;
 import alice.helpers.LogNumEquivMatricesTracker;
 import alice.helpers.SwappableLists;
-import alice.structures.Edge;
 import alice.structures.Vector;
+import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.utils.Timer;
 import com.google.common.collect.Maps;
 import java.util.List;
@@ -36,6 +39,16 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
  */
 public class CurveballBJDMSampler implements Sampler {
 
+    /**
+     * The listener notified of every accepted transition; null if none.
+     */
+    private SwapListener listener;
+
+    @Override
+    public void setSwapListener(SwapListener listener) {
+        this.listener = listener;
+    }
+
     /**
      * @param inMatrix a {@link SparseMatrix} representation of the dataset
      * @param numSwaps the number of swaps to make such that the chain
@@ -50,7 +63,7 @@ public class CurveballBJDMSampler implements Sampler {
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         double logNumEquivMatrices = matrix.getLogNumEquivMatrices();
 
@@ -86,13 +99,10 @@ public class CurveballBJDMSampler implements Sampler {
                     final Vector[] swappableRows = new Vector[]{
                         matrix.getRowInstance(swappable.swappableEdge1.row), 
                         matrix.getRowInstance(swappable.swappableEdge2.row)};
-                    final Edge newEdge1 = new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col);
-                    final Edge newEdge2 = new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col);
                     final Vector[] newRows = matrix.getNewRows(
                             swappableRows[0], 
                             swappableRows[1],
-                            newEdge1, 
-                            newEdge2);
+                            swappable);
                     logNumEquivAdjMatrices = matrix.getLogNumEquivAdjMatrices(
                             logNumEquivAdjMatrices,
                             swappableRows[0],
@@ -129,10 +139,7 @@ public class CurveballBJDMSampler implements Sampler {
                         matrix.setCol(swappable.swappableEdge1.row, swappable.swappableEdge2.col, 1);
                         matrix.setCol(swappable.swappableEdge2.row, swappable.swappableEdge1.col, 1);
                         // update edges
-                        matrix.edges.remove(swappable.swappableEdge1);
-                        matrix.edges.remove(swappable.swappableEdge2);
-                        matrix.edges.add(new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col));
-                        matrix.edges.add(new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col));
+                        matrix.swapEdges(swappable);
                     }
                 } else {
                     // update num equal rows
@@ -148,12 +155,12 @@ public class CurveballBJDMSampler implements Sampler {
                         matrix.setRow(swappable.swappableEdge1.row, swappable.swappableEdge2.col, 1);
                         matrix.setRow(swappable.swappableEdge2.row, swappable.swappableEdge1.col, 1);
                         // update edges
-                        matrix.edges.remove(swappable.swappableEdge1);
-                        matrix.edges.remove(swappable.swappableEdge2);
-                        matrix.edges.add(new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col));
-                        matrix.edges.add(new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col));
+                        matrix.swapEdges(swappable);
                     }
                 }
+                if (this.listener != null) {
+                    this.listener.onSwap(swappables);
+                }
                 logNumEquivMatrices = logNumEquivAdjMatrices;
             }
             timer.stop();
@@ -173,11 +180,42 @@ public class CurveballBJDMSampler implements Sampler {
      */
     @Override
     public SparseMatrix sample(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, degree, numSwaps, seed, timer).getMatrix();
+    }
+
+    /**
+     * 
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix in the Markov graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the compressed sampled matrix, built from the rows and the
+     * cols of the chain
+     */
+    @Override
+    public CompressedMatrix sampleCompressed(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, degree, numSwaps, seed, timer).getCompressedMatrix();
+    }
+
+    /**
+     * Runs a chain from the dataset for the given number of swaps.
+     *
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix in the Markov graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the chain after the swaps
+     */
+    private BJDMMatrix walk(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
         final long setupTimeStart = System.currentTimeMillis();
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         double logNumEquivMatrices = matrix.getLogNumEquivMatrices();
 
@@ -213,13 +251,10 @@ public class CurveballBJDMSampler implements Sampler {
                     final Vector[] swappableRows = new Vector[]{
                         matrix.getRowInstance(swappable.swappableEdge1.row), 
                         matrix.getRowInstance(swappable.swappableEdge2.row)};
-                    final Edge newEdge1 = new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col);
-                    final Edge newEdge2 = new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col);
                     final Vector[] newRows = matrix.getNewRows(
                             swappableRows[0], 
                             swappableRows[1],
-                            newEdge1, 
-                            newEdge2);
+                            swappable);
                     logNumEquivAdjMatrices = matrix.getLogNumEquivAdjMatrices(
                             logNumEquivAdjMatrices,
                             swappableRows[0],
@@ -256,10 +291,7 @@ public class CurveballBJDMSampler implements Sampler {
                         matrix.setCol(swappable.swappableEdge1.row, swappable.swappableEdge2.col, 1);
                         matrix.setCol(swappable.swappableEdge2.row, swappable.swappableEdge1.col, 1);
                         // update edges
-                        matrix.edges.remove(swappable.swappableEdge1);
-                        matrix.edges.remove(swappable.swappableEdge2);
-                        matrix.edges.add(new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col));
-                        matrix.edges.add(new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col));
+                        matrix.swapEdges(swappable);
                     }
                 } else {
                     // update num equal rows
@@ -275,18 +307,18 @@ public class CurveballBJDMSampler implements Sampler {
                         matrix.setRow(swappable.swappableEdge1.row, swappable.swappableEdge2.col, 1);
                         matrix.setRow(swappable.swappableEdge2.row, swappable.swappableEdge1.col, 1);
                         // update edges
-                        matrix.edges.remove(swappable.swappableEdge1);
-                        matrix.edges.remove(swappable.swappableEdge2);
-                        matrix.edges.add(new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col));
-                        matrix.edges.add(new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col));
+                        matrix.swapEdges(swappable);
                     }
                 }
+                if (this.listener != null) {
+                    this.listener.onSwap(swappables);
+                }
                 logNumEquivMatrices = logNumEquivAdjMatrices;
             }
             timer.stop();
         }
 //        System.out.println("Actual Swaps: " + actualSwaps);
-        return matrix.getMatrix();
+        return matrix;
     }
 
     /**
@@ -312,7 +344,7 @@ public class CurveballBJDMSampler implements Sampler {
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         double logNumEquivMatrices = matrix.getLogNumEquivMatrices();
 
@@ -337,9 +369,7 @@ public class CurveballBJDMSampler implements Sampler {
 
                 final Vector swappableRow1 = matrix.getRowInstance(swappable.swappableEdge1.row);
                 final Vector swappableRow2 = matrix.getRowInstance(swappable.swappableEdge2.row);
-                final Edge newEdge1 = new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col);
-                final Edge newEdge2 = new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col);
-                final Vector[] newRows = matrix.getNewRows(newEdge1, newEdge2);
+                final Vector[] newRows = matrix.getNewRows(swappable);
 
                 logNumEquivAdjMatrices = matrix.getLogNumEquivAdjMatrices(
                         logNumEquivAdjMatrices, swappableRow1, swappableRow2, newRows[0], newRows[1]);
@@ -376,15 +406,16 @@ public class CurveballBJDMSampler implements Sampler {
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         double logNumEquivMatrices = matrix.getLogNumEquivMatrices();
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
         
-        // starting BJDM vector
-        double[] start = matrix.getBJDMVector(true);
+        // BJDM of the current matrix and its distance from the starting one,
+        // updated at each accepted swap
+        final BJDMTracker bjdm = new BJDMTracker(inMatrix);
 
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
@@ -416,13 +447,10 @@ public class CurveballBJDMSampler implements Sampler {
                     final Vector[] swappableRows = new Vector[]{
                         matrix.getRowInstance(swappable.swappableEdge1.row), 
                         matrix.getRowInstance(swappable.swappableEdge2.row)};
-                    final Edge newEdge1 = new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col);
-                    final Edge newEdge2 = new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col);
                     final Vector[] newRows = matrix.getNewRows(
                             swappableRows[0], 
                             swappableRows[1],
-                            newEdge1, 
-                            newEdge2);
+                            swappable);
                     logNumEquivAdjMatrices = matrix.getLogNumEquivAdjMatrices(
                             logNumEquivAdjMatrices,
                             swappableRows[0],
@@ -458,10 +486,7 @@ public class CurveballBJDMSampler implements Sampler {
                         matrix.setCol(swappable.swappableEdge1.row, swappable.swappableEdge2.col, 1);
                         matrix.setCol(swappable.swappableEdge2.row, swappable.swappableEdge1.col, 1);
                         // update edges
-                        matrix.edges.remove(swappable.swappableEdge1);
-                        matrix.edges.remove(swappable.swappableEdge2);
-                        matrix.edges.add(new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col));
-                        matrix.edges.add(new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col));
+                        matrix.swapEdges(swappable);
                     }
                 } else {
                     // update num equal rows
@@ -477,23 +502,24 @@ public class CurveballBJDMSampler implements Sampler {
                         matrix.setRow(swappable.swappableEdge1.row, swappable.swappableEdge2.col, 1);
                         matrix.setRow(swappable.swappableEdge2.row, swappable.swappableEdge1.col, 1);
                         // update edges
-                        matrix.edges.remove(swappable.swappableEdge1);
-                        matrix.edges.remove(swappable.swappableEdge2);
-                        matrix.edges.add(new Edge(swappable.swappableEdge1.row, swappable.swappableEdge2.col));
-                        matrix.edges.add(new Edge(swappable.swappableEdge2.row, swappable.swappableEdge1.col));
+                        matrix.swapEdges(swappable);
                     }
                 }
+                bjdm.onSwap(swappables);
+                if (this.listener != null) {
+                    this.listener.onSwap(swappables);
+                }
                 logNumEquivMatrices = logNumEquivAdjMatrices;
             }
             
             timer.stop();
             
-            if (i % 100 == 0) {
-                double distance = matrix.getDistanceFrom(start, true);
+            if (i % Config.bjdmInterval == 0) {
+                double distance = bjdm.getDistanceFromStart();
                 stats.addValue(distance);
             } 
         }
-        numCater.addValue(matrix.getNumCaterpillars());
+        numCater.addValue(bjdm.getNumCaterpillars());
         return matrix.getMatrix();
         
     }
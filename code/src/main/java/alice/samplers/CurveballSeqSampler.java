@@ -0,0 +1,112 @@
+package alice.samplers;
+
+import alice.helpers.Swappables;
+import alice.structures.MultiGraph;
+import alice.structures.RawFastIntCollectionFixedSizeWithOrder;
+import alice.utils.FastRandom;
+import alice.utils.Timer;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+/**
+ * ALICE-S-B Sampler: the Curveball variant of {@link AliceSSampler}, which
+ * trades at each step the neighbors of two nodes with the same degree that
+ * appear once in one neighborhood and not in the other, instead of a single
+ * pair of neighbors. The trades are symmetric proposals, so the
+ * Metropolis-Hastings acceptance probability only depends on the numbers of
+ * equivalent matrices. The itemsets repeated in a sequence are never traded,
+ * so they stay in that sequence.
+ */
+public class CurveballSeqSampler implements SeqSampler {
+
+    /**
+     * The listener notified of every accepted transition; null if none.
+     */
+    private SwapListener listener;
+
+    @Override
+    public void setSwapListener(SwapListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param inGraph observed graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the graph representation of the sampled dataset
+     */
+    @Override
+    public MultiGraph sample(MultiGraph inGraph, int numSwaps, long seed, Timer timer) {
+
+        final long setupTimeStart = System.currentTimeMillis();
+
+        final Random rnd = new FastRandom(seed);
+
+        final MultiGraph graph = new MultiGraph(inGraph);
+
+        double logNumEquivMatrices = graph.getLogNumEquivMatrices();
+
+        final long setupTime = System.currentTimeMillis() - setupTimeStart;
+        timer.save(setupTime);
+
+        for (int i = 0; i < numSwaps; i++) {
+            timer.start();
+
+            final List<Swappables> swappables = graph.getCurveballSwappables(rnd);
+            // no feasible trade or self loop
+            if (swappables == null || swappables.isEmpty()) {
+                continue;
+            }
+
+            // the left nodes involved in the trade, with their new neighborhoods
+            final Int2ObjectOpenHashMap<RawFastIntCollectionFixedSizeWithOrder> newRows = graph.getNewRows(swappables);
+            // temporary structure for computing num equivalent matrices
+            final Object2IntOpenHashMap<RawFastIntCollectionFixedSizeWithOrder> rowToEqRows = new Object2IntOpenHashMap<>();
+            double logNumEquivAdjMatrices = logNumEquivMatrices;
+            for (Int2ObjectMap.Entry<RawFastIntCollectionFixedSizeWithOrder> entry : newRows.int2ObjectEntrySet()) {
+                logNumEquivAdjMatrices = graph.getLogNumEquivAdjMatrices(
+                        logNumEquivAdjMatrices,
+                        graph.getRowInstance(entry.getIntKey()),
+                        entry.getValue(),
+                        rowToEqRows);
+            }
+
+            final double frac = Math.exp(logNumEquivMatrices - logNumEquivAdjMatrices);
+            final double acceptanceProb = Math.min(1, frac);
+
+            if (rnd.nextDouble() <= acceptanceProb) {
+                graph.replaceNumEqRows(rowToEqRows);
+                for (Swappables sne : swappables) {
+                    graph.transition(sne);
+                }
+                if (this.listener != null) {
+                    this.listener.onSwap(swappables);
+                }
+                logNumEquivMatrices = logNumEquivAdjMatrices;
+            }
+            timer.stop();
+        }
+        return graph;
+    }
+}
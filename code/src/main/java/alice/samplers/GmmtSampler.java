@@ -16,12 +16,16 @@ package alice.samplers;
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-import alice.helpers.Swappables;
+import alice.helpers.BJDMTracker;
+import alice.helpers.PackedSwappables;
+import alice.structures.CompressedMatrix;
 import alice.structures.GmmtMatrix;
 import alice.structures.SparseMatrix;
-import alice.structures.Edge;
+import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.utils.Timer;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 
 /**
@@ -30,6 +34,31 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
  */
 public class GmmtSampler implements Sampler {
 
+    /**
+     * The listener notified of every accepted transition; null if none.
+     */
+    private SwapListener listener;
+
+    /**
+     * The number of non-swappable pairs of edges sampled and rejected, over
+     * all the samples generated by this sampler.
+     */
+    private final AtomicLong numRetries = new AtomicLong();
+
+    @Override
+    public void setSwapListener(SwapListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     *
+     * @return the number of non-swappable pairs of edges sampled and rejected,
+     * over all the samples generated by this sampler
+     */
+    public long getNumRetries() {
+        return this.numRetries.get();
+    }
+
     /**
      * Samples a matrix from the uniform distribution of matrices with the same
      * row and column margins as the original matrix by using the
@@ -48,33 +77,71 @@ public class GmmtSampler implements Sampler {
         final long setupTimeStart = System.currentTimeMillis();
         final GmmtMatrix matrix = new GmmtMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
         long matrixDegree = matrix.getDegree();
+        matrix.chooseProposalStrategy(matrixDegree);
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
 //        System.out.println("SETUP: " + setupTime);
         timer.save(setupTime);
 
+        // overwritten at each step
+        final PackedSwappables swap = new PackedSwappables();
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
-            final Swappables sne = matrix.getSwappableAndNewEdges(rnd);
-            final Edge swappableEdge1 = sne.swappableEdge1;
-            final Edge swappableEdge2 = sne.swappableEdge2;
-            
-            final long adjMatrixDegree
-                    = matrix.getAdjMatrixDegree(swappableEdge1, swappableEdge2, matrixDegree);
+            // no swappable pair of edges
+            if (!matrix.getSwappableAndNewEdges(rnd, swap)) {
+                timer.stop();
+                continue;
+            }
+            final long adjMatrixDegree = matrix.getAdjMatrixDegree(swap, matrixDegree);
             final double acceptanceProb = Math.min(1, (double) matrixDegree / adjMatrixDegree);
             if (rnd.nextDouble() <= acceptanceProb) {
-                matrix.transition(sne);
+                matrix.transition(swap);
+                if (this.listener != null) {
+                    this.listener.onSwap(swap);
+                }
                 matrixDegree = adjMatrixDegree;
             }
 
             timer.stop();
         }
 
+        this.numRetries.addAndGet(matrix.getNumRetries());
         return matrix.getMatrix();
     }
     
+    /**
+     * 
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param matrixDegree degree of the matrix
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the matrix representation of the sampled dataset
+     */
+    @Override
+    public SparseMatrix sample(SparseMatrix inMatrix, long matrixDegree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, matrixDegree, numSwaps, seed, timer).getMatrix();
+    }
+
+    /**
+     * 
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param matrixDegree degree of the matrix
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the compressed sampled matrix, built from the rows and the
+     * cols of the chain
+     */
+    @Override
+    public CompressedMatrix sampleCompressed(SparseMatrix inMatrix, long matrixDegree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, matrixDegree, numSwaps, seed, timer).getCompressedMatrix();
+    }
+
     /**
      * Samples a matrix from the uniform distribution of matrices with the same
      * row and column margins as the original matrix by using the
@@ -87,32 +154,39 @@ public class GmmtSampler implements Sampler {
      * sufficiently mixes
      * @param seed the random seed
      * @param timer a timer
-     * @return the sampled matrix
+     * @return the chain after the swaps
      */
-    @Override
-    public SparseMatrix sample(SparseMatrix inMatrix, long matrixDegree, int numSwaps, long seed, Timer timer) {
+    private GmmtMatrix walk(SparseMatrix inMatrix, long matrixDegree, int numSwaps, long seed, Timer timer) {
         final long setupTimeStart = System.currentTimeMillis();
         final GmmtMatrix matrix = new GmmtMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
+        matrix.chooseProposalStrategy(matrixDegree);
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
 //        System.out.println("SETUP: " + setupTime);
         timer.save(setupTime);
+        // overwritten at each step
+        final PackedSwappables swap = new PackedSwappables();
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
-            final Swappables sne = matrix.getSwappableAndNewEdges(rnd);
-            final Edge swappableEdge1 = sne.swappableEdge1;
-            final Edge swappableEdge2 = sne.swappableEdge2;
-            final long adjMatrixDegree
-                    = matrix.getAdjMatrixDegree(swappableEdge1, swappableEdge2, matrixDegree);
+            // no swappable pair of edges
+            if (!matrix.getSwappableAndNewEdges(rnd, swap)) {
+                timer.stop();
+                continue;
+            }
+            final long adjMatrixDegree = matrix.getAdjMatrixDegree(swap, matrixDegree);
             final double acceptanceProb = Math.min(1, (double) matrixDegree / adjMatrixDegree);
             if (rnd.nextDouble() <= acceptanceProb) {
-                matrix.transition(sne);
+                matrix.transition(swap);
+                if (this.listener != null) {
+                    this.listener.onSwap(swap);
+                }
                 matrixDegree = adjMatrixDegree;
             }
             timer.stop();
         }
-        return matrix.getMatrix();
+        this.numRetries.addAndGet(matrix.getNumRetries());
+        return matrix;
     }
 
     /**
@@ -140,36 +214,45 @@ public class GmmtSampler implements Sampler {
         final long setupTimeStart = System.currentTimeMillis();
         final GmmtMatrix matrix = new GmmtMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
         long matrixDegree = matrix.getDegree();
+        matrix.chooseProposalStrategy(matrixDegree);
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
         
-        // starting BJDM vector
-        double[] start = matrix.getBJDMVector(true);
+        // BJDM of the current matrix and its distance from the starting one,
+        // updated at each accepted swap
+        final BJDMTracker bjdm = new BJDMTracker(inMatrix);
 
+        // overwritten at each step
+        final PackedSwappables swap = new PackedSwappables();
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
-            final Swappables sne = matrix.getSwappableAndNewEdges(rnd);
-            final Edge swappableEdge1 = sne.swappableEdge1;
-            final Edge swappableEdge2 = sne.swappableEdge2;
-            
-            final long adjMatrixDegree
-                    = matrix.getAdjMatrixDegree(swappableEdge1, swappableEdge2, matrixDegree);
+            // no swappable pair of edges
+            if (!matrix.getSwappableAndNewEdges(rnd, swap)) {
+                timer.stop();
+                continue;
+            }
+            final long adjMatrixDegree = matrix.getAdjMatrixDegree(swap, matrixDegree);
             final double acceptanceProb = Math.min(1, (double) matrixDegree / adjMatrixDegree);
             if (rnd.nextDouble() <= acceptanceProb) {
-                matrix.transition(sne);
+                matrix.transition(swap);
+                bjdm.onSwap(swap);
+                if (this.listener != null) {
+                    this.listener.onSwap(swap);
+                }
                 matrixDegree = adjMatrixDegree;
             }
             timer.stop();
             
-            if (i % 100 == 0) {
-                double distance = matrix.getDistanceFrom(start, true);
+            if (i % Config.bjdmInterval == 0) {
+                double distance = bjdm.getDistanceFromStart();
                 stats.addValue(distance);
             } 
         }
-        numCater.addValue(matrix.getNumZstructs());
+        numCater.addValue(bjdm.getNumCaterpillars());
+        this.numRetries.addAndGet(matrix.getNumRetries());
         return matrix.getMatrix();
     }
 }
@@ -2,8 +2,10 @@ package alice.samplers;
 
 import alice.helpers.Swappables;
 import alice.structures.Edge;
+import alice.structures.EdgeClassIndex;
 import alice.structures.MultiGraph;
 import alice.structures.RawFastIntCollectionFixedSizeWithOrder;
+import alice.utils.FastRandom;
 import alice.utils.Timer;
 import java.util.Random;
 
@@ -28,6 +30,16 @@ import java.util.Random;
  */
 public class GmmtSeqSampler implements SeqSampler {
 
+    /**
+     * The listener notified of every accepted transition; null if none.
+     */
+    private SwapListener listener;
+
+    @Override
+    public void setSwapListener(SwapListener listener) {
+        this.listener = listener;
+    }
+
     /**
      * @param inGraph observed graph
      * @param numSwaps the number of swaps to make such that the chain
@@ -41,18 +53,30 @@ public class GmmtSeqSampler implements SeqSampler {
         
         final long setupTimeStart = System.currentTimeMillis();
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
         
         final MultiGraph graph = new MultiGraph(inGraph);
 
+        // index of the edges by (row sum, col sum), to skip the proposals
+        // whose rows and cols have different sums
+        final EdgeClassIndex index = new EdgeClassIndex(graph);
+
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
 
         int actualSwaps = 0;
-        for (int i = 0; i < numSwaps; i++) {
+        long i = -1;
+        while (i < numSwaps) {
             timer.start();
+            // the self loops skipped up to the next feasible proposal are
+            // timed with it
+            i = index.nextFeasibleStep(i, rnd);
+            if (i >= numSwaps) {
+                timer.stop();
+                break;
+            }
 
-            final Swappables sne = graph.getRandomSwappables(rnd);
+            final Swappables sne = index.sampleFeasibleSwappables(rnd);
             
             final Edge swappableEdge1 = sne.swappableEdge1;
             final Edge swappableEdge2 = sne.swappableEdge2;
@@ -67,6 +91,10 @@ public class GmmtSeqSampler implements SeqSampler {
 
                 actualSwaps ++;
                 graph.transition(sne, swappableRow1, swappableRow2, newRow1, newRow2);
+                index.transition(sne);
+                if (this.listener != null) {
+                    this.listener.onSwap(sne);
+                }
             }
             timer.stop();
         }
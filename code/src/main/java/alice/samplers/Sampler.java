@@ -1,5 +1,6 @@
 package alice.samplers;
 
+import alice.structures.CompressedMatrix;
 import alice.structures.SparseMatrix;
 import alice.utils.Timer;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
@@ -28,6 +29,21 @@ public interface Sampler {
     SparseMatrix sample(SparseMatrix inMatrix, int numSwaps, long seed, Timer timer);
     
     SparseMatrix sample(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer);
+
+    /**
+     * Samples a matrix like {@link #sample(SparseMatrix, long, int, long, Timer)}
+     * and returns its compressed form, built straight from the state of the
+     * chain.
+     *
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix; 0 if the sampler does not use it
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the compressed sampled matrix
+     */
+    CompressedMatrix sampleCompressed(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer);
     
     SparseMatrix sample(SparseMatrix inMatrix, 
             int numSwaps, 
@@ -35,4 +51,11 @@ public interface Sampler {
             Timer timer, 
             DescriptiveStatistics stats,
             DescriptiveStatistics numCater);
+
+    /**
+     * Sets the listener notified of every accepted transition.
+     *
+     * @param listener the listener; null to remove it
+     */
+    void setSwapListener(SwapListener listener);
 }
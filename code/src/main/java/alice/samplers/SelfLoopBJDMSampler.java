@@ -1,10 +1,15 @@
 package alice.samplers;
 
+import alice.helpers.BJDMTracker;
 import alice.helpers.Swappables;
+import alice.structures.CompressedMatrix;
 import alice.structures.BJDMMatrix;
 import alice.structures.Edge;
+import alice.structures.EdgeClassIndex;
 import alice.structures.SparseMatrix;
 import alice.structures.Vector;
+import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.utils.Timer;
 import java.util.Random;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
@@ -27,6 +32,16 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 */
 public class SelfLoopBJDMSampler implements Sampler {
 
+    /**
+     * The listener notified of every accepted transition; null if none.
+     */
+    private SwapListener listener;
+
+    @Override
+    public void setSwapListener(SwapListener listener) {
+        this.listener = listener;
+    }
+
     /**
      * @param inMatrix a {@link SparseMatrix} representation of the dataset
      * @param numSwaps the number of swaps to make such that the chain
@@ -40,17 +55,29 @@ public class SelfLoopBJDMSampler implements Sampler {
         final long setupTimeStart = System.currentTimeMillis();
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
+
+        // index of the edges by (row sum, col sum), to skip the proposals
+        // whose rows and cols have different sums
+        final EdgeClassIndex index = new EdgeClassIndex(matrix);
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
 
         Swappables sne;
         
-        for (int i = 0; i < numSwaps; i++) {
+        long i = -1;
+        while (i < numSwaps) {
             timer.start();
+            // the self loops skipped up to the next feasible proposal are
+            // timed with it
+            i = index.nextFeasibleStep(i, rnd);
+            if (i >= numSwaps) {
+                timer.stop();
+                break;
+            }
             
-            sne = matrix.getRandomSwappables(rnd);
+            sne = index.sampleFeasibleSwappables(rnd);
             
             final Edge swappableEdge1 = sne.swappableEdge1;
             final Edge swappableEdge2 = sne.swappableEdge2;
@@ -58,14 +85,16 @@ public class SelfLoopBJDMSampler implements Sampler {
             if (matrix.areSwappable(sne)) {
                 final Vector swappableRow1 = matrix.getRowInstance(swappableEdge1.row);
                 final Vector swappableRow2 = matrix.getRowInstance(swappableEdge2.row);
-                final Edge newEdge1 = new Edge(swappableEdge1.row, swappableEdge2.col);
-                final Edge newEdge2 = new Edge(swappableEdge2.row, swappableEdge1.col);
-                final Vector[] newRows = matrix.getNewRows(newEdge1, newEdge2);
+                final Vector[] newRows = matrix.getNewRows(sne);
                 final Vector newRow1 = newRows[0];
                 final Vector newRow2 = newRows[1];
                 matrix.transition(sne,
                         swappableRow1, swappableRow2,
                         newRow1, newRow2);
+                index.transition(sne);
+                if (this.listener != null) {
+                    this.listener.onSwap(sne);
+                }
             }
             timer.stop();
         }
@@ -84,20 +113,63 @@ public class SelfLoopBJDMSampler implements Sampler {
      */
     @Override
     public SparseMatrix sample(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, degree, numSwaps, seed, timer).getMatrix();
+    }
+
+    /**
+     * 
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix in the Markov graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the compressed sampled matrix, built from the rows and the
+     * cols of the chain
+     */
+    @Override
+    public CompressedMatrix sampleCompressed(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, degree, numSwaps, seed, timer).getCompressedMatrix();
+    }
+
+    /**
+     * Runs a chain from the dataset for the given number of swaps.
+     *
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix in the Markov graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the chain after the swaps
+     */
+    private BJDMMatrix walk(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
         final long setupTimeStart = System.currentTimeMillis();
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
+
+        // index of the edges by (row sum, col sum), to skip the proposals
+        // whose rows and cols have different sums
+        final EdgeClassIndex index = new EdgeClassIndex(matrix);
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
 
         Swappables sne;
-        for (int i = 0; i < numSwaps; i++) {
+        long i = -1;
+        while (i < numSwaps) {
             timer.start();
+            // the self loops skipped up to the next feasible proposal are
+            // timed with it
+            i = index.nextFeasibleStep(i, rnd);
+            if (i >= numSwaps) {
+                timer.stop();
+                break;
+            }
             
-            sne = matrix.getRandomSwappables(rnd);
+            sne = index.sampleFeasibleSwappables(rnd);
             
             final Edge swappableEdge1 = sne.swappableEdge1;
             final Edge swappableEdge2 = sne.swappableEdge2;
@@ -105,18 +177,20 @@ public class SelfLoopBJDMSampler implements Sampler {
             if (matrix.areSwappable(sne)) {
                 final Vector swappableRow1 = matrix.getRowInstance(swappableEdge1.row);
                 final Vector swappableRow2 = matrix.getRowInstance(swappableEdge2.row);
-                final Edge newEdge1 = new Edge(swappableEdge1.row, swappableEdge2.col);
-                final Edge newEdge2 = new Edge(swappableEdge2.row, swappableEdge1.col);
-                final Vector[] newRows = matrix.getNewRows(newEdge1, newEdge2);
+                final Vector[] newRows = matrix.getNewRows(sne);
                 final Vector newRow1 = newRows[0];
                 final Vector newRow2 = newRows[1];
                 matrix.transition(sne,
                         swappableRow1, swappableRow2,
                         newRow1, newRow2);
+                index.transition(sne);
+                if (this.listener != null) {
+                    this.listener.onSwap(sne);
+                }
             }
             timer.stop();
         }
-        return matrix.getMatrix();
+        return matrix;
     }
 
     /**
@@ -141,19 +215,34 @@ public class SelfLoopBJDMSampler implements Sampler {
 
         final BJDMMatrix matrix = new BJDMMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
+
+        // index of the edges by (row sum, col sum), to skip the proposals
+        // whose rows and cols have different sums
+        final EdgeClassIndex index = new EdgeClassIndex(matrix);
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
         
-        // starting BJDM vector
-        double[] start = matrix.getBJDMVector(true);
+        // BJDM of the current matrix and its distance from the starting one,
+        // updated at each accepted swap
+        final BJDMTracker bjdm = new BJDMTracker(inMatrix);
 
         Swappables sne;
+        long nextFeasible = index.nextFeasibleStep(-1, rnd);
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
+            // the proposals of the steps before nextFeasible are self loops
+            if (i < nextFeasible) {
+                timer.stop();
+                if (i % Config.bjdmInterval == 0) {
+                    stats.addValue(bjdm.getDistanceFromStart());
+                }
+                continue;
+            }
+            nextFeasible = index.nextFeasibleStep(i, rnd);
             
-            sne = matrix.getRandomSwappables(rnd);
+            sne = index.sampleFeasibleSwappables(rnd);
             
             final Edge swappableEdge1 = sne.swappableEdge1;
             final Edge swappableEdge2 = sne.swappableEdge2;
@@ -161,23 +250,26 @@ public class SelfLoopBJDMSampler implements Sampler {
             if (matrix.areSwappable(sne)) {
                 final Vector swappableRow1 = matrix.getRowInstance(swappableEdge1.row);
                 final Vector swappableRow2 = matrix.getRowInstance(swappableEdge2.row);
-                final Edge newEdge1 = new Edge(swappableEdge1.row, swappableEdge2.col);
-                final Edge newEdge2 = new Edge(swappableEdge2.row, swappableEdge1.col);
-                final Vector[] newRows = matrix.getNewRows(newEdge1, newEdge2);
+                final Vector[] newRows = matrix.getNewRows(sne);
                 final Vector newRow1 = newRows[0];
                 final Vector newRow2 = newRows[1];
                 matrix.transition(sne,
                         swappableRow1, swappableRow2,
                         newRow1, newRow2);
+                index.transition(sne);
+                bjdm.onSwap(sne);
+                if (this.listener != null) {
+                    this.listener.onSwap(sne);
+                }
             }
             timer.stop();
             
-            if (i % 100 == 0) {
-                double distance = matrix.getDistanceFrom(start, true);
+            if (i % Config.bjdmInterval == 0) {
+                double distance = bjdm.getDistanceFromStart();
                 stats.addValue(distance);
             } 
         }
-        catNum.addValue(matrix.getNumCaterpillars());
+        catNum.addValue(bjdm.getNumCaterpillars());
         
         return matrix.getMatrix();
     
@@ -1,8 +1,12 @@
 package alice.samplers;
 
-import alice.helpers.Swappables;
+import alice.helpers.BJDMTracker;
+import alice.helpers.PackedSwappables;
+import alice.structures.CompressedMatrix;
 import alice.structures.GmmtMatrix;
 import alice.structures.SparseMatrix;
+import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.utils.Timer;
 import java.util.Random;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
@@ -25,6 +29,16 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 */
 public class SelfLoopGmmtSampler implements Sampler {
 
+    /**
+     * The listener notified of every accepted transition; null if none.
+     */
+    private SwapListener listener;
+
+    @Override
+    public void setSwapListener(SwapListener listener) {
+        this.listener = listener;
+    }
+
     /**
      * Samples a matrix from the uniform distribution of matrices with the same
      * row and column margins as the original matrix by using the
@@ -42,26 +56,62 @@ public class SelfLoopGmmtSampler implements Sampler {
         final long setupTimeStart = System.currentTimeMillis();
 
         final GmmtMatrix matrix = new GmmtMatrix(inMatrix);
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
 
-        Swappables sne;
-        
+        // overwritten at each step
+        final PackedSwappables swap = new PackedSwappables();
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
             
-            sne = matrix.getRandomSwappables(rnd);
+            final int e1Index = rnd.nextInt(matrix.getNumEdges());
+            final int e2Index = rnd.nextInt(matrix.getNumEdges());
             
-            if (matrix.areSwappable(sne)) {
-                matrix.transition(sne);
+            if (matrix.areSwappable(e1Index, e2Index)) {
+                matrix.getSwappables(e1Index, e2Index, swap);
+                matrix.transition(swap);
+                if (this.listener != null) {
+                    this.listener.onSwap(swap);
+                }
             }
             timer.stop();
         }
         return matrix.getMatrix();
     }
     
+    /**
+     * 
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix in the Markov graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the matrix representation of the sampled dataset
+     */
+    @Override
+    public SparseMatrix sample(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, degree, numSwaps, seed, timer).getMatrix();
+    }
+
+    /**
+     * 
+     * @param inMatrix a {@link SparseMatrix} representation of the dataset
+     * @param degree degree of the matrix in the Markov graph
+     * @param numSwaps the number of swaps to make such that the chain
+     * sufficiently mixes
+     * @param seed the random seed
+     * @param timer a timer
+     * @return the compressed sampled matrix, built from the rows and the
+     * cols of the chain
+     */
+    @Override
+    public CompressedMatrix sampleCompressed(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+        return this.walk(inMatrix, degree, numSwaps, seed, timer).getCompressedMatrix();
+    }
+
     /**
      * Samples a matrix from the uniform distribution of matrices with the same
      * row and column margins as the original matrix by using the
@@ -73,31 +123,36 @@ public class SelfLoopGmmtSampler implements Sampler {
      * sufficiently mixes
      * @param seed the random seed
      * @param timer a timer
-     * @return the sampled matrix
+     * @return the chain after the swaps
      */
-    @Override
-    public SparseMatrix sample(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+    private GmmtMatrix walk(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
         final long setupTimeStart = System.currentTimeMillis();
 
         final GmmtMatrix matrix = new GmmtMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
 
-        Swappables sne;
+        // overwritten at each step
+        final PackedSwappables swap = new PackedSwappables();
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
             
-            sne = matrix.getRandomSwappables(rnd);
+            final int e1Index = rnd.nextInt(matrix.getNumEdges());
+            final int e2Index = rnd.nextInt(matrix.getNumEdges());
             
-            if (matrix.areSwappable(sne)) {
-                matrix.transition(sne);
+            if (matrix.areSwappable(e1Index, e2Index)) {
+                matrix.getSwappables(e1Index, e2Index, swap);
+                matrix.transition(swap);
+                if (this.listener != null) {
+                    this.listener.onSwap(swap);
+                }
             }
             timer.stop();
         }
-        return matrix.getMatrix();
+        return matrix;
     }
 
     /**
@@ -126,31 +181,39 @@ public class SelfLoopGmmtSampler implements Sampler {
 
         final GmmtMatrix matrix = new GmmtMatrix(inMatrix);
 
-        final Random rnd = new Random(seed);
+        final Random rnd = new FastRandom(seed);
 
         final long setupTime = System.currentTimeMillis() - setupTimeStart;
         timer.save(setupTime);
         
-        // starting BJDM vector
-        double[] start = matrix.getBJDMVector(true);
+        // BJDM of the current matrix and its distance from the starting one,
+        // updated at each accepted swap
+        final BJDMTracker bjdm = new BJDMTracker(inMatrix);
 
-        Swappables sne;
+        // overwritten at each step
+        final PackedSwappables swap = new PackedSwappables();
         for (int i = 0; i < numSwaps; i++) {
             timer.start();
             
-            sne = matrix.getRandomSwappables(rnd);
+            final int e1Index = rnd.nextInt(matrix.getNumEdges());
+            final int e2Index = rnd.nextInt(matrix.getNumEdges());
             
-            if (matrix.areSwappable(sne)) {
-                matrix.transition(sne);
+            if (matrix.areSwappable(e1Index, e2Index)) {
+                matrix.getSwappables(e1Index, e2Index, swap);
+                matrix.transition(swap);
+                bjdm.onSwap(swap);
+                if (this.listener != null) {
+                    this.listener.onSwap(swap);
+                }
             }
             timer.stop();
             
-            if (i % 100 == 0) {
-                double distance = matrix.getDistanceFrom(start, true);
+            if (i % Config.bjdmInterval == 0) {
+                double distance = bjdm.getDistanceFromStart();
                 stats.addValue(distance);
             } 
         }
-        catNum.addValue(matrix.getNumZstructs());
+        catNum.addValue(bjdm.getNumCaterpillars());
         
         return matrix.getMatrix();
     
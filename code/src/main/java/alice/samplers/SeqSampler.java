@@ -27,5 +27,11 @@ import alice.utils.Timer;
 public interface SeqSampler {
 
     MultiGraph sample(MultiGraph inMatrix, int numSwaps, long seed, Timer timer);
-    
+
+    /**
+     * Sets the listener notified of every accepted transition.
+     *
+     * @param listener the listener; null to remove it
+     */
+    void setSwapListener(SwapListener listener);
 }
@@ -0,0 +1,99 @@
+package alice.samplers;
+
+import alice.helpers.PackedSwappables;
+import alice.helpers.Swappables;
+import alice.structures.Edge;
+import java.util.List;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A listener notified by a {@link Sampler} or {@link SeqSampler} every time
+ * the chain moves to an adjacent state, so that statistics of the current
+ * state can be updated incrementally instead of being recomputed from scratch.
+ */
+public interface SwapListener {
+
+    /**
+     * Called after the sampler accepted a transition. Each cell in removed went
+     * from 1 to 0 and each cell in added went from 0 to 1. For a
+     * {@link alice.structures.MultiGraph} a cell is one occurrence of the edge.
+     *
+     * @param removed the cells removed from the current state
+     * @param added the cells added to the current state
+     */
+    void onSwap(Edge[] removed, Edge[] added);
+
+    /**
+     * Called after the sampler accepted the swap of a pair of edges, given as
+     * edges packed with {@link Edge#pack(int, int)}. Listeners that are
+     * notified at every step override it, so that a swap does not allocate
+     * the arrays of {@link Edge}s of {@link #onSwap(Edge[], Edge[])}.
+     *
+     * @param removed1 the first packed cell removed from the current state
+     * @param removed2 the second packed cell removed from the current state
+     * @param added1 the first packed cell added to the current state
+     * @param added2 the second packed cell added to the current state
+     */
+    default void onSwap(long removed1, long removed2, long added1, long added2) {
+        onSwap(new Edge[]{Edge.unpack(removed1), Edge.unpack(removed2)},
+                new Edge[]{Edge.unpack(added1), Edge.unpack(added2)});
+    }
+
+    /**
+     * Called after the sampler accepted the swap of a pair of edges.
+     *
+     * @param sne the swapped edges
+     */
+    default void onSwap(Swappables sne) {
+        final Edge e1 = sne.swappableEdge1;
+        final Edge e2 = sne.swappableEdge2;
+        onSwap(e1.pack(), e2.pack(), Edge.pack(e1.row, e2.col), Edge.pack(e2.row, e1.col));
+    }
+
+    /**
+     * Called after the sampler accepted the swap of a pair of edges held in a
+     * reused {@link PackedSwappables}.
+     *
+     * @param swap the swapped edges
+     */
+    default void onSwap(PackedSwappables swap) {
+        onSwap(swap.edge1, swap.edge2, swap.getNewEdge1(), swap.getNewEdge2());
+    }
+
+    /**
+     * Called after the sampler accepted the swaps of several pairs of edges at
+     * once, as in a Curveball step.
+     *
+     * @param swappables the swapped edges
+     */
+    default void onSwap(List<Swappables> swappables) {
+        final Edge[] removed = new Edge[2 * swappables.size()];
+        final Edge[] added = new Edge[2 * swappables.size()];
+        int i = 0;
+        for (Swappables sne : swappables) {
+            final Edge e1 = sne.swappableEdge1;
+            final Edge e2 = sne.swappableEdge2;
+            removed[i] = e1;
+            removed[i + 1] = e2;
+            added[i] = new Edge(e1.row, e2.col);
+            added[i + 1] = new Edge(e2.row, e1.col);
+            i += 2;
+        }
+        onSwap(removed, added);
+    }
+}
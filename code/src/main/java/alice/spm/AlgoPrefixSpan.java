@@ -1,11 +1,12 @@
 package alice.spm;
 
+import alice.utils.BatchedOutput;
+import alice.utils.Config;
 import alice.utils.MemoryLogger;
+import alice.utils.PatternsWriter;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -64,7 +65,12 @@ public class AlgoPrefixSpan {
     /**
      * writer to write output file
      */
-    BufferedWriter writer = null;
+    BatchedOutput writer = null;
+
+    /**
+     * writer to write output file in binary
+     */
+    PatternsWriter patternsWriter = null;
 
     /**
      * The sequential patterns that are found (if the user want to keep them
@@ -90,6 +96,11 @@ public class AlgoPrefixSpan {
     final int BUFFERS_SIZE = 2000;
     private int[] patternBuffer = new int[BUFFERS_SIZE];
 
+    /**
+     * the items of a pattern written in binary
+     */
+    private int[] patternTokens = new int[BUFFERS_SIZE + 1];
+
     /**
      * original sequence count *
      */
@@ -149,6 +160,9 @@ public class AlgoPrefixSpan {
         if (writer != null) {
             writer.close();
         }
+        if (patternsWriter != null) {
+            patternsWriter.close();
+        }
         return patterns;
     }
     
@@ -178,6 +192,9 @@ public class AlgoPrefixSpan {
         if (writer != null) {
             writer.close();
         }
+        if (patternsWriter != null) {
+            patternsWriter.close();
+        }
         return patterns;
     }
 
@@ -215,6 +232,9 @@ public class AlgoPrefixSpan {
         if (writer != null) {
             writer.close();
         }
+        if (patternsWriter != null) {
+            patternsWriter.close();
+        }
         return patterns;
     }
 
@@ -229,12 +249,17 @@ public class AlgoPrefixSpan {
      */
     private void prefixSpan(SequenceDatabase sequenceDatabase, String outputFilePath) throws IOException {
         // if the user want to keep the result into memory
+        writer = null;
+        patternsWriter = null;
         if (outputFilePath == null) {
-            writer = null;
             patterns = new SequentialPatterns("FREQUENT SEQUENTIAL PATTERNS");
+        } else if (Config.binaryPatterns && !showSequenceIdentifiers) {
+            // the binary format has no sequence identifiers
+            patterns = null;
+            patternsWriter = new PatternsWriter(outputFilePath, true);
         } else { // if the user want to save the result to a file
             patterns = null;
-            writer = new BufferedWriter(new FileWriter(outputFilePath));
+            writer = new BatchedOutput(outputFilePath);
         }
 
         sequenceCount = sequenceDatabase.size();
@@ -445,22 +470,24 @@ public class AlgoPrefixSpan {
         // increase the number of pattern found for statistics purposes
         patternCount++;
 
-        // if the result should be saved to a file
-        if (writer != null) {
-            // create a StringBuilder
-            StringBuilder r = new StringBuilder();
-            r.append(item);
-            r.append(" -1 #SUP: ");
-            r.append(support);
+        // if the result should be saved to a binary file
+        if (patternsWriter != null) {
+            patternTokens[0] = item;
+            patternTokens[1] = -1;
+            patternsWriter.add(patternTokens, 2, support);
+        } // if the result should be saved to a file
+        else if (writer != null) {
+            // format the pattern straight into the writer
+            writer.writeInt(item);
+            writer.write(" -1 #SUP: ");
+            writer.writeInt(support);
             if (showSequenceIdentifiers) {
-                r.append(" #SID: ");
-                for (Integer sid : sequenceIDs) {
-                    r.append(sid);
-                    r.append(" ");
+                writer.write(" #SID: ");
+                for (int i = 0; i < sequenceIDs.size(); i++) {
+                    writer.writeInt(sequenceIDs.getInt(i));
+                    writer.writeByte(' ');
                 }
             }
-            // write the string to the file
-            writer.write(r.toString());
             // start a new line
             writer.newLine();
         } // otherwise the result is kept into memory
@@ -486,33 +513,38 @@ public class AlgoPrefixSpan {
         // increase the number of pattern found for statistics purposes
         patternCount++;
         
-        // if the result should be saved to a file
-        if (writer != null) {
+        // if the result should be saved to a binary file
+        if (patternsWriter != null) {
+            System.arraycopy(patternBuffer, 0, patternTokens, 0, lastBufferPosition + 1);
+            int numTokens = lastBufferPosition + 1;
+            if (patternBuffer[lastBufferPosition] != -1) {
+                patternTokens[numTokens++] = -1;
+            }
+            patternsWriter.add(patternTokens, numTokens, pseudoSequences.size());
+        } // if the result should be saved to a file
+        else if (writer != null) {
 
-            // create a StringBuilder
-            StringBuilder r = new StringBuilder();
+            // format the pattern straight into the writer
             for (int i = 0; i <= lastBufferPosition; i++) {
-                r.append(patternBuffer[i]);
-                r.append(" ");
+                writer.writeInt(patternBuffer[i]);
+                writer.writeByte(' ');
             }
             //-------------------------------------
             // PHILIPPE: BUG FIX 2017-10 : some -1 were missing in the output file
             // for some patterns. This fixes the problem.
             if (patternBuffer[lastBufferPosition] != -1) {
-                r.append("-1 ");
+                writer.write("-1 ");
             }
             //-------------------------------------
-            r.append("#SUP: ");
-            r.append(pseudoSequences.size());
+            writer.write("#SUP: ");
+            writer.writeInt(pseudoSequences.size());
             if (showSequenceIdentifiers) {
-                r.append(" #SID: ");
+                writer.write(" #SID: ");
                 for (PseudoSequence sequence : pseudoSequences) {
-                    r.append(sequence.sequenceID);
-                    r.append(" ");
+                    writer.writeInt(sequence.sequenceID);
+                    writer.writeByte(' ');
                 }
             }
-            // write the string to the file
-            writer.write(r.toString());
             // start a new line
             writer.newLine();
         } // otherwise the result is kept into memory
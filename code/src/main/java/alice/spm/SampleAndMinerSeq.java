@@ -19,9 +19,9 @@ package alice.spm;
 import alice.config.Paths;
 import alice.samplers.SeqSampler;
 import alice.structures.MultiGraph;
+import alice.utils.FastRandom;
 import alice.utils.Transformer;
 import java.io.IOException;
-import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -60,7 +60,6 @@ public class SampleAndMinerSeq {
         final Transformer transformer = new Transformer();
         final MultiGraph matrix = transformer.createMultiGraph(datasetPath);
         final Paths paths = new Paths(datasetPath, resultsDir);
-        final Random rnd = new Random(seed);
         final ExecutorService pool = Executors.newFixedThreadPool(numThreads);
 
         Paths.makeDir(paths.samplesPath);
@@ -75,7 +74,7 @@ public class SampleAndMinerSeq {
                             transformer,
                             matrix,
                             numSwaps,
-                            rnd.nextLong(),
+                            FastRandom.streamSeed(seed, i),
                             minFreq,
                             samplePath,
                             freqItemsetsPath);
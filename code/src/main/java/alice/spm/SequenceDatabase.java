@@ -18,9 +18,9 @@ package alice.spm;
 * You should have received a copy of the GNU General Public License along with
 * SPMF. If not, see <http://www.gnu.org/licenses/>.
  */
+import alice.utils.BatchedOutput;
 import com.google.common.collect.Lists;
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.List;
 
@@ -58,7 +58,7 @@ public class SequenceDatabase {
 
         String thisLine; // variable to read each line.
         try {
-            BufferedReader br = new BufferedReader(new FileReader(path));
+            BufferedReader br = BatchedOutput.newReader(path);
             while ((thisLine = br.readLine()) != null) {
                 // if the line is not a comment, is not empty or is not other
                 // kind of metadata
@@ -5,16 +5,16 @@ import alice.helpers.SwappableLists;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.primitives.Ints;
 import gr.james.sampling.LiLSampling;
 import gr.james.sampling.RandomSamplingCollector;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import org.javatuples.Pair;
 import org.apache.commons.math3.util.CombinatoricsUtils;
 
 /*
@@ -58,14 +58,16 @@ public class BJDMMatrix extends SetMatrix {
     private final Map<Integer, List<Integer>> colSumToEqColSumCols;
     
     /**
-     * ids of rows such that there exists at least two rows with the same rowSum.
+     * The rows grouped by row sum, to sample two distinct rows with the same
+     * row sum. Only the row sums shared by at least two rows are kept.
      */
-    private final int[] samplableRows;
+    private final EqSumClasses rowClasses;
     
     /**
-     * ids of cols such that there exists at least two cols with the same colSum.
+     * The cols grouped by col sum, to sample two distinct cols with the same
+     * col sum. Only the col sums shared by at least two cols are kept.
      */
-    private final int[] samplableCols;
+    private final EqSumClasses colClasses;
 
     /**
      * Creates an instance of {@link BJDMMatrix} from a 0-1
@@ -83,36 +85,18 @@ public class BJDMMatrix extends SetMatrix {
             incNumEqRows(row);
             addEqRowSumUniqueRow(rowSum, row);
         }
-        // initialize row sum map and samplable rows
+        // initialize row sum map and row classes
         this.rowSumToEqRowSumRows = IntStream.range(0, rowSums.length)
                 .boxed()
                 .collect(Collectors.groupingBy(r -> rowSums[r], Collectors.toList()));
-        List<Integer> tmpR = rowSumToEqRowSumRows
-                .entrySet()
-                .stream()
-                .filter(entry -> entry.getValue().size() > 1)
-                .flatMap(entry -> entry.getValue().stream())
-                .collect(Collectors.toList());
-        if (!tmpR.isEmpty()) {
-            this.samplableRows = Ints.toArray(tmpR);
-        } else {
-            this.samplableRows = null;
-        }
-        // initialize col sum map and samplable columns
+        // a row sum is sampled proportionally to the number of its rows, as
+        // if a row was sampled uniformly among those with a non-unique sum
+        this.rowClasses = new EqSumClasses(rowSums, n -> n > 1 ? n : 0);
+        // initialize col sum map and col classes
         this.colSumToEqColSumCols = IntStream.range(0, colSums.length)
                 .boxed()
                 .collect(Collectors.groupingBy(c -> colSums[c], Collectors.toList()));
-        List<Integer> tmpC = colSumToEqColSumCols
-                .entrySet()
-                .stream()
-                .filter(entry -> entry.getValue().size() > 1)
-                .flatMap(entry -> entry.getValue().stream())
-                .collect(Collectors.toList());
-        if (!tmpC.isEmpty()) {
-            this.samplableCols = Ints.toArray(tmpC);
-        } else {
-           this.samplableCols = null; 
-        }
+        this.colClasses = new EqSumClasses(colSums, n -> n > 1 ? n : 0);
     }
 
     /**
@@ -300,46 +284,41 @@ public class BJDMMatrix extends SetMatrix {
     public Swappables getSwappables(Random rnd) {
         // sample rows or columns
         boolean rowSwap = rnd.nextBoolean();
-        Map<Integer, List<Integer>> sumToEqSumElements;
-        int[] samplable;
+        EqSumClasses classes;
         Vector[] instances;
-        int[] sums;
         if (rowSwap) {
-            sumToEqSumElements = rowSumToEqRowSumRows;
-            samplable = samplableRows;
+            classes = rowClasses;
             instances = getRows();
-            sums = rowSums;
         } else {
-            sumToEqSumElements = colSumToEqColSumCols;
-            samplable = samplableCols;
+            classes = colClasses;
             instances = getCols();
-            sums = colSums;
         }
-        if (samplable == null) {
+        if (classes.isEmpty()) {
             return null;
         }
-        // we select a row/col to select a row/col sum
-        Pair<Integer, Integer> pair = samplePairOfIndices(sumToEqSumElements, samplable, sums, rnd);
-        // column/row differences
-        Set<Integer> S1 = Sets.newHashSet(instances[pair.getValue0()].getNonzeroIndices());
-        S1.removeAll(instances[pair.getValue1()].getNonzeroIndices());
-        Set<Integer> S2 = Sets.newHashSet(instances[pair.getValue1()].getNonzeroIndices());
-        S2.removeAll(instances[pair.getValue0()].getNonzeroIndices());
-        if (S1.isEmpty()) {
+        // we select a row/col sum and then two rows/cols with that sum
+        int[] pair = classes.samplePair(rnd, true);
+        // sizes of the column/row differences
+        final Vector v1 = instances[pair[0]];
+        final Vector v2 = instances[pair[1]];
+        final long interSize = v1.interSize(v2);
+        final int numS1 = (int) (v1.getNumNonzeroIndices() - interSize);
+        if (numS1 == 0) {
             // self loop
             return null;
         }
-        // select column/row pair
-        int f1 = S1.stream().skip(rnd.nextInt(S1.size())).findFirst().get();
-        int f2 = S2.stream().skip(rnd.nextInt(S2.size())).findFirst().get();
+        final int numS2 = (int) (v2.getNumNonzeroIndices() - interSize);
+        // select column/row pair from the differences, without building them
+        int f1 = v1.getNthIndexNotIn(v2, rnd.nextInt(numS1));
+        int f2 = v2.getNthIndexNotIn(v1, rnd.nextInt(numS2));
         Edge sampledEdge1;
         Edge sampledEdge2;
         if (rowSwap) {
-            sampledEdge1 = new Edge(pair.getValue0(), f1);
-            sampledEdge2 = new Edge(pair.getValue1(), f2);
+            sampledEdge1 = new Edge(pair[0], f1);
+            sampledEdge2 = new Edge(pair[1], f2);
         } else {
-            sampledEdge1 = new Edge(f1, pair.getValue0());
-            sampledEdge2 = new Edge(f2, pair.getValue1());
+            sampledEdge1 = new Edge(f1, pair[0]);
+            sampledEdge2 = new Edge(f2, pair[1]);
         }
         return new Swappables(sampledEdge1, sampledEdge2, 0, 0);
     }
@@ -354,7 +333,7 @@ public class BJDMMatrix extends SetMatrix {
         final Edge first = sne.swappableEdge1;
         final Edge second = sne.swappableEdge2;
         return !(first.row == second.row || first.col == second.col ||
-                edges.contains(new Edge(first.row, second.col)) || edges.contains(new Edge(second.row, first.col)) ||
+                containsEdge(first.row, second.col) || containsEdge(second.row, first.col) ||
                 (rowSums[first.row] != rowSums[second.row] && colSums[first.col] != colSums[second.col]));
     }
     
@@ -367,48 +346,41 @@ public class BJDMMatrix extends SetMatrix {
      */
     public Swappables getSwappables(Random rnd, boolean rowSwap) {
         // sample rows or columns
-        Map<Integer, List<Integer>> sumToEqSumElements;
-        int[] samplable;
+        EqSumClasses classes;
         Vector[] instances;
-        int[] sums;
         if (rowSwap) {
-            sumToEqSumElements = rowSumToEqRowSumRows;
-            samplable = samplableRows;
+            classes = rowClasses;
             instances = getRows();
-            sums = rowSums;
         } else {
-            sumToEqSumElements = colSumToEqColSumCols;
-            samplable = samplableCols;
+            classes = colClasses;
             instances = getCols();
-            sums = colSums;
         }
-        if (samplable == null) {
+        if (classes.isEmpty()) {
             return null;
         }
-        // we select a row/col to select a row/col sum
-        Pair<Integer, Integer> pair = samplePairOfIndices(sumToEqSumElements, samplable, sums, rnd);
-        // column/row differences
-        Set<Integer> S1 = Sets.newHashSet(instances[pair.getValue0()].getNonzeroIndices());
-        S1.removeAll(instances[pair.getValue1()].getNonzeroIndices());
-        Set<Integer> S2 = Sets.newHashSet(instances[pair.getValue1()].getNonzeroIndices());
-        S2.removeAll(instances[pair.getValue0()].getNonzeroIndices());
-        List<Integer> candC1 = Lists.newArrayList(S1);
-        List<Integer> candC2 = Lists.newArrayList(S2);
-        if (S1.isEmpty()) {
+        // we select a row/col sum and then two rows/cols with that sum
+        int[] pair = classes.samplePair(rnd, true);
+        // sizes of the column/row differences
+        final Vector v1 = instances[pair[0]];
+        final Vector v2 = instances[pair[1]];
+        final long interSize = v1.interSize(v2);
+        final int numS1 = (int) (v1.getNumNonzeroIndices() - interSize);
+        if (numS1 == 0) {
             // self loop
             return null;
         }
-        // select column/row pair
-        int f1 = candC1.get(rnd.nextInt(candC1.size()));
-        int f2 = candC2.get(rnd.nextInt(candC2.size()));
+        final int numS2 = (int) (v2.getNumNonzeroIndices() - interSize);
+        // select column/row pair from the differences, without building them
+        int f1 = v1.getNthIndexNotIn(v2, rnd.nextInt(numS1));
+        int f2 = v2.getNthIndexNotIn(v1, rnd.nextInt(numS2));
         Edge sampledEdge1;
         Edge sampledEdge2;
         if (rowSwap) {
-            sampledEdge1 = new Edge(pair.getValue0(), f1);
-            sampledEdge2 = new Edge(pair.getValue1(), f2);
+            sampledEdge1 = new Edge(pair[0], f1);
+            sampledEdge2 = new Edge(pair[1], f2);
         } else {
-            sampledEdge1 = new Edge(f1, pair.getValue0());
-            sampledEdge2 = new Edge(f2, pair.getValue1());
+            sampledEdge1 = new Edge(f1, pair[0]);
+            sampledEdge2 = new Edge(f2, pair[1]);
         }
         return new Swappables(sampledEdge1, sampledEdge2, 0, 0);
     }
@@ -425,50 +397,21 @@ public class BJDMMatrix extends SetMatrix {
     public SwappableLists getSwappablesNewEdges(Random rnd) {
         // sample rows or columns
         boolean rowSwap = rnd.nextBoolean();
-        Map<Integer, List<Integer>> sumToEqSumElements;
-        int[] samplable;
+        EqSumClasses classes;
         Vector[] instances;
-        int[] sums;
         if (rowSwap) {
-            sumToEqSumElements = rowSumToEqRowSumRows;
-            samplable = samplableRows;
+            classes = rowClasses;
             instances = getRows();
-            sums = rowSums;
         } else {
-            sumToEqSumElements = colSumToEqColSumCols;
-            samplable = samplableCols;
+            classes = colClasses;
             instances = getCols();
-            sums = colSums;
-        }
-        if (samplable == null) {
-            return null;
         }
-        // we select a row/col to select a row/col sum
-        Pair<Integer, Integer> pair = samplePairOfIndices(sumToEqSumElements, samplable, sums, rnd);
-        // column/row differences
-        Set<Integer> S1 = Sets.newHashSet(instances[pair.getValue0()].getNonzeroIndices());
-        Set<Integer> S2 = Sets.newHashSet(instances[pair.getValue1()].getNonzeroIndices());
-        Set<Integer> S12 = S1.stream().filter(i -> S2.contains(i)).collect(Collectors.toSet());
-        S1.removeAll(S12);
-        S2.removeAll(S12);
-        int num1 = S1.size();
-        if (num1 == 0) {
+        if (classes.isEmpty()) {
             return null;
         }
-        Set<Integer> tmp = Sets.newHashSet(S1);
-        tmp.addAll(S2);
-        List<Integer> total = Lists.newArrayList(tmp);
-        RandomSamplingCollector<Integer> collector = LiLSampling.collector(num1, rnd);
-        List<Integer> L = IntStream.range(0, total.size())
-                .boxed()
-                .collect(collector)
-                .stream()
-                .map(i -> total.get(i))
-                .collect(Collectors.toList());
-        tmp.removeAll(L);
-        L.addAll(S12);
-        tmp.addAll(S12);
-        return new SwappableLists(pair.getValue0(), pair.getValue1(), L, Lists.newArrayList(tmp), rowSwap);
+        // we select a row/col sum and then two rows/cols with that sum
+        int[] pair = classes.samplePair(rnd, true);
+        return this.sampleNewEdges(instances[pair[0]], instances[pair[1]], pair, rowSwap, rnd);
     }
     
     /**
@@ -481,77 +424,65 @@ public class BJDMMatrix extends SetMatrix {
      */
     public SwappableLists getSwappablesNewEdges(Random rnd, boolean rowSwap) {
         // sample rows or columns
-        Map<Integer, List<Integer>> sumToEqSumElements;
-        int[] samplable;
+        EqSumClasses classes;
         Vector[] instances;
-        int[] sums;
         if (rowSwap) {
-            sumToEqSumElements = rowSumToEqRowSumRows;
-            samplable = samplableRows;
+            classes = rowClasses;
             instances = getRows();
-            sums = rowSums;
         } else {
-            sumToEqSumElements = colSumToEqColSumCols;
-            samplable = samplableCols;
+            classes = colClasses;
             instances = getCols();
-            sums = colSums;
-        }
-        if (samplable == null) {
-            return null;
         }
-        // we select a row/col to select a row/col sum
-        Pair<Integer, Integer> pair = samplePairOfIndices(sumToEqSumElements, samplable, sums, rnd);
-        // column/row differences
-        Set<Integer> S1 = Sets.newHashSet(instances[pair.getValue0()].getNonzeroIndices());
-        Set<Integer> S2 = Sets.newHashSet(instances[pair.getValue1()].getNonzeroIndices());
-        Set<Integer> S12 = S1.stream().filter(i -> S2.contains(i)).collect(Collectors.toSet());
-        S1.removeAll(S12);
-        S2.removeAll(S12);
-        int num1 = S1.size();
-        if (num1 == 0) {
+        if (classes.isEmpty()) {
             return null;
         }
-        Set<Integer> tmp = Sets.newHashSet(S1);
-        tmp.addAll(S2);
-        List<Integer> total = Lists.newArrayList(tmp);
-        RandomSamplingCollector<Integer> collector = LiLSampling.collector(num1, rnd);
-        List<Integer> L = IntStream.range(0, total.size())
-                .boxed()
-                .collect(collector)
-                .stream()
-                .map(i -> total.get(i))
-                .collect(Collectors.toList());
-        total.removeAll(L);
-        L.addAll(S12);
-        total.addAll(S12);
-        return new SwappableLists(pair.getValue0(), pair.getValue1(), L, total, rowSwap);
+        // we select a row/col sum and then two rows/cols with that sum
+        int[] pair = classes.samplePair(rnd, true);
+        return this.sampleNewEdges(instances[pair[0]], instances[pair[1]], pair, rowSwap, rnd);
     }
 
     /**
-     * 
-     * @param sumToEqSum sum to list of rows/cols with that sum
-     * @param samplable list of samplable rows/cols
-     * @param sums sum for each row/col
+     * Pools the elements of the two differences of v1 and v2, and samples
+     * uniformly at random as many of them as in the first difference.
+     *
+     * @param v1 first row/col
+     * @param v2 second row/col
+     * @param pair the indices of v1 and v2
+     * @param rowSwap whether v1 and v2 are rows
      * @param rnd random object
-     * @return a pair of distinct rows/cols with the same row/col sum
+     * @return the two indices of the row/col sampled, and the new elements in
+     * the corresponding vectors; null for a self loop
      */
-    private Pair<Integer, Integer> samplePairOfIndices(
-            Map<Integer, List<Integer>> sumToEqSum,
-            int[] samplable,
-            int[] sums,
-            Random rnd) {
-        
-        int e1 = samplable[rnd.nextInt(samplable.length)];
-        int s = sums[e1];
-        int numElems = sumToEqSum.get(s).size();
-        if (numElems == 2) {
-            return new Pair<>(sumToEqSum.get(s).get(0), sumToEqSum.get(s).get(1));
-        }
-        int e2;
-        do {
-            e2 = sumToEqSum.get(s).get(rnd.nextInt(numElems));
-        } while (e1 == e2);
-        return new Pair<>(e1, e2);
+    private SwappableLists sampleNewEdges(Vector v1, Vector v2, int[] pair, boolean rowSwap, Random rnd) {
+        final int[] S1 = v1.difference(v2).toIntArray();
+        final int num1 = S1.length;
+        if (num1 == 0) {
+            return null;
+        }
+        final int[] S2 = v2.difference(v1).toIntArray();
+        final int[] total = Arrays.copyOf(S1, num1 + S2.length);
+        System.arraycopy(S2, 0, total, num1, S2.length);
+        RandomSamplingCollector<Integer> collector = LiLSampling.collector(num1, rnd);
+        final boolean[] sampled = new boolean[total.length];
+        final List<Integer> L = new ArrayList<>(v1.getNumNonzeroIndices());
+        for (int i : IntStream.range(0, total.length).boxed().collect(collector)) {
+            sampled[i] = true;
+            L.add(total[i]);
+        }
+        final List<Integer> R = new ArrayList<>(v2.getNumNonzeroIndices());
+        for (int i = 0; i < total.length; i++) {
+            if (!sampled[i]) {
+                R.add(total[i]);
+            }
+        }
+        // the common elements stay in both
+        for (int v : v1.toIntArray()) {
+            if (v2.get(v) == 1) {
+                L.add(v);
+                R.add(v);
+            }
+        }
+        return new SwappableLists(pair[0], pair[1], L, R, rowSwap);
     }
 
     /**
@@ -595,11 +526,8 @@ public class BJDMMatrix extends SetMatrix {
                 .stream()
                 .mapToInt(l -> getNumCombinations(l.size(), 2))
                 .sum();
-        Set<Integer> S1 = Sets.newHashSet(e1.getNonzeroIndices());
-        S1.removeAll(e2.getNonzeroIndices());
-        Set<Integer> S2 = Sets.newHashSet(e2.getNonzeroIndices());
-        S2.removeAll(e1.getNonzeroIndices());
-        int H12 = S1.size() * S2.size();
+        final int common = (int) e1.interSize(e2);
+        int H12 = (e1.getNumNonzeroIndices() - common) * (e2.getNumNonzeroIndices() - common);
         return 1. / (2. * sumSwappablePairs * H12);
     }
     
@@ -637,22 +565,19 @@ public class BJDMMatrix extends SetMatrix {
             v2 = cols.get(swappables.swappable2);
             sumToEqSum = colSumToEqColSumCols;
         }
-        Set<Integer> S12 = v1.getNonzeroIndices().intStream()
-                .filter(i -> v2.getNonzeroIndices().contains(i))
-                .boxed()
-                .collect(Collectors.toSet());
-        int common = S12.size();
+        int common = (int) v1.interSize(v2);
         int union = swappables.new2.size() + swappables.new1.size() - 2 * common;
         int l = swappables.new1.size() - common;
         double prob = getCurveBallProb(sumToEqSum, union, l);
         // case where |L| = 2
         if (l == 1) {
-            Set<Integer> L = Sets.newHashSet(swappables.new1);
-            Set<Integer> R = Sets.newHashSet(swappables.new2);
-            L.removeAll(S12);
-            R.removeAll(S12);
-            int first = L.iterator().next();
-            int second = R.iterator().next();
+            // the elements of new1 and new2 that are not in both vectors
+            int first = swappables.new1.stream()
+                    .filter(i -> v1.get(i) == 0 || v2.get(i) == 0)
+                    .findFirst().get();
+            int second = swappables.new2.stream()
+                    .filter(i -> v1.get(i) == 0 || v2.get(i) == 0)
+                    .findFirst().get();
             boolean equal;
             Vector v3, v4;
             if (swappables.rowBased) { 
@@ -667,11 +592,8 @@ public class BJDMMatrix extends SetMatrix {
                 sumToEqSum = rowSumToEqRowSumRows;
             }
             if (equal) {
-                Set<Integer> S1 = Sets.newHashSet(v3.getNonzeroIndices());
-                S1.removeAll(v4.getNonzeroIndices());
-                Set<Integer> S2 = Sets.newHashSet(v4.getNonzeroIndices());
-                S2.removeAll(v3.getNonzeroIndices());
-                union = S1.size() + S2.size();
+                union = v3.getNumNonzeroIndices() + v4.getNumNonzeroIndices()
+                        - 2 * (int) v3.interSize(v4);
                 prob += getCurveBallProb(sumToEqSum, union, l);
             }
         }
@@ -709,13 +631,13 @@ public class BJDMMatrix extends SetMatrix {
             v1 = getColInstance(swappables.swappable1);
             v2 = getColInstance(swappables.swappable2);
         }
-        Set<Integer> L = Sets.newHashSet(swappables.new1);
-        L.removeAll(v1.getNonzeroIndices());
-        Set<Integer> U = Sets.newHashSet(swappables.new2);
-        U.removeAll(v2.getNonzeroIndices());
-        assert(U.size()==L.size());
-        List<Integer> new1 = Lists.newArrayList(L);
-        List<Integer> new2 = Lists.newArrayList(U);
+        List<Integer> new1 = swappables.new1.stream()
+                .filter(i -> v1.get(i) == 0)
+                .collect(Collectors.toList());
+        List<Integer> new2 = swappables.new2.stream()
+                .filter(i -> v2.get(i) == 0)
+                .collect(Collectors.toList());
+        assert(new1.size()==new2.size());
         List<Swappables> E = Lists.newArrayList();
         for (int c = 0; c < new1.size(); c++) {
             if (swappables.rowBased) {
@@ -757,9 +679,9 @@ public class BJDMMatrix extends SetMatrix {
      * @return number of paths of length 3 in this graph
      */
     public long getNumCaterpillars() {
-        return edges
-                .parallelStream()
-                .mapToLong(edge -> (this.getRowSum(edge.row) - 1) * (this.getColSum(edge.col) - 1))
+        return Arrays.stream(edges)
+                .parallel()
+                .map(edge -> (this.getRowSum(Edge.row(edge)) - 1) * (this.getColSum(Edge.col(edge)) - 1))
                 .sum();
     }
 
@@ -0,0 +1,165 @@
+package alice.structures;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import java.util.Arrays;
+
+/**
+ * A read-only column index over a {@link SparseMatrix}. Each column is stored
+ * either as a bitset over the rows (dense columns) or as a sorted array of row
+ * ids (sparse columns), whichever takes less memory, so that the support of an
+ * itemset can be computed by intersecting its columns and counting the bits
+ * with {@link Long#bitCount(long)}.
+ */
+public class BitsetColumnIndex {
+
+    /**
+     * The number of rows in the indexed matrix.
+     */
+    private final int numRows;
+
+    /**
+     * The number of 64-bit words in the bitset of a dense column.
+     */
+    private final int numWords;
+
+    /**
+     * The number of rows in each column.
+     */
+    private final int[] colSums;
+
+    /**
+     * The bitset of each dense column; null for sparse columns.
+     */
+    private final long[][] denseCols;
+
+    /**
+     * The sorted row ids of each sparse column; null for dense columns.
+     */
+    private final int[][] sparseCols;
+
+    /**
+     * Creates the column index of the matrix.
+     *
+     * @param matrix a 0-1 matrix representation of the dataset
+     */
+    public BitsetColumnIndex(SparseMatrix matrix) {
+        this.numRows = matrix.getNumRows();
+        this.numWords = getNumWords(this.numRows);
+        final int numCols = matrix.getNumCols();
+        this.colSums = new int[numCols];
+        this.denseCols = new long[numCols][];
+        this.sparseCols = new int[numCols][];
+        for (int c = 0; c < numCols; c++) {
+            final IntOpenHashSet rows = matrix.getNonzeroColIndices(c);
+            this.colSums[c] = rows.size();
+            if (isDense(rows.size(), this.numRows)) {
+                final long[] words = new long[this.numWords];
+                for (int r : rows) {
+                    words[r >>> 6] |= 1L << r;
+                }
+                this.denseCols[c] = words;
+            } else {
+                final int[] sorted = rows.toIntArray();
+                Arrays.sort(sorted);
+                this.sparseCols[c] = sorted;
+            }
+        }
+    }
+
+    /**
+     * A column is dense when its bitset takes no more memory than the
+     * sorted array of its row ids, i.e., when numRows / 8 &lt;= 4 * colSum.
+     *
+     * @param colSum number of rows in the column
+     * @param numRows number of rows in the matrix
+     * @return true if the column should be stored as a bitset
+     */
+    public static boolean isDense(int colSum, int numRows) {
+        return 32L * colSum >= numRows;
+    }
+
+    /**
+     *
+     * @param numRows number of rows
+     * @return number of 64-bit words needed to store a bitset over numRows rows
+     */
+    public static int getNumWords(int numRows) {
+        return (numRows + 63) >>> 6;
+    }
+
+    /**
+     *
+     * @return number of rows in the indexed matrix
+     */
+    public int getNumRows() {
+        return this.numRows;
+    }
+
+    /**
+     *
+     * @return number of 64-bit words in the bitset of a dense column
+     */
+    public int getNumWords() {
+        return this.numWords;
+    }
+
+    /**
+     *
+     * @return number of columns in the indexed matrix
+     */
+    public int getNumCols() {
+        return this.colSums.length;
+    }
+
+    /**
+     *
+     * @param c col id
+     * @return number of rows in column c
+     */
+    public int getColSum(int c) {
+        return this.colSums[c];
+    }
+
+    /**
+     *
+     * @param c col id
+     * @return true if column c is stored as a bitset
+     */
+    public boolean isDense(int c) {
+        return this.denseCols[c] != null;
+    }
+
+    /**
+     *
+     * @param c col id
+     * @return the bitset of column c; null if the column is sparse
+     */
+    public long[] getDenseCol(int c) {
+        return this.denseCols[c];
+    }
+
+    /**
+     *
+     * @param c col id
+     * @return the sorted row ids of column c; null if the column is dense
+     */
+    public int[] getSparseCol(int c) {
+        return this.sparseCols[c];
+    }
+}
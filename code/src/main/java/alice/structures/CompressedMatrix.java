@@ -0,0 +1,331 @@
+package alice.structures;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.util.Arrays;
+
+/**
+ * An immutable 0-1 matrix stored in compressed sparse row (CSR) and
+ * compressed sparse column (CSC) form. Each nonzero entry takes two ints, one
+ * in each form, so a {@link CompressedMatrix} is much smaller than a
+ * {@link SparseMatrix} with the same entries, and it is meant to store the
+ * observed dataset and the sampled datasets while they are not modified.
+ */
+public class CompressedMatrix {
+
+    /**
+     * The number of cols.
+     */
+    private final int numCols;
+
+    /**
+     * The start of each row in colIdx; the last entry is the number of
+     * nonzero entries.
+     */
+    private final int[] rowPtr;
+
+    /**
+     * The cols of the nonzero entries of each row, in increasing order.
+     */
+    private final int[] colIdx;
+
+    /**
+     * The start of each col in rowIdx; the last entry is the number of
+     * nonzero entries.
+     */
+    private final int[] colPtr;
+
+    /**
+     * The rows of the nonzero entries of each col, in increasing order.
+     */
+    private final int[] rowIdx;
+
+    /**
+     *
+     * @param numCols number of cols
+     * @param rowPtr the start of each row in colIdx
+     * @param colIdx the cols of each row, sorted
+     */
+    private CompressedMatrix(int numCols, int[] rowPtr, int[] colIdx) {
+        this.numCols = numCols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        // the CSC form by counting sort of the entries by col
+        this.colPtr = new int[numCols + 1];
+        for (int c : colIdx) {
+            this.colPtr[c + 1]++;
+        }
+        for (int c = 0; c < numCols; c++) {
+            this.colPtr[c + 1] += this.colPtr[c];
+        }
+        this.rowIdx = new int[colIdx.length];
+        final int[] fill = Arrays.copyOf(this.colPtr, numCols);
+        for (int r = 0; r < rowPtr.length - 1; r++) {
+            for (int i = rowPtr[r]; i < rowPtr[r + 1]; i++) {
+                this.rowIdx[fill[colIdx[i]]++] = r;
+            }
+        }
+    }
+
+    /**
+     *
+     * @param numCols number of cols
+     * @param rowPtr the start of each row in colIdx
+     * @param colIdx the cols of each row, sorted
+     * @param colPtr the start of each col in rowIdx
+     * @param rowIdx the rows of each col, sorted
+     */
+    private CompressedMatrix(int numCols, int[] rowPtr, int[] colIdx, int[] colPtr, int[] rowIdx) {
+        this.numCols = numCols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.colPtr = colPtr;
+        this.rowIdx = rowIdx;
+    }
+
+    /**
+     * Builds the compressed form of the current state of a chain straight
+     * from its row and col vectors, which are copied once into the CSR and
+     * CSC forms without going through a {@link Builder} or a
+     * {@link SparseMatrix}.
+     *
+     * @param rows the rows of the chain
+     * @param cols the cols of the chain, consistent with the rows
+     * @return the compressed form of the chain
+     */
+    public static CompressedMatrix of(Vector[] rows, Vector[] cols) {
+        final int[] rowPtr = pointers(rows);
+        final int[] colPtr = pointers(cols);
+        if (rowPtr[rows.length] != colPtr[cols.length]) {
+            throw new IllegalArgumentException("The rows and the cols have a different number of entries");
+        }
+        return new CompressedMatrix(cols.length, rowPtr, indices(rows, rowPtr), colPtr, indices(cols, colPtr));
+    }
+
+    /**
+     *
+     * @param vectors rows or cols
+     * @return the start of each vector in the concatenation of the vectors
+     */
+    private static int[] pointers(Vector[] vectors) {
+        final int[] ptr = new int[vectors.length + 1];
+        for (int i = 0; i < vectors.length; i++) {
+            ptr[i + 1] = ptr[i] + vectors[i].getNumNonzeroIndices();
+        }
+        return ptr;
+    }
+
+    /**
+     *
+     * @param vectors rows or cols
+     * @param ptr the start of each vector
+     * @return the concatenation of the indices of the vectors, each sorted
+     */
+    private static int[] indices(Vector[] vectors, int[] ptr) {
+        final int[] idx = new int[ptr[vectors.length]];
+        final int[] pos = new int[1];
+        for (int i = 0; i < vectors.length; i++) {
+            pos[0] = ptr[i];
+            vectors[i].forEachIndex(j -> idx[pos[0]++] = j);
+            // sorted and bitset vectors are visited in increasing order, so
+            // only hashed ones are actually sorted
+            Arrays.sort(idx, ptr[i], ptr[i + 1]);
+        }
+        return idx;
+    }
+
+    /**
+     * Builds the compressed form of a matrix, e.g., the current state of a
+     * chain.
+     *
+     * @param matrix a matrix
+     * @return the compressed form of the matrix
+     */
+    public static CompressedMatrix of(SparseMatrix matrix) {
+        final Builder builder = new Builder(matrix.getNumCols());
+        for (int r = 0; r < matrix.getNumRows(); r++) {
+            builder.addRow(matrix.getRowInstance(r).toIntArray());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || this.getClass() != o.getClass()) {
+            return false;
+        }
+        final CompressedMatrix other = (CompressedMatrix) o;
+        return this.numCols == other.numCols
+                && Arrays.equals(this.rowPtr, other.rowPtr)
+                && Arrays.equals(this.colIdx, other.colIdx);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(this.rowPtr) + Arrays.hashCode(this.colIdx);
+    }
+
+    /**
+     *
+     * @return number of rows in the matrix
+     */
+    public int getNumRows() {
+        return this.rowPtr.length - 1;
+    }
+
+    /**
+     *
+     * @return number of cols in the matrix
+     */
+    public int getNumCols() {
+        return this.numCols;
+    }
+
+    /**
+     *
+     * @return number of nonzero entries in the matrix
+     */
+    public int getNumEdges() {
+        return this.colIdx.length;
+    }
+
+    /**
+     *
+     * @param r row id
+     * @return number of nonzero entries in row r
+     */
+    public int getRowSum(int r) {
+        return this.rowPtr[r + 1] - this.rowPtr[r];
+    }
+
+    /**
+     *
+     * @param c col id
+     * @return number of nonzero entries in col c
+     */
+    public int getColSum(int c) {
+        return this.colPtr[c + 1] - this.colPtr[c];
+    }
+
+    /**
+     *
+     * @param r row id
+     * @param c col id
+     * @return 1 if col c is in row r; 0 otherwise
+     */
+    public int isInRow(int r, int c) {
+        return Arrays.binarySearch(this.colIdx, this.rowPtr[r], this.rowPtr[r + 1], c) >= 0 ? 1 : 0;
+    }
+
+    /**
+     *
+     * @param r row id
+     * @return the cols of row r in increasing order
+     */
+    public int[] getNonzeroIndices(int r) {
+        return Arrays.copyOfRange(this.colIdx, this.rowPtr[r], this.rowPtr[r + 1]);
+    }
+
+    /**
+     *
+     * @param c col id
+     * @return the rows of col c in increasing order
+     */
+    public int[] getNonzeroColIndices(int c) {
+        return Arrays.copyOfRange(this.rowIdx, this.colPtr[c], this.colPtr[c + 1]);
+    }
+
+    /**
+     *
+     * @return a mutable copy of this matrix
+     */
+    public SparseMatrix toSparseMatrix() {
+        final SparseMatrix matrix = new SparseMatrix(this.getNumRows(), this.numCols);
+        for (int r = 0; r < this.getNumRows(); r++) {
+            matrix.replaceRow(r, Vector.ofIndices(this.getNonzeroIndices(r)));
+        }
+        for (int c = 0; c < this.numCols; c++) {
+            matrix.replaceCol(c, Vector.ofIndices(this.getNonzeroColIndices(c)));
+        }
+        return matrix;
+    }
+
+    /**
+     * Builds a {@link CompressedMatrix} one row at a time.
+     */
+    public static class Builder {
+
+        private final int numCols;
+
+        private int numRows;
+
+        private int[] rowPtr;
+
+        private int[] colIdx;
+
+        /**
+         *
+         * @param numCols number of cols of the matrix
+         */
+        public Builder(int numCols) {
+            this.numCols = numCols;
+            this.rowPtr = new int[16];
+            this.colIdx = new int[16];
+        }
+
+        /**
+         * Appends a row to the matrix.
+         *
+         * @param cols the cols of the nonzero entries of the row, without
+         * duplicates
+         * @return this builder
+         */
+        public Builder addRow(int[] cols) {
+            if (this.numRows + 2 > this.rowPtr.length) {
+                this.rowPtr = Arrays.copyOf(this.rowPtr, 2 * this.rowPtr.length);
+            }
+            final int start = this.rowPtr[this.numRows];
+            if (start + cols.length > this.colIdx.length) {
+                this.colIdx = Arrays.copyOf(this.colIdx, Math.max(2 * this.colIdx.length, start + cols.length));
+            }
+            System.arraycopy(cols, 0, this.colIdx, start, cols.length);
+            Arrays.sort(this.colIdx, start, start + cols.length);
+            for (int i = start; i < start + cols.length; i++) {
+                if (this.colIdx[i] < 0 || this.colIdx[i] >= this.numCols) {
+                    throw new IllegalArgumentException("Col " + this.colIdx[i] + " out of range [0, " + this.numCols + ")");
+                }
+            }
+            this.numRows++;
+            this.rowPtr[this.numRows] = start + cols.length;
+            return this;
+        }
+
+        /**
+         *
+         * @return the matrix with the rows added so far
+         */
+        public CompressedMatrix build() {
+            return new CompressedMatrix(
+                    this.numCols,
+                    Arrays.copyOf(this.rowPtr, this.numRows + 1),
+                    Arrays.copyOf(this.colIdx, this.rowPtr[this.numRows]));
+        }
+    }
+}
@@ -20,6 +20,9 @@ import java.util.Objects;
 
 /**
  * A class to represent an edge in the graph representation of a dataset.
+ * The samplers and the structures store the edges packed in a long, with the
+ * row in the high 32 bits and the col in the low 32 bits, and create
+ * instances of this class only at their boundaries.
  */
 public class Edge {
 
@@ -59,4 +62,49 @@ public class Edge {
     public Edge copy() {
         return new Edge(this.row, this.col);
     }
+
+    /**
+     *
+     * @return this edge packed in a long
+     */
+    public long pack() {
+        return pack(this.row, this.col);
+    }
+
+    /**
+     *
+     * @param row row id
+     * @param col col id
+     * @return the edge (row, col) packed in a long
+     */
+    public static long pack(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    /**
+     *
+     * @param edge a packed edge
+     * @return the row of the edge
+     */
+    public static int row(long edge) {
+        return (int) (edge >>> 32);
+    }
+
+    /**
+     *
+     * @param edge a packed edge
+     * @return the col of the edge
+     */
+    public static int col(long edge) {
+        return (int) edge;
+    }
+
+    /**
+     *
+     * @param edge a packed edge
+     * @return an instance of {@link Edge} for the packed edge
+     */
+    public static Edge unpack(long edge) {
+        return new Edge(row(edge), col(edge));
+    }
 }
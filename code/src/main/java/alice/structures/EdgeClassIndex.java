@@ -0,0 +1,393 @@
+package alice.structures;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.helpers.Swappables;
+import alice.utils.AliasTable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * An index of the edges of a bipartite graph bucketed by the (row sum, col
+ * sum) class of their endpoints, for the self-loop samplers, which propose two
+ * random edges and discard them unless the two rows or the two columns have
+ * the same sum.
+ * A proposal passes this check iff the two edges are in the same row sum class
+ * or in the same col sum class, so the probability that a proposal passes it
+ * is computed in closed form from the total proposal probability of each
+ * class. A swap between edges with equal row sums or equal col sums does not
+ * change the number of edges in each (row sum, col sum) class, so this
+ * probability is constant along the chain, and the number of proposals
+ * failing the check before the next one passing it is geometric. The samplers
+ * can then skip these self loops in bulk and sample the next proposal directly
+ * from the proposals passing the check, which leaves the chain unchanged.
+ */
+public class EdgeClassIndex {
+
+    /**
+     * The row sum of each row.
+     */
+    private final int[] rowSums;
+
+    /**
+     * The col sum of each col.
+     */
+    private final int[] colSums;
+
+    /**
+     * The start of each (row sum, col sum) class in edges; the last entry is
+     * edges.length.
+     */
+    private final int[] cellOffsets;
+
+    /**
+     * The edges of all the classes, packed with {@link Edge#pack(int, int)}.
+     */
+    private final long[] edges;
+
+    /**
+     * For each edge, the position of one of its occurrences in edges.
+     */
+    private final Long2IntOpenHashMap firstPos;
+
+    /**
+     * For each position in edges, the next occurrence of the same edge; -1 if
+     * none.
+     */
+    private final int[] nextPos;
+
+    /**
+     * The start of the cells of each row (col) sum class in classCells.
+     */
+    private final int[] classOffsets;
+
+    /**
+     * The (row sum, col sum) classes of each row sum class, followed by those
+     * of each col sum class.
+     */
+    private final int[] classCells;
+
+    /**
+     * For each row (col) sum class, the alias table of the proposal
+     * probability of its cells.
+     */
+    private final AliasTable[] cellTables;
+
+    /**
+     * The alias table of the squared proposal probability of each row (col)
+     * sum class; null if no proposal can pass the check.
+     */
+    private final AliasTable classTable;
+
+    /**
+     * The probability that a proposal passes the check.
+     */
+    private final double feasibleProb;
+
+    /**
+     * Creates the index of the edges of the matrix, for proposals made of
+     * two edges sampled uniformly at random.
+     *
+     * @param matrix a matrix
+     */
+    public EdgeClassIndex(SetMatrix matrix) {
+        this(matrix.getRowSums(), matrix.getColSums(), matrix.getPackedEdges(), rowSum -> 1. / matrix.getNumEdges());
+    }
+
+    /**
+     * Creates the index of the edges of the graph, for proposals made of two
+     * edges sampled by picking a left node uniformly at random and then one
+     * of its edges uniformly at random.
+     *
+     * @param graph a multigraph
+     */
+    public EdgeClassIndex(MultiGraph graph) {
+        this(getRowSums(graph), getColSums(graph), packEdges(graph),
+                rowSum -> 1. / graph.getNumRows() / rowSum);
+    }
+
+    /**
+     *
+     * @param rowSums the row sum of each row
+     * @param colSums the col sum of each col
+     * @param packedEdges the edges packed with {@link Edge#pack(int, int)}
+     * @param edgeProb the probability that an edge is proposed, given its row
+     * sum
+     */
+    private EdgeClassIndex(int[] rowSums, int[] colSums, long[] packedEdges, IntToDoubleFunction edgeProb) {
+        this.rowSums = rowSums;
+        this.colSums = colSums;
+
+        // group the edges by (row sum, col sum)
+        final Long2IntOpenHashMap cellIds = new Long2IntOpenHashMap();
+        cellIds.defaultReturnValue(-1);
+        final int[] edgeCells = new int[packedEdges.length];
+        int[] cellSizes = new int[16];
+        for (int i = 0; i < packedEdges.length; i++) {
+            final long cellKey = Edge.pack(rowSums[Edge.row(packedEdges[i])], colSums[Edge.col(packedEdges[i])]);
+            int cell = cellIds.get(cellKey);
+            if (cell == -1) {
+                cell = cellIds.size();
+                cellIds.put(cellKey, cell);
+                if (cell == cellSizes.length) {
+                    cellSizes = Arrays.copyOf(cellSizes, 2 * cell);
+                }
+            }
+            edgeCells[i] = cell;
+            cellSizes[cell]++;
+        }
+        final int numCells = cellIds.size();
+        final int[] cellRowSums = new int[numCells];
+        final int[] cellColSums = new int[numCells];
+        cellIds.long2IntEntrySet().forEach(entry -> {
+            cellRowSums[entry.getIntValue()] = Edge.row(entry.getLongKey());
+            cellColSums[entry.getIntValue()] = Edge.col(entry.getLongKey());
+        });
+        this.cellOffsets = new int[numCells + 1];
+        for (int cell = 0; cell < numCells; cell++) {
+            this.cellOffsets[cell + 1] = this.cellOffsets[cell] + cellSizes[cell];
+        }
+        this.edges = new long[packedEdges.length];
+        this.nextPos = new int[packedEdges.length];
+        this.firstPos = new Long2IntOpenHashMap(packedEdges.length);
+        this.firstPos.defaultReturnValue(-1);
+        final int[] fill = Arrays.copyOf(this.cellOffsets, numCells);
+        for (int i = 0; i < packedEdges.length; i++) {
+            this.put(fill[edgeCells[i]]++, packedEdges[i]);
+        }
+
+        // proposal probability of each cell
+        final double[] cellProbs = new double[numCells];
+        double sumSquaredCellProbs = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+            cellProbs[cell] = cellSizes[cell] * edgeProb.applyAsDouble(cellRowSums[cell]);
+            sumSquaredCellProbs += cellProbs[cell] * cellProbs[cell];
+        }
+
+        // group the cells by row sum and by col sum
+        final Int2IntOpenHashMap rowClassIds = new Int2IntOpenHashMap();
+        final Int2IntOpenHashMap colClassIds = new Int2IntOpenHashMap();
+        for (int cell = 0; cell < numCells; cell++) {
+            rowClassIds.putIfAbsent(cellRowSums[cell], rowClassIds.size());
+            colClassIds.putIfAbsent(cellColSums[cell], colClassIds.size());
+        }
+        // the col sum classes have ids after those of the row sum classes
+        final int numRowClasses = rowClassIds.size();
+        final int numClasses = numRowClasses + colClassIds.size();
+        final int[] cellRowClass = new int[numCells];
+        final int[] cellColClass = new int[numCells];
+        final int[] classSizes = new int[numClasses];
+        for (int cell = 0; cell < numCells; cell++) {
+            cellRowClass[cell] = rowClassIds.get(cellRowSums[cell]);
+            cellColClass[cell] = numRowClasses + colClassIds.get(cellColSums[cell]);
+            classSizes[cellRowClass[cell]]++;
+            classSizes[cellColClass[cell]]++;
+        }
+        this.classOffsets = new int[numClasses + 1];
+        for (int k = 0; k < numClasses; k++) {
+            this.classOffsets[k + 1] = this.classOffsets[k] + classSizes[k];
+        }
+        this.classCells = new int[2 * numCells];
+        final int[] classFill = Arrays.copyOf(this.classOffsets, numClasses);
+        for (int cell = 0; cell < numCells; cell++) {
+            this.classCells[classFill[cellRowClass[cell]]++] = cell;
+            this.classCells[classFill[cellColClass[cell]]++] = cell;
+        }
+
+        // a proposal passes the check with probability equal to the sum over
+        // the classes of their squared probability, minus the sum over the
+        // cells of their squared probability, which are counted twice
+        this.cellTables = new AliasTable[numClasses];
+        final double[] squaredClassProbs = new double[numClasses];
+        double sumSquaredClassProbs = 0;
+        for (int k = 0; k < numClasses; k++) {
+            final double[] probs = new double[classSizes[k]];
+            double classProb = 0;
+            for (int i = 0; i < probs.length; i++) {
+                probs[i] = cellProbs[this.classCells[this.classOffsets[k] + i]];
+                classProb += probs[i];
+            }
+            this.cellTables[k] = new AliasTable(probs);
+            squaredClassProbs[k] = classProb * classProb;
+            sumSquaredClassProbs += squaredClassProbs[k];
+        }
+        this.feasibleProb = Math.min(1, Math.max(0, sumSquaredClassProbs - sumSquaredCellProbs));
+        this.classTable = this.feasibleProb > 0 ? new AliasTable(squaredClassProbs) : null;
+    }
+
+    /**
+     *
+     * @return the probability that a proposal passes the check
+     */
+    public double getFeasibleProb() {
+        return this.feasibleProb;
+    }
+
+    /**
+     *
+     * @param rnd a Random instance
+     * @return the number of proposals failing the check before the next one
+     * passing it; Long.MAX_VALUE if no proposal can pass it
+     */
+    public long sampleNumSelfLoops(Random rnd) {
+        if (this.feasibleProb >= 1) {
+            return 0;
+        }
+        if (this.feasibleProb <= 0) {
+            return Long.MAX_VALUE;
+        }
+        final double numSelfLoops = Math.floor(Math.log1p(-rnd.nextDouble()) / Math.log1p(-this.feasibleProb));
+        return numSelfLoops >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) numSelfLoops;
+    }
+
+    /**
+     *
+     * @param step the current step of the chain; -1 before the first step
+     * @param rnd a Random instance
+     * @return the next step whose proposal passes the check; Long.MAX_VALUE
+     * if there is none
+     */
+    public long nextFeasibleStep(long step, Random rnd) {
+        final long numSelfLoops = this.sampleNumSelfLoops(rnd);
+        if (numSelfLoops >= Long.MAX_VALUE - step - 1) {
+            return Long.MAX_VALUE;
+        }
+        return step + 1 + numSelfLoops;
+    }
+
+    /**
+     * Samples a proposal from the distribution of the proposals conditioned
+     * on passing the check, i.e., on having equal row sums or equal col sums.
+     * The proposal must still be checked with the areSwappable method of the
+     * matrix.
+     *
+     * @param rnd a Random instance
+     * @return a pair of edges with equal row sums or equal col sums
+     */
+    public Swappables sampleFeasibleSwappables(Random rnd) {
+        while (true) {
+            // sample a class proportionally to its squared probability, and
+            // then two edges of the class independently
+            final int k = this.classTable.sample(rnd);
+            final long e1 = this.sampleEdge(k, rnd);
+            final long e2 = this.sampleEdge(k, rnd);
+            final boolean sameRowSum = this.rowSums[Edge.row(e1)] == this.rowSums[Edge.row(e2)];
+            final boolean sameColSum = this.colSums[Edge.col(e1)] == this.colSums[Edge.col(e2)];
+            // the pairs with equal row sums and equal col sums can be sampled
+            // from both their classes, so they are kept with probability 1/2
+            if (sameRowSum && sameColSum && rnd.nextBoolean()) {
+                continue;
+            }
+            return new Swappables(Edge.unpack(e1), Edge.unpack(e2), 0, 0);
+        }
+    }
+
+    /**
+     *
+     * @param k row (col) sum class id
+     * @param rnd a Random instance
+     * @return an edge of the class sampled proportionally to its proposal
+     * probability
+     */
+    private long sampleEdge(int k, Random rnd) {
+        final int cell = this.classCells[this.classOffsets[k] + this.cellTables[k].sample(rnd)];
+        final int from = this.cellOffsets[cell];
+        return this.edges[from + rnd.nextInt(this.cellOffsets[cell + 1] - from)];
+    }
+
+    /**
+     * Updates the index after the swap, which must be between edges with
+     * equal row sums or equal col sums.
+     *
+     * @param sne the swapped edges
+     */
+    public void transition(Swappables sne) {
+        final Edge e1 = sne.swappableEdge1;
+        final Edge e2 = sne.swappableEdge2;
+        final int pos1 = this.remove(e1.pack());
+        final int pos2 = this.remove(e2.pack());
+        // each new edge replaces an old edge in the same class
+        if (this.rowSums[e1.row] == this.rowSums[e2.row]) {
+            this.put(pos1, Edge.pack(e2.row, e1.col));
+            this.put(pos2, Edge.pack(e1.row, e2.col));
+        } else {
+            this.put(pos1, Edge.pack(e1.row, e2.col));
+            this.put(pos2, Edge.pack(e2.row, e1.col));
+        }
+    }
+
+    /**
+     * Stores the edge at position pos of edges.
+     *
+     * @param pos a position of edges
+     * @param edge a packed edge
+     */
+    private void put(int pos, long edge) {
+        this.edges[pos] = edge;
+        this.nextPos[pos] = this.firstPos.get(edge);
+        this.firstPos.put(edge, pos);
+    }
+
+    /**
+     * Removes an occurrence of the edge.
+     *
+     * @param edge a packed edge
+     * @return the position of the removed occurrence
+     */
+    private int remove(long edge) {
+        final int pos = this.firstPos.get(edge);
+        if (pos == -1) {
+            throw new IllegalArgumentException("Edge " + Edge.row(edge) + ", " + Edge.col(edge) + " is not in the index");
+        }
+        if (this.nextPos[pos] == -1) {
+            this.firstPos.remove(edge);
+        } else {
+            this.firstPos.put(edge, this.nextPos[pos]);
+        }
+        return pos;
+    }
+
+    private static long[] packEdges(MultiGraph graph) {
+        final long[] packed = new long[graph.getNumEdges()];
+        int i = 0;
+        for (int r = 0; r < graph.getNumRows(); r++) {
+            for (int c : graph.getRowInstance(r).values) {
+                packed[i++] = Edge.pack(r, c);
+            }
+        }
+        return packed;
+    }
+
+    private static int[] getRowSums(MultiGraph graph) {
+        final int[] sums = new int[graph.getNumRows()];
+        for (int r = 0; r < sums.length; r++) {
+            sums[r] = graph.getRowInstance(r).size();
+        }
+        return sums;
+    }
+
+    private static int[] getColSums(MultiGraph graph) {
+        final int[] sums = new int[graph.getColIdToNeighbors().length];
+        for (int c = 0; c < sums.length; c++) {
+            sums[c] = graph.getColInstance(c).size();
+        }
+        return sums;
+    }
+}
@@ -0,0 +1,206 @@
+package alice.structures;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.utils.AliasTable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * The rows (or the columns) of a matrix grouped by row (col) sum, to sample
+ * pairs of rows (cols) with equal sum. The sums do not change during the
+ * chain, so the classes are built once: the members of all the classes are
+ * stored in a single array, where the members of the k-th class are in
+ * positions [offsets[k], offsets[k + 1]), and the class is sampled with an
+ * {@link AliasTable}, so that sampling a pair takes constant time.
+ * Instances are immutable and can be shared among copies of a matrix.
+ */
+public class EqSumClasses {
+
+    /**
+     * The row (col) sum of each class.
+     */
+    private final int[] sums;
+
+    /**
+     * The start of each class in members; the last entry is members.length.
+     */
+    private final int[] offsets;
+
+    /**
+     * The members of all the classes, one class after the other.
+     */
+    private final int[] members;
+
+    /**
+     * The alias table of the class weights; null if no class can be sampled.
+     */
+    private final AliasTable classTable;
+
+    /**
+     * Builds the classes from a map from each sum to the elements with that
+     * sum. Only the classes with positive weight are kept.
+     *
+     * @param sumToElements for each sum, the elements with that sum
+     * @param sizeToWeight the weight of a class given its size
+     */
+    public EqSumClasses(Int2ObjectMap<int[]> sumToElements, IntToDoubleFunction sizeToWeight) {
+        final int[] keys = sumToElements.keySet().toIntArray();
+        Arrays.sort(keys);
+        int numClasses = 0;
+        int numMembers = 0;
+        for (int sum : keys) {
+            final int size = sumToElements.get(sum).length;
+            if (sizeToWeight.applyAsDouble(size) > 0) {
+                numClasses++;
+                numMembers += size;
+            }
+        }
+        this.sums = new int[numClasses];
+        this.offsets = new int[numClasses + 1];
+        this.members = new int[numMembers];
+        final double[] weights = new double[numClasses];
+        int k = 0;
+        for (int sum : keys) {
+            final int[] elements = sumToElements.get(sum);
+            final double weight = sizeToWeight.applyAsDouble(elements.length);
+            if (weight > 0) {
+                this.sums[k] = sum;
+                weights[k] = weight;
+                System.arraycopy(elements, 0, this.members, this.offsets[k], elements.length);
+                this.offsets[k + 1] = this.offsets[k] + elements.length;
+                k++;
+            }
+        }
+        this.classTable = numClasses > 0 ? new AliasTable(weights) : null;
+    }
+
+    /**
+     * Builds the classes of the elements 0, ..., sums.length - 1.
+     *
+     * @param sums the row (col) sum of each element
+     * @param sizeToWeight the weight of a class given its size
+     */
+    public EqSumClasses(int[] sums, IntToDoubleFunction sizeToWeight) {
+        this(groupBySum(sums), sizeToWeight);
+    }
+
+    /**
+     *
+     * @param sums the row (col) sum of each element
+     * @return for each sum, the elements with that sum in increasing order
+     */
+    private static Int2ObjectMap<int[]> groupBySum(int[] sums) {
+        final Int2IntOpenHashMap sizes = new Int2IntOpenHashMap();
+        for (int s : sums) {
+            sizes.addTo(s, 1);
+        }
+        final Int2ObjectMap<int[]> sumToElements = new Int2ObjectOpenHashMap<>();
+        sizes.int2IntEntrySet().forEach(e -> sumToElements.put(e.getIntKey(), new int[e.getIntValue()]));
+        sizes.clear();
+        for (int i = 0; i < sums.length; i++) {
+            sumToElements.get(sums[i])[sizes.addTo(sums[i], 1)] = i;
+        }
+        return sumToElements;
+    }
+
+    /**
+     *
+     * @return true if no class can be sampled
+     */
+    public boolean isEmpty() {
+        return this.classTable == null;
+    }
+
+    /**
+     *
+     * @return number of classes
+     */
+    public int getNumClasses() {
+        return this.sums.length;
+    }
+
+    /**
+     *
+     * @param k class id
+     * @return the row (col) sum of the class
+     */
+    public int getSum(int k) {
+        return this.sums[k];
+    }
+
+    /**
+     *
+     * @param k class id
+     * @return number of elements in the class
+     */
+    public int getClassSize(int k) {
+        return this.offsets[k + 1] - this.offsets[k];
+    }
+
+    /**
+     *
+     * @param k class id
+     * @param i position in the class
+     * @return the i-th element of the class
+     */
+    public int getMember(int k, int i) {
+        return this.members[this.offsets[k] + i];
+    }
+
+    /**
+     *
+     * @param rnd a Random instance
+     * @return a class id sampled proportionally to the class weights
+     */
+    public int sampleClass(Random rnd) {
+        return this.classTable.sample(rnd);
+    }
+
+    /**
+     * Samples a class and then two elements of the class uniformly at random.
+     *
+     * @param rnd a Random instance
+     * @param distinct if true, the two elements are distinct; otherwise they
+     * are sampled independently
+     * @return a pair of elements with equal sum; null if distinct is true and
+     * the sampled class has a single element
+     */
+    public int[] samplePair(Random rnd, boolean distinct) {
+        final int k = this.classTable.sample(rnd);
+        final int from = this.offsets[k];
+        final int size = this.offsets[k + 1] - from;
+        final int i = rnd.nextInt(size);
+        int j;
+        if (distinct) {
+            if (size < 2) {
+                return null;
+            }
+            j = rnd.nextInt(size - 1);
+            if (j >= i) {
+                j++;
+            }
+        } else {
+            j = rnd.nextInt(size);
+        }
+        return new int[]{this.members[from + i], this.members[from + j]};
+    }
+}
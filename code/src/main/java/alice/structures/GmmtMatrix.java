@@ -16,8 +16,11 @@ package alice.structures;
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-import alice.helpers.CountingWedges;
+import alice.helpers.ButterflyCounter;
+import alice.helpers.PackedSwappables;
 import alice.helpers.Swappables;
+import alice.helpers.SubgraphCountEstimator;
+import alice.utils.Config;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -26,6 +29,30 @@ import java.util.Random;
  */
 public class GmmtMatrix extends Matrix {
 
+    /**
+     * The index used to sample the swappable pairs of edges without
+     * rejection; null if they are sampled by rejection.
+     */
+    private GmmtProposalIndex proposalIndex;
+
+    /**
+     * The number of pairs of edges sampled and rejected because they are not
+     * swappable.
+     */
+    private long numRetries;
+
+    /**
+     * For each row, the number of neighbors in common with the swapped row
+     * before the swap, reused across the steps of the chain.
+     */
+    private final int[] commonBefore;
+
+    /**
+     * For each row, the number of neighbors in common with the swapped row
+     * after the swap, reused across the steps of the chain.
+     */
+    private final int[] commonAfter;
+
     /**
      * Creates an instance of {@link GmmtMatrix} from a 0-1 {@link SparseMatrix}
      * by initializing necessary data structures from the matrix.
@@ -34,6 +61,8 @@ public class GmmtMatrix extends Matrix {
      */
     public GmmtMatrix(SparseMatrix inMatrix) {
         super(inMatrix);
+        this.commonBefore = new int[inMatrix.getNumRows()];
+        this.commonAfter = new int[inMatrix.getNumRows()];
     }
     
     /**
@@ -43,8 +72,10 @@ public class GmmtMatrix extends Matrix {
      * @param inMatrix a 0-1 matrix representation of the dataset
      * @param edges
      */
-    public GmmtMatrix(SparseMatrix inMatrix, Edge[] edges) {
+    public GmmtMatrix(SparseMatrix inMatrix, long[] edges) {
         super(inMatrix, edges);
+        this.commonBefore = new int[inMatrix.getNumRows()];
+        this.commonAfter = new int[inMatrix.getNumRows()];
     }
 
     /**
@@ -62,6 +93,29 @@ public class GmmtMatrix extends Matrix {
         return numDisjPairsOfEdges - numZstructs + 2 * numK22Cliques;
     }
 
+    /**
+     * Gets an estimate of the degree of the matrix in the Markov chain, where
+     * the number of K22 cliques is estimated by wedge sampling.
+     *
+     * @param relError the target relative error of the estimated number of K22
+     * cliques
+     * @param confidence the confidence of the interval
+     * @param maxSamples the maximum number of samples
+     * @param rnd a Random instance
+     * @return an estimate of the degree of the matrix
+     */
+    public SubgraphCountEstimator.Estimate getApproxDegree(double relError, double confidence, int maxSamples, Random rnd) {
+        final long numDisjPairsOfEdges = this.getNumDisjPairsOfEdges();
+        final long numZstructs = this.getNumZstructs();
+        final SubgraphCountEstimator.Estimate numK22Cliques = SubgraphCountEstimator.estimateButterflies(
+                this.getRows(), this.getCols(), relError, confidence, maxSamples, rnd);
+        return new SubgraphCountEstimator.Estimate(
+                numDisjPairsOfEdges - numZstructs + 2 * numK22Cliques.value,
+                2 * numK22Cliques.halfWidth,
+                confidence,
+                numK22Cliques.numSamples);
+    }
+
     /**
      * Gets the degree of the adjacent matrix in the Markov chain given the
      * current matrix. Reference: Gionis et al., proof of Corollary 4.4.
@@ -74,8 +128,35 @@ public class GmmtMatrix extends Matrix {
      * @return the degree of the adjacent matrix
      */
     public long getAdjMatrixDegree(Edge swappableEdge1, Edge swappableEdge2, long matrixDegree) {
-        final int changeInNumZstructs = this.getChangeInNumZstructs(swappableEdge1, swappableEdge2);
-        final int changeInNumK22Cliques = this.getChangeInNumK22Cliques(swappableEdge1, swappableEdge2);
+        return this.getAdjMatrixDegree(swappableEdge1.row, swappableEdge1.col,
+                swappableEdge2.row, swappableEdge2.col, matrixDegree);
+    }
+
+    /**
+     * Gets the degree of the adjacent matrix in the Markov chain given the
+     * current matrix, for swappable edges held in a reused holder.
+     *
+     * @param swap the swappable edges that lead to the adjacent matrix
+     * @param matrixDegree the degree of the current matrix
+     * @return the degree of the adjacent matrix
+     */
+    public long getAdjMatrixDegree(PackedSwappables swap, long matrixDegree) {
+        return this.getAdjMatrixDegree(Edge.row(swap.edge1), Edge.col(swap.edge1),
+                Edge.row(swap.edge2), Edge.col(swap.edge2), matrixDegree);
+    }
+
+    /**
+     *
+     * @param r1 row of the first swappable edge
+     * @param c1 col of the first swappable edge
+     * @param r2 row of the second swappable edge
+     * @param c2 col of the second swappable edge
+     * @param matrixDegree the degree of the current matrix
+     * @return the degree of the adjacent matrix
+     */
+    private long getAdjMatrixDegree(int r1, int c1, int r2, int c2, long matrixDegree) {
+        final int changeInNumZstructs = this.getChangeInNumZstructs(r1, c1, r2, c2);
+        final int changeInNumK22Cliques = this.getChangeInNumK22Cliques(r1, c1, r2, c2);
         return matrixDegree - changeInNumZstructs + 2 * changeInNumK22Cliques;
     }
 
@@ -124,7 +205,7 @@ public class GmmtMatrix extends Matrix {
     public long getNumZstructs() {
         return Arrays.stream(edges)
                 .parallel()
-                .mapToLong(edge -> (this.getRowSum(edge.row) - 1) * (this.getColSum(edge.col) - 1))
+                .map(edge -> (this.getRowSum(Edge.row(edge)) - 1) * (this.getColSum(Edge.col(edge)) - 1))
                 .sum();
     }
 
@@ -135,23 +216,23 @@ public class GmmtMatrix extends Matrix {
      * @return the number of K22 cliques
      */
     public long getNumK22Cliques() {
-        return CountingWedges.countWedges(this.getRows(), getNumRows() + 1);
+        return ButterflyCounter.countButterflies(this.getRows(), this.getNumCols());
     }
 
     /**
      * Gets the change in the number of Z structures for the possible adjacent
-     * graph defined by the two swappable edges. Reference: Gionis et al., proof
-     * of Corollary 4.4.
+     * graph defined by the two swappable edges (r1, c1) and (r2, c2).
+     * Reference: Gionis et al., proof of Corollary 4.4.
      *
-     * @param swappableEdge1 the first swappable edge that transitions to the
-     * adjacent matrix
-     * @param swappableEdge2 the second swappable edge that transitions to the
-     * adjacent matrix
+     * @param r1 row of the first swappable edge
+     * @param c1 col of the first swappable edge
+     * @param r2 row of the second swappable edge
+     * @param c2 col of the second swappable edge
      * @return the change in the number of Z structures
      */
-    private int getChangeInNumZstructs(Edge swappableEdge1, Edge swappableEdge2) {
-        return (this.getRowSum(swappableEdge1.row) - this.getRowSum(swappableEdge2.row))
-                * (this.getColSum(swappableEdge2.col) - this.getColSum(swappableEdge1.col));
+    private int getChangeInNumZstructs(int r1, int c1, int r2, int c2) {
+        return (this.getRowSum(r1) - this.getRowSum(r2))
+                * (this.getColSum(c2) - this.getColSum(c1));
     }
 
     /**
@@ -166,75 +247,178 @@ public class GmmtMatrix extends Matrix {
      * @return the change in the number of K22 cliques
      */
     protected int getChangeInNumK22Cliques(Edge swappableEdge1, Edge swappableEdge2) {
-        int output = 0;
-        final int[] srcs = {swappableEdge1.row, swappableEdge2.row};
-        final int[] dsts = {swappableEdge1.col, swappableEdge2.col};
-        int[][] common = new int[this.getNumRows()][2];
-        for (int i = 0; i < srcs.length; i++) {
-            // for each b, stores the number of neighbors 
-            // before and after the swap
-            if (i != 0) {
-                for (int[] common1 : common) {
-                    common1[0] = 0;
-                    common1[1] = 0;
-                }
-            }
-            // neighbors of src
-            Vector neighs = getRowInstance(srcs[i]);
-            for (int h : neighs.getNonzeroIndices()) {
-                Vector hneighs = getColInstance(h);
-                for (int v : hneighs.getNonzeroIndices()) {
-                    if (v == srcs[i]) {
-                        continue;
-                    }
-                    // update num neighs before
-                    common[v][0]++;
-                    // update num neighs after
-                    if (dsts[i] != h) {
-                        common[v][1]++;
-                    }
-                }
+        return this.getChangeInNumK22Cliques(swappableEdge1.row, swappableEdge1.col,
+                swappableEdge2.row, swappableEdge2.col);
+    }
+
+    /**
+     * Gets the change in the number of K22 cliques for the possible adjacent
+     * graph defined by the two swappable edges (r1, c1) and (r2, c2), counting
+     * the common neighbors in the buffers of this matrix.
+     *
+     * @param r1 row of the first swappable edge
+     * @param c1 col of the first swappable edge
+     * @param r2 row of the second swappable edge
+     * @param c2 col of the second swappable edge
+     * @return the change in the number of K22 cliques
+     */
+    private int getChangeInNumK22Cliques(int r1, int c1, int r2, int c2) {
+        return this.getHalfChangeInNumK22Cliques(r1, c1, r2, c2)
+                + this.getHalfChangeInNumK22Cliques(r2, c2, r1, c1);
+    }
+
+    /**
+     * Gets the term of row src in the change in the number of K22 cliques,
+     * i.e., the change in the number of pairs of neighbors that src has in
+     * common with each other row.
+     *
+     * @param src row of the swappable edge
+     * @param dst col of the swappable edge
+     * @param otherSrc row of the other swappable edge
+     * @param otherDst col of the other swappable edge
+     * @return the term of src in the change in the number of K22 cliques
+     */
+    private int getHalfChangeInNumK22Cliques(int src, int dst, int otherSrc, int otherDst) {
+        // for each row, stores the number of neighbors in common with src
+        // before and after the swap; the buffers are all 0 between calls
+        final int[] before = this.commonBefore;
+        final int[] after = this.commonAfter;
+        // neighbors of src, read from the containers of the vectors
+        getRowInstance(src).forEachIndex(h -> getColInstance(h).forEachIndex(v -> {
+            if (v == src) {
+                return;
             }
-            Vector NewNeigh = getColInstance(dsts[(i + 1) % 2]);
-            for (int v : NewNeigh.getNonzeroIndices()) {
-                if (v == srcs[i] || v == srcs[(i + 1) % 2]) {
-                    continue;
-                }
-                // update num neighs after
-                common[v][1]++;
+            // update num neighs before
+            before[v]++;
+            // update num neighs after
+            if (dst != h) {
+                after[v]++;
             }
-            // compute binomial coefficients
-            int sumDiff = 0;
-            for (int[] common1 : common) {
-                sumDiff += (common1[1] * (common1[1] - 1))
-                        - (common1[0] * (common1[0] - 1));
+        }));
+        getColInstance(otherDst).forEachIndex(v -> {
+            if (v == src || v == otherSrc) {
+                return;
             }
-            sumDiff /= 2;
-            output += sumDiff;
+            // update num neighs after
+            after[v]++;
+        });
+        // compute binomial coefficients, and clear the buffers for the next
+        // call
+        int sumDiff = 0;
+        for (int v = 0; v < before.length; v++) {
+            sumDiff += (after[v] * (after[v] - 1))
+                    - (before[v] * (before[v] - 1));
+            before[v] = 0;
+            after[v] = 0;
         }
-        return output;
+        return sumDiff / 2;
+    }
+
+    /**
+     * Chooses how to sample the swappable pairs of edges. Sampling two random
+     * edges until they are swappable takes on average the number of ordered
+     * pairs of distinct edges divided by the number of swappable ones, which
+     * is twice the degree. When this fraction is below
+     * Config.gmmtIndexMaxValidFraction and the matrix has at most
+     * Config.gmmtIndexMaxRows rows, the pairs are sampled with a
+     * {@link GmmtProposalIndex} instead.
+     *
+     * @param matrixDegree the degree of the matrix
+     * @return whether the pairs are sampled with the index
+     */
+    public boolean chooseProposalStrategy(long matrixDegree) {
+        final double numPairs = (double) this.getNumEdges() * (this.getNumEdges() - 1);
+        if (2 * matrixDegree < Config.gmmtIndexMaxValidFraction * numPairs
+                && this.getNumRows() <= Config.gmmtIndexMaxRows) {
+            this.proposalIndex = new GmmtProposalIndex(this);
+        } else {
+            this.proposalIndex = null;
+        }
+        return this.proposalIndex != null;
+    }
+
+    /**
+     *
+     * @return the number of pairs of edges rejected so far because they are
+     * not swappable
+     */
+    public long getNumRetries() {
+        return this.numRetries;
     }
 
     /**
      * Gets the swappable edges and new edges that will potentially be added to
-     * the list of edges for the matrix for the GMMT chain. Reference: Gionis et
+     * the list of edges for the matrix for the GMMT chain. The pair is
+     * uniform among the swappable pairs, and is sampled with the index chosen
+     * by chooseProposalStrategy, if any, or by rejection. Reference: Gionis et
      * al., Algorithm 2 Find_adjacent.
      *
      * @param rnd an instance of a {@link Random} object to sample edges
      * @return an instance of {@link Swappables}
      */
     public Swappables getSwappableAndNewEdges(Random rnd) {
-        Swappables sne;
-        Edge edge1;
-        Edge edge2;
-        do {
-            sne = this.sampleEdges(rnd);
-            edge1 = sne.swappableEdge1;
-            edge2 = sne.swappableEdge2;
-        } while ((this.getVal(edge1.row, edge2.col) == 1)
-                || (this.getVal(edge2.row, edge1.col) == 1));
-
-        return sne;
+        final PackedSwappables swap = new PackedSwappables();
+        return this.getSwappableAndNewEdges(rnd, swap) ? swap.toSwappables() : null;
+    }
+
+    /**
+     * Samples the swappable edges like {@link #getSwappableAndNewEdges(Random)}
+     * into a reused holder, so that the steps of the chain do not allocate.
+     *
+     * @param rnd an instance of a {@link Random} object to sample edges
+     * @param swap the holder overwritten with the swappable edges
+     * @return false if no pair of edges is swappable; true otherwise
+     */
+    public boolean getSwappableAndNewEdges(Random rnd, PackedSwappables swap) {
+        if (this.proposalIndex != null) {
+            return this.proposalIndex.sample(rnd, swap);
+        }
+        // check the packed edges until a swappable pair is found
+        while (true) {
+            final int e1Index = rnd.nextInt(this.getNumEdges());
+            int e2Index;
+            do {
+                e2Index = rnd.nextInt(this.getNumEdges());
+            } while (e1Index == e2Index);
+            final long e1 = this.edges[e1Index];
+            final long e2 = this.edges[e2Index];
+            if (this.getVal(Edge.row(e1), Edge.col(e2)) == 0
+                    && this.getVal(Edge.row(e2), Edge.col(e1)) == 0) {
+                this.getSwappables(e1Index, e2Index, swap);
+                return true;
+            }
+            this.numRetries++;
+        }
+    }
+
+    /**
+     * Transitions to the next state in the chain by updating the current matrix
+     * to the adjacent matrix, and the proposal index if any.
+     *
+     * @param sne swappable edges that transition to the
+     * adjacent matrix
+     */
+    @Override
+    public void transition(Swappables sne) {
+        super.transition(sne);
+        if (this.proposalIndex != null) {
+            this.proposalIndex.transition(sne);
+        }
+    }
+
+    /**
+     * Transitions to the next state in the chain by updating the current matrix
+     * to the adjacent matrix, and the proposal index if any, reading the
+     * edges from a reused holder.
+     *
+     * @param swap swappable edges that transition to the adjacent matrix
+     */
+    @Override
+    public void transition(PackedSwappables swap) {
+        super.transition(swap);
+        if (this.proposalIndex != null) {
+            this.proposalIndex.transition(swap);
+        }
     }
     
     /**
@@ -250,4 +434,20 @@ public class GmmtMatrix extends Matrix {
                 getRowInstance(first.row).get(second.col) == 1 || 
                 getRowInstance(second.row).get(first.col) == 1);
     }
+
+    /**
+     * Checks whether two edges are swappable without creating an instance of
+     * {@link Swappables}.
+     * 
+     * @param e1Index position of the first edge in the edge array
+     * @param e2Index position of the second edge in the edge array
+     * @return True if the two edges are swappable; False otherwise
+     */
+    public boolean areSwappable(int e1Index, int e2Index) {
+        final long first = this.edges[e1Index];
+        final long second = this.edges[e2Index];
+        return !(Edge.row(first) == Edge.row(second) || Edge.col(first) == Edge.col(second) ||
+                getRowInstance(Edge.row(first)).get(Edge.col(second)) == 1 || 
+                getRowInstance(Edge.row(second)).get(Edge.col(first)) == 1);
+    }
 }
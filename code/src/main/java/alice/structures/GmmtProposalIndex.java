@@ -0,0 +1,327 @@
+package alice.structures;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.helpers.PackedSwappables;
+import alice.helpers.Swappables;
+import alice.utils.Config;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An index that samples the swappable pairs of edges of a {@link GmmtMatrix}
+ * uniformly at random without rejection, for the matrices where most pairs
+ * of edges are not swappable.
+ * Edges (r1, c1) and (r2, c2) are swappable iff c1 is in the difference of
+ * rows r1 and r2, and c2 is in the difference of rows r2 and r1, so the
+ * ordered pair of rows (r1, r2) has d(r1, r2) * d(r2, r1) swappable pairs,
+ * where d(r1, r2) = rowSum(r1) - overlap(r1, r2). The index stores the
+ * overlaps of all the pairs of rows, samples a pair of rows proportionally to
+ * its number of swappable pairs, and then the two cols uniformly from the
+ * differences of the two rows.
+ * The first row is found by binary search in the prefix sums of the weights
+ * of the rows, and the second row by scanning the sums of the weights of
+ * the blocks of about sqrt(numRows) rows, and then the rows of a block, so
+ * that a swap still updates the index in time linear in the number of rows.
+ */
+public class GmmtProposalIndex {
+
+    /**
+     * The matrix.
+     */
+    private final GmmtMatrix matrix;
+
+    /**
+     * The number of rows.
+     */
+    private final int numRows;
+
+    /**
+     * The size of the intersection of each pair of rows, in row-major order.
+     */
+    private final int[] overlaps;
+
+    /**
+     * For each row r1, the number of swappable pairs of edges whose first
+     * edge is in r1.
+     */
+    private final long[] rowWeights;
+
+    /**
+     * The prefix sums of rowWeights, i.e., the number of swappable pairs of
+     * edges whose first edge is in a row up to r1.
+     */
+    private final long[] cumRowWeights;
+
+    /**
+     * The number of rows in each block but the last one.
+     */
+    private final int blockSize;
+
+    /**
+     * The number of blocks of rows.
+     */
+    private final int numBlocks;
+
+    /**
+     * For each row r1 and block b, in row-major order, the number of
+     * swappable pairs of edges with the first edge in r1 and the second edge
+     * in a row of b.
+     */
+    private final long[] blockWeights;
+
+    /**
+     * The number of swappable ordered pairs of edges.
+     */
+    private long totalWeight;
+
+    /**
+     * The position of each packed edge in the edge array of the matrix.
+     */
+    private final Long2IntOpenHashMap edgePos;
+
+    /**
+     * The overlaps of a swapped row with the other rows, reused across the
+     * transitions.
+     */
+    private final int[] newOverlaps;
+
+    /**
+     *
+     * @param matrix a matrix
+     */
+    public GmmtProposalIndex(GmmtMatrix matrix) {
+        this.matrix = matrix;
+        this.numRows = matrix.getNumRows();
+        this.overlaps = new int[this.numRows * this.numRows];
+        for (int c = 0; c < matrix.getNumCols(); c++) {
+            final int[] rows = matrix.getColInstance(c).toIntArray();
+            for (int x : rows) {
+                for (int y : rows) {
+                    this.overlaps[x * this.numRows + y]++;
+                }
+            }
+        }
+        this.blockSize = Math.max(1, (int) Math.ceil(Math.sqrt(this.numRows)));
+        this.numBlocks = (this.numRows + this.blockSize - 1) / this.blockSize;
+        this.blockWeights = new long[this.numRows * this.numBlocks];
+        this.rowWeights = new long[this.numRows];
+        for (int r = 0; r < this.numRows; r++) {
+            for (int x = 0; x < this.numRows; x++) {
+                final long weight = this.getWeight(r, x);
+                this.blockWeights[r * this.numBlocks + x / this.blockSize] += weight;
+                this.rowWeights[r] += weight;
+            }
+        }
+        this.cumRowWeights = new long[this.numRows];
+        this.updateCumRowWeights();
+        this.edgePos = new Long2IntOpenHashMap(matrix.edges.length);
+        for (int i = 0; i < matrix.edges.length; i++) {
+            this.edgePos.put(matrix.edges[i], i);
+        }
+        this.newOverlaps = new int[this.numRows];
+    }
+
+    /**
+     * Estimates the bytes of the index of a matrix, which is built only if
+     * the matrix has at most Config.gmmtIndexMaxRows rows.
+     *
+     * @param numRows the number of rows of the matrix
+     * @param numOnes the number of ones in the matrix
+     * @return the estimated bytes of the index; 0 if it is not built
+     */
+    public static long estimateFootprint(int numRows, long numOnes) {
+        if (numRows > Config.gmmtIndexMaxRows) {
+            return 0;
+        }
+        final long numBlocks = (long) Math.ceil(Math.sqrt(numRows));
+        // the overlaps, the weights, and the map of the positions of the edges
+        return 4L * numRows * numRows + 8L * numRows * (numBlocks + 2) + 32 * numOnes;
+    }
+
+    /**
+     * Computes the prefix sums of the weights of the rows and their total.
+     */
+    private void updateCumRowWeights() {
+        long sum = 0;
+        for (int r = 0; r < this.numRows; r++) {
+            sum += this.rowWeights[r];
+            this.cumRowWeights[r] = sum;
+        }
+        this.totalWeight = sum;
+    }
+
+    /**
+     *
+     * @return the number of swappable ordered pairs of edges, i.e., twice the
+     * degree of the matrix
+     */
+    public long getNumSwappablePairs() {
+        return this.totalWeight;
+    }
+
+    /**
+     *
+     * @param r1 row id
+     * @param r2 row id
+     * @return the number of swappable pairs of edges with the first edge in
+     * r1 and the second edge in r2
+     */
+    private long getWeight(int r1, int r2) {
+        if (r1 == r2) {
+            return 0;
+        }
+        final int overlap = this.overlaps[r1 * this.numRows + r2];
+        return (long) (this.matrix.getRowSum(r1) - overlap) * (this.matrix.getRowSum(r2) - overlap);
+    }
+
+    /**
+     * Samples a pair of edges uniformly at random among the swappable ones.
+     *
+     * @param rnd a Random instance
+     * @return an instance of {@link Swappables}; null if no pair of edges is
+     * swappable
+     */
+    public Swappables sample(Random rnd) {
+        final PackedSwappables swap = new PackedSwappables();
+        return this.sample(rnd, swap) ? swap.toSwappables() : null;
+    }
+
+    /**
+     * Samples a pair of edges uniformly at random among the swappable ones
+     * into a reused holder.
+     *
+     * @param rnd a Random instance
+     * @param swap the holder overwritten with the sampled edges
+     * @return false if no pair of edges is swappable; true otherwise
+     */
+    public boolean sample(Random rnd, PackedSwappables swap) {
+        if (this.totalWeight == 0) {
+            return false;
+        }
+        // first row proportionally to its number of swappable pairs, i.e.,
+        // the first row whose prefix sum is larger than u
+        long u = Math.min((long) (rnd.nextDouble() * this.totalWeight), this.totalWeight - 1);
+        int low = 0;
+        int high = this.numRows - 1;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (this.cumRowWeights[mid] > u) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        final int r1 = low;
+        u -= this.cumRowWeights[r1] - this.rowWeights[r1];
+        // second row proportionally to the swappable pairs with the first,
+        // first its block and then the row in the block
+        int b = 0;
+        while (u >= this.blockWeights[r1 * this.numBlocks + b]) {
+            u -= this.blockWeights[r1 * this.numBlocks + b];
+            b++;
+        }
+        int r2 = b * this.blockSize;
+        while (u >= this.getWeight(r1, r2)) {
+            u -= this.getWeight(r1, r2);
+            r2++;
+        }
+        final int overlap = this.overlaps[r1 * this.numRows + r2];
+        final int c1 = this.sampleFromDifference(r1, r2, this.matrix.getRowSum(r1) - overlap, rnd);
+        final int c2 = this.sampleFromDifference(r2, r1, this.matrix.getRowSum(r2) - overlap, rnd);
+        final int e1Index = this.edgePos.get(Edge.pack(r1, c1));
+        final int e2Index = this.edgePos.get(Edge.pack(r2, c2));
+        this.matrix.getSwappables(e1Index, e2Index, swap);
+        return true;
+    }
+
+    /**
+     *
+     * @param r1 row id
+     * @param r2 row id
+     * @param size the size of the difference between r1 and r2
+     * @param rnd a Random instance
+     * @return a col in r1 and not in r2 sampled uniformly at random
+     */
+    private int sampleFromDifference(int r1, int r2, int size, Random rnd) {
+        final int k = rnd.nextInt(size);
+        try {
+            return this.matrix.getRowInstance(r1).getNthIndexNotIn(this.matrix.getRowInstance(r2), k);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalStateException(
+                    "Rows " + r1 + " and " + r2 + " have less than " + size + " different cols", e);
+        }
+    }
+
+    /**
+     * Updates the index after the matrix transitioned to the adjacent matrix
+     * defined by the swappable edges.
+     *
+     * @param sne the swapped edges and their position in the edge array
+     */
+    public void transition(Swappables sne) {
+        final PackedSwappables swap = new PackedSwappables();
+        swap.set(sne);
+        this.transition(swap);
+    }
+
+    /**
+     * Updates the index after the matrix transitioned to the adjacent matrix
+     * defined by the swappable edges held in a reused holder.
+     *
+     * @param swap the swapped edges and their position in the edge array
+     */
+    public void transition(PackedSwappables swap) {
+        this.edgePos.remove(swap.edge1);
+        this.edgePos.remove(swap.edge2);
+        this.edgePos.put(swap.getNewEdge1(), swap.e1Index);
+        this.edgePos.put(swap.getNewEdge2(), swap.e2Index);
+
+        this.updateRow(Edge.row(swap.edge1));
+        this.updateRow(Edge.row(swap.edge2));
+        this.updateCumRowWeights();
+    }
+
+    /**
+     * Updates the overlaps and the weights of a swapped row.
+     *
+     * @param r row id
+     */
+    private void updateRow(int r) {
+        // new overlaps of r with the other rows
+        final int[] newOverlaps = this.newOverlaps;
+        Arrays.fill(newOverlaps, 0);
+        this.matrix.getRowInstance(r).forEachIndex(
+                c -> this.matrix.getColInstance(c).forEachIndex(x -> newOverlaps[x]++));
+        // the number of swappable pairs is symmetric in the two rows
+        this.rowWeights[r] = 0;
+        Arrays.fill(this.blockWeights, r * this.numBlocks, (r + 1) * this.numBlocks, 0);
+        for (int x = 0; x < this.numRows; x++) {
+            final long oldWeight = this.getWeight(r, x);
+            this.overlaps[r * this.numRows + x] = newOverlaps[x];
+            this.overlaps[x * this.numRows + r] = newOverlaps[x];
+            final long newWeight = this.getWeight(r, x);
+            if (x != r) {
+                this.rowWeights[x] += newWeight - oldWeight;
+                this.blockWeights[x * this.numBlocks + r / this.blockSize] += newWeight - oldWeight;
+            }
+            this.rowWeights[r] += newWeight;
+            this.blockWeights[r * this.numBlocks + x / this.blockSize] += newWeight;
+        }
+    }
+}
@@ -16,6 +16,8 @@ package alice.structures;
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
+import alice.helpers.ButterflyCounter;
+import alice.helpers.PackedSwappables;
 import alice.helpers.Swappables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -29,7 +31,6 @@ import java.util.Random;
 import java.util.Set;
 import java.util.stream.IntStream;
 import org.apache.commons.math3.ml.distance.EarthMoversDistance;
-import org.apache.commons.math3.util.CombinatoricsUtils;
 import org.javatuples.Pair;
 
 /**
@@ -54,10 +55,10 @@ public class Matrix {
     private int[] colSums;
 
     /**
-     * A list of the edges from the bipartite graph representation of the
-     * matrix.
+     * The edges from the bipartite graph representation of the matrix, packed
+     * with {@link Edge#pack(int, int)}.
      */
-    public Edge[] edges;
+    public long[] edges;
 
     /**
      * Creates an instance of {@link Matrix} from a 0-1 {@link SparseMatrix} by
@@ -69,22 +70,22 @@ public class Matrix {
         this.matrix = new SparseMatrix(inMatrix.getNumRows(), inMatrix.getNumCols());
         this.rowSums = new int[inMatrix.getNumRows()];
         this.colSums = new int[inMatrix.getNumCols()];
-        Set<Edge> tmpEdges = Sets.newHashSet();
+        int numEdges = 0;
         for (int r = 0; r < inMatrix.getNumRows(); r++) {
-            matrix.replaceRow(r, new Vector(inMatrix.getNonzeroIndices(r)));
+            numEdges += inMatrix.getNumNonzeroIndices(r);
+        }
+        this.edges = new long[numEdges];
+        int counter = 0;
+        for (int r = 0; r < inMatrix.getNumRows(); r++) {
+            matrix.replaceRow(r, inMatrix.getRowCopy(r));
             rowSums[r] = inMatrix.getNumNonzeroIndices(r);
-            for (int c : inMatrix.getNonzeroIndices(r)) {
+            for (int c : inMatrix.getRowInstance(r).toIntArray()) {
                 matrix.setInCol(r, c, inMatrix.isInRow(r, c));
-                tmpEdges.add(new Edge(r, c));
+                this.edges[counter] = Edge.pack(r, c);
+                counter++;
                 this.colSums[c]++;
             }
         }
-        int counter = 0;
-        this.edges = new Edge[tmpEdges.size()];
-        for (Edge edge : tmpEdges) {
-            this.edges[counter] = edge;
-            counter ++;
-        }
     }
     
     /**
@@ -92,24 +93,21 @@ public class Matrix {
      * initializing necessary data structures from the matrix.
      *
      * @param inMatrix a 0-1 matrix representation of the dataset
-     * @param edges edges in the graph represented by inMatrix
+     * @param edges packed edges in the graph represented by inMatrix
      */
-    public Matrix(SparseMatrix inMatrix, Edge[] edges) {
+    public Matrix(SparseMatrix inMatrix, long[] edges) {
         this.matrix = new SparseMatrix(inMatrix.getNumRows(), inMatrix.getNumCols());
         this.rowSums = new int[inMatrix.getNumRows()];
         this.colSums = new int[inMatrix.getNumCols()];
         for (int r = 0; r < inMatrix.getNumRows(); r++) {
-            matrix.replaceRow(r, new Vector(inMatrix.getNonzeroIndices(r)));
+            matrix.replaceRow(r, inMatrix.getRowCopy(r));
             rowSums[r] = inMatrix.getNumNonzeroIndices(r);
-            for (int c : inMatrix.getNonzeroIndices(r)) {
+            for (int c : inMatrix.getRowInstance(r).toIntArray()) {
                 matrix.setInCol(r, c, inMatrix.isInRow(r, c));
                 this.colSums[c]++;
             }
         }
-        this.edges = new Edge[edges.length];
-        for (int i = 0; i < edges.length; i++) {
-            this.edges[i] = edges[i].copy();
-        }
+        this.edges = edges.clone();
     }
 
     @Override
@@ -145,6 +143,15 @@ public class Matrix {
         return this.matrix;
     }
 
+    /**
+     * 
+     * @return an immutable compressed copy of this matrix, built from the
+     * rows and the cols of the chain
+     */
+    public CompressedMatrix getCompressedMatrix() {
+        return CompressedMatrix.of(this.matrix.getRows(), this.matrix.getCols());
+    }
+
     /**
      * 
      * @param row row id
@@ -318,7 +325,11 @@ public class Matrix {
      * @return edges in the bipartite graph represented by this matrix
      */
     public Set<Edge> getEdgesSet() {
-        return Sets.newHashSet(this.edges);
+        final Set<Edge> edgesSet = Sets.newHashSetWithExpectedSize(this.edges.length);
+        for (long edge : this.edges) {
+            edgesSet.add(Edge.unpack(edge));
+        }
+        return edgesSet;
     }
 
     /**
@@ -343,7 +354,28 @@ public class Matrix {
             edge2Index = rnd.nextInt(this.getNumEdges());
         } while (edge1Index == edge2Index);
 
-        return new Swappables(edges[edge1Index], edges[edge2Index], edge1Index, edge2Index);
+        return this.getSwappables(edge1Index, edge2Index);
+    }
+
+    /**
+     * 
+     * @param e1Index position of the first edge in the edge array
+     * @param e2Index position of the second edge in the edge array
+     * @return the two edges as an instance of {@link Swappables}
+     */
+    public Swappables getSwappables(int e1Index, int e2Index) {
+        return new Swappables(Edge.unpack(edges[e1Index]), Edge.unpack(edges[e2Index]), e1Index, e2Index);
+    }
+
+    /**
+     * Overwrites a reused holder with two edges, without allocating.
+     *
+     * @param e1Index position of the first edge in the edge array
+     * @param e2Index position of the second edge in the edge array
+     * @param swap the holder of the two edges
+     */
+    public void getSwappables(int e1Index, int e2Index, PackedSwappables swap) {
+        swap.set(this.edges[e1Index], this.edges[e2Index], e1Index, e2Index);
     }
     
     /**
@@ -352,15 +384,28 @@ public class Matrix {
      * @param sne edges to swap
      */
     public void swapVals(Swappables sne) {
-        
-        this.setRow(sne.swappableEdge1.row, sne.swappableEdge1.col, 0);
-        this.setCol(sne.swappableEdge1.row, sne.swappableEdge1.col, 0);
-        this.setRow(sne.swappableEdge2.row, sne.swappableEdge2.col, 0);
-        this.setCol(sne.swappableEdge2.row, sne.swappableEdge2.col, 0);
-        this.setRow(sne.swappableEdge1.row, sne.swappableEdge2.col, 1);
-        this.setCol(sne.swappableEdge1.row, sne.swappableEdge2.col, 1);
-        this.setRow(sne.swappableEdge2.row, sne.swappableEdge1.col, 1);
-        this.setCol(sne.swappableEdge2.row, sne.swappableEdge1.col, 1);
+        this.swapVals(sne.swappableEdge1.row, sne.swappableEdge1.col,
+                sne.swappableEdge2.row, sne.swappableEdge2.col);
+    }
+
+    /**
+     * Swaps 1s across two rows in the matrix, i.e., replaces (r1, c1) and
+     * (r2, c2) with (r1, c2) and (r2, c1).
+     *
+     * @param r1 row of the first edge
+     * @param c1 col of the first edge
+     * @param r2 row of the second edge
+     * @param c2 col of the second edge
+     */
+    private void swapVals(int r1, int c1, int r2, int c2) {
+        this.setRow(r1, c1, 0);
+        this.setCol(r1, c1, 0);
+        this.setRow(r2, c2, 0);
+        this.setCol(r2, c2, 0);
+        this.setRow(r1, c2, 1);
+        this.setCol(r1, c2, 1);
+        this.setRow(r2, c1, 1);
+        this.setCol(r2, c1, 1);
     }
 
     /**
@@ -369,12 +414,10 @@ public class Matrix {
      * @param sne edges to swap and their current position in the edge array
      */
     public void swapEdges(Swappables sne) {
-        final Edge newEdge1 = new Edge(sne.swappableEdge1.row, sne.swappableEdge2.col);
-        final Edge newEdge2 = new Edge(sne.swappableEdge2.row, sne.swappableEdge1.col);
-        assert(edges[sne.e1Index].equals(sne.swappableEdge1));
-        assert(edges[sne.e2Index].equals(sne.swappableEdge2));
-        this.edges[sne.e1Index] = newEdge1;
-        this.edges[sne.e2Index] = newEdge2;
+        assert(edges[sne.e1Index] == sne.swappableEdge1.pack());
+        assert(edges[sne.e2Index] == sne.swappableEdge2.pack());
+        this.edges[sne.e1Index] = Edge.pack(sne.swappableEdge1.row, sne.swappableEdge2.col);
+        this.edges[sne.e2Index] = Edge.pack(sne.swappableEdge2.row, sne.swappableEdge1.col);
     }
 
     /**
@@ -426,16 +469,32 @@ public class Matrix {
         this.swapEdges(sne);
     }
 
+    /**
+     * Transitions to the next state in the chain by updating the current matrix
+     * to the adjacent matrix, reading the edges from a reused holder.
+     *
+     * @param swap swappable edges that transition to the adjacent matrix
+     */
+    public void transition(PackedSwappables swap) {
+        assert(this.edges[swap.e1Index] == swap.edge1);
+        assert(this.edges[swap.e2Index] == swap.edge2);
+        this.swapVals(Edge.row(swap.edge1), Edge.col(swap.edge1), Edge.row(swap.edge2), Edge.col(swap.edge2));
+        this.edges[swap.e1Index] = swap.getNewEdge1();
+        this.edges[swap.e2Index] = swap.getNewEdge2();
+    }
+
     /**
      * 
      * @return BJDM of bipartite graph represented by this matrix
      */
     public Map<Integer, Map<Integer, Integer>> getBJDM() {
         Map<Integer, Map<Integer, Integer>> BJDM = Maps.newHashMap();
-        for (Edge edge : edges) {
-            Map<Integer, Integer> entry = BJDM.getOrDefault(rowSums[edge.row], Maps.newHashMap());
-            entry.put(colSums[edge.col], entry.getOrDefault(colSums[edge.col], 0) + 1);
-            BJDM.put(rowSums[edge.row], entry);
+        for (long edge : edges) {
+            final int rowSum = rowSums[Edge.row(edge)];
+            final int colSum = colSums[Edge.col(edge)];
+            Map<Integer, Integer> entry = BJDM.getOrDefault(rowSum, Maps.newHashMap());
+            entry.put(colSum, entry.getOrDefault(colSum, 0) + 1);
+            BJDM.put(rowSum, entry);
         }
         return BJDM;
     }
@@ -452,11 +511,13 @@ public class Matrix {
         Map<Pair<Integer, Integer>, Integer> BJDM = Maps.newHashMap();
         int maxRowSum = 0;
         int maxColSum = 0;
-        for (Edge edge : edges) {
-            Pair<Integer, Integer> p = new Pair<>(rowSums[edge.row], colSums[edge.col]);
+        for (long edge : edges) {
+            final int rowSum = rowSums[Edge.row(edge)];
+            final int colSum = colSums[Edge.col(edge)];
+            Pair<Integer, Integer> p = new Pair<>(rowSum, colSum);
             BJDM.put(p, BJDM.getOrDefault(p, 0) + 1);
-            maxRowSum = Math.max(maxRowSum, rowSums[edge.row]);
-            maxColSum = Math.max(maxColSum, colSums[edge.col]);
+            maxRowSum = Math.max(maxRowSum, rowSum);
+            maxColSum = Math.max(maxColSum, colSum);
         }
         List<Entry<Pair<Integer, Integer>, Integer>> entries = Lists.newArrayList(BJDM.entrySet());
         Collections.sort(entries, 
@@ -501,31 +562,32 @@ public class Matrix {
      * @return number of k22 cliques in the bipartite graph represented by this matrix
      */
     public long getNumButterflies() {
-        Vector[] vec = matrix.getCols();
-        if (matrix.getNumRows() < matrix.getNumCols()) {
-            vec = matrix.getRows();
-        }
-        long butt = 0;
-        for (int i = 0; i < vec.length; i++) {
-            for (int j = i + 1; j < vec.length; j++) {
-                int inter = (int) vec[i].interSize(vec[j]);
-                if (inter > 1) {
-                    butt += CombinatoricsUtils.binomialCoefficient(inter, 2);   
-                } 
-            }
-        }
-        return butt;
+        return ButterflyCounter.countButterflies(this.matrix);
     }
     
     /**
      * 
      * @param rnd a {@link Random} instance
-     * @return a pair of edges extracted uniformly at random from the set of edges of the bipartite graph
+     * @return a pair of edges extracted uniformly at random from the set of edges of the bipartite graph,
+     * unpacked into a new {@link Swappables}
      */
     public Swappables getRandomSwappables(Random rnd) {
         final int e1Index = rnd.nextInt(edges.length);
         final int e2Index = rnd.nextInt(edges.length);
-        return new Swappables(edges[e1Index], edges[e2Index], e1Index, e2Index);
+        return this.getSwappables(e1Index, e2Index);
+    }
+
+    /**
+     * 
+     * @param rnd a {@link Random} instance
+     * @param swap the reused holder overwritten with a pair of edges
+     * extracted uniformly at random from the set of edges of the bipartite
+     * graph
+     */
+    public void getRandomSwappables(Random rnd, PackedSwappables swap) {
+        final int e1Index = rnd.nextInt(edges.length);
+        final int e2Index = rnd.nextInt(edges.length);
+        this.getSwappables(e1Index, e2Index, swap);
     }
     
 }
@@ -1,11 +1,13 @@
 package alice.structures;
 
 import alice.helpers.Swappables;
-import alice.utils.Utils;
+import alice.helpers.SubgraphCountEstimator;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 import java.util.stream.IntStream;
 
@@ -23,14 +25,10 @@ public class MultiGraph {
     Int2ObjectOpenHashMap<int[]> rowSumToVertices;
     // for each degree, array of right vertices with that degree
     Int2ObjectOpenHashMap<int[]> colSumToVertices;
-    // probability of sampling each possible left node degree
-    double[] rowProbabilities;
-    // probability of sampling each possible right node degree
-    double[] colProbabilities;
-    // left node degree corresponding to each position in rowProbabilities
-    int[] id2rowSum;
-    // right node degree corresponding to each position in colProbabilities
-    int[] id2colSum;
+    // left nodes grouped by degree, to sample pairs of left nodes
+    EqSumClasses rowClasses;
+    // right nodes grouped by degree, to sample pairs of right nodes
+    EqSumClasses colClasses;
     // for each degree, number of unique neighborhoods of size equal to degree
     Int2ObjectOpenHashMap<ObjectOpenHashSet<RawFastIntCollectionFixedSizeWithOrder>> rowSumToUniqueRows;
     // for each neighborhood, number of left nodes with that neighborhood
@@ -59,14 +57,9 @@ public class MultiGraph {
             System.arraycopy(entry.getValue(), 0, newV, 0, newV.length);
             this.colSumToVertices.put(entry.getIntKey(), newV);
         });
-        this.rowProbabilities = new double[G.rowProbabilities.length];
-        System.arraycopy(G.rowProbabilities, 0, this.rowProbabilities, 0, this.rowProbabilities.length);
-        this.colProbabilities = new double[G.colProbabilities.length];
-        System.arraycopy(G.colProbabilities, 0, this.colProbabilities, 0, this.colProbabilities.length);
-        this.id2rowSum = new int[G.id2rowSum.length];
-        System.arraycopy(G.id2rowSum, 0, this.id2rowSum, 0, this.id2rowSum.length);
-        this.id2colSum = new int[G.id2colSum.length];
-        System.arraycopy(G.id2colSum, 0, this.id2colSum, 0, this.id2colSum.length);
+        // the degrees do not change, so the classes can be shared
+        this.rowClasses = G.rowClasses;
+        this.colClasses = G.colClasses;
         this.rowSumToUniqueRows = new Int2ObjectOpenHashMap();
         G.rowSumToUniqueRows.int2ObjectEntrySet().stream().forEach(entry -> {
             ObjectOpenHashSet<RawFastIntCollectionFixedSizeWithOrder> uniqueRows = new ObjectOpenHashSet();
@@ -91,10 +84,6 @@ public class MultiGraph {
         this.rowSumToVertices = rowSumToVertices;
         this.colSumToVertices = colSumToVertices;
         
-        final int rsize = rowSumToVertices.size();
-        final int csize = colSumToVertices.size();
-        this.id2rowSum = new int[rsize];
-        this.id2colSum = new int[csize];
         this.rowSumToUniqueRows = new Int2ObjectOpenHashMap();
         this.rowToNumEqRows = new Object2IntOpenHashMap();
         
@@ -103,36 +92,10 @@ public class MultiGraph {
             this.incNumEqRows(row);
             this.addEqRowSumUniqueRow(rowSum, row);
         }
-        // row probabilities
-        int r = 0;
-        double[] P = new double[rsize];
-        double total = 0;
-        for (int rowSum : rowSumToVertices.keySet()) {
-            this.id2rowSum[r] = rowSum;
-            int count = rowSumToVertices.get(rowSum).length;
-            P[r] = (count + 1) * count / 2.;
-            total += P[r];
-            r++;
-        }
-        for (r = 0; r < P.length; r++) {
-            P[r] /= total;
-        }
-        this.rowProbabilities = Utils.cumSum(P);
-        // col probabilities
-        r = 0;
-        P = new double[csize];
-        total = 0;
-        for (int colSum : colSumToVertices.keySet()) {
-            this.id2colSum[r] = colSum;
-            int count = colSumToVertices.get(colSum).length;
-            P[r] = (count + 1) * count / 2.;
-            total += P[r];
-            r++;
-        }
-        for (r = 0; r < P.length; r++) {
-            P[r] /= total;
-        }
-        this.colProbabilities = Utils.cumSum(P);
+        // a degree with count nodes is sampled proportionally to
+        // (count + 1) * count / 2, the number of pairs of such nodes
+        this.rowClasses = new EqSumClasses(rowSumToVertices, count -> (count + 1) * count / 2.);
+        this.colClasses = new EqSumClasses(colSumToVertices, count -> (count + 1) * count / 2.);
     }
     
     /**
@@ -285,24 +248,18 @@ public class MultiGraph {
     public Swappables getSwappables(Random rnd) {
         // sample rows or columns
         boolean rowSwap = rnd.nextBoolean();
-        Int2ObjectOpenHashMap<int[]> sumToEqSumElements;
-        double[] probabilities;
-        int[] id2Sum;
+        EqSumClasses classes;
         RawFastIntCollectionFixedSizeWithOrder[] instances;
         if (rowSwap) {
-            sumToEqSumElements = rowSumToVertices;
-            probabilities = rowProbabilities;
-            id2Sum = id2rowSum;
+            classes = rowClasses;
             instances = rowIdToNeighbors;
         } else {
-            sumToEqSumElements = colSumToVertices;
-            probabilities = colProbabilities;
-            id2Sum = id2colSum;
+            classes = colClasses;
             instances = colIdToNeighbors;
         }
-        // we select a row/col to select a row/col sum
-        int sum = sampleSum(rnd, probabilities, id2Sum);
-        int[] pair = samplePairOfIndices(sumToEqSumElements.get(sum), rnd, rowSwap);
+        // we select a row/col sum and then two rows/cols with that sum;
+        // only two cols must be distinct, since two rows can be parallel edges
+        int[] pair = classes.samplePair(rnd, !rowSwap);
         if (pair == null) {
             return null;
         }
@@ -326,49 +283,54 @@ public class MultiGraph {
     }
     
     /**
+     * ALICE-S-B
+     * Samples two left (right) nodes with the same degree and trades the
+     * elements that appear once in the neighborhood of one of them and not in
+     * that of the other, as in Curveball, with
+     * {@link RawFastIntCollectionFixedSize#sampleCurveballTrade}, which makes
+     * the trade a symmetric proposal. The trade is
+     * returned as a list of swaps, each moving one element in each direction,
+     * which can be applied one after the other with {@link #transition(Swappables)}.
      * 
      * @param rnd a Random instance
-     * @param probabilities probability of sampling each possible degree
-     * @param id2Sum degree corresponding to each position in probabilities
-     * @return a degree sampled according to probabilities
-     */
-    private int sampleSum(Random rnd, double[] probabilities, int[] id2Sum) {
-        double p = rnd.nextDouble();
-        int id = Arrays.binarySearch(probabilities, p);
-        if (id < 0) {
-            id = (id + 1) * -1;
-        }
-        return id2Sum[id];
-    }
-    
-    /**
-     * 
-     * @param elements array of nodes
-     * @param rnd a Random instance
-     * @param rowSwap if true, we can sample the same node twice
-     * @return a pair of random nodes in elements
+     * @return the swaps of the trade; an empty list for a self loop; null if
+     * no trade is possible
      */
-    private int[] samplePairOfIndices(
-            int[] elements,
-            Random rnd,
-            boolean rowSwap) {
-        
-        if (elements.length < 2 && !rowSwap) {
-            return null;
+    public List<Swappables> getCurveballSwappables(Random rnd) {
+        // sample rows or columns
+        boolean rowSwap = rnd.nextBoolean();
+        EqSumClasses classes;
+        RawFastIntCollectionFixedSizeWithOrder[] instances;
+        if (rowSwap) {
+            classes = rowClasses;
+            instances = rowIdToNeighbors;
+        } else {
+            classes = colClasses;
+            instances = colIdToNeighbors;
         }
-        if (elements.length == 2 && !rowSwap) {
-            return elements;
+        int[] pair = classes.samplePair(rnd, !rowSwap);
+        if (pair == null) {
+            return null;
         }
-        int[] pair = new int[2];
-        pair[0] = elements[rnd.nextInt(elements.length)];
-        if (rowSwap) {
-            pair[1] = elements[rnd.nextInt(elements.length)];
-            return pair;
+        final RawFastIntCollectionFixedSizeWithOrder first = instances[pair[0]];
+        final RawFastIntCollectionFixedSizeWithOrder second = instances[pair[1]];
+        final int[] out = new int[first.size()];
+        final int[] in = new int[first.size()];
+        final int numTraded = first.sampleCurveballTrade(second, rnd, out, in);
+        final List<Swappables> swappables = new ArrayList<>(numTraded);
+        for (int i = 0; i < numTraded; i++) {
+            Edge sampledEdge1;
+            Edge sampledEdge2;
+            if (rowSwap) {
+                sampledEdge1 = new Edge(pair[0], out[i]);
+                sampledEdge2 = new Edge(pair[1], in[i]);
+            } else {
+                sampledEdge1 = new Edge(out[i], pair[0]);
+                sampledEdge2 = new Edge(in[i], pair[1]);
+            }
+            swappables.add(new Swappables(sampledEdge1, sampledEdge2, 0, 0));
         }
-        do {
-            pair[1] = elements[rnd.nextInt(elements.length)];
-        } while (pair[0] == pair[1]);
-        return pair;
+        return swappables;
     }
     
     /**
@@ -383,13 +345,10 @@ public class MultiGraph {
             RawFastIntCollectionFixedSizeWithOrder first, 
             RawFastIntCollectionFixedSizeWithOrder second) {
         
-        RawFastIntCollectionFixedSize[] xor = first.computeXORMultiSets(second);
-        if (xor[0].isEmpty() || xor[1].isEmpty()) {
+        int[] neighs = new int[2];
+        if (!first.sampleXORMultiSets(second, rnd, neighs)) {
             return null;
         }
-        int[] neighs = new int[2];
-        neighs[0] = xor[0].getRandomElement(rnd);
-        neighs[1] = xor[1].getRandomElement(rnd);
         return neighs;
     }
 
@@ -433,6 +392,33 @@ public class MultiGraph {
         return new RawFastIntCollectionFixedSizeWithOrder[]{newRow1, newRow2};
     }
 
+    /**
+     * 
+     * @param swappables swaps to apply one after the other
+     * @return for each left node involved in the swaps, its neighborhood after
+     * all the swaps
+     */
+    public Int2ObjectOpenHashMap<RawFastIntCollectionFixedSizeWithOrder> getNewRows(List<Swappables> swappables) {
+        final Int2ObjectOpenHashMap<RawFastIntCollectionFixedSizeWithOrder> newRows = new Int2ObjectOpenHashMap<>();
+        for (Swappables sne : swappables) {
+            final Edge e1 = sne.swappableEdge1;
+            final Edge e2 = sne.swappableEdge2;
+            RawFastIntCollectionFixedSizeWithOrder newRow1 = newRows.get(e1.row);
+            if (newRow1 == null) {
+                newRow1 = this.getRowCopy(e1.row);
+                newRows.put(e1.row, newRow1);
+            }
+            newRow1.fastReplaceWithoutChecks(e1.col, e2.col);
+            RawFastIntCollectionFixedSizeWithOrder newRow2 = newRows.get(e2.row);
+            if (newRow2 == null) {
+                newRow2 = this.getRowCopy(e2.row);
+                newRows.put(e2.row, newRow2);
+            }
+            newRow2.fastReplaceWithoutChecks(e2.col, e1.col);
+        }
+        return newRows;
+    }
+
     /**
      * 
      * @param row a neighborhood
@@ -442,6 +428,53 @@ public class MultiGraph {
         return rowToNumEqRows.getOrDefault(row, 0);
     }
 
+    /**
+     * Gets the log of the number of graphs that are equivalent to the graph
+     * obtained by replacing the neighborhood swappableRow of a left node with
+     * newRow. Several replacements can be chained by passing the same
+     * rowToEqRows, which stores the number of equal neighborhoods after the
+     * previous replacements.
+     *
+     * @param logNumEquivMatrices the log of the number of equivalent graphs
+     * before the replacement
+     * @param swappableRow the current neighborhood of the left node
+     * @param newRow the new neighborhood of the left node
+     * @param rowToEqRows for each neighborhood changed by the previous
+     * replacements, the number of left nodes with that neighborhood
+     * @return the log of the number of equivalent graphs after the replacement
+     */
+    public double getLogNumEquivAdjMatrices(
+            double logNumEquivMatrices,
+            RawFastIntCollectionFixedSizeWithOrder swappableRow,
+            RawFastIntCollectionFixedSizeWithOrder newRow,
+            Object2IntOpenHashMap<RawFastIntCollectionFixedSizeWithOrder> rowToEqRows) {
+        if (swappableRow.equals(newRow)) {
+            return logNumEquivMatrices;
+        }
+        final int s = rowToEqRows.containsKey(swappableRow)
+                ? rowToEqRows.getInt(swappableRow)
+                : this.getNumEqRows(swappableRow);
+        final int n = rowToEqRows.containsKey(newRow)
+                ? rowToEqRows.getInt(newRow)
+                : this.getNumEqRows(newRow);
+        // the neighborhoods in the graph change when the swaps are applied
+        rowToEqRows.put(new RawFastIntCollectionFixedSizeWithOrder(swappableRow), s - 1);
+        rowToEqRows.put(new RawFastIntCollectionFixedSizeWithOrder(newRow), n + 1);
+        return logNumEquivMatrices + Math.log(s) - Math.log1p(n);
+    }
+
+    /**
+     * Sets the number of left nodes with each neighborhood in rowToEqRows.
+     *
+     * @param rowToEqRows for each neighborhood, the number of left nodes with
+     * that neighborhood
+     */
+    public void replaceNumEqRows(Object2IntOpenHashMap<RawFastIntCollectionFixedSizeWithOrder> rowToEqRows) {
+        rowToEqRows.object2IntEntrySet().forEach(entry -> {
+            this.setNumEqRows(entry.getKey(), entry.getIntValue());
+        });
+    }
+
     /**
      * 
      * @param row a neighborhood
@@ -552,7 +585,8 @@ public class MultiGraph {
     /**
      * 
      * @param rnd a Random instance
-     * @return a pair of random edges sampled from the edges in this graph
+     * @return a pair of random edges sampled from the edges in this graph,
+     * in a new {@link Swappables}
      */
     public Swappables getRandomSwappables(Random rnd) {
         
@@ -602,6 +636,20 @@ public class MultiGraph {
                 .sum();
     }
 
+    /**
+     *
+     * @param relError the target relative error of the estimate
+     * @param confidence the confidence of the interval
+     * @param maxSamples the maximum number of samples
+     * @param rnd a Random instance
+     * @return an estimate of the number of paths of length 3 obtained by
+     * edge sampling
+     */
+    public SubgraphCountEstimator.Estimate getApproxNumZstructs(double relError, double confidence, int maxSamples, Random rnd) {
+        return SubgraphCountEstimator.estimateCaterpillars(
+                rowIdToNeighbors, colIdToNeighbors, relError, confidence, maxSamples, rnd);
+    }
+
     @Override
     public String toString() {
         String s = "[";
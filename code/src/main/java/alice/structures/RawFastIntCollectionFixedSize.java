@@ -1,16 +1,31 @@
 package alice.structures;
 
-import com.google.common.collect.Lists;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import java.util.Random;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 
 public class RawFastIntCollectionFixedSize {
 
     // values stored in this object
     public final int[] values;
+    // values stored in this object in increasing order, kept in sync with
+    // values so that set operations can be computed by merging
+    private final int[] sorted;
+    // per-thread buffers for the results of the merges
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * The two sets computed by a merge and their sizes.
+     */
+    private static class Scratch {
+
+        int[] first = new int[16];
+        int[] second = new int[16];
+        int[] all = new int[32];
+        int numFirst;
+        int numSecond;
+    }
 
     /**
      * Copies the values in rficfs_a in this object
@@ -19,6 +34,8 @@ public class RawFastIntCollectionFixedSize {
     public RawFastIntCollectionFixedSize(RawFastIntCollectionFixedSize rficfs_a) {
         this.values = new int[rficfs_a.values.length];
         System.arraycopy(rficfs_a.values, 0, this.values, 0, rficfs_a.values.length);
+        this.sorted = new int[rficfs_a.sorted.length];
+        System.arraycopy(rficfs_a.sorted, 0, this.sorted, 0, rficfs_a.sorted.length);
     }
 
     /**
@@ -29,6 +46,7 @@ public class RawFastIntCollectionFixedSize {
         //
         this.values = new int[values.length];
         System.arraycopy(values, 0, this.values, 0, values.length);
+        this.sorted = sortedCopy(this.values);
     }
 
     /**
@@ -39,6 +57,7 @@ public class RawFastIntCollectionFixedSize {
         //
         this.values = new int[values.length];
         System.arraycopy(values, 0, this.values, 0, values.length);
+        this.sorted = sortedCopy(this.values);
     }
 
     /**
@@ -52,6 +71,7 @@ public class RawFastIntCollectionFixedSize {
             this.values[pos] = v;
             pos++;
         }
+        this.sorted = sortedCopy(this.values);
     }
     
     /**
@@ -66,6 +86,18 @@ public class RawFastIntCollectionFixedSize {
             this.values[pos] = mapper.get(v);
             pos++;
         }
+        this.sorted = sortedCopy(this.values);
+    }
+
+    /**
+     * 
+     * @param a an array of integers
+     * @return a sorted copy of a
+     */
+    private static int[] sortedCopy(int[] a) {
+        final int[] copy = Arrays.copyOf(a, a.length);
+        Arrays.sort(copy);
+        return copy;
     }
 
     /**
@@ -106,7 +138,7 @@ public class RawFastIntCollectionFixedSize {
      * @return true if v is contained in this object; false otherwise
      */
     public boolean contains(final int v) {
-        return this.findKey(v) != -1;
+        return Arrays.binarySearch(this.sorted, v) >= 0;
     }
 
     /**
@@ -116,6 +148,20 @@ public class RawFastIntCollectionFixedSize {
      */
     public void fastReplaceWithoutChecks(final int a, final int b) {
         this.values[this.findKey(a)] = b;
+        // move b to its position in the sorted values
+        int i = Arrays.binarySearch(this.sorted, a);
+        if (b > a) {
+            while (i + 1 < this.sorted.length && this.sorted[i + 1] < b) {
+                this.sorted[i] = this.sorted[i + 1];
+                i++;
+            }
+        } else {
+            while (i > 0 && this.sorted[i - 1] > b) {
+                this.sorted[i] = this.sorted[i - 1];
+                i--;
+            }
+        }
+        this.sorted[i] = b;
     }
     
     /**
@@ -168,43 +214,107 @@ public class RawFastIntCollectionFixedSize {
     /**
      * 
      * @param rficfs_b another RawFastIntCollectionFixedSize
-     * @return elements in this object that are not in rficfs_b
+     * @return elements in this object that are not in rficfs_b, in increasing
+     * order
      */
     public RawFastIntCollectionFixedSize computeDifference(RawFastIntCollectionFixedSize rficfs_b) {
-        List<Integer> diff = Lists.newArrayList();
-        int i;
-        for (i = 0; i < this.values.length; i++) {
-            if (!rficfs_b.contains(this.values[i])) {
-                diff.add(this.values[i]);
+        final int[] a = this.sorted;
+        final int[] b = rficfs_b.sorted;
+        final int[] diff = new int[a.length];
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < a.length; i++) {
+            while (j < b.length && b[j] < a[i]) {
+                j++;
+            }
+            if (j == b.length || b[j] != a[i]) {
+                diff[size++] = a[i];
             }
         }
-        int[] a = new int[diff.size()];
-        for (i = 0; i < a.length; i++) {
-            a[i] = diff.get(i);
-        }
-        return new RawFastIntCollectionFixedSize(a);
+        return new RawFastIntCollectionFixedSize(Arrays.copyOf(diff, size));
     }
 
     /**
      * 
      * @param rficfs_b another RawFastIntCollectionFixedSize
-     * @return the elements stored both in this object and in rficfs_b
+     * @return the elements stored both in this object and in rficfs_b, in
+     * increasing order
      */
     public RawFastIntCollectionFixedSize computeIntersection(RawFastIntCollectionFixedSize rficfs_b) {
-        List<Integer> inter = Lists.newArrayList();
-        int i;
-        for (i = 0; i < this.values.length; i++) {
-            if (rficfs_b.contains(this.values[i])) {
-                inter.add(this.values[i]);
+        final int[] a = this.sorted;
+        final int[] b = rficfs_b.sorted;
+        final int[] inter = new int[a.length];
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < a.length; i++) {
+            while (j < b.length && b[j] < a[i]) {
+                j++;
+            }
+            if (j < b.length && b[j] == a[i]) {
+                inter[size++] = a[i];
             }
         }
-        int[] a = new int[inter.size()];
-        for (i = 0; i < a.length; i++) {
-            a[i] = inter.get(i);
-        }
-        return new RawFastIntCollectionFixedSize(a);
+        return new RawFastIntCollectionFixedSize(Arrays.copyOf(inter, size));
     }
     
+    /**
+     * Stores in the per-thread buffers the distinct ints in this object but
+     * not in rficfs_b, and the distinct ints in rficfs_b that are not in this
+     * object or that appear in rficfs_b more than once.
+     * 
+     * @param rficfs_b another RawFastIntCollectionFixedSize
+     * @return the per-thread buffers storing the two results
+     */
+    private Scratch mergeXOR(RawFastIntCollectionFixedSize rficfs_b) {
+        final int[] a = this.sorted;
+        final int[] b = rficfs_b.sorted;
+        final Scratch scratch = SCRATCH.get();
+        if (scratch.first.length < a.length) {
+            scratch.first = new int[a.length];
+        }
+        if (scratch.second.length < b.length) {
+            scratch.second = new int[b.length];
+        }
+        final int[] first = scratch.first;
+        final int[] second = scratch.second;
+        int numFirst = 0;
+        int numSecond = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                final int v = a[i];
+                first[numFirst++] = v;
+                while (i < a.length && a[i] == v) {
+                    i++;
+                }
+            } else if (i == a.length || b[j] < a[i]) {
+                final int v = b[j];
+                second[numSecond++] = v;
+                while (j < b.length && b[j] == v) {
+                    j++;
+                }
+            } else {
+                final int v = a[i];
+                while (i < a.length && a[i] == v) {
+                    i++;
+                }
+                final int from = j;
+                while (j < b.length && b[j] == v) {
+                    j++;
+                }
+                // the first occurrence in rficfs_b cancels the occurrences
+                // in this object, the others are kept
+                if (j - from > 1) {
+                    second[numSecond++] = v;
+                }
+            }
+        }
+        scratch.numFirst = numFirst;
+        scratch.numSecond = numSecond;
+        return scratch;
+    }
+
     /**
      * 
      * @param rficfs_b another RawFastIntCollectionFixedSize
@@ -213,23 +323,154 @@ public class RawFastIntCollectionFixedSize {
      * in rficfs_b but not in this object
      */
     public RawFastIntCollectionFixedSize[] computeXORMultiSets(RawFastIntCollectionFixedSize rficfs_b) {
-        Int2IntOpenHashMap first = new Int2IntOpenHashMap(this.values.length * 2);
-        Int2IntOpenHashMap second = new Int2IntOpenHashMap(rficfs_b.values.length * 2);
-        first.defaultReturnValue(0);
-        second.defaultReturnValue(0);
-        for (int v : this.values) {
-            first.addTo(v, 1);
+        final Scratch xor = this.mergeXOR(rficfs_b);
+        RawFastIntCollectionFixedSize firstX = new RawFastIntCollectionFixedSize(Arrays.copyOf(xor.first, xor.numFirst));
+        RawFastIntCollectionFixedSize secondX = new RawFastIntCollectionFixedSize(Arrays.copyOf(xor.second, xor.numSecond));
+        return new RawFastIntCollectionFixedSize[]{firstX, secondX};
+    }
+
+    /**
+     * Samples uniformly at random an element from each of the two sets
+     * returned by {@link #computeXORMultiSets}, without materializing them.
+     * 
+     * @param rficfs_b another RawFastIntCollectionFixedSize
+     * @param rnd a Random instance
+     * @param out array where the two sampled elements are stored
+     * @return false if one of the two sets is empty; true otherwise
+     */
+    public boolean sampleXORMultiSets(RawFastIntCollectionFixedSize rficfs_b, Random rnd, int[] out) {
+        final Scratch xor = this.mergeXOR(rficfs_b);
+        if (xor.numFirst == 0 || xor.numSecond == 0) {
+            return false;
+        }
+        out[0] = xor.first[rnd.nextInt(xor.numFirst)];
+        out[1] = xor.second[rnd.nextInt(xor.numSecond)];
+        return true;
+    }
+
+    /**
+     * Stores in the per-thread buffers the ints that appear exactly once in
+     * this object and not in rficfs_b, and the ints that appear exactly once
+     * in rficfs_b and not in this object.
+     * 
+     * @param rficfs_b another RawFastIntCollectionFixedSize
+     * @return the per-thread buffers storing the two results
+     */
+    private Scratch mergeSingles(RawFastIntCollectionFixedSize rficfs_b) {
+        final int[] a = this.sorted;
+        final int[] b = rficfs_b.sorted;
+        final Scratch scratch = SCRATCH.get();
+        if (scratch.first.length < a.length) {
+            scratch.first = new int[a.length];
+        }
+        if (scratch.second.length < b.length) {
+            scratch.second = new int[b.length];
         }
-        for (int v : rficfs_b.values) {
-            if (first.containsKey(v)) {
-                first.remove(v);
+        final int[] first = scratch.first;
+        final int[] second = scratch.second;
+        int numFirst = 0;
+        int numSecond = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                final int v = a[i];
+                final int from = i;
+                while (i < a.length && a[i] == v) {
+                    i++;
+                }
+                if (i - from == 1) {
+                    first[numFirst++] = v;
+                }
+            } else if (i == a.length || b[j] < a[i]) {
+                final int v = b[j];
+                final int from = j;
+                while (j < b.length && b[j] == v) {
+                    j++;
+                }
+                if (j - from == 1) {
+                    second[numSecond++] = v;
+                }
             } else {
-                second.addTo(v, 1);
+                final int v = a[i];
+                while (i < a.length && a[i] == v) {
+                    i++;
+                }
+                while (j < b.length && b[j] == v) {
+                    j++;
+                }
             }
         }
-        RawFastIntCollectionFixedSize firstX = new RawFastIntCollectionFixedSize(first.keySet());
-        RawFastIntCollectionFixedSize secondX = new RawFastIntCollectionFixedSize(second.keySet());
-        return new RawFastIntCollectionFixedSize[]{firstX, secondX};
+        scratch.numFirst = numFirst;
+        scratch.numSecond = numSecond;
+        return scratch;
+    }
+
+    /**
+     * Curveball trade between this object and rficfs_b: the ints that appear
+     * exactly once in one of the two objects and not in the other are pooled,
+     * and a subset of the pool with the size of the part coming from this
+     * object is sampled uniformly at random as its new part. The ints of this
+     * object that are not in the sample move to rficfs_b, the ints of
+     * rficfs_b that are in the sample move to this object, and each int
+     * moving in one direction is paired uniformly at random with one moving
+     * in the other direction, taking its position. The ints appearing more
+     * than once in an object, or in both objects, are never traded: after the
+     * trade the pool is the same, so the reverse trade is sampled with the
+     * same probability, and the trade is a symmetric proposal.
+     * 
+     * @param rficfs_b another RawFastIntCollectionFixedSize
+     * @param rnd a Random instance
+     * @param outFirst array where the elements moving from this object to
+     * rficfs_b are stored; it must have room for min(size(), rficfs_b.size())
+     * elements
+     * @param outSecond array where the elements moving from rficfs_b to this
+     * object are stored, paired with those in outFirst
+     * @return number of elements traded in each direction
+     */
+    public int sampleCurveballTrade(RawFastIntCollectionFixedSize rficfs_b, Random rnd, int[] outFirst, int[] outSecond) {
+        final Scratch singles = this.mergeSingles(rficfs_b);
+        final int numFirst = singles.numFirst;
+        final int numPool = numFirst + singles.numSecond;
+        if (numFirst == 0 || singles.numSecond == 0) {
+            return 0;
+        }
+        if (singles.all.length < numPool) {
+            singles.all = new int[numPool];
+        }
+        // the elements of the second set are stored complemented
+        final int[] pool = singles.all;
+        System.arraycopy(singles.first, 0, pool, 0, numFirst);
+        for (int i = 0; i < singles.numSecond; i++) {
+            pool[numFirst + i] = ~singles.second[i];
+        }
+        // partial Fisher-Yates shuffle of the first numFirst positions
+        for (int i = 0; i < numFirst; i++) {
+            final int j = i + rnd.nextInt(numPool - i);
+            final int tmp = pool[i];
+            pool[i] = pool[j];
+            pool[j] = tmp;
+        }
+        int numIn = 0;
+        for (int i = 0; i < numFirst; i++) {
+            if (pool[i] < 0) {
+                outSecond[numIn++] = ~pool[i];
+            }
+        }
+        int numOut = 0;
+        for (int i = numFirst; i < numPool; i++) {
+            if (pool[i] >= 0) {
+                outFirst[numOut++] = pool[i];
+            }
+        }
+        // uniform pairing of the elements moving in the two directions
+        for (int i = numIn - 1; i > 0; i--) {
+            final int j = rnd.nextInt(i + 1);
+            final int tmp = outSecond[i];
+            outSecond[i] = outSecond[j];
+            outSecond[j] = tmp;
+        }
+        return numOut;
     }
     
     /**
@@ -238,10 +479,15 @@ public class RawFastIntCollectionFixedSize {
      * @return number of elements both in this object and rficfs_b
      */
     public int computeInterSize(RawFastIntCollectionFixedSize rficfs_b) {
+        final int[] a = this.sorted;
+        final int[] b = rficfs_b.sorted;
         int inter = 0;
-        int i;
-        for (i = 0; i < this.values.length; i++) {
-            if (rficfs_b.contains(this.values[i])) {
+        int j = 0;
+        for (int i = 0; i < a.length; i++) {
+            while (j < b.length && b[j] < a[i]) {
+                j++;
+            }
+            if (j < b.length && b[j] == a[i]) {
                 inter++;
             }
         }
@@ -16,11 +16,13 @@ package alice.structures;
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
+import alice.helpers.ButterflyCounter;
 import alice.helpers.Swappables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +31,6 @@ import java.util.Random;
 import java.util.Set;
 import java.util.stream.IntStream;
 import org.apache.commons.math3.ml.distance.EarthMoversDistance;
-import org.apache.commons.math3.util.CombinatoricsUtils;
 import org.javatuples.Pair;
 
 /**
@@ -54,10 +55,15 @@ public class SetMatrix {
     int[] colSums;
 
     /**
-     * A list of the edges from the bipartite graph representation of the
-     * matrix.
+     * The edges from the bipartite graph representation of the matrix, packed
+     * with {@link Edge#pack(int, int)}.
      */
-    public final Set<Edge> edges;
+    final long[] edges;
+
+    /**
+     * The position of each packed edge in the edge array.
+     */
+    private final Long2IntOpenHashMap edgePos;
 
     /**
      * A map where each key is a row and the value is the number of rows equal
@@ -76,12 +82,20 @@ public class SetMatrix {
         this.matrix = new SparseMatrix(inMatrix.getNumRows(), inMatrix.getNumCols());
         this.rowSums = new int[inMatrix.getNumRows()];
         this.colSums = new int[inMatrix.getNumCols()];
-        this.edges = Sets.newHashSet();
+        int totalNumEdges = 0;
         for (int r = 0; r < inMatrix.getNumRows(); r++) {
-            matrix.replaceRow(r, new Vector(inMatrix.getNonzeroIndices(r)));
-            for (int c : inMatrix.getNonzeroIndices(r)) {
+            totalNumEdges += inMatrix.getNumNonzeroIndices(r);
+        }
+        this.edges = new long[totalNumEdges];
+        this.edgePos = new Long2IntOpenHashMap(this.edges.length);
+        int numEdges = 0;
+        for (int r = 0; r < inMatrix.getNumRows(); r++) {
+            matrix.replaceRow(r, inMatrix.getRowCopy(r));
+            for (int c : inMatrix.getRowInstance(r).toIntArray()) {
                 matrix.setInCol(r, c, inMatrix.isInRow(r, c));
-                edges.add(new Edge(r, c));
+                this.edges[numEdges] = Edge.pack(r, c);
+                this.edgePos.put(this.edges[numEdges], numEdges);
+                numEdges++;
                 this.rowSums[r]++;
                 this.colSums[c]++;
             }
@@ -121,6 +135,15 @@ public class SetMatrix {
         return this.matrix;
     }
 
+    /**
+     * 
+     * @return an immutable compressed copy of this matrix, built from the
+     * rows and the cols of the chain
+     */
+    public CompressedMatrix getCompressedMatrix() {
+        return CompressedMatrix.of(this.matrix.getRows(), this.matrix.getCols());
+    }
+
     /**
      * 
      * @param row row id
@@ -294,7 +317,31 @@ public class SetMatrix {
      * @return edges in the bipartite graph represented by this matrix
      */
     public Set<Edge> getEdgesSet() {
-        return Sets.newHashSet(this.edges);
+        final Set<Edge> edgesSet = Sets.newHashSetWithExpectedSize(this.edges.length);
+        for (long edge : this.edges) {
+            edgesSet.add(Edge.unpack(edge));
+        }
+        return edgesSet;
+    }
+
+    /**
+     * 
+     * @return a copy of the edges in the bipartite graph represented by this
+     * matrix, packed with {@link Edge#pack(int, int)}
+     */
+    public long[] getPackedEdges() {
+        return this.edges.clone();
+    }
+
+    /**
+     * 
+     * @param row row id
+     * @param col col id
+     * @return true if (row, col) is an edge of the bipartite graph represented
+     * by this matrix; false otherwise
+     */
+    public boolean containsEdge(int row, int col) {
+        return this.edgePos.containsKey(Edge.pack(row, col));
     }
 
     /**
@@ -302,7 +349,7 @@ public class SetMatrix {
      * @return number of edges in the bipartite graph represented by this matrix
      */
     public int getNumEdges() {
-        return this.edges.size();
+        return this.edges.length;
     }
 
     /**
@@ -325,15 +372,48 @@ public class SetMatrix {
     /**
      * Swaps the edges in the graph representation of the matrix.
      *
-     * @param sne edges to swap and their current position in the edge array
+     * @param sne edges to swap
      */
     public void swapEdges(Swappables sne) {
-        final Edge newEdge1 = new Edge(sne.swappableEdge1.row, sne.swappableEdge2.col);
-        final Edge newEdge2 = new Edge(sne.swappableEdge2.row, sne.swappableEdge1.col);
-        this.edges.remove(sne.swappableEdge1);
-        this.edges.remove(sne.swappableEdge2);
-        this.edges.add(newEdge1);
-        this.edges.add(newEdge2);
+        final int pos1 = this.edgePos.remove(sne.swappableEdge1.pack());
+        final int pos2 = this.edgePos.remove(sne.swappableEdge2.pack());
+        this.edges[pos1] = Edge.pack(sne.swappableEdge1.row, sne.swappableEdge2.col);
+        this.edges[pos2] = Edge.pack(sne.swappableEdge2.row, sne.swappableEdge1.col);
+        this.edgePos.put(this.edges[pos1], pos1);
+        this.edgePos.put(this.edges[pos2], pos2);
+    }
+
+    /**
+     * Gets the new rows of the matrix defined by the swappable edges.
+     *
+     * @param sne the swappable edges
+     * @return the two new rows of the matrix
+     */
+    public Vector[] getNewRows(Swappables sne) {
+        return getNewRows(
+                this.getRowInstance(sne.swappableEdge1.row),
+                this.getRowInstance(sne.swappableEdge2.row),
+                sne);
+    }
+
+    /**
+     * Gets the new rows of the matrix defined by the swappable edges.
+     *
+     * @param swappableRow1 the row of the first swappable edge
+     * @param swappableRow2 the row of the second swappable edge
+     * @param sne the swappable edges
+     * @return the two new rows of the matrix
+     */
+    public Vector[] getNewRows(Vector swappableRow1, Vector swappableRow2, Swappables sne) {
+        final Vector newRow1 = swappableRow1.copy();
+        newRow1.set(sne.swappableEdge1.col, 0);
+        newRow1.set(sne.swappableEdge2.col, 1);
+
+        final Vector newRow2 = swappableRow2.copy();
+        newRow2.set(sne.swappableEdge2.col, 0);
+        newRow2.set(sne.swappableEdge1.col, 1);
+
+        return new Vector[]{newRow1, newRow2};
     }
 
     /**
@@ -507,10 +587,12 @@ public class SetMatrix {
      */
     public Map<Integer, Map<Integer, Integer>> getBJDM() {
         Map<Integer, Map<Integer, Integer>> BJDM = Maps.newHashMap();
-        for (Edge edge : edges) {
-            Map<Integer, Integer> entry = BJDM.getOrDefault(rowSums[edge.row], Maps.newHashMap());
-            entry.put(colSums[edge.col], entry.getOrDefault(colSums[edge.col], 0) + 1);
-            BJDM.put(rowSums[edge.row], entry);
+        for (long edge : edges) {
+            final int rowSum = rowSums[Edge.row(edge)];
+            final int colSum = colSums[Edge.col(edge)];
+            Map<Integer, Integer> entry = BJDM.getOrDefault(rowSum, Maps.newHashMap());
+            entry.put(colSum, entry.getOrDefault(colSum, 0) + 1);
+            BJDM.put(rowSum, entry);
         };
         return BJDM;
     }
@@ -527,11 +609,13 @@ public class SetMatrix {
         Map<Pair<Integer, Integer>, Integer> BJDM = Maps.newHashMap();
         int maxRowSum = 0;
         int maxColSum = 0;
-        for (Edge edge : edges) {
-            Pair<Integer, Integer> p = new Pair<>(rowSums[edge.row], colSums[edge.col]);
+        for (long edge : edges) {
+            final int rowSum = rowSums[Edge.row(edge)];
+            final int colSum = colSums[Edge.col(edge)];
+            Pair<Integer, Integer> p = new Pair<>(rowSum, colSum);
             BJDM.put(p, BJDM.getOrDefault(p, 0) + 1);
-            maxRowSum = Math.max(maxRowSum, rowSums[edge.row]);
-            maxColSum = Math.max(maxColSum, colSums[edge.col]);
+            maxRowSum = Math.max(maxRowSum, rowSum);
+            maxColSum = Math.max(maxColSum, colSum);
         }
         List<Entry<Pair<Integer, Integer>, Integer>> entries = Lists.newArrayList(BJDM.entrySet());
         Collections.sort(entries, 
@@ -549,7 +633,7 @@ public class SetMatrix {
             
             M[r-1][c-1] = entries.get(i).getValue();
             if (normalize) {
-                M[r-1][c-1] /= 1. * edges.size();
+                M[r-1][c-1] /= 1. * edges.length;
             }
         });
         double[] bjdmV = new double[maxRowSum * maxColSum];
@@ -576,33 +660,19 @@ public class SetMatrix {
      * @return number of butterflies in the graph represented by the matrix
      */
     public long getNumButterflies() {
-        Vector[] vec = matrix.getCols();
-        if (matrix.getNumRows() < matrix.getNumCols()) {
-            vec = matrix.getRows();
-        }
-        long butt = 0;
-        for (int i = 0; i < vec.length; i++) {
-            for (int j = i + 1; j < vec.length; j++) {
-                int inter = (int) vec[i].interSize(vec[j]);
-                if (inter > 1) {
-                    butt += CombinatoricsUtils.binomialCoefficient(inter, 2);   
-                } 
-            }
-        }
-        return butt;
+        return ButterflyCounter.countButterflies(this.matrix);
     }
     
     /**
      * 
      * @param rnd a Random instance
-     * @return a pair of random edges in the graph represented by this matrix
+     * @return a pair of random edges in the graph represented by this matrix,
+     * unpacked into a new {@link Swappables}
      */
     public Swappables getRandomSwappables(Random rnd) {
-        final int e1Index = rnd.nextInt(edges.size());
-        final int e2Index = rnd.nextInt(edges.size());
-        final Edge firstEdge = edges.stream().skip(e1Index).findFirst().get();
-        final Edge secondEdge = edges.stream().skip(e2Index).findFirst().get();
-        return new Swappables(firstEdge, secondEdge, e1Index, e2Index);
+        final int e1Index = rnd.nextInt(edges.length);
+        final int e2Index = rnd.nextInt(edges.length);
+        return new Swappables(Edge.unpack(edges[e1Index]), Edge.unpack(edges[e2Index]), e1Index, e2Index);
     }
     
 }
@@ -266,25 +266,7 @@ public class SparseMatrix {
      * @return dot product between the values of rows r1 and r2
      */
     public int getRowDotProd(int r1, int r2) {
-        int shorter;
-        int longer;
-        if (this.getNumNonzeroIndices(r1) < this.getNumNonzeroIndices(r2)) {
-            shorter = r1;
-            longer = r2;
-        } else {
-            shorter = r2;
-            longer = r1;
-        }
-
-        int rowDotProd = 0;
-        final Set<Integer> longerNonzeroIndices = this.getNonzeroIndices(longer);
-        for (int c : this.getNonzeroIndices(shorter)) {
-            if (longerNonzeroIndices.contains(c)) {
-                rowDotProd++;
-            }
-        }
-
-        return rowDotProd;
+        return (int) this.listOfRows[r1].interSize(this.listOfRows[r2]);
     }
 
     /**
@@ -298,22 +280,7 @@ public class SparseMatrix {
      * @return number of entries that are not equal across the two rows
      */
     public int getNumEntriesNeq(int r1, int r2) {
-        final Set<Integer> row1NonzeroIndices = this.getNonzeroIndices(r1);
-        final Set<Integer> row2NonzeroIndices = this.getNonzeroIndices(r2);
-
-        int numEntriesNeq = 0;
-        for (int c : row1NonzeroIndices) {
-            if (!row2NonzeroIndices.contains(c)) {
-                numEntriesNeq++;
-            }
-        }
-        for (int c : row2NonzeroIndices) {
-            if (!row1NonzeroIndices.contains(c)) {
-                numEntriesNeq++;
-            }
-        }
-
-        return numEntriesNeq;
+        return this.getNumNonzeroIndices(r1) + this.getNumNonzeroIndices(r2) - 2 * this.getRowDotProd(r1, r2);
     }
     
     /**
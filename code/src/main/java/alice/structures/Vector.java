@@ -16,34 +16,108 @@ package alice.structures;
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.function.IntConsumer;
 
 /**
- * An implementation of a sparse 0-1 vector using a hash set. Any nonzero value
- * that is inserted into the vector is considered a 1.
+ * An implementation of a sparse 0-1 vector. Any nonzero value that is
+ * inserted into the vector is considered a 1.
+ * The indices are stored in a sorted array when they are few, in a bitset
+ * when they are dense, i.e., when the bitset takes less space than a hash
+ * set, in a sorted array again when they are sparse but not too many to be
+ * shifted at each update, and in a hash set otherwise. The container is
+ * chosen again when the vector is created or copied, and when an update
+ * makes the current one unsuitable.
+ * The indices are read without copies with {@link #forEachIndex} and
+ * {@link #getNthIndexNotIn}.
+ * A vector is updated by a single thread. Once it is no longer updated, it
+ * can be read by several threads, e.g., the rows of the observed matrix
+ * shared by the chains.
  */
 public class Vector {
 
     /**
-     * The set of indices in the vector. We only store the indices since this is
-     * a 0-1 vector.
+     * The maximum number of indices stored in a sorted array whatever their
+     * density.
      */
-    private final IntOpenHashSet indices;
-    
+    private static final int MAX_SORTED_SIZE = 32;
+
+    /**
+     * The maximum number of sparse indices stored in a sorted array, whose
+     * updates shift at most 16 KB.
+     */
+    private static final int MAX_SPARSE_SORTED_SIZE = 4096;
+
+    /**
+     * The number of bits of the bitset per index, above which the indices are
+     * too sparse for a bitset.
+     */
+    private static final int MAX_BITS_PER_INDEX = 32;
+
+    /**
+     * The type of container of the indices.
+     */
+    private enum Container {
+        SORTED, BITSET, HASH
+    }
+
+    private Container container;
+
+    /**
+     * The number of indices in the vector.
+     */
+    private int size;
+
+    /**
+     * The indices in increasing order in the first size positions, if the
+     * container is SORTED.
+     */
+    private int[] sorted;
+
+    /**
+     * The bitset of the indices, if the container is BITSET.
+     */
+    private long[] words;
+
+    /**
+     * The set of indices in the vector, if the container is HASH. We only
+     * store the indices since this is a 0-1 vector.
+     */
+    private IntOpenHashSet indices;
+
+    /**
+     * The hash set of the indices returned by getNonzeroIndices when the
+     * container is not HASH; null if not built since the last update. It is
+     * volatile so that a thread reading a shared vector only sees it fully
+     * built.
+     */
+    private volatile IntOpenHashSet view;
+
     /**
      * Initializes an empty vector.
      */
     public Vector() {
-        this.indices = new IntOpenHashSet();
+        this.container = Container.SORTED;
+        this.sorted = new int[4];
     }
-    
+
     /**
-     * 
+     *
      * @param indices positions where the vector is 1
      */
     public Vector(Collection<Integer> indices) {
-        this.indices = new IntOpenHashSet(indices);
+        final int[] array;
+        if (indices instanceof IntCollection) {
+            array = ((IntCollection) indices).toIntArray();
+        } else {
+            array = indices.stream().mapToInt(Integer::intValue).toArray();
+        }
+        Arrays.sort(array);
+        this.init(array);
     }
 
     /**
@@ -51,11 +125,56 @@ public class Vector {
      * @param array 1-0 positions of the vector
      */
     public Vector(int[] array) {
-        this();
+        final int[] nonzero = new int[array.length];
+        int numNonzero = 0;
         for (int i = 0; i < array.length; i++) {
             if (array[i] == 1) {
-                this.indices.add(i);
+                nonzero[numNonzero++] = i;
+            }
+        }
+        this.init(Arrays.copyOf(nonzero, numNonzero));
+    }
+
+    /**
+     *
+     * @param indices positions where the vector is 1, without duplicates
+     * @return a new vector with the given indices
+     */
+    public static Vector ofIndices(int[] indices) {
+        final int[] values = indices.clone();
+        Arrays.sort(values);
+        final Vector vector = new Vector();
+        vector.init(values);
+        return vector;
+    }
+
+    /**
+     * Stores the indices in the container that suits them.
+     *
+     * @param values the indices, sorted and without duplicates
+     */
+    private void init(int[] values) {
+        this.size = values.length;
+        this.sorted = null;
+        this.words = null;
+        this.indices = null;
+        this.view = null;
+        final int span = values.length == 0 ? 0 : values[values.length - 1] + 1;
+        if (values.length <= MAX_SORTED_SIZE) {
+            this.container = Container.SORTED;
+            this.sorted = values.length == 0 ? new int[4] : values;
+        } else if (span <= (long) MAX_BITS_PER_INDEX * values.length) {
+            this.container = Container.BITSET;
+            this.words = new long[(span + 63) >>> 6];
+            for (int v : values) {
+                this.words[v >>> 6] |= 1L << v;
             }
+        } else if (values.length <= MAX_SPARSE_SORTED_SIZE) {
+            this.container = Container.SORTED;
+            this.sorted = values;
+        } else {
+            this.container = Container.HASH;
+            this.indices = new IntOpenHashSet(values);
         }
     }
 
@@ -71,70 +190,431 @@ public class Vector {
             return false;
         }
         Vector otherVector = (Vector) o;
-        return this.indices.equals(otherVector.indices);
+        if (this.size != otherVector.size) {
+            return false;
+        }
+        if (this.container == Container.HASH && otherVector.container == Container.HASH) {
+            return this.indices.equals(otherVector.indices);
+        }
+        return this.interSize(otherVector) == this.size;
     }
 
+    /**
+     * The hash code is the sum of the indices, as for {@link IntOpenHashSet},
+     * so it does not depend on the container.
+     */
     @Override
     public int hashCode() {
-        return this.indices.hashCode();
+        int h = 0;
+        switch (this.container) {
+            case SORTED:
+                for (int i = 0; i < this.size; i++) {
+                    h += this.sorted[i];
+                }
+                return h;
+            case BITSET:
+                for (int w = 0; w < this.words.length; w++) {
+                    long word = this.words[w];
+                    while (word != 0) {
+                        h += (w << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+                return h;
+            default:
+                return this.indices.hashCode();
+        }
     }
 
     @Override
     public String toString() {
-        return this.indices.toString();
+        return this.getNonzeroIndices().toString();
     }
 
     public Vector copy() {
-        return new Vector(this.indices);
+        final int[] values = this.toIntArray();
+        if (this.container == Container.HASH) {
+            Arrays.sort(values);
+        }
+        final Vector copy = new Vector();
+        copy.init(values);
+        return copy;
     }
 
     /**
-     * 
+     *
      * @param index element id
      * @return 1 if the element is set in the vector; 0 otherwise
      */
     public int get(int index) {
-        return this.indices.contains(index) ? 1 : 0;
+        switch (this.container) {
+            case SORTED:
+                return Arrays.binarySearch(this.sorted, 0, this.size, index) >= 0 ? 1 : 0;
+            case BITSET:
+                return index >= 0 && (index >>> 6) < this.words.length
+                        && (this.words[index >>> 6] & (1L << index)) != 0 ? 1 : 0;
+            default:
+                return this.indices.contains(index) ? 1 : 0;
+        }
     }
 
     /**
      * If value is 0, the index is removed from the vector; otherwise it is inserted.
-     * 
+     *
      * @param index element id
      * @param value new value of the element
      */
     public void set(int index, int value) {
+        if ((this.get(index) == 1) == (value != 0)) {
+            return;
+        }
+        this.view = null;
         if (value == 0) {
-            this.indices.remove(index);
+            this.remove(index);
         } else {
-            this.indices.add(index);
+            this.add(index);
+        }
+    }
+
+    /**
+     * Inserts an index that is not in the vector.
+     *
+     * @param index element id
+     */
+    private void add(int index) {
+        switch (this.container) {
+            case SORTED:
+                if (this.size == MAX_SORTED_SIZE || this.size == MAX_SPARSE_SORTED_SIZE
+                        || this.size > MAX_SORTED_SIZE && Math.max(this.sorted[this.size - 1], index) + 1L
+                        <= (long) MAX_BITS_PER_INDEX * (this.size + 1)) {
+                    // the vector may need a bitset or a hash set
+                    final int[] values = Arrays.copyOf(this.sorted, this.size + 1);
+                    values[this.size] = index;
+                    Arrays.sort(values);
+                    this.init(values);
+                    return;
+                }
+                if (this.size == this.sorted.length) {
+                    this.sorted = Arrays.copyOf(this.sorted,
+                            Math.min(2 * this.sorted.length, MAX_SPARSE_SORTED_SIZE));
+                }
+                final int pos = -Arrays.binarySearch(this.sorted, 0, this.size, index) - 1;
+                System.arraycopy(this.sorted, pos, this.sorted, pos + 1, this.size - pos);
+                this.sorted[pos] = index;
+                break;
+            case BITSET:
+                if ((index >>> 6) >= this.words.length) {
+                    // twice the bits per index allowed when choosing the
+                    // container, so that the vector does not change container
+                    // at every update near the threshold
+                    if (index + 1L > 2L * MAX_BITS_PER_INDEX * (this.size + 1)) {
+                        // the index is larger than the others
+                        final int[] values = Arrays.copyOf(bitsetToArray(this.words, this.size), this.size + 1);
+                        values[this.size] = index;
+                        this.init(values);
+                        return;
+                    }
+                    this.words = Arrays.copyOf(this.words, Math.max((index >>> 6) + 1, 2 * this.words.length));
+                }
+                this.words[index >>> 6] |= 1L << index;
+                break;
+            default:
+                this.indices.add(index);
+        }
+        this.size++;
+    }
+
+    /**
+     * Removes an index that is in the vector.
+     *
+     * @param index element id
+     */
+    private void remove(int index) {
+        this.size--;
+        switch (this.container) {
+            case SORTED:
+                final int pos = Arrays.binarySearch(this.sorted, 0, this.size + 1, index);
+                System.arraycopy(this.sorted, pos + 1, this.sorted, pos, this.size - pos);
+                return;
+            case BITSET:
+                this.words[index >>> 6] &= ~(1L << index);
+                if (this.size <= MAX_SORTED_SIZE / 2) {
+                    this.init(this.toIntArray());
+                }
+                return;
+            default:
+                this.indices.remove(index);
+                if (this.size <= MAX_SPARSE_SORTED_SIZE / 2) {
+                    final int[] values = this.indices.toIntArray();
+                    Arrays.sort(values);
+                    this.init(values);
+                }
         }
     }
 
     /**
-     * 
+     * The returned set must not be modified. When the indices are not stored
+     * in a hash set, the set is built at the first call after each update.
+     * Loops that run after each update read the indices with
+     * {@link #forEachIndex} instead.
+     *
      * @return all the indices set in the vector
      */
     public IntOpenHashSet getNonzeroIndices() {
-        return this.indices;
+        if (this.container == Container.HASH) {
+            return this.indices;
+        }
+        IntOpenHashSet nonzero = this.view;
+        if (nonzero == null) {
+            // threads reading a shared vector may build it more than once
+            nonzero = new IntOpenHashSet(this.toIntArray());
+            this.view = nonzero;
+        }
+        return nonzero;
+    }
+
+    /**
+     *
+     * @return the indices set in the vector, in increasing order unless they
+     * are stored in a hash set
+     */
+    public int[] toIntArray() {
+        switch (this.container) {
+            case SORTED:
+                return Arrays.copyOf(this.sorted, this.size);
+            case BITSET:
+                return bitsetToArray(this.words, this.size);
+            default:
+                return this.indices.toIntArray();
+        }
+    }
+
+    /**
+     * Calls an action on each index set in the vector, in the order of
+     * toIntArray, without copying the indices. The action must not update
+     * the vector.
+     *
+     * @param action the action to call on each index
+     */
+    public void forEachIndex(IntConsumer action) {
+        switch (this.container) {
+            case SORTED:
+                for (int i = 0; i < this.size; i++) {
+                    action.accept(this.sorted[i]);
+                }
+                return;
+            case BITSET:
+                for (int w = 0; w < this.words.length; w++) {
+                    long word = this.words[w];
+                    while (word != 0) {
+                        action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+                return;
+            default:
+                this.indices.forEach(action);
+        }
+    }
+
+    /**
+     * Gets the i-th index of the difference of this vector and another one,
+     * without building the difference.
+     *
+     * @param other a vector
+     * @param i position, between 0 and the size of the difference
+     * @return the i-th index set in this vector and not in the other, in the
+     * order of toIntArray
+     */
+    public int getNthIndexNotIn(Vector other, int i) {
+        switch (this.container) {
+            case SORTED:
+                for (int j = 0; j < this.size; j++) {
+                    if (other.get(this.sorted[j]) == 0 && i-- == 0) {
+                        return this.sorted[j];
+                    }
+                }
+                break;
+            case BITSET:
+                for (int w = 0; w < this.words.length; w++) {
+                    long word = this.words[w];
+                    if (other.container == Container.BITSET) {
+                        if (w < other.words.length) {
+                            word &= ~other.words[w];
+                        }
+                        final int count = Long.bitCount(word);
+                        if (i >= count) {
+                            i -= count;
+                            continue;
+                        }
+                    }
+                    while (word != 0) {
+                        final int v = (w << 6) + Long.numberOfTrailingZeros(word);
+                        if (other.get(v) == 0 && i-- == 0) {
+                            return v;
+                        }
+                        word &= word - 1;
+                    }
+                }
+                break;
+            default:
+                final IntIterator it = this.indices.iterator();
+                while (it.hasNext()) {
+                    final int v = it.nextInt();
+                    if (other.get(v) == 0 && i-- == 0) {
+                        return v;
+                    }
+                }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     *
+     * @param i position, between 0 and the number of indices
+     * @return the i-th index set in the vector, in the order of toIntArray
+     */
+    public int getNthNonzeroIndex(int i) {
+        switch (this.container) {
+            case SORTED:
+                return this.sorted[i];
+            case BITSET:
+                for (int w = 0; w < this.words.length; w++) {
+                    final int count = Long.bitCount(this.words[w]);
+                    if (i < count) {
+                        long word = this.words[w];
+                        for (; i > 0; i--) {
+                            word &= word - 1;
+                        }
+                        return (w << 6) + Long.numberOfTrailingZeros(word);
+                    }
+                    i -= count;
+                }
+                throw new IndexOutOfBoundsException();
+            default:
+                final IntIterator it = this.indices.iterator();
+                it.skip(i);
+                return it.nextInt();
+        }
     }
 
     /**
-     * 
+     *
      * @return number of elements set in the vector
      */
     public int getNumNonzeroIndices() {
-        return this.indices.size();
+        return this.size;
     }
-    
+
     /**
-     * 
+     *
      * @param other a vector
      * @return number of elements in the intersection between the two vectors
      */
     public long interSize(Vector other) {
-        return this.indices.intStream()
-                .filter(i -> other.indices.contains(i))
-                .count();
+        if (this.container == Container.BITSET && other.container == Container.BITSET) {
+            long count = 0;
+            for (int w = Math.min(this.words.length, other.words.length) - 1; w >= 0; w--) {
+                count += Long.bitCount(this.words[w] & other.words[w]);
+            }
+            return count;
+        }
+        if (this.container == Container.SORTED && other.container == Container.SORTED) {
+            long count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < this.size && j < other.size) {
+                if (this.sorted[i] < other.sorted[j]) {
+                    i++;
+                } else if (this.sorted[i] > other.sorted[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+        // look up the indices of the smaller vector in the larger one
+        final Vector smaller = this.size <= other.size ? this : other;
+        final Vector larger = smaller == this ? other : this;
+        long count = 0;
+        switch (smaller.container) {
+            case SORTED:
+                for (int i = 0; i < smaller.size; i++) {
+                    count += larger.get(smaller.sorted[i]);
+                }
+                return count;
+            case BITSET:
+                for (int w = 0; w < smaller.words.length; w++) {
+                    long word = smaller.words[w];
+                    while (word != 0) {
+                        count += larger.get((w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+                return count;
+            default:
+                final IntIterator it = smaller.indices.iterator();
+                while (it.hasNext()) {
+                    count += larger.get(it.nextInt());
+                }
+                return count;
+        }
+    }
+
+    /**
+     *
+     * @param other a vector
+     * @return a new vector with the elements of this vector that are not in
+     * the other
+     */
+    public Vector difference(Vector other) {
+        final Vector difference = new Vector();
+        if (this.container == Container.BITSET && other.container == Container.BITSET) {
+            final long[] diffWords = this.words.clone();
+            for (int w = Math.min(diffWords.length, other.words.length) - 1; w >= 0; w--) {
+                diffWords[w] &= ~other.words[w];
+            }
+            int numValues = 0;
+            for (long word : diffWords) {
+                numValues += Long.bitCount(word);
+            }
+            difference.init(bitsetToArray(diffWords, numValues));
+            return difference;
+        }
+        final int[] values = this.toIntArray();
+        int numValues = 0;
+        for (int v : values) {
+            if (other.get(v) == 0) {
+                values[numValues++] = v;
+            }
+        }
+        final int[] diffValues = Arrays.copyOf(values, numValues);
+        if (this.container == Container.HASH) {
+            Arrays.sort(diffValues);
+        }
+        difference.init(diffValues);
+        return difference;
+    }
+
+    /**
+     *
+     * @param words a bitset
+     * @param numValues the number of bits set
+     * @return the positions of the bits set, in increasing order
+     */
+    private static int[] bitsetToArray(long[] words, int numValues) {
+        final int[] values = new int[numValues];
+        int k = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[k++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return values;
     }
 }
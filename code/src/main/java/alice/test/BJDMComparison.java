@@ -19,6 +19,7 @@ package alice.test;
 import alice.samplers.GmmtSampler;
 import alice.config.Paths;
 import alice.config.JsonKeys;
+import alice.utils.FastRandom;
 import alice.utils.JsonFile;
 import alice.config.Delimiters;
 import alice.samplers.BJDMSampler;
@@ -32,7 +33,6 @@ import alice.samplers.Sampler;
 import alice.utils.Transformer;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -66,8 +66,6 @@ public class BJDMComparison {
                         String.valueOf(Config.seed));
         final String resultPath = Paths.getJsonFilePath(Config.resultsDir, resultsBaseName);
         
-        final Random rnd = new Random(Config.seed);
-        
         final Transformer transformer = new Transformer();
         final SparseMatrix matrix = transformer.createMatrix(Config.datasetPath);
         
@@ -83,7 +81,7 @@ public class BJDMComparison {
             System.out.println(samplerName);
             
             for (int i = 0; i < Config.numSamples; i++) {
-                final long seed = rnd.nextLong();
+                final long seed = FastRandom.streamSeed(Config.seed, i);
                 final SampleTask sampleTask = new SampleTask(sampler,
                         matrix,
                         Config.numSwaps,
@@ -1,12 +1,15 @@
 package alice.test;
 
+import alice.helpers.SubgraphCountEstimator;
 import alice.structures.GmmtMatrix;
 import alice.structures.MultiGraph;
 import alice.structures.SparseMatrix;
 import alice.utils.CMDLineParser;
 import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.utils.Transformer;
 import java.io.IOException;
+import java.util.Random;
 
 /*
  * Copyright (C) 2023 Giulia Preti
@@ -26,7 +29,8 @@ import java.io.IOException;
  */
 
 /**
- * Class for finding the number of paths of length 3 in the graph representation of a dataset.
+ * Class for finding the number of paths of length 3 (and of butterflies for
+ * transactional datasets) in the graph representation of a dataset.
  */
 public class ComputeNumberOfCaterpillars {
     
@@ -51,24 +55,44 @@ public class ComputeNumberOfCaterpillars {
             "LEVIATHAN.txt",
             "BMS1Seq.txt"};
         
+        // each dataset has its own random stream
+        long numStreams = 0;
+
         for (String dataset : datasets) {
+            final Random rnd = new FastRandom(FastRandom.streamSeed(Config.seed, numStreams++));
 
             System.out.println("Finding number of caterpillars for dataset " + dataset + " at " + Config.datasetsDir);
 
             final Transformer transformer = new Transformer();
             final SparseMatrix matrix = transformer.createMatrix(Config.datasetsDir + "/" + dataset);
             final GmmtMatrix gmatrix = new GmmtMatrix(matrix);
-            System.out.println(gmatrix.getNumZstructs());
+            if (Config.approxRelError > 0) {
+                System.out.println(SubgraphCountEstimator.estimateCaterpillars(
+                        gmatrix.getRows(), gmatrix.getCols(),
+                        Config.approxRelError, Config.approxConfidence, Config.approxMaxSamples, rnd));
+                System.out.println("Number of butterflies: " + SubgraphCountEstimator.estimateButterflies(
+                        gmatrix.getRows(), gmatrix.getCols(),
+                        Config.approxRelError, Config.approxConfidence, Config.approxMaxSamples, rnd));
+            } else {
+                System.out.println(gmatrix.getNumZstructs());
+                System.out.println("Number of butterflies: " + gmatrix.getNumK22Cliques());
+            }
 
         }
         
         for (String dataset : seq_datasets) {
+            final Random rnd = new FastRandom(FastRandom.streamSeed(Config.seed, numStreams++));
 
             System.out.println("Finding number of caterpillars for dataset " + dataset);
 
             final Transformer transformer = new Transformer();
             final MultiGraph matrix = transformer.createMultiGraph(Config.datasetsDir + "/sequential/" + dataset);
-            System.out.println(matrix.getNumZstructs());
+            if (Config.approxRelError > 0) {
+                System.out.println(matrix.getApproxNumZstructs(
+                        Config.approxRelError, Config.approxConfidence, Config.approxMaxSamples, rnd));
+            } else {
+                System.out.println(matrix.getNumZstructs());
+            }
 
         }
     }
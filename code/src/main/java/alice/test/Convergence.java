@@ -17,6 +17,8 @@ package alice.test;
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
 import alice.structures.SparseMatrix;
+import alice.structures.BitsetColumnIndex;
+import alice.helpers.ItemsetSupportCounter;
 import alice.config.Paths;
 import alice.fpm.FreqItemsetMiner;
 import alice.config.JsonKeys;
@@ -27,6 +29,7 @@ import alice.samplers.BJDMSampler;
 import alice.structures.Matrix;
 import alice.utils.CMDLineParser;
 import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.samplers.Sampler;
 import alice.samplers.SelfLoopBJDMSampler;
 import alice.utils.Transformer;
@@ -36,11 +39,9 @@ import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
-import org.javatuples.Pair;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -72,7 +73,8 @@ public class Convergence {
         final int numOnes = new Matrix(realMatrix).getNumEdges();
         System.out.println(JsonKeys.numOnes + ": " + numOnes);
         
-        final Random rnd = new Random(Config.seed);
+        // each chain has its own random stream
+        long numChains = 0;
 
         final List<Double> numSwapsFactors = Lists.newArrayList();
         // use more granular factors at first
@@ -116,7 +118,7 @@ public class Convergence {
                 final long start = System.currentTimeMillis();
                 final SparseMatrix sample = sampler.sample(startMatrix,
                         numSwaps,
-                        rnd.nextLong(),
+                        FastRandom.streamSeed(Config.seed, numChains++),
                         timer);
                 final long end = System.currentTimeMillis() - start;
                 final long setupTime = timer.getSavedTime();
@@ -219,9 +221,20 @@ public class Convergence {
      */
     public static Map<IntOpenHashSet, Integer> getItemsetToSupMap(
             SparseMatrix sample, Transformer transformer, ObjectSet<IntOpenHashSet> freqItemsets) {
-        return freqItemsets.parallelStream().map(freqItemset -> 
-                new Pair<IntOpenHashSet, Integer>(freqItemset, getItemsetInSampleCount(sample, transformer.getItemToColIndex(), freqItemset)))
-                .collect(Collectors.toMap(e -> e.getValue0(),e -> e.getValue1()));
+        final IntOpenHashSet[] itemsets = freqItemsets.toArray(new IntOpenHashSet[0]);
+        final int[][] itemsetCols = new int[itemsets.length][];
+        for (int i = 0; i < itemsets.length; i++) {
+            itemsetCols[i] = itemsets[i].intStream()
+                    .map(item -> transformer.getItemToColIndex().get(item))
+                    .toArray();
+        }
+        final ItemsetSupportCounter counter = new ItemsetSupportCounter(new BitsetColumnIndex(sample));
+        final int[] sups = counter.getSupports(itemsetCols);
+        final Map<IntOpenHashSet, Integer> sampleItemsetToSup = new HashMap<>(2 * itemsets.length);
+        for (int i = 0; i < itemsets.length; i++) {
+            sampleItemsetToSup.put(itemsets[i], sups[i]);
+        }
+        return sampleItemsetToSup;
     }
     
     /**
@@ -21,6 +21,7 @@ import alice.config.JsonKeys;
 import alice.utils.JsonFile;
 import alice.config.Delimiters;
 import alice.samplers.AliceSSampler;
+import alice.samplers.CurveballSeqSampler;
 import alice.samplers.GmmtSeqSampler;
 import alice.samplers.SeqSampler;
 import alice.spm.FreqSequenceMiner;
@@ -28,6 +29,7 @@ import alice.spm.SequentialPattern;
 import alice.spm.SequentialPatterns;
 import alice.utils.CMDLineParser;
 import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.structures.MultiGraph;
 import alice.utils.Transformer;
 import alice.utils.Timer;
@@ -36,7 +38,6 @@ import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Random;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -51,7 +52,9 @@ public class ConvergenceSeq {
 
         CMDLineParser.parse(args);
 
-        final SeqSampler[] samplers = new SeqSampler[]{new AliceSSampler(), new GmmtSeqSampler()};
+        final SeqSampler[] samplers = Config.curveballSeq
+                ? new SeqSampler[]{new AliceSSampler(), new CurveballSeqSampler(), new GmmtSeqSampler()}
+                : new SeqSampler[]{new AliceSSampler(), new GmmtSeqSampler()};
 
         System.out.println("Executing convergence experiment for dataset at " + Config.datasetPath);
 
@@ -68,7 +71,8 @@ public class ConvergenceSeq {
         final int numOnes = realMatrix.getNumEdges();
         System.out.println(JsonKeys.numOnes + ": " + numOnes);
         
-        final Random rnd = new Random(Config.seed);
+        // each chain has its own random stream
+        long numChains = 0;
 
         final List<Double> numSwapsFactors = Lists.newArrayList();
         // use more granular factors at first
@@ -113,7 +117,7 @@ public class ConvergenceSeq {
                 final long start = System.currentTimeMillis();
                 final MultiGraph sample = sampler.sample(startMatrix,
                         numSwaps,
-                        rnd.nextLong(),
+                        FastRandom.streamSeed(Config.seed, numChains++),
                         timer);
                 final long end = System.currentTimeMillis() - start;
                 final long setupTime = timer.getSavedTime();
@@ -0,0 +1,305 @@
+package alice.test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import alice.config.Delimiters;
+import alice.config.JsonKeys;
+import alice.config.Paths;
+import alice.fpm.SampleAndMinePipeline;
+import alice.samplers.BJDMSampler;
+import alice.samplers.CurveballBJDMSampler;
+import alice.samplers.GmmtSampler;
+import alice.samplers.Sampler;
+import alice.structures.GmmtMatrix;
+import alice.structures.SparseMatrix;
+import alice.utils.CMDLineParser;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.JsonFile;
+import alice.utils.Transformer;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * This class runs the end-to-end scalability experiment, which measures the
+ * sample and mine pipeline of {@link alice.fpm.SigFreqItemsetMiner} over a
+ * grid of datasets, numbers of samples, and numbers of threads.
+ * For each point of the grid and each sampler, it records the time of each
+ * phase, the number of samples per second, the speedup over the smallest
+ * number of threads, the peak resident set size and heap, and the time spent
+ * in garbage collection.
+ * Every point of the grid samples the same datasets, so the speedups compare
+ * the same work.
+ */
+public class EndToEndScalability {
+
+    /**
+     * The file with the memory statistics of the process, on Linux.
+     */
+    private static final String procStatusPath = "/proc/self/status";
+
+    /**
+     * The file to reset the peak resident set size of the process, on Linux.
+     */
+    private static final String procClearRefsPath = "/proc/self/clear_refs";
+
+    public static void main(String[] args) {
+
+        CMDLineParser.parse(args);
+
+        final Sampler[] samplers = {
+            new GmmtSampler(),
+            new BJDMSampler(),
+            new CurveballBJDMSampler()
+        };
+        // the smallest number of threads is the baseline of the speedups
+        final int[] numThreadsGrid = Config.scalingNumThreads.clone();
+        Arrays.sort(numThreadsGrid);
+
+        final JSONArray scalingStats = new JSONArray();
+        for (String dataset : Config.scalingDatasets) {
+            final String datasetPath = Paths.concat(Config.datasetsDir, dataset);
+            System.out.println("Executing end-to-end scalability experiment for dataset at " + datasetPath);
+            for (Sampler sampler : samplers) {
+                for (int numSamples : Config.scalingNumSamples) {
+                    double baselineTime = 0;
+                    for (int numThreads : numThreadsGrid) {
+                        final JSONObject stats = run(datasetPath, sampler, numSamples, numThreads);
+                        final double sampleAndMineTime = stats.getDouble(JsonKeys.sampleAndMineTime);
+                        if (baselineTime == 0) {
+                            baselineTime = sampleAndMineTime;
+                        }
+                        final double speedup = baselineTime / sampleAndMineTime;
+                        stats.put(JsonKeys.speedup, speedup);
+                        System.out.println("\t\t" + JsonKeys.speedup + ": " + speedup);
+                        scalingStats.put(stats);
+                    }
+                }
+            }
+        }
+
+        // create object for args
+        final JSONObject argsObject = new JSONObject();
+        argsObject.put(JsonKeys.numSwaps, Config.numSwaps);
+        argsObject.put(JsonKeys.minFreq, Config.minFreq);
+        argsObject.put(JsonKeys.seed, Config.seed);
+        argsObject.put(JsonKeys.cleanup, Config.cleanup);
+        // create object for runInfo
+        final JSONObject runInfo = new JSONObject();
+        runInfo.put(JsonKeys.timestamp, LocalDateTime.now());
+        // create base object
+        final JSONObject results = new JSONObject();
+        results.put(JsonKeys.runInfo, runInfo);
+        results.put(JsonKeys.args, argsObject);
+        results.put(JsonKeys.scalingStats, scalingStats);
+
+        // save JSON
+        final String resultsBaseName = String.join(Delimiters.dash,
+                JsonKeys.scalingStats,
+                String.valueOf(Config.numSwaps),
+                String.valueOf(Config.seed));
+        final String resultsPath = Paths.getJsonFilePath(Config.resultsDir, resultsBaseName);
+        JsonFile.write(results, resultsPath);
+        System.out.println("Result written to " + resultsPath);
+    }
+
+    /**
+     * Samples and mines numSamples datasets with numThreads threads, as in
+     * the estimation of the p-values of {@link alice.fpm.SigFreqItemsetMiner}.
+     *
+     * @param datasetPath the path to the dataset
+     * @param sampler the sampler to use for sampling datasets
+     * @param numSamples the number of samples to obtain
+     * @param numThreads the number of threads
+     * @return the statistics of the run, except the speedup
+     */
+    private static JSONObject run(String datasetPath, Sampler sampler, int numSamples, int numThreads) {
+        final String samplerName = sampler.getClass().getName();
+        final Paths paths = new Paths(datasetPath, Paths.concat(Config.resultsDir, samplerName));
+        Paths.makeDir(paths.samplesPath);
+        Paths.makeDir(paths.freqItemsetsDirPath);
+
+        // start every run from a collected heap and fresh peaks
+        System.gc();
+        resetPeakRss();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        final long gcTimeStart = getGcTime();
+        final long gcCountStart = getGcCount();
+
+        final long createMatrixStart = System.nanoTime();
+        final Transformer transformer = new Transformer();
+        final SparseMatrix matrix = transformer.createMatrix(datasetPath);
+        long degree = 0;
+        if (sampler instanceof GmmtSampler) {
+            degree = new GmmtMatrix(matrix).getDegree();
+        }
+        final double createMatrixTime = (System.nanoTime() - createMatrixStart) / 1e6;
+
+        final long sampleAndMineStart = System.nanoTime();
+        final long[] seeds = new long[numSamples];
+        final String[] samplePaths = new String[numSamples];
+        final String[] freqItemsetsPaths = new String[numSamples];
+        for (int i = 0; i < numSamples; i++) {
+            seeds[i] = FastRandom.streamSeed(Config.seed, i);
+            samplePaths[i] = paths.getSamplePath(Paths.estTag, i);
+            freqItemsetsPaths[i] = paths.getFreqItemsetsPath(Paths.estTag, i);
+        }
+        final SampleAndMinePipeline pipeline
+                = new SampleAndMinePipeline(
+                        sampler,
+                        transformer,
+                        matrix,
+                        degree,
+                        Config.numSwaps,
+                        Config.minFreq,
+                        numThreads);
+        pipeline.sampleAndMine(seeds, samplePaths, freqItemsetsPaths);
+        pipeline.shutdown();
+        final double sampleAndMineTime = (System.nanoTime() - sampleAndMineStart) / 1e6;
+
+        final double throughput = numSamples / (sampleAndMineTime / 1e3);
+        final double peakRss = getPeakRss();
+        final double peakHeap = getPeakHeap();
+        final long gcTime = getGcTime() - gcTimeStart;
+        final long gcCount = getGcCount() - gcCountStart;
+
+        if (Config.cleanup) {
+            Paths.deleteDir(paths.samplesPath);
+            Paths.deleteDir(paths.freqItemsetsDirPath);
+        }
+
+        System.out.println("\t" + JsonKeys.sampler + ": " + samplerName);
+        System.out.println("\t\t" + JsonKeys.numSamples + ": " + numSamples);
+        System.out.println("\t\t" + JsonKeys.numThreads + ": " + numThreads);
+        System.out.println("\t\t" + JsonKeys.createMatrixTime + ": " + createMatrixTime);
+        System.out.println("\t\t" + JsonKeys.sampleAndMineTime + ": " + sampleAndMineTime);
+        System.out.println("\t\t" + JsonKeys.throughput + ": " + throughput);
+        System.out.println("\t\t" + JsonKeys.peakRss + ": " + peakRss);
+        System.out.println("\t\t" + JsonKeys.peakHeap + ": " + peakHeap);
+        System.out.println("\t\t" + JsonKeys.gcTime + ": " + gcTime);
+
+        // create object for the stats of the run
+        final JSONObject stats = new JSONObject();
+        stats.put(JsonKeys.datasetPath, datasetPath);
+        stats.put(JsonKeys.numTransactions, matrix.getNumRows());
+        stats.put(JsonKeys.sampler, samplerName);
+        stats.put(JsonKeys.numSamples, numSamples);
+        stats.put(JsonKeys.numThreads, numThreads);
+        stats.put(JsonKeys.createMatrixTime, createMatrixTime);
+        stats.put(JsonKeys.sampleAndMineTime, sampleAndMineTime);
+        stats.put(JsonKeys.numSamplerThreads, pipeline.getNumSamplerThreads());
+        stats.put(JsonKeys.numMinerThreads, pipeline.getNumMinerThreads());
+        stats.put(JsonKeys.sampleQueueCapacity, pipeline.getQueueCapacity());
+        stats.put(JsonKeys.maxNumActiveSamples, pipeline.getMaxNumActiveSamples());
+        // the phases of the samples overlap, so their times are summed over
+        // the samples
+        stats.put(JsonKeys.sampleTime, pipeline.getSampleTime() / 1e6);
+        stats.put(JsonKeys.createDatasetTime, pipeline.getCreateDatasetTime() / 1e6);
+        stats.put(JsonKeys.mineTime, pipeline.getMineTime() / 1e6);
+        stats.put(JsonKeys.throughput, throughput);
+        stats.put(JsonKeys.peakRss, peakRss);
+        stats.put(JsonKeys.peakHeap, peakHeap);
+        stats.put(JsonKeys.gcTime, gcTime);
+        stats.put(JsonKeys.gcCount, gcCount);
+        return stats;
+    }
+
+    /**
+     *
+     * @return the total time in ms spent in garbage collection by the JVM
+     */
+    private static long getGcTime() {
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            // -1 if the collector does not record it
+            gcTime += Math.max(0, gc.getCollectionTime());
+        }
+        return gcTime;
+    }
+
+    /**
+     *
+     * @return the total number of garbage collections of the JVM
+     */
+    private static long getGcCount() {
+        long gcCount = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+        }
+        return gcCount;
+    }
+
+    /**
+     *
+     * @return the sum of the peak usages in MB of the heap memory pools since
+     * their last reset
+     */
+    private static double getPeakHeap() {
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peakHeap / 1024d / 1024d;
+    }
+
+    /**
+     * Resets the peak resident set size of the process, if the system
+     * supports it.
+     */
+    private static void resetPeakRss() {
+        try (FileWriter fw = new FileWriter(procClearRefsPath)) {
+            fw.write("5");
+        } catch (IOException e) {
+            // the peak is then the one since the start of the process
+        }
+    }
+
+    /**
+     *
+     * @return the peak resident set size in MB of the process since its last
+     * reset; -1 if the system does not report it
+     */
+    private static double getPeakRss() {
+        try (BufferedReader br = new BufferedReader(new FileReader(procStatusPath))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    // the value is in kB
+                    final String[] parts = line.trim().split("\\s+");
+                    return Long.parseLong(parts[1]) / 1024d;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not on Linux
+        }
+        return -1;
+    }
+}
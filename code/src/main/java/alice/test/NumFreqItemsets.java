@@ -22,8 +22,10 @@ import alice.utils.JsonFile;
 import alice.config.Delimiters;
 import alice.samplers.CurveballBJDMSampler;
 import alice.samplers.BJDMSampler;
+import alice.utils.BatchedOutput;
 import alice.utils.CMDLineParser;
 import alice.utils.Config;
+import alice.utils.PatternsReader;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import alice.fpm.FreqItemsetMiner;
@@ -35,7 +37,6 @@ import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -200,7 +201,17 @@ public class NumFreqItemsets {
     public static Int2IntOpenHashMap getFreqItemsetLenToCountMap(File freqItemsetsFile) {
         final Int2IntOpenHashMap freqItemsetLenToCount = new Int2IntOpenHashMap();
         try {
-            final BufferedReader br = new BufferedReader(new FileReader(freqItemsetsFile.getPath()));
+            if (PatternsReader.isPatternsFile(freqItemsetsFile.getPath())) {
+                // the counts are in the header
+                final PatternsReader reader = new PatternsReader(freqItemsetsFile.getPath());
+                for (int freqItemsetLen = 1; freqItemsetLen <= reader.getMaxLength(); freqItemsetLen++) {
+                    if (reader.getCount(freqItemsetLen) > 0) {
+                        freqItemsetLenToCount.put(freqItemsetLen, reader.getCount(freqItemsetLen));
+                    }
+                }
+                return freqItemsetLenToCount;
+            }
+            final BufferedReader br = BatchedOutput.newReader(freqItemsetsFile.getPath());
             String line = br.readLine();
             while (line != null) {
                 final String freqItemsetString = line.split(Delimiters.sup)[0];
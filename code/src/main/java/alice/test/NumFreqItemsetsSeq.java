@@ -20,10 +20,13 @@ import alice.config.Paths;
 import alice.config.JsonKeys;
 import alice.utils.JsonFile;
 import alice.config.Delimiters;
+import alice.utils.BatchedOutput;
 import alice.utils.CMDLineParser;
 import alice.utils.Config;
+import alice.utils.PatternsReader;
 import alice.spm.SampleAndMinerSeq;
 import alice.samplers.AliceSSampler;
+import alice.samplers.CurveballSeqSampler;
 import alice.samplers.GmmtSeqSampler;
 import alice.samplers.SeqSampler;
 import alice.spm.FreqSequenceMiner;
@@ -34,7 +37,6 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -65,7 +67,9 @@ public class NumFreqItemsetsSeq {
                 = getFreqItemsetLenToCountMap(observedFreqItemsets);
         System.out.println(JsonKeys.freqItemsetLenToCount + ": " + observedFreqItemsetLenToCount);
         
-        final SeqSampler[] samplers = new SeqSampler[]{new AliceSSampler(), new GmmtSeqSampler()};
+        final SeqSampler[] samplers = Config.curveballSeq
+                ? new SeqSampler[]{new AliceSSampler(), new CurveballSeqSampler(), new GmmtSeqSampler()}
+                : new SeqSampler[]{new AliceSSampler(), new GmmtSeqSampler()};
 
         // create object for numFreqItemsetsStats
         final JSONArray numFreqItemsetsStats = new JSONArray();
@@ -194,7 +198,17 @@ public class NumFreqItemsetsSeq {
         final Int2IntOpenHashMap freqItemsetLenToCount = new Int2IntOpenHashMap();
         freqItemsetLenToCount.defaultReturnValue(0);
         try {
-            final BufferedReader br = new BufferedReader(new FileReader(freqItemsetsFile.getPath()));
+            if (PatternsReader.isPatternsFile(freqItemsetsFile.getPath())) {
+                // the counts are in the header
+                final PatternsReader reader = new PatternsReader(freqItemsetsFile.getPath());
+                for (int freqItemsetLen = 1; freqItemsetLen <= reader.getMaxLength(); freqItemsetLen++) {
+                    if (reader.getCount(freqItemsetLen) > 0) {
+                        freqItemsetLenToCount.put(freqItemsetLen, reader.getCount(freqItemsetLen));
+                    }
+                }
+                return freqItemsetLenToCount;
+            }
+            final BufferedReader br = BatchedOutput.newReader(freqItemsetsFile.getPath());
             String line = br.readLine();
             while (line != null) {
                 String[] tmp = line.trim().split(" #SUP: ");
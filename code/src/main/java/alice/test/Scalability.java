@@ -25,12 +25,12 @@ import alice.samplers.CurveballBJDMSampler;
 import alice.samplers.BJDMSampler;
 import alice.utils.CMDLineParser;
 import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.samplers.Sampler;
 import alice.utils.Timer;
 import alice.samplers.GmmtSampler;
 import alice.utils.Transformer;
 import java.time.LocalDateTime;
-import java.util.Random;
 import org.json.JSONObject;
 
 /**
@@ -53,7 +53,8 @@ public class Scalability {
 
         final Transformer transformer = new Transformer();
         final SparseMatrix matrix = transformer.createMatrix(Config.datasetPath);
-        final Random rnd = new Random(Config.seed);
+        // each chain has its own random stream
+        long numChains = 0;
 
         // create object for runtimeStats
         final JSONObject runtimeStats = new JSONObject();
@@ -61,7 +62,7 @@ public class Scalability {
             
             final String samplerName = sampler.getClass().getName();
             final Timer timer = new Timer(true);
-            sampler.sample(matrix, Config.numSwaps, rnd.nextLong(), timer);
+            sampler.sample(matrix, Config.numSwaps, FastRandom.streamSeed(Config.seed, numChains++), timer);
 
             final long setupTime = timer.getSavedTime();
             final double minStepTime = timer.getMin();
@@ -93,6 +94,12 @@ public class Scalability {
             samplerRuntimeStats.put(JsonKeys.c90StepTime, c90StepTime);
             samplerRuntimeStats.put(JsonKeys.maxStepTime, maxStepTime);
 
+            if (sampler instanceof GmmtSampler) {
+                final long numRetries = ((GmmtSampler) sampler).getNumRetries();
+                System.out.println("\t\t" + JsonKeys.numRetries + ": " + numRetries);
+                samplerRuntimeStats.put(JsonKeys.numRetries, numRetries);
+            }
+
             runtimeStats.put(samplerName, samplerRuntimeStats);
         }
 
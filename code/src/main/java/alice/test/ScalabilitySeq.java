@@ -21,8 +21,10 @@ import alice.utils.JsonFile;
 import alice.config.Delimiters;
 import alice.config.JsonKeys;
 import alice.samplers.AliceSSampler;
+import alice.samplers.CurveballSeqSampler;
 import alice.utils.CMDLineParser;
 import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.utils.Timer;
 import alice.samplers.GmmtSeqSampler;
 import alice.samplers.SeqSampler;
@@ -30,7 +32,6 @@ import alice.structures.MultiGraph;
 import alice.utils.Transformer;
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.Random;
 import org.json.JSONObject;
 
 /**
@@ -43,13 +44,16 @@ public class ScalabilitySeq {
         
         CMDLineParser.parse(args);
         
-        final SeqSampler[] samplers = new SeqSampler[]{new AliceSSampler(), new GmmtSeqSampler()};
+        final SeqSampler[] samplers = Config.curveballSeq
+                ? new SeqSampler[]{new AliceSSampler(), new CurveballSeqSampler(), new GmmtSeqSampler()}
+                : new SeqSampler[]{new AliceSSampler(), new GmmtSeqSampler()};
 
         System.out.println("Executing runtime experiment for dataset at " + Config.datasetPath);
 
         final Transformer transformer = new Transformer();
         final MultiGraph matrix = transformer.createMultiGraph(Config.datasetPath);
-        final Random rnd = new Random(Config.seed);
+        // each chain has its own random stream
+        long numChains = 0;
 
         // create object for runtimeStats
         final JSONObject runtimeStats = new JSONObject();
@@ -57,7 +61,7 @@ public class ScalabilitySeq {
             
             final String samplerName = sampler.getClass().getName();
             final Timer timer = new Timer(true);
-            sampler.sample(matrix, Config.numSwaps, rnd.nextLong(), timer);
+            sampler.sample(matrix, Config.numSwaps, FastRandom.streamSeed(Config.seed, numChains++), timer);
 
             final long setupTime = timer.getSavedTime();
             final double minStepTime = timer.getMin();
@@ -0,0 +1,264 @@
+package alice.utils;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import com.sun.management.GcInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * A class to limit the number of tasks that run at once so that their memory
+ * fits in a heap budget.
+ * The footprint of a task is first estimated from the dimensions of the
+ * matrix, and then from the live heap measured after the garbage
+ * collections, i.e., the heap used by the tasks and by the data shared by
+ * them, divided by the number of running tasks.
+ * A task waits in {@link #acquire()} while the running tasks and the new
+ * one would not fit in the budget; a task runs in any case if no other task
+ * is running, so that the tasks always progress.
+ */
+public class AdmissionController {
+
+    /**
+     * The estimated bytes of a task for each one in the matrix, for the edges
+     * of the state of the chain and the sampled matrix.
+     */
+    private static final long bytesPerOne = 64;
+
+    /**
+     * The estimated bytes of a task for each row of the matrix, for the rows
+     * of the state of the chain and the map of its equal rows.
+     */
+    private static final long bytesPerRow = 96;
+
+    /**
+     * The estimated bytes of a task for each column of the matrix.
+     */
+    private static final long bytesPerCol = 48;
+
+    /**
+     * The weight of a new measure of the footprint in its moving average.
+     */
+    private static final double measureWeight = 0.5;
+
+    /**
+     * The bytes of heap the tasks can use.
+     */
+    private final long budget;
+
+    /**
+     * The maximum number of tasks that run at once.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * The live heap in bytes before the tasks.
+     */
+    private final long baseline;
+
+    /**
+     * The estimated bytes of a task.
+     */
+    private double footprint;
+
+    /**
+     * The number of running tasks.
+     */
+    private int numActive = 0;
+
+    /**
+     * The largest number of tasks that ran at once.
+     */
+    private int maxNumActive = 0;
+
+    /**
+     * The number of collections of the heap when the footprint was last
+     * measured.
+     */
+    private long lastNumCollections;
+
+    /**
+     * Creates a controller with the budget in {@link Config}, which measures
+     * the live heap of the JVM.
+     *
+     * @param maxConcurrency the maximum number of tasks that run at once
+     * @param footprint the initial estimate of the bytes of a task
+     */
+    public AdmissionController(int maxConcurrency, long footprint) {
+        this(getBudget(), maxConcurrency, footprint, getLiveHeap());
+    }
+
+    /**
+     *
+     * @param budget the bytes of heap the tasks and the data shared by them
+     * can use
+     * @param maxConcurrency the maximum number of tasks that run at once
+     * @param footprint the initial estimate of the bytes of a task
+     * @param baseline the live heap in bytes before the tasks
+     */
+    public AdmissionController(long budget, int maxConcurrency, long footprint, long baseline) {
+        if (maxConcurrency < 1 || footprint < 1) {
+            throw new IllegalArgumentException("The concurrency and the footprint must be positive");
+        }
+        this.budget = budget;
+        this.maxConcurrency = maxConcurrency;
+        this.footprint = footprint;
+        this.baseline = baseline;
+        this.lastNumCollections = getNumCollections();
+    }
+
+    /**
+     * Estimates the bytes of a task that samples and mines a matrix, before
+     * any measure.
+     *
+     * @param numRows the number of rows of the matrix
+     * @param numCols the number of columns of the matrix
+     * @param numOnes the number of ones in the matrix
+     * @return the estimated bytes of a task
+     */
+    public static long estimateFootprint(int numRows, int numCols, long numOnes) {
+        return bytesPerOne * numOnes + bytesPerRow * numRows + bytesPerCol * numCols;
+    }
+
+    /**
+     * Waits until the task fits in the budget, and then counts it as running.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (this.numActive > 0 && this.numActive >= this.getLimit()) {
+            this.wait();
+        }
+        this.numActive++;
+        this.maxNumActive = Math.max(this.maxNumActive, this.numActive);
+    }
+
+    /**
+     * Counts a task as done, updating the footprint if the heap was
+     * collected since the last update.
+     */
+    public void release() {
+        final long numCollections = getNumCollections();
+        synchronized (this) {
+            if (numCollections != this.lastNumCollections) {
+                this.lastNumCollections = numCollections;
+                this.release(getLiveHeap());
+            } else {
+                this.release(-1);
+            }
+        }
+    }
+
+    /**
+     * Counts a task as done, updating the footprint with the live heap
+     * measured while it was running.
+     *
+     * @param liveHeap the live heap in bytes measured while the task was
+     * running; negative if not measured
+     */
+    public synchronized void release(long liveHeap) {
+        if (this.numActive < 1) {
+            throw new IllegalStateException("No task is running");
+        }
+        if (liveHeap > this.baseline) {
+            final double measure = (double) (liveHeap - this.baseline) / this.numActive;
+            this.footprint = (1 - measureWeight) * this.footprint + measureWeight * measure;
+        }
+        this.numActive--;
+        this.notifyAll();
+    }
+
+    /**
+     *
+     * @return the number of tasks that fit in the budget, between 1 and the
+     * maximum concurrency
+     */
+    public synchronized int getLimit() {
+        final double fits = (this.budget - this.baseline) / Math.max(1, this.footprint);
+        return (int) Math.max(1, Math.min(this.maxConcurrency, fits));
+    }
+
+    /**
+     *
+     * @return the estimated bytes of a task
+     */
+    public synchronized long getFootprint() {
+        return (long) this.footprint;
+    }
+
+    /**
+     *
+     * @return the largest number of tasks that ran at once
+     */
+    public synchronized int getMaxNumActive() {
+        return this.maxNumActive;
+    }
+
+    /**
+     *
+     * @return the bytes of heap in the budget of {@link Config}
+     */
+    private static long getBudget() {
+        final long maxHeap = Runtime.getRuntime().maxMemory();
+        if (Config.heapBudget > 0) {
+            return Math.min(maxHeap, (long) (Config.heapBudget * 1024 * 1024));
+        }
+        return (long) (Config.heapBudgetFraction * maxHeap);
+    }
+
+    /**
+     *
+     * @return the bytes used in the heap right after the last collection, or
+     * the bytes used now if the heap was not collected yet
+     */
+    private static long getLiveHeap() {
+        GcInfo lastGcInfo = null;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof com.sun.management.GarbageCollectorMXBean) {
+                final GcInfo gcInfo = ((com.sun.management.GarbageCollectorMXBean) gc).getLastGcInfo();
+                if (gcInfo != null && (lastGcInfo == null || gcInfo.getEndTime() > lastGcInfo.getEndTime())) {
+                    lastGcInfo = gcInfo;
+                }
+            }
+        }
+        long liveHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                final MemoryUsage usage = lastGcInfo == null
+                        ? null
+                        : lastGcInfo.getMemoryUsageAfterGc().get(pool.getName());
+                liveHeap += usage != null ? usage.getUsed() : pool.getUsage().getUsed();
+            }
+        }
+        return liveHeap;
+    }
+
+    /**
+     *
+     * @return the number of collections of the heap
+     */
+    private static long getNumCollections() {
+        long numCollections = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            numCollections += Math.max(0, gc.getCollectionCount());
+        }
+        return numCollections;
+    }
+}
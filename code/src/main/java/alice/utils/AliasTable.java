@@ -0,0 +1,116 @@
+package alice.utils;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.util.Random;
+
+/**
+ * Walker's alias table, built with Vose's method, to sample an index
+ * proportionally to a fixed vector of non-negative weights in constant time:
+ * a slot is picked uniformly at random and then either the slot itself or its
+ * alias is returned, depending on the probability stored in the slot.
+ */
+public class AliasTable {
+
+    /**
+     * The probability of returning the slot instead of its alias.
+     */
+    private final double[] prob;
+
+    /**
+     * The alias of each slot.
+     */
+    private final int[] alias;
+
+    /**
+     * Builds the alias table of the weights.
+     *
+     * @param weights non-negative weights, not all zero
+     */
+    public AliasTable(double[] weights) {
+        final int n = weights.length;
+        double total = 0;
+        for (double w : weights) {
+            if (w < 0 || Double.isNaN(w)) {
+                throw new IllegalArgumentException("weights must be non-negative");
+            }
+            total += w;
+        }
+        if (n == 0 || total <= 0) {
+            throw new IllegalArgumentException("at least one weight must be positive");
+        }
+        this.prob = new double[n];
+        this.alias = new int[n];
+
+        // scaled weights, with average 1
+        final double[] scaled = new double[n];
+        // the slots below and above the average, used as two stacks
+        final int[] small = new int[n];
+        final int[] large = new int[n];
+        int numSmall = 0;
+        int numLarge = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1) {
+                small[numSmall++] = i;
+            } else {
+                large[numLarge++] = i;
+            }
+        }
+        while (numSmall > 0 && numLarge > 0) {
+            final int s = small[--numSmall];
+            final int l = large[--numLarge];
+            this.prob[s] = scaled[s];
+            this.alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1;
+            if (scaled[l] < 1) {
+                small[numSmall++] = l;
+            } else {
+                large[numLarge++] = l;
+            }
+        }
+        // the remaining slots are full, up to rounding errors
+        while (numLarge > 0) {
+            final int l = large[--numLarge];
+            this.prob[l] = 1;
+            this.alias[l] = l;
+        }
+        while (numSmall > 0) {
+            final int s = small[--numSmall];
+            this.prob[s] = 1;
+            this.alias[s] = s;
+        }
+    }
+
+    /**
+     *
+     * @return number of indices in the table
+     */
+    public int size() {
+        return this.prob.length;
+    }
+
+    /**
+     *
+     * @param rnd a Random instance
+     * @return an index sampled proportionally to its weight
+     */
+    public int sample(Random rnd) {
+        final int i = rnd.nextInt(this.prob.length);
+        return rnd.nextDouble() < this.prob[i] ? i : this.alias[i];
+    }
+}
@@ -0,0 +1,384 @@
+package alice.utils;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A text file written in batches by a pool of writer threads shared by all
+ * the files.
+ * The caller formats the integers and the text straight into a large direct
+ * {@link ByteBuffer}, which is handed to the pool once full and written to a
+ * {@link FileChannel}, optionally through GZIP, while the caller fills the
+ * next one.
+ * The batches of a file are written in order, and at most
+ * {@link #maxPendingBuffers} of them wait for the pool, so that a fast caller
+ * waits for the disk instead of filling the heap.
+ * The files written with compression are read by {@link #newReader}, which
+ * recognizes them.
+ */
+public class BatchedOutput implements Closeable {
+
+    /**
+     * The maximum number of full buffers of a file waiting to be written.
+     */
+    private static final int maxPendingBuffers = 4;
+
+    /**
+     * The bytes of the chunks copied from a direct buffer to the GZIP stream.
+     */
+    private static final int chunkSize = 1 << 16;
+
+    /**
+     * The largest number of bytes of an int in decimal, i.e., of
+     * Integer.MIN_VALUE.
+     */
+    private static final int maxIntLength = 11;
+
+    /**
+     * The two bytes that start a GZIP file.
+     */
+    private static final int gzipMagic = 0x8b1f;
+
+    /**
+     * The threads that write the buffers of all the files.
+     */
+    private static final ExecutorService writers = Executors.newFixedThreadPool(
+            Math.max(1, Config.numWriterThreads),
+            runnable -> {
+                final Thread thread = new Thread(runnable, "batched-output-writer");
+                // the writes of a file are waited for by its close
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * The buffers that were written and can be filled again.
+     */
+    private static final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The path of the file.
+     */
+    private final String path;
+
+    /**
+     * The channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The GZIP stream over the channel; null if the file is not compressed.
+     */
+    private final OutputStream gzip;
+
+    /**
+     * The chunk used to copy a direct buffer to the GZIP stream.
+     */
+    private final byte[] chunk;
+
+    /**
+     * The digits of the int being formatted, from the last one.
+     */
+    private final byte[] digits = new byte[maxIntLength];
+
+    /**
+     * The writes of the full buffers, in order.
+     */
+    private final ArrayDeque<CompletableFuture<Void>> pending = new ArrayDeque<>();
+
+    /**
+     * The last write of a buffer of the file.
+     */
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+
+    /**
+     * The buffer being filled.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Creates the file, compressed if so set in {@link Config}.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file cannot be created
+     */
+    public BatchedOutput(String path) throws IOException {
+        this(path, Config.outputCompression);
+    }
+
+    /**
+     *
+     * @param path the path of the file
+     * @param compress whether to compress the file with GZIP
+     * @throws IOException if the file cannot be created
+     */
+    public BatchedOutput(String path, boolean compress) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.gzip = compress ? new GZIPOutputStream(Channels.newOutputStream(this.channel), chunkSize) : null;
+        this.chunk = compress ? new byte[chunkSize] : null;
+        this.buffer = acquireBuffer();
+    }
+
+    /**
+     * Opens a text file written by a BatchedOutput, or by any other writer,
+     * decompressing it if it starts as a GZIP file.
+     *
+     * @param path the path of the file
+     * @return a reader of the text of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static BufferedReader newReader(String path) throws IOException {
+        return new BufferedReader(new InputStreamReader(newInputStream(path), StandardCharsets.US_ASCII), chunkSize);
+    }
+
+    /**
+     * Opens a file written by a BatchedOutput, or by any other writer,
+     * decompressing it if it starts as a GZIP file.
+     *
+     * @param path the path of the file
+     * @return a stream of the bytes of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream newInputStream(String path) throws IOException {
+        final InputStream in = new BufferedInputStream(
+                Files.newInputStream(Paths.get(path)), chunkSize);
+        in.mark(2);
+        final int magic = in.read() | (in.read() << 8);
+        in.reset();
+        return isCompressed(magic) ? new GZIPInputStream(in, chunkSize) : in;
+    }
+
+    /**
+     *
+     * @param firstBytes the first two bytes of a file, the first one in the
+     * lowest byte
+     * @return whether the file is compressed with GZIP
+     */
+    public static boolean isCompressed(int firstBytes) {
+        return firstBytes == gzipMagic;
+    }
+
+    /**
+     *
+     * @return an empty buffer
+     */
+    private static ByteBuffer acquireBuffer() {
+        final int capacity = Math.max(chunkSize, Config.outputBufferSize);
+        final ByteBuffer free = freeBuffers.poll();
+        if (free != null && free.capacity() == capacity) {
+            free.clear();
+            return free;
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Makes sure that the buffer has room for some bytes, handing it to the
+     * writers if it has not.
+     *
+     * @param numBytes the number of bytes, at most the capacity of a buffer
+     */
+    private void ensureRemaining(int numBytes) {
+        if (this.buffer.remaining() < numBytes) {
+            this.submit();
+            this.buffer = acquireBuffer();
+        }
+    }
+
+    /**
+     * Hands the buffer to the writers, after the previous buffers.
+     */
+    private void submit() {
+        final ByteBuffer full = this.buffer;
+        full.flip();
+        while (this.pending.size() >= maxPendingBuffers) {
+            this.pending.poll().join();
+        }
+        this.lastWrite = this.lastWrite.thenRunAsync(() -> this.write(full), writers);
+        this.pending.add(this.lastWrite);
+        this.buffer = null;
+    }
+
+    /**
+     * Writes a buffer to the file and frees it; runs in a writer thread.
+     *
+     * @param full the buffer to write
+     */
+    private void write(ByteBuffer full) {
+        try {
+            if (this.gzip == null) {
+                while (full.hasRemaining()) {
+                    this.channel.write(full);
+                }
+            } else {
+                while (full.hasRemaining()) {
+                    final int length = Math.min(this.chunk.length, full.remaining());
+                    full.get(this.chunk, 0, length);
+                    this.gzip.write(this.chunk, 0, length);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing to " + this.path, e);
+        }
+        freeBuffers.offer(full);
+    }
+
+    /**
+     * Appends a byte.
+     *
+     * @param b the byte
+     */
+    public void writeByte(int b) {
+        this.ensureRemaining(1);
+        this.buffer.put((byte) b);
+    }
+
+    /**
+     * Appends the decimal digits of an int, without creating any String.
+     *
+     * @param value the int
+     */
+    public void writeInt(int value) {
+        this.ensureRemaining(maxIntLength);
+        // negative values hold Integer.MIN_VALUE
+        int negative = value < 0 ? value : -value;
+        int length = 0;
+        do {
+            this.digits[length++] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        } while (negative != 0);
+        if (value < 0) {
+            this.buffer.put((byte) '-');
+        }
+        while (length > 0) {
+            this.buffer.put(this.digits[--length]);
+        }
+    }
+
+    /**
+     * Appends some bytes.
+     *
+     * @param bytes the bytes
+     */
+    public void write(byte[] bytes) {
+        this.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Appends a range of some bytes.
+     *
+     * @param bytes the bytes
+     * @param offset the index of the first byte of the range
+     * @param length the number of bytes in the range
+     */
+    public void write(byte[] bytes, int offset, int length) {
+        final int end = offset + length;
+        while (offset < end) {
+            this.ensureRemaining(1);
+            final int numBytes = Math.min(this.buffer.remaining(), end - offset);
+            this.buffer.put(bytes, offset, numBytes);
+            offset += numBytes;
+        }
+    }
+
+    /**
+     * Appends some ASCII text.
+     *
+     * @param text the text
+     */
+    public void write(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            this.writeByte(text.charAt(i));
+        }
+    }
+
+    /**
+     * Ends the line.
+     */
+    public void newLine() {
+        this.writeByte('\n');
+    }
+
+    /**
+     * Hands the last buffer to the writers, and closes the file once all the
+     * buffers are written, without waiting for them.
+     *
+     * @return a future completed once the file is closed, or exceptionally if
+     * a write failed
+     */
+    public CompletableFuture<Void> closeAsync() {
+        this.submit();
+        this.pending.clear();
+        final CompletableFuture<Void> closed = this.lastWrite.whenCompleteAsync((v, e) -> {
+            try {
+                if (this.gzip != null) {
+                    this.gzip.close();
+                }
+                this.channel.close();
+            } catch (IOException ce) {
+                throw new UncheckedIOException("Error closing " + this.path, ce);
+            }
+        }, writers);
+        this.lastWrite = closed;
+        return closed;
+    }
+
+    /**
+     * Writes the last buffer and closes the file, waiting for all the
+     * buffers to be written.
+     *
+     * @throws IOException if a write failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.closeAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+}
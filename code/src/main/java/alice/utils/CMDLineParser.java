@@ -16,6 +16,8 @@ package alice.utils;
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
+import alice.config.Delimiters;
+
 /**
  * Methods to parse and store the arguments passed at runtime.
  */
@@ -51,8 +53,50 @@ public class CMDLineParser {
             Config.numEstSamples = Integer.parseInt(value);
         } else if (key.compareToIgnoreCase("numWySamples") == 0) {
             Config.numWySamples = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("bjdmInterval") == 0) {
+            Config.bjdmInterval = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("approxRelError") == 0) {
+            Config.approxRelError = Double.parseDouble(value);
+        } else if (key.compareToIgnoreCase("approxConfidence") == 0) {
+            Config.approxConfidence = Double.parseDouble(value);
+        } else if (key.compareToIgnoreCase("approxMaxSamples") == 0) {
+            Config.approxMaxSamples = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("gmmtIndexMaxValidFraction") == 0) {
+            Config.gmmtIndexMaxValidFraction = Double.parseDouble(value);
+        } else if (key.compareToIgnoreCase("gmmtIndexMaxRows") == 0) {
+            Config.gmmtIndexMaxRows = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("timerSampleInterval") == 0) {
+            Config.timerSampleInterval = Integer.parseInt(value);
         } else if (key.compareToIgnoreCase("numThreads") == 0) {
             Config.numThreads = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("numSamplerThreads") == 0) {
+            Config.numSamplerThreads = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("numMinerThreads") == 0) {
+            Config.numMinerThreads = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("sampleQueueCapacity") == 0) {
+            Config.sampleQueueCapacity = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("heapBudget") == 0) {
+            Config.heapBudget = Double.parseDouble(value);
+        } else if (key.compareToIgnoreCase("heapBudgetFraction") == 0) {
+            Config.heapBudgetFraction = Double.parseDouble(value);
+        } else if (key.compareToIgnoreCase("numWriterThreads") == 0) {
+            Config.numWriterThreads = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("outputBufferSize") == 0) {
+            Config.outputBufferSize = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("outputCompression") == 0) {
+            Config.outputCompression = Boolean.valueOf(value);
+        } else if (key.compareToIgnoreCase("binaryPatterns") == 0) {
+            Config.binaryPatterns = Boolean.valueOf(value);
+        } else if (key.compareToIgnoreCase("patternsRunSize") == 0) {
+            Config.patternsRunSize = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("maxExceedances") == 0) {
+            Config.maxExceedances = Integer.parseInt(value);
+        } else if (key.compareToIgnoreCase("scalingNumThreads") == 0) {
+            Config.scalingNumThreads = parseIntList(value);
+        } else if (key.compareToIgnoreCase("scalingNumSamples") == 0) {
+            Config.scalingNumSamples = parseIntList(value);
+        } else if (key.compareToIgnoreCase("scalingDatasets") == 0) {
+            Config.scalingDatasets = value.split(Delimiters.comma);
         } else if (key.compareToIgnoreCase("minFreq") == 0) {
             Config.minFreq = Double.parseDouble(value);
         } else if (key.compareToIgnoreCase("fwer") == 0) {
@@ -61,9 +105,20 @@ public class CMDLineParser {
             Config.seed = Long.parseLong(value);
         } else if (key.compareToIgnoreCase("sampleAndMine") == 0) {
             Config.sampleAndMine = Boolean.valueOf(value);
+        } else if (key.compareToIgnoreCase("curveballSeq") == 0) {
+            Config.curveballSeq = Boolean.valueOf(value);
         } else if (key.compareToIgnoreCase("cleanup") == 0) {
             Config.cleanup = Boolean.valueOf(value);
         }
     }
+
+    private static int[] parseIntList(String value) {
+        final String[] parts = value.split(Delimiters.comma);
+        final int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
     
 }
@@ -39,13 +39,71 @@ public class Config {
     public static double minFreq = 3.0E-4;
     // family wise error rate
     public static double fwer = 0.05;
+    // number of swaps between two consecutive BJDM distance measurements;
+    // the distance is kept up to date at each swap, so a measurement only
+    // reads it
+    public static int bjdmInterval = 1;
+    // target relative error of the estimated number of caterpillars and
+    // butterflies; 0 to compute the exact numbers
+    public static double approxRelError = 0;
+    // confidence of the error bars of the estimates
+    public static double approxConfidence = 0.95;
+    // maximum number of samples used for each estimate
+    public static int approxMaxSamples = 1000000;
+    // maximum fraction of swappable pairs of edges for which GMMT samples
+    // them with an index of the overlaps of the rows instead of by rejection
+    public static double gmmtIndexMaxValidFraction = 0.01;
+    // maximum number of rows for which GMMT builds the index, whose
+    // overlaps take 4 * gmmtIndexMaxRows^2 bytes
+    public static int gmmtIndexMaxRows = 1024;
+    // number of steps between two steps measured by a Timer
+    public static int timerSampleInterval = 1;
     // number of threads
     public static int numThreads = 10;
+    // numbers of threads that sample and that mine the datasets, and maximum
+    // number of sampled datasets waiting to be mined; 0 to split numThreads
+    // threads between sampling and mining, and to let a single sampled
+    // dataset wait
+    public static int numSamplerThreads = 0;
+    public static int numMinerThreads = 0;
+    public static int sampleQueueCapacity = 0;
+    // MB of heap the concurrent sampled datasets can use; 0 to use
+    // heapBudgetFraction of the maximum heap
+    public static double heapBudget = 0;
+    public static double heapBudgetFraction = 0.8;
+    // number of threads that write the sampled datasets and the mined
+    // patterns, bytes of each of their buffers, and whether to compress them
+    public static int numWriterThreads = 2;
+    public static int outputBufferSize = 1 << 20;
+    public static boolean outputCompression = false;
+    // whether to write the mined frequent itemsets and sequential patterns in
+    // the binary format of PatternsWriter, rather than as the SPMF text that
+    // existing scripts parse
+    public static boolean binaryPatterns = false;
+    // number of items a writer of binary patterns buffers before it sorts
+    // them and spills them to a temporary run, merged when the file is closed
+    public static int patternsRunSize = 1 << 22;
+    // number of exceedances after which the p-value of a frequent itemset is
+    // estimated sequentially and the est samples stop once every observed
+    // frequent itemset is resolved; 0 to use all the est samples
+    public static int maxExceedances = 0;
+    // numbers of threads, numbers of samples, and datasets in the grid of the
+    // EndToEndScalability experiment
+    public static int[] scalingNumThreads = {1, 2, 4, 8};
+    public static int[] scalingNumSamples = {16, 64};
+    public static String[] scalingDatasets = {
+        "synthetic-5-25-0.1.txt",
+        "synthetic-10-25-0.1.txt",
+        "synthetic-20-25-0.1.txt",
+        "synthetic-40-25-0.1.txt"};
     // seed for reproducibility
     public static long seed = 10;
     // whether to sample random datasets and mine their frequent itemsets,
     // in the NumFreqItemsets experiment
     public static boolean sampleAndMine = true;
+    // whether the ConvergenceSeq, NumFreqItemsetsSeq, and ScalabilitySeq
+    // experiments also run ALICE-S-B, the Curveball variant of ALICE-S
+    public static boolean curveballSeq = false;
     // whether to cleanup the sampled matrices and frequent itemsets
     public static boolean cleanup = true;  
     
@@ -0,0 +1,142 @@
+package alice.utils;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.util.Random;
+
+/**
+ * A non-synchronized {@link Random} based on the xoroshiro128++ generator by
+ * Blackman and Vigna. It extends {@link Random} so that it can be passed to
+ * all the methods (and libraries) that expect one, but it does not pay for
+ * the atomic update of the seed at each call, so an instance must not be
+ * shared across threads.
+ * Independent streams are obtained with {@link #streamSeed(long, long)}, so
+ * that the stream of the i-th sample only depends on the base seed and on i,
+ * and not on the order in which the samples are scheduled.
+ */
+public class FastRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    /**
+     * The state of the generator; never both zero.
+     */
+    private long s0;
+    private long s1;
+
+    /**
+     * Creates a generator whose state is derived from the seed.
+     *
+     * @param seed the random seed
+     */
+    public FastRandom(long seed) {
+        super(seed);
+        this.setSeed(seed);
+    }
+
+    /**
+     *
+     * @param seed the base random seed
+     * @param streamId the id of the stream, e.g., the index of a sample
+     * @return the seed of the stream with id streamId
+     */
+    public static long streamSeed(long seed, long streamId) {
+        return mix64(mix64(seed) + GOLDEN_GAMMA * (streamId + 1));
+    }
+
+    /**
+     * The SplitMix64 finalizer.
+     *
+     * @param z a long value
+     * @return a well-mixed long value
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        // SplitMix64 sequence, as recommended to seed xoroshiro generators
+        this.s0 = mix64(seed + GOLDEN_GAMMA);
+        this.s1 = mix64(seed + 2 * GOLDEN_GAMMA);
+        if (this.s0 == 0 && this.s1 == 0) {
+            this.s1 = GOLDEN_GAMMA;
+        }
+    }
+
+    @Override
+    public long nextLong() {
+        final long x0 = this.s0;
+        long x1 = this.s1;
+        final long result = Long.rotateLeft(x0 + x1, 17) + x0;
+        x1 ^= x0;
+        this.s0 = Long.rotateLeft(x0, 49) ^ x1 ^ (x1 << 21);
+        this.s1 = Long.rotateLeft(x1, 28);
+        return result;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (this.nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (this.nextLong() >>> 32);
+    }
+
+    /**
+     * Returns a uniform integer in [0, bound) with Lemire's multiply-and-shift
+     * method, which is unbiased and only needs a division in the rare case in
+     * which the sample falls in the biased region.
+     *
+     * @param bound the upper bound (exclusive)
+     * @return a uniform integer in [0, bound)
+     */
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        long m = (this.nextLong() >>> 32) * bound;
+        long low = m & 0xffffffffL;
+        if (low < bound) {
+            final long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (this.nextLong() >>> 32) * bound;
+                low = m & 0xffffffffL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (this.nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return this.nextLong() < 0;
+    }
+}
@@ -0,0 +1,488 @@
+package alice.utils;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A reader of the frequent itemsets or sequential patterns written by
+ * {@link PatternsWriter}.
+ * The file is memory-mapped, or decompressed in memory if it was written with
+ * compression, and its patterns are either read one after the other in the
+ * canonical order with {@link #next()}, or looked up with {@link #find},
+ * which binary searches the index of the file.
+ * The numbers of patterns of each length are in the header, so they are known
+ * without reading the patterns.
+ */
+public class PatternsReader {
+
+    /**
+     * The first four bytes of a file of patterns, i.e., "ALPT".
+     */
+    public static final int magic = 0x414c5054;
+
+    /**
+     * The kind of a file of frequent itemsets.
+     */
+    public static final int itemsetsKind = 0;
+
+    /**
+     * The kind of a file of sequential patterns.
+     */
+    public static final int sequencesKind = 1;
+
+    /**
+     * The number of patterns between two entries of the index.
+     */
+    public static final int indexInterval = 64;
+
+    /**
+     * The separator after the items of each itemset of a sequential pattern.
+     */
+    public static final int itemsetEnd = -1;
+
+    /**
+     * The bytes of the file.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * Whether the patterns are sequential patterns, rather than itemsets.
+     */
+    private final boolean sequences;
+
+    /**
+     * The number of patterns.
+     */
+    private final int numPatterns;
+
+    /**
+     * The number of patterns of each length, from length 1.
+     */
+    private final int[] lengthToCount;
+
+    /**
+     * The offset of every indexInterval-th pattern from recordsStart.
+     */
+    private final int[] index;
+
+    /**
+     * The offset of the first pattern in the file.
+     */
+    private final int recordsStart;
+
+    /**
+     * The offset of the next pattern to read.
+     */
+    private int position;
+
+    /**
+     * The rank of the next pattern to read.
+     */
+    private int ordinal;
+
+    /**
+     * The length of the patterns up to groupEnd.
+     */
+    private int length;
+
+    /**
+     * The rank after the last pattern with the current length.
+     */
+    private int groupEnd;
+
+    /**
+     * The items of the current pattern, followed by -1 after each itemset for
+     * a sequential pattern.
+     */
+    private int[] tokens = new int[16];
+
+    /**
+     * The number of items and separators of the current pattern.
+     */
+    private int numTokens;
+
+    /**
+     * The support of the current pattern.
+     */
+    private int support;
+
+    /**
+     * Opens a file of patterns.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file cannot be read or is not a file of
+     * patterns
+     */
+    public PatternsReader(String path) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (bytes.limit() >= 2 && BatchedOutput.isCompressed((bytes.get(0) & 0xff) | ((bytes.get(1) & 0xff) << 8))) {
+            try (InputStream in = BatchedOutput.newInputStream(path)) {
+                bytes = ByteBuffer.wrap(IOUtils.toByteArray(in));
+            }
+        }
+        this.data = bytes;
+        if (this.data.limit() < getHeaderSize(0, 0) || this.data.getInt(0) != magic) {
+            throw new IOException(path + " is not a file of patterns");
+        }
+        this.sequences = this.data.getInt(4) == sequencesKind;
+        this.numPatterns = this.data.getInt(8);
+        final int maxLength = this.data.getInt(12);
+        this.lengthToCount = new int[maxLength];
+        int offset = getHeaderSize(0, 0);
+        for (int i = 0; i < maxLength; i++, offset += 4) {
+            this.lengthToCount[i] = this.data.getInt(offset);
+        }
+        this.index = new int[(this.numPatterns + indexInterval - 1) / indexInterval];
+        for (int i = 0; i < this.index.length; i++, offset += 4) {
+            this.index[i] = this.data.getInt(offset);
+        }
+        this.recordsStart = offset;
+        this.seek(0);
+    }
+
+    /**
+     * Creates a reader of the same file, which reads it independently of
+     * this one.
+     *
+     * @param other the reader of the file
+     */
+    private PatternsReader(PatternsReader other) {
+        this.data = other.data.duplicate();
+        this.sequences = other.sequences;
+        this.numPatterns = other.numPatterns;
+        this.lengthToCount = other.lengthToCount;
+        this.index = other.index;
+        this.recordsStart = other.recordsStart;
+        this.seek(0);
+    }
+
+    /**
+     *
+     * @return a reader of the same file, at its first pattern, which can be
+     * used by another thread
+     */
+    public PatternsReader duplicate() {
+        return new PatternsReader(this);
+    }
+
+    /**
+     *
+     * @param path the path of a file
+     * @return whether the file is a file of patterns, rather than a text file
+     */
+    public static boolean isPatternsFile(String path) {
+        try (DataInputStream in = new DataInputStream(BatchedOutput.newInputStream(path))) {
+            return in.readInt() == magic;
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            System.err.println("Error reading " + path);
+            e.printStackTrace();
+            System.exit(1);
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @param maxLength the maximum length of the patterns
+     * @param numIndexEntries the number of entries of the index
+     * @return the bytes of the header of a file of patterns
+     */
+    static int getHeaderSize(int maxLength, int numIndexEntries) {
+        return 4 * (4 + maxLength + numIndexEntries);
+    }
+
+    /**
+     * Compares two patterns in the canonical order, i.e., by length and then
+     * lexicographically.
+     *
+     * @param lengthA the length of the first pattern
+     * @param a the items of the first pattern
+     * @param fromA the index of the first item of the first pattern
+     * @param toA the index after the last item of the first pattern
+     * @param lengthB the length of the second pattern
+     * @param b the items of the second pattern
+     * @param fromB the index of the first item of the second pattern
+     * @param toB the index after the last item of the second pattern
+     * @return a negative int, zero, or a positive int if the first pattern
+     * comes before, is equal to, or comes after the second one
+     */
+    public static int compare(int lengthA, int[] a, int fromA, int toA,
+            int lengthB, int[] b, int fromB, int toB) {
+        if (lengthA != lengthB) {
+            return Integer.compare(lengthA, lengthB);
+        }
+        for (int i = fromA, j = fromB; i < toA && j < toB; i++, j++) {
+            if (a[i] != b[j]) {
+                return Integer.compare(a[i], b[j]);
+            }
+        }
+        return Integer.compare(toA - fromA, toB - fromB);
+    }
+
+    /**
+     * Moves to a pattern, so that it is the next one read.
+     *
+     * @param rank the rank of the pattern in the canonical order
+     */
+    public void seek(int rank) {
+        final int block = Math.min(rank, this.numPatterns) / indexInterval;
+        this.ordinal = block * indexInterval;
+        this.position = this.recordsStart + (block < this.index.length ? this.index[block] : 0);
+        this.length = 0;
+        this.groupEnd = 0;
+        while (this.ordinal < rank && this.next()) {
+            // skip the patterns before rank in the block
+        }
+    }
+
+    /**
+     * Reads the next pattern.
+     *
+     * @return whether there was a next pattern
+     */
+    public boolean next() {
+        if (this.ordinal >= this.numPatterns) {
+            return false;
+        }
+        while (this.ordinal >= this.groupEnd) {
+            this.groupEnd += this.lengthToCount[this.length++];
+        }
+        this.support = this.readVarint();
+        this.numTokens = 0;
+        if (this.sequences) {
+            for (int i = 0; i < this.length; i++) {
+                this.readItems(this.readVarint());
+                this.addToken(itemsetEnd);
+            }
+        } else {
+            this.readItems(this.length);
+        }
+        this.ordinal++;
+        return true;
+    }
+
+    /**
+     * Looks up a pattern by binary search; the next pattern read afterwards
+     * is undefined.
+     *
+     * @param key the items of the pattern, sorted within each itemset, and
+     * followed by -1 after each itemset for a sequential pattern
+     * @param numKeyTokens the number of items and separators of the pattern
+     * @return the support of the pattern, or -1 if it is not in the file
+     */
+    public int find(int[] key, int numKeyTokens) {
+        this.seek(this.lowerBound(key, numKeyTokens));
+        if (this.next() && this.compareTo(this.getLength(key, numKeyTokens), key, numKeyTokens) == 0) {
+            return this.support;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds by binary search the first pattern that does not come before a
+     * pattern in the canonical order; the next pattern read afterwards is
+     * undefined.
+     *
+     * @param key the items of the pattern, sorted within each itemset, and
+     * followed by -1 after each itemset for a sequential pattern
+     * @param numKeyTokens the number of items and separators of the pattern
+     * @return the rank of the first pattern that does not come before the
+     * given one, or the number of patterns if they all come before it
+     */
+    public int lowerBound(int[] key, int numKeyTokens) {
+        final int keyLength = this.getLength(key, numKeyTokens);
+        // the last block whose first pattern does not come after the key
+        int lo = 0;
+        int hi = this.index.length - 1;
+        int block = 0;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            this.seek(mid * indexInterval);
+            this.next();
+            if (this.compareTo(keyLength, key, numKeyTokens) <= 0) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        int rank = block * indexInterval;
+        this.seek(rank);
+        while (this.next() && this.compareTo(keyLength, key, numKeyTokens) < 0) {
+            rank++;
+        }
+        return rank;
+    }
+
+    /**
+     *
+     * @param key the items of a pattern, followed by -1 after each itemset for
+     * a sequential pattern
+     * @param numKeyTokens the number of items and separators of the pattern
+     * @return the length of the pattern
+     */
+    private int getLength(int[] key, int numKeyTokens) {
+        if (!this.sequences) {
+            return numKeyTokens;
+        }
+        int keyLength = 0;
+        for (int i = 0; i < numKeyTokens; i++) {
+            if (key[i] == itemsetEnd) {
+                keyLength++;
+            }
+        }
+        return keyLength;
+    }
+
+    /**
+     *
+     * @param keyLength the length of a pattern
+     * @param key the items of the pattern
+     * @param numKeyTokens the number of items and separators of the pattern
+     * @return the comparison of the current pattern with the given one
+     */
+    public int compareTo(int keyLength, int[] key, int numKeyTokens) {
+        return compare(this.length, this.tokens, 0, this.numTokens, keyLength, key, 0, numKeyTokens);
+    }
+
+    /**
+     * Reads the items of an itemset, the first one as is and the following
+     * ones as the differences from the previous one.
+     *
+     * @param numItems the number of items
+     */
+    private void readItems(int numItems) {
+        int item = 0;
+        for (int i = 0; i < numItems; i++) {
+            item += this.readVarint();
+            this.addToken(item);
+        }
+    }
+
+    /**
+     *
+     * @param token an item or a separator to append to the current pattern
+     */
+    private void addToken(int token) {
+        if (this.numTokens == this.tokens.length) {
+            this.tokens = Arrays.copyOf(this.tokens, 2 * this.tokens.length);
+        }
+        this.tokens[this.numTokens++] = token;
+    }
+
+    /**
+     *
+     * @return the unsigned varint at the position, which is moved after it
+     */
+    private int readVarint() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = this.data.get(this.position++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     *
+     * @return whether the patterns are sequential patterns, rather than
+     * itemsets
+     */
+    public boolean isSequences() {
+        return this.sequences;
+    }
+
+    /**
+     *
+     * @return the number of patterns
+     */
+    public int getNumPatterns() {
+        return this.numPatterns;
+    }
+
+    /**
+     *
+     * @return the maximum length of the patterns
+     */
+    public int getMaxLength() {
+        return this.lengthToCount.length;
+    }
+
+    /**
+     *
+     * @param patternLength a length
+     * @return the number of patterns with that length
+     */
+    public int getCount(int patternLength) {
+        return patternLength >= 1 && patternLength <= this.lengthToCount.length
+                ? this.lengthToCount[patternLength - 1]
+                : 0;
+    }
+
+    /**
+     *
+     * @return the length of the current pattern, i.e., its number of items
+     * for an itemset and its number of itemsets for a sequential pattern
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     *
+     * @return the items of the current pattern, followed by -1 after each
+     * itemset for a sequential pattern; only the first getNumTokens() are
+     * valid, and they are overwritten by the next pattern
+     */
+    public int[] getTokens() {
+        return this.tokens;
+    }
+
+    /**
+     *
+     * @return the number of items and separators of the current pattern
+     */
+    public int getNumTokens() {
+        return this.numTokens;
+    }
+
+    /**
+     *
+     * @return the support of the current pattern
+     */
+    public int getSupport() {
+        return this.support;
+    }
+}
@@ -0,0 +1,601 @@
+package alice.utils;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A writer of frequent itemsets or sequential patterns in the binary format
+ * read by {@link PatternsReader}.
+ * A pattern is given as in the text outputs, i.e., as its items, and for a
+ * sequential pattern the separator -1 after the items of each itemset.
+ * The patterns are buffered in memory until their items reach the run size,
+ * {@link Config#patternsRunSize} by default; then the buffered run is sorted
+ * in the canonical order, i.e., by length and then lexicographically with the
+ * items of each itemset sorted, and spilled to a temporary file next to the
+ * file.
+ * {@link #close()} merges the runs with the last buffered one and streams the
+ * merged patterns to the file, twice: a first pass computes the offsets of
+ * the index, which precedes the patterns, and a second one writes them.
+ * The file has:
+ * <ul>
+ * <li>the magic number {@link PatternsReader#magic}, the kind of the
+ * patterns, the number of patterns, the maximum length, and the number of
+ * patterns of each length;
+ * <li>an index with the offset of every {@link PatternsReader#indexInterval}th
+ * pattern from the start of the patterns;
+ * <li>the patterns, each as its support followed by the items of each of its
+ * itemsets, the first one as is and the following ones as the differences
+ * from the previous one, preceded by the number of items of the itemset for
+ * a sequential pattern.
+ * </ul>
+ * All the numbers of the patterns are unsigned varints, i.e., seven bits per
+ * byte with the highest bit set in all the bytes but the last one, so that
+ * the small differences between sorted items take a byte each.
+ * A spilled run has the same patterns, each preceded by its length.
+ * Since the offsets of the index are ints, the patterns of a file take less
+ * than 2 GB.
+ */
+public class PatternsWriter implements Closeable {
+
+    /**
+     * The path of the file.
+     */
+    private final String path;
+
+    /**
+     * Whether the patterns are sequential patterns, rather than itemsets.
+     */
+    private final boolean sequences;
+
+    /**
+     * The number of items and separators after which the buffered patterns
+     * are spilled to a run.
+     */
+    private final int runSize;
+
+    /**
+     * The items of the buffered patterns, one after the other, with the
+     * separators of the sequential patterns.
+     */
+    private final IntArrayList tokens = new IntArrayList();
+
+    /**
+     * The index in tokens of the first item of each buffered pattern,
+     * followed by the number of tokens.
+     */
+    private final IntArrayList starts = IntArrayList.wrap(new int[]{0});
+
+    /**
+     * The length of each buffered pattern, i.e., its number of items for an
+     * itemset and its number of itemsets for a sequential pattern.
+     */
+    private final IntArrayList lengths = new IntArrayList();
+
+    /**
+     * The support of each buffered pattern.
+     */
+    private final IntArrayList supports = new IntArrayList();
+
+    /**
+     * The number of patterns of each length, from length 1, over all the
+     * patterns added.
+     */
+    private final IntArrayList lengthToCount = new IntArrayList();
+
+    /**
+     * The paths of the spilled runs.
+     */
+    private final List<String> runPaths = new ArrayList<>();
+
+    /**
+     * The bytes of the pattern being written.
+     */
+    private final ByteArrayList record = new ByteArrayList();
+
+    /**
+     * The number of patterns added.
+     */
+    private int numPatterns = 0;
+
+    /**
+     * Creates a writer whose runs have the size in {@link Config}.
+     *
+     * @param path the path of the file
+     * @param sequences whether the patterns are sequential patterns, rather
+     * than itemsets
+     */
+    public PatternsWriter(String path, boolean sequences) {
+        this(path, sequences, Config.patternsRunSize);
+    }
+
+    /**
+     *
+     * @param path the path of the file
+     * @param sequences whether the patterns are sequential patterns, rather
+     * than itemsets
+     * @param runSize the number of items and separators after which the
+     * buffered patterns are spilled to a run
+     */
+    public PatternsWriter(String path, boolean sequences, int runSize) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("The run size must be positive");
+        }
+        this.path = path;
+        this.sequences = sequences;
+        this.runSize = runSize;
+    }
+
+    /**
+     * Adds a pattern, whose items need not be sorted.
+     *
+     * @param patternTokens the items of the pattern, followed by -1 after
+     * each itemset for a sequential pattern
+     * @param numTokens the number of items and separators of the pattern
+     * @param support the support of the pattern
+     * @throws IOException if the buffered patterns cannot be spilled
+     */
+    public void add(int[] patternTokens, int numTokens, int support) throws IOException {
+        final int start = this.tokens.size();
+        this.tokens.addElements(start, patternTokens, 0, numTokens);
+        final int[] elements = this.tokens.elements();
+        int length = 0;
+        if (this.sequences) {
+            int itemsetStart = start;
+            for (int i = start; i < start + numTokens; i++) {
+                if (elements[i] == PatternsReader.itemsetEnd) {
+                    Arrays.sort(elements, itemsetStart, i);
+                    itemsetStart = i + 1;
+                    length++;
+                }
+            }
+        } else {
+            Arrays.sort(elements, start, start + numTokens);
+            length = numTokens;
+        }
+        this.starts.add(this.tokens.size());
+        this.lengths.add(length);
+        this.supports.add(support);
+        while (this.lengthToCount.size() < length) {
+            this.lengthToCount.add(0);
+        }
+        this.lengthToCount.set(length - 1, this.lengthToCount.getInt(length - 1) + 1);
+        this.numPatterns++;
+        if (this.tokens.size() >= this.runSize) {
+            this.spill();
+        }
+    }
+
+    /**
+     *
+     * @return the number of patterns added
+     */
+    public int getNumPatterns() {
+        return this.numPatterns;
+    }
+
+    /**
+     * Sorts the buffered patterns, writes them to a new run, and empties the
+     * buffer.
+     *
+     * @throws IOException if the run cannot be written
+     */
+    private void spill() throws IOException {
+        final String runPath = this.path + ".run" + this.runPaths.size();
+        this.runPaths.add(runPath);
+        try (BatchedOutput out = new BatchedOutput(runPath, false)) {
+            final Cursor buffered = new BufferCursor();
+            while (buffered.next()) {
+                this.record.clear();
+                writeVarint(this.record, buffered.length);
+                this.encode(buffered);
+                out.write(this.record.elements(), 0, this.record.size());
+            }
+        }
+        this.tokens.clear();
+        this.starts.size(1);
+        this.lengths.clear();
+        this.supports.clear();
+    }
+
+    /**
+     * Merges the runs with the buffered patterns and writes the file.
+     *
+     * @throws IOException if the file cannot be written or a run cannot be
+     * read
+     */
+    @Override
+    public void close() throws IOException {
+        final int maxLength = this.lengthToCount.size();
+        final int numIndexEntries = (this.numPatterns + PatternsReader.indexInterval - 1)
+                / PatternsReader.indexInterval;
+        final int[] index = new int[numIndexEntries];
+        try {
+            // the first pass only computes the offsets of the index
+            long offset = 0;
+            int rank = 0;
+            try (MergeCursor merged = new MergeCursor()) {
+                while (merged.next()) {
+                    if (rank % PatternsReader.indexInterval == 0) {
+                        if (offset > Integer.MAX_VALUE) {
+                            throw new IOException("The patterns of " + this.path + " take more than 2 GB");
+                        }
+                        index[rank / PatternsReader.indexInterval] = (int) offset;
+                    }
+                    this.record.clear();
+                    this.encode(merged.getMin());
+                    offset += this.record.size();
+                    rank++;
+                }
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(
+                    PatternsReader.getHeaderSize(maxLength, numIndexEntries));
+            header.putInt(PatternsReader.magic);
+            header.putInt(this.sequences ? PatternsReader.sequencesKind : PatternsReader.itemsetsKind);
+            header.putInt(this.numPatterns);
+            header.putInt(maxLength);
+            for (int i = 0; i < maxLength; i++) {
+                header.putInt(this.lengthToCount.getInt(i));
+            }
+            for (int entry : index) {
+                header.putInt(entry);
+            }
+            try (BatchedOutput out = new BatchedOutput(this.path);
+                    MergeCursor merged = new MergeCursor()) {
+                out.write(header.array());
+                while (merged.next()) {
+                    this.record.clear();
+                    this.encode(merged.getMin());
+                    out.write(this.record.elements(), 0, this.record.size());
+                }
+            }
+        } finally {
+            for (String runPath : this.runPaths) {
+                Files.deleteIfExists(java.nio.file.Paths.get(runPath));
+            }
+        }
+    }
+
+    /**
+     * Appends a pattern to record, as its support followed by its itemsets.
+     *
+     * @param pattern the cursor at the pattern
+     */
+    private void encode(Cursor pattern) {
+        writeVarint(this.record, pattern.support);
+        if (this.sequences) {
+            int itemsetStart = pattern.from;
+            for (int t = pattern.from; t < pattern.to; t++) {
+                if (pattern.tokens[t] == PatternsReader.itemsetEnd) {
+                    writeVarint(this.record, t - itemsetStart);
+                    writeItems(this.record, pattern.tokens, itemsetStart, t);
+                    itemsetStart = t + 1;
+                }
+            }
+        } else {
+            writeItems(this.record, pattern.tokens, pattern.from, pattern.to);
+        }
+    }
+
+    /**
+     * Appends the sorted items of an itemset as varints, the first one as is
+     * and the following ones as the differences from the previous one.
+     *
+     * @param records the bytes of the patterns
+     * @param elements the items
+     * @param from the index of the first item
+     * @param to the index after the last item
+     */
+    private static void writeItems(ByteArrayList records, int[] elements, int from, int to) {
+        int previous = 0;
+        for (int i = from; i < to; i++) {
+            writeVarint(records, elements[i] - previous);
+            previous = elements[i];
+        }
+    }
+
+    /**
+     * Appends an int as an unsigned varint.
+     *
+     * @param records the bytes of the patterns
+     * @param value the int, taken as unsigned
+     */
+    private static void writeVarint(ByteArrayList records, int value) {
+        while ((value & ~0x7f) != 0) {
+            records.add((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        records.add((byte) value);
+    }
+
+    /**
+     * A cursor over patterns sorted in the canonical order.
+     */
+    private abstract static class Cursor {
+
+        /**
+         * The length of the current pattern.
+         */
+        int length;
+
+        /**
+         * The support of the current pattern.
+         */
+        int support;
+
+        /**
+         * The array with the items of the current pattern, followed by -1
+         * after each itemset for a sequential pattern.
+         */
+        int[] tokens;
+
+        /**
+         * The index in tokens of the first item of the current pattern.
+         */
+        int from;
+
+        /**
+         * The index in tokens after the last item of the current pattern.
+         */
+        int to;
+
+        /**
+         * Moves to the next pattern.
+         *
+         * @return whether there was a next pattern
+         * @throws IOException if the pattern cannot be read
+         */
+        abstract boolean next() throws IOException;
+
+        /**
+         *
+         * @param other another cursor
+         * @return the comparison of the current pattern with the one of the
+         * other cursor
+         */
+        int compareTo(Cursor other) {
+            return PatternsReader.compare(this.length, this.tokens, this.from, this.to,
+                    other.length, other.tokens, other.from, other.to);
+        }
+    }
+
+    /**
+     * A cursor over the buffered patterns, which are sorted when it is
+     * created.
+     */
+    private class BufferCursor extends Cursor {
+
+        /**
+         * The indices of the buffered patterns in the canonical order.
+         */
+        private final int[] order;
+
+        /**
+         * The rank of the next pattern.
+         */
+        private int rank = 0;
+
+        BufferCursor() {
+            final int[] elements = PatternsWriter.this.tokens.elements();
+            final int[] starts = PatternsWriter.this.starts.elements();
+            final int[] lengths = PatternsWriter.this.lengths.elements();
+            this.order = new int[PatternsWriter.this.supports.size()];
+            for (int i = 0; i < this.order.length; i++) {
+                this.order[i] = i;
+            }
+            IntArrays.quickSort(this.order, (p1, p2) -> PatternsReader.compare(
+                    lengths[p1], elements, starts[p1], starts[p1 + 1],
+                    lengths[p2], elements, starts[p2], starts[p2 + 1]));
+            this.tokens = elements;
+        }
+
+        @Override
+        boolean next() {
+            if (this.rank == this.order.length) {
+                return false;
+            }
+            final int p = this.order[this.rank++];
+            this.length = PatternsWriter.this.lengths.getInt(p);
+            this.support = PatternsWriter.this.supports.getInt(p);
+            this.from = PatternsWriter.this.starts.getInt(p);
+            this.to = PatternsWriter.this.starts.getInt(p + 1);
+            return true;
+        }
+    }
+
+    /**
+     * A cursor over the patterns of a spilled run.
+     */
+    private class RunCursor extends Cursor implements Closeable {
+
+        /**
+         * The stream of the run.
+         */
+        private final InputStream in;
+
+        /**
+         *
+         * @param runPath the path of the run
+         * @throws IOException if the run cannot be opened
+         */
+        RunCursor(String runPath) throws IOException {
+            this.in = BatchedOutput.newInputStream(runPath);
+            this.tokens = new int[16];
+        }
+
+        @Override
+        boolean next() throws IOException {
+            final int first = this.in.read();
+            if (first < 0) {
+                return false;
+            }
+            this.length = this.readVarint(first);
+            this.support = this.readVarint(this.in.read());
+            this.to = 0;
+            if (PatternsWriter.this.sequences) {
+                for (int i = 0; i < this.length; i++) {
+                    this.readItems(this.readVarint(this.in.read()));
+                    this.addToken(PatternsReader.itemsetEnd);
+                }
+            } else {
+                this.readItems(this.length);
+            }
+            return true;
+        }
+
+        /**
+         * Reads the items of an itemset, the first one as is and the
+         * following ones as the differences from the previous one.
+         *
+         * @param numItems the number of items
+         * @throws IOException if the items cannot be read
+         */
+        private void readItems(int numItems) throws IOException {
+            int item = 0;
+            for (int i = 0; i < numItems; i++) {
+                item += this.readVarint(this.in.read());
+                this.addToken(item);
+            }
+        }
+
+        /**
+         *
+         * @param token an item or a separator to append to the current
+         * pattern
+         */
+        private void addToken(int token) {
+            if (this.to == this.tokens.length) {
+                this.tokens = Arrays.copyOf(this.tokens, 2 * this.tokens.length);
+            }
+            this.tokens[this.to++] = token;
+        }
+
+        /**
+         * Reads an unsigned varint.
+         *
+         * @param first the first byte of the varint
+         * @return the int
+         * @throws IOException if the run ends within the varint
+         */
+        private int readVarint(int first) throws IOException {
+            int b = first;
+            int value = 0;
+            for (int shift = 0;; shift += 7) {
+                if (b < 0) {
+                    throw new IOException("Truncated run of " + PatternsWriter.this.path);
+                }
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                b = this.in.read();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    /**
+     * A cursor that merges the runs and the buffered patterns with a heap of
+     * their cursors.
+     */
+    private class MergeCursor implements Closeable {
+
+        /**
+         * The cursors of the runs, to close them.
+         */
+        private final List<RunCursor> runs = new ArrayList<>();
+
+        /**
+         * The cursors that have a current pattern, by their current pattern.
+         */
+        private final PriorityQueue<Cursor> heap = new PriorityQueue<>(Cursor::compareTo);
+
+        /**
+         * The cursor of the current pattern, which is advanced by the next
+         * call to next; null before the first call.
+         */
+        private Cursor min = null;
+
+        /**
+         *
+         * @throws IOException if a run cannot be opened or read
+         */
+        MergeCursor() throws IOException {
+            try {
+                for (String runPath : PatternsWriter.this.runPaths) {
+                    final RunCursor run = new RunCursor(runPath);
+                    this.runs.add(run);
+                    if (run.next()) {
+                        this.heap.add(run);
+                    }
+                }
+                final Cursor buffered = new BufferCursor();
+                if (buffered.next()) {
+                    this.heap.add(buffered);
+                }
+            } catch (IOException e) {
+                this.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Moves to the next pattern in the canonical order.
+         *
+         * @return whether there was a next pattern
+         * @throws IOException if a run cannot be read
+         */
+        boolean next() throws IOException {
+            if (this.min != null && this.min.next()) {
+                this.heap.add(this.min);
+            }
+            this.min = this.heap.poll();
+            return this.min != null;
+        }
+
+        /**
+         *
+         * @return the cursor at the current pattern
+         */
+        Cursor getMin() {
+            return this.min;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunCursor run : this.runs) {
+                run.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package alice.utils;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A fixed-size histogram of non-negative long values with log-linear buckets,
+ * in the style of HdrHistogram, to compute quantiles of a stream of values
+ * with a bounded relative error.
+ * Each power of two [2^k, 2^(k+1)) is split in 2^precisionBits buckets of the
+ * same width, and the values smaller than 2^precisionBits have a bucket each,
+ * so a quantile is within a factor 1 + 2^-precisionBits of the exact one.
+ * Two sketches with the same precision merge by adding their counts.
+ */
+public class QuantileSketch {
+
+    /**
+     * The number of bits of each value kept by its bucket.
+     */
+    private final int precisionBits;
+
+    /**
+     * The number of buckets of each power of two, i.e., 2^precisionBits.
+     */
+    private final int subBuckets;
+
+    /**
+     * The number of values in each bucket.
+     */
+    private final long[] counts;
+
+    /**
+     * The number of values.
+     */
+    private long count;
+
+    /**
+     * The sum of the values.
+     */
+    private double sum;
+
+    /**
+     * The smallest value.
+     */
+    private long min = Long.MAX_VALUE;
+
+    /**
+     * The largest value.
+     */
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Creates a sketch with relative error 2^-7, i.e., less than 1%.
+     */
+    public QuantileSketch() {
+        this(7);
+    }
+
+    /**
+     *
+     * @param precisionBits the number of bits of each value kept by its
+     * bucket, between 1 and 16
+     */
+    public QuantileSketch(int precisionBits) {
+        if (precisionBits < 1 || precisionBits > 16) {
+            throw new IllegalArgumentException("Precision bits " + precisionBits + " not in [1, 16]");
+        }
+        this.precisionBits = precisionBits;
+        this.subBuckets = 1 << precisionBits;
+        this.counts = new long[(Long.SIZE - precisionBits + 1) * this.subBuckets];
+    }
+
+    /**
+     *
+     * @param value a non-negative value
+     * @return the bucket of the value
+     */
+    private int bucket(long value) {
+        if (value < this.subBuckets) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - this.precisionBits;
+        return (shift + 1) * this.subBuckets + (int) (value >>> shift) - this.subBuckets;
+    }
+
+    /**
+     *
+     * @param bucket a bucket
+     * @return the smallest value in the bucket
+     */
+    private long lowerBound(int bucket) {
+        if (bucket < this.subBuckets) {
+            return bucket;
+        }
+        final int shift = bucket / this.subBuckets - 1;
+        return ((long) (bucket % this.subBuckets + this.subBuckets)) << shift;
+    }
+
+    /**
+     *
+     * @param bucket a bucket
+     * @return the number of values in the bucket
+     */
+    private long width(int bucket) {
+        return bucket < this.subBuckets ? 1 : 1L << (bucket / this.subBuckets - 1);
+    }
+
+    /**
+     * Adds a value to the sketch.
+     *
+     * @param value a non-negative value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value " + value + " is negative");
+        }
+        this.counts[this.bucket(value)]++;
+        this.count++;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    /**
+     * Adds the values of another sketch to this sketch.
+     *
+     * @param other a sketch with the same precision
+     */
+    public void merge(QuantileSketch other) {
+        if (other.precisionBits != this.precisionBits) {
+            throw new IllegalArgumentException("Cannot merge sketches with precision "
+                    + this.precisionBits + " and " + other.precisionBits);
+        }
+        for (int b = 0; b < this.counts.length; b++) {
+            this.counts[b] += other.counts[b];
+        }
+        this.count += other.count;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     *
+     * @return the smallest value; 0 if the sketch is empty
+     */
+    public long getMin() {
+        return this.count == 0 ? 0 : this.min;
+    }
+
+    /**
+     *
+     * @return the largest value; 0 if the sketch is empty
+     */
+    public long getMax() {
+        return this.count == 0 ? 0 : this.max;
+    }
+
+    /**
+     *
+     * @return the mean of the values; 0 if the sketch is empty
+     */
+    public double getMean() {
+        return this.count == 0 ? 0 : this.sum / this.count;
+    }
+
+    /**
+     * Gets the value at a percentile, i.e., the smallest value v such that
+     * at least percentile% of the values are at most v, up to the relative
+     * error of the sketch.
+     *
+     * @param percentile a percentile in [0, 100]
+     * @return the value at the percentile; 0 if the sketch is empty
+     */
+    public double getPercentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+        long seen = 0;
+        for (int b = 0; b < this.counts.length; b++) {
+            seen += this.counts[b];
+            if (seen >= rank) {
+                // middle of the bucket, within the observed range
+                final double mid = this.lowerBound(b) + (this.width(b) - 1) / 2.;
+                return Math.max(this.min, Math.min(this.max, mid));
+            }
+        }
+        return this.max;
+    }
+}
@@ -16,25 +16,50 @@ package alice.utils;
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-
 /**
  * A class to log the setup time and step times of samplers.
+ * The step times are measured with {@link System#nanoTime()} and stored in a
+ * fixed-size {@link QuantileSketch}, so a timer takes the same memory for any
+ * number of steps, and the timers of different threads merge cheaply. Only
+ * one step every Config.timerSampleInterval is measured, to bound the
+ * overhead of the timer on very short steps.
+ * All the times are returned in milliseconds.
  */
 public class Timer {
 
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
     /**
      * Whether or not to log times.
      */
     private final boolean logTime;
 
     /**
-     * An object to store the logged times and compute quartiles from.
+     * The number of steps between two measured steps.
+     */
+    private final int sampleInterval;
+
+    /**
+     * A sketch of the measured step times in nanoseconds, to compute
+     * quartiles from.
+     */
+    private final QuantileSketch times = new QuantileSketch();
+
+    /**
+     * The number of steps started so far.
+     */
+    private long numSteps;
+
+    /**
+     * Whether the current step is measured.
      */
-    private final DescriptiveStatistics times = new DescriptiveStatistics();
+    private boolean measuring;
 
     /**
-     * The start time.
+     * The start time in nanoseconds.
      */
     private long start;
 
@@ -44,19 +69,32 @@ public class Timer {
     private long savedTime;
 
     public Timer(boolean logTime) {
+        this(logTime, Config.timerSampleInterval);
+    }
+
+    /**
+     *
+     * @param logTime whether or not to log times
+     * @param sampleInterval the number of steps between two measured steps
+     */
+    public Timer(boolean logTime, int sampleInterval) {
         this.logTime = logTime;
+        this.sampleInterval = Math.max(1, sampleInterval);
     }
 
     public void start() {
-        if (this.logTime) {
-            this.start = System.currentTimeMillis();
+        // a step started without stopping the previous one is not measured
+        this.measuring = this.logTime && this.numSteps++ % this.sampleInterval == 0;
+        if (this.measuring) {
+            this.start = System.nanoTime();
         }
     }
 
     public void stop() {
-        if (this.logTime) {
-            final long elapsed = System.currentTimeMillis() - this.start;
-            this.times.addValue(elapsed);
+        if (this.measuring) {
+            final long elapsed = System.nanoTime() - this.start;
+            this.times.record(Math.max(0, elapsed));
+            this.measuring = false;
         }
     }
 
@@ -70,27 +108,37 @@ public class Timer {
         return this.savedTime;
     }
 
+    /**
+     * Adds the step times of another timer, e.g., of another thread, to the
+     * step times of this timer.
+     *
+     * @param other a timer
+     */
+    public void merge(Timer other) {
+        this.times.merge(other.times);
+    }
+
+    /**
+     *
+     * @return the number of measured steps
+     */
+    public long getNumMeasuredSteps() {
+        return this.times.getCount();
+    }
+
     public double getMin() {
-        double min = this.times.getMin();
-        if (Double.compare(min, Double.NaN) != 0) {
-            return min;
-        }
-        return 0.0;
+        return this.times.getMin() / NANOS_PER_MILLI;
     }
 
     public double getMax() {
-        double max = this.times.getMax();
-        if (Double.compare(max, Double.NaN) != 0) {
-            return max;
-        }
-        return 0.0;
+        return this.times.getMax() / NANOS_PER_MILLI;
+    }
+
+    public double getMean() {
+        return this.times.getMean() / NANOS_PER_MILLI;
     }
 
     public double getPercentile(double percentile) {
-        double time = this.times.getPercentile(percentile);
-        if (Double.compare(time, Double.NaN) != 0) {
-            return time;
-        }
-        return 0.0;
+        return this.times.getPercentile(percentile) / NANOS_PER_MILLI;
     }
 }
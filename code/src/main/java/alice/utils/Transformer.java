@@ -16,6 +16,7 @@ package alice.utils;
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
+import alice.structures.CompressedMatrix;
 import alice.structures.SparseMatrix;
 import alice.config.Delimiters;
 import alice.structures.MultiGraph;
@@ -28,10 +29,7 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
@@ -59,24 +57,31 @@ public class Transformer {
      * @return a {@link SparseMatrix} representation of the dataset
      */
     public SparseMatrix createMatrix(String datasetPath) {
-        SparseMatrix matrix = null;
+        return this.createCompressedMatrix(datasetPath).toSparseMatrix();
+    }
+
+    /**
+     * Creates a {@link CompressedMatrix} from the dataset at datasetPath. Rows
+     * are transactions and columns are items.
+     *
+     * @param datasetPath the file path for the dataset
+     * @return a {@link CompressedMatrix} representation of the dataset
+     */
+    public CompressedMatrix createCompressedMatrix(String datasetPath) {
+        CompressedMatrix matrix = null;
 
         try {
             final Set<Integer> itemsSet = Sets.newHashSet();
-            int numRows = 0;
-            BufferedReader br = new BufferedReader(new FileReader(datasetPath));
+            BufferedReader br = BatchedOutput.newReader(datasetPath);
             String line;
             while ((line = br.readLine()) != null) {
                 for (String itemString : line.split(Delimiters.space)) {
                     final int itemInt = Integer.parseInt(itemString);
                     itemsSet.add(itemInt);
                 }
-                numRows++;
             }
             br.close();
 
-            matrix = new SparseMatrix(numRows, itemsSet.size());
-
             // Construct matrix such that items are sorted in increasing order of their integer value
             this.itemToColIndex = new Int2IntOpenHashMap();
             this.itemsList = new IntArrayList(itemsSet);
@@ -85,17 +90,18 @@ public class Transformer {
             for (int i = 0; i < this.itemsList.size(); i++) {
                 this.itemToColIndex.put(this.itemsList.getInt(i), i);
             }
-            int rowIndex = 0;
-            br = new BufferedReader(new FileReader(datasetPath));
+            final CompressedMatrix.Builder builder = new CompressedMatrix.Builder(itemsSet.size());
+            final IntOpenHashSet row = new IntOpenHashSet();
+            br = BatchedOutput.newReader(datasetPath);
             while ((line = br.readLine()) != null) {
+                row.clear();
                 for (String itemString : line.split(Delimiters.space)) {
-                    final int colIndex = this.itemToColIndex.get(Integer.parseInt(itemString));
-                    matrix.setInRow(rowIndex, colIndex, 1);
-                    matrix.setInCol(rowIndex, colIndex, 1);
+                    row.add(this.itemToColIndex.get(Integer.parseInt(itemString)));
                 }
-                rowIndex++;
+                builder.addRow(row.toIntArray());
             }
             br.close();
+            matrix = builder.build();
         } catch (IOException e) {
             System.err.println("Error reading " + datasetPath);
             e.printStackTrace();
@@ -120,7 +126,7 @@ public class Transformer {
 
         this.itemsetToIndex = Maps.newHashMap();
         
-        BufferedReader br = new BufferedReader(new FileReader(datasetPath));
+        BufferedReader br = BatchedOutput.newReader(datasetPath);
         String line;
         IntOpenHashSet itemSet;
         int leftCount = 0;
@@ -209,18 +215,47 @@ public class Transformer {
      */
     public void createDataset(String datasetPath, SparseMatrix matrix) {
         try {
-            final BufferedWriter bw = new BufferedWriter(new FileWriter(datasetPath));
+            final BatchedOutput out = new BatchedOutput(datasetPath);
             for (int r = 0; r < matrix.getNumRows(); r++) {
-                final StringBuilder line = new StringBuilder();
+                boolean first = true;
                 for (int c : matrix.getNonzeroIndices(r)) {
-                    line.append(this.itemsList.getInt(c));
-                    line.append(Delimiters.space);
+                    if (!first) {
+                        out.writeByte(' ');
+                    }
+                    out.writeInt(this.itemsList.getInt(c));
+                    first = false;
+                }
+                out.newLine();
+            }
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Error writing to " + datasetPath);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Creates a dataset from a {@link CompressedMatrix}.
+     *
+     * @param datasetPath the file path for the dataset to be written
+     * @param matrix a {@link CompressedMatrix} representation of the dataset
+     */
+    public void createDataset(String datasetPath, CompressedMatrix matrix) {
+        try {
+            final BatchedOutput out = new BatchedOutput(datasetPath);
+            for (int r = 0; r < matrix.getNumRows(); r++) {
+                boolean first = true;
+                for (int c : matrix.getNonzeroIndices(r)) {
+                    if (!first) {
+                        out.writeByte(' ');
+                    }
+                    out.writeInt(this.itemsList.getInt(c));
+                    first = false;
                 }
-                line.deleteCharAt(line.length() - 1);
-                bw.write(line.toString());
-                bw.newLine();
+                out.newLine();
             }
-            bw.close();
+            out.close();
         } catch (IOException e) {
             System.err.println("Error writing to " + datasetPath);
             e.printStackTrace();
@@ -235,21 +270,19 @@ public class Transformer {
      */
     public void createSequenceDataset(String datasetPath, MultiGraph graph) {
         try {
-            final BufferedWriter bw = new BufferedWriter(new FileWriter(datasetPath));
+            final BatchedOutput out = new BatchedOutput(datasetPath);
             for (int r = 0; r < graph.getNumRows(); r++) {
-                final StringBuilder line = new StringBuilder();
                 for (int c : graph.getRowInstance(r).values) {
                     for (int el : this.indexToItemset[c]) {
-                        line.append(el);
-                        line.append(" ");
+                        out.writeInt(el);
+                        out.writeByte(' ');
                     }
-                    line.append("-1 ");
+                    out.write("-1 ");
                 }
-                line.append("-2");
-                bw.write(line.toString());
-                bw.newLine();
+                out.write("-2");
+                out.newLine();
             }
-            bw.close();
+            out.close();
         } catch (IOException e) {
             System.err.println("Error writing to " + datasetPath);
             e.printStackTrace();
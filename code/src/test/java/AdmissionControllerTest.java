@@ -0,0 +1,82 @@
+import alice.utils.AdmissionController;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link AdmissionController}.
+ */
+public class AdmissionControllerTest {
+
+    @Test
+    public void limitFitsBudget() {
+        Assert.assertEquals(3, new AdmissionController(100, 8, 30, 0).getLimit());
+        Assert.assertEquals(2, new AdmissionController(100, 8, 30, 40).getLimit());
+        Assert.assertEquals(8, new AdmissionController(1000, 8, 30, 0).getLimit());
+        // a task runs even if it does not fit
+        Assert.assertEquals(1, new AdmissionController(100, 8, 300, 0).getLimit());
+    }
+
+    @Test
+    public void footprintFollowsMeasures() throws InterruptedException {
+        final AdmissionController admission = new AdmissionController(1000, 8, 100, 0);
+        Assert.assertEquals(8, admission.getLimit());
+        admission.acquire();
+        admission.acquire();
+        // two tasks use 800 bytes, i.e., 400 each
+        admission.release(800);
+        Assert.assertEquals(250, admission.getFootprint());
+        Assert.assertEquals(4, admission.getLimit());
+        // not measured
+        admission.release(-1);
+        Assert.assertEquals(250, admission.getFootprint());
+        Assert.assertEquals(2, admission.getMaxNumActive());
+    }
+
+    @Test
+    public void acquireWaitsForRelease() throws InterruptedException {
+        final AdmissionController admission = new AdmissionController(100, 8, 50, 0);
+        admission.acquire();
+        admission.acquire();
+        final CountDownLatch admitted = new CountDownLatch(1);
+        final Thread thread = new Thread(() -> {
+            try {
+                admission.acquire();
+                admitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        Assert.assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+        admission.release(-1);
+        Assert.assertTrue(admitted.await(10, TimeUnit.SECONDS));
+        thread.join();
+        Assert.assertEquals(2, admission.getMaxNumActive());
+    }
+
+    @Test
+    public void estimateGrowsWithDimensions() {
+        final long small = AdmissionController.estimateFootprint(100, 10, 1000);
+        Assert.assertTrue(small > 0);
+        Assert.assertTrue(AdmissionController.estimateFootprint(200, 10, 1000) > small);
+        Assert.assertTrue(AdmissionController.estimateFootprint(100, 10, 2000) > small);
+    }
+}
@@ -0,0 +1,91 @@
+import alice.structures.EqSumClasses;
+import alice.utils.AliasTable;
+import alice.utils.FastRandom;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link AliasTable} and {@link EqSumClasses}.
+ */
+public class AliasTableTest {
+
+    @Test
+    public void aliasFrequencies() {
+        final double[] weights = {1, 0, 3, 0.5, 10, 2.5};
+        final AliasTable table = new AliasTable(weights);
+        final FastRandom rnd = new FastRandom(7);
+        final int numSamples = 1000000;
+        final int[] counts = new int[weights.length];
+        for (int i = 0; i < numSamples; i++) {
+            counts[table.sample(rnd)]++;
+        }
+        Assert.assertEquals(0, counts[1]);
+        final double total = 17;
+        for (int i = 0; i < weights.length; i++) {
+            final double p = weights[i] / total;
+            // within 5 standard deviations
+            Assert.assertEquals(p * numSamples, counts[i], 5 * Math.sqrt(numSamples * p * (1 - p)) + 1);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroWeights() {
+        new AliasTable(new double[]{0, 0});
+    }
+
+    @Test
+    public void eqSumClassesPairs() {
+        // sums 3: {0, 2, 5}, 1: {1, 4}, 7: {3}
+        final int[] sums = {3, 1, 3, 7, 1, 3};
+        final EqSumClasses classes = new EqSumClasses(sums, n -> n > 1 ? n : 0);
+        Assert.assertEquals(2, classes.getNumClasses());
+        for (int k = 0; k < classes.getNumClasses(); k++) {
+            for (int i = 0; i < classes.getClassSize(k); i++) {
+                Assert.assertEquals(classes.getSum(k), sums[classes.getMember(k, i)]);
+            }
+        }
+        final FastRandom rnd = new FastRandom(11);
+        final int numSamples = 500000;
+        final int[][] counts = new int[sums.length][sums.length];
+        for (int i = 0; i < numSamples; i++) {
+            final int[] pair = classes.samplePair(rnd, true);
+            Assert.assertNotEquals(pair[0], pair[1]);
+            Assert.assertEquals(sums[pair[0]], sums[pair[1]]);
+            counts[pair[0]][pair[1]]++;
+        }
+        // the first element is uniform among the 5 elements with a non-unique
+        // sum and the second is uniform among the others with the same sum
+        for (int a = 0; a < sums.length; a++) {
+            for (int b = 0; b < sums.length; b++) {
+                double p = 0;
+                if (a != b && sums[a] == sums[b] && sums[a] != 7) {
+                    p = 1. / 5 / (sums[a] == 3 ? 2 : 1);
+                }
+                Assert.assertEquals(p * numSamples, counts[a][b], 5 * Math.sqrt(numSamples * p * (1 - p)) + 1);
+            }
+        }
+    }
+
+    @Test
+    public void eqSumClassesEmpty() {
+        final EqSumClasses classes = new EqSumClasses(new int[]{1, 2, 3}, n -> n > 1 ? n : 0);
+        Assert.assertTrue(classes.isEmpty());
+        Assert.assertEquals(0, classes.getNumClasses());
+    }
+}
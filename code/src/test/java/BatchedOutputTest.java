@@ -0,0 +1,123 @@
+import alice.config.Paths;
+import alice.utils.BatchedOutput;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link BatchedOutput}.
+ */
+public class BatchedOutputTest {
+
+    private static final String dir = "testbatchedoutput";
+
+    private static final int[] values = {
+        0, 1, -1, 9, 10, -10, 12345, Integer.MAX_VALUE, Integer.MIN_VALUE
+    };
+
+    @Before
+    public void setUp() {
+        Paths.makeDir(dir);
+    }
+
+    @After
+    public void tearDown() {
+        Paths.deleteDir(dir);
+    }
+
+    /**
+     * Writes the values and many lines, which span several buffers.
+     *
+     * @param path the path of the file
+     * @param compress whether to compress the file
+     * @param numLines the number of lines after the values
+     */
+    private static void writeFile(String path, boolean compress, int numLines) throws IOException {
+        try (BatchedOutput out = new BatchedOutput(path, compress)) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.writeByte(' ');
+                }
+                out.writeInt(values[i]);
+            }
+            out.newLine();
+            for (int i = 0; i < numLines; i++) {
+                out.writeInt(i);
+                out.write(" -1 #SUP: ");
+                out.writeInt(-i);
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Checks the lines written by writeFile.
+     *
+     * @param path the path of the file
+     * @param numLines the number of lines after the values
+     */
+    private static void checkFile(String path, int numLines) throws IOException {
+        try (BufferedReader br = BatchedOutput.newReader(path)) {
+            final String[] first = br.readLine().split(" ");
+            Assert.assertEquals(values.length, first.length);
+            for (int i = 0; i < values.length; i++) {
+                Assert.assertEquals(String.valueOf(values[i]), first[i]);
+            }
+            for (int i = 0; i < numLines; i++) {
+                Assert.assertEquals(i + " -1 #SUP: " + (-i), br.readLine());
+            }
+            Assert.assertNull(br.readLine());
+        }
+    }
+
+    @Test
+    public void writesText() throws IOException {
+        final String path = Paths.concat(dir, "plain.txt");
+        final int numLines = 200000;
+        writeFile(path, false, numLines);
+        checkFile(path, numLines);
+    }
+
+    @Test
+    public void writesCompressedText() throws IOException {
+        final String path = Paths.concat(dir, "compressed.txt");
+        final int numLines = 200000;
+        writeFile(path, true, numLines);
+        // the file is compressed, but read as text
+        try (InputStream in = Files.newInputStream(java.nio.file.Paths.get(path))) {
+            Assert.assertEquals(0x1f, in.read());
+            Assert.assertEquals(0x8b, in.read());
+        }
+        checkFile(path, numLines);
+    }
+
+    @Test
+    public void writesEmptyFile() throws IOException {
+        final String path = Paths.concat(dir, "empty.txt");
+        new BatchedOutput(path, false).close();
+        try (BufferedReader br = BatchedOutput.newReader(path)) {
+            Assert.assertNull(br.readLine());
+        }
+    }
+}
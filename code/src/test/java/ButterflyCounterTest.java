@@ -0,0 +1,95 @@
+import alice.config.DatasetNames;
+import alice.config.Paths;
+import alice.helpers.ButterflyCounter;
+import alice.helpers.CountingWedges;
+import alice.structures.SparseMatrix;
+import alice.structures.Vector;
+import alice.utils.Config;
+import alice.utils.Transformer;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link ButterflyCounter}.
+ */
+public class ButterflyCounterTest {
+
+    /**
+     * Counts the butterflies by intersecting each pair of rows.
+     */
+    private static long countPairwise(SparseMatrix matrix) {
+        final Vector[] rows = matrix.getRows();
+        long num = 0;
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = i + 1; j < rows.length; j++) {
+                final long inter = rows[i].interSize(rows[j]);
+                num += inter * (inter - 1) / 2;
+            }
+        }
+        return num;
+    }
+
+    @Test
+    public void smallMatrices() {
+        Assert.assertEquals(1, ButterflyCounter.countButterflies(new SparseMatrix(new int[][]{
+            {1, 1},
+            {1, 1}
+        })));
+        Assert.assertEquals(0, ButterflyCounter.countButterflies(new SparseMatrix(new int[][]{
+            {1, 1},
+            {1, 0}
+        })));
+        // K33 has C(3,2) * C(3,2) butterflies
+        Assert.assertEquals(9, ButterflyCounter.countButterflies(new SparseMatrix(new int[][]{
+            {1, 1, 1},
+            {1, 1, 1},
+            {1, 1, 1}
+        })));
+    }
+
+    @Test
+    public void randomMatrices() {
+        final Random rnd = new Random(0);
+        for (int t = 0; t < 20; t++) {
+            final int numRows = 1 + rnd.nextInt(40);
+            final int numCols = 1 + rnd.nextInt(40);
+            final double density = rnd.nextDouble();
+            final int[][] array = new int[numRows][numCols];
+            for (int r = 0; r < numRows; r++) {
+                for (int c = 0; c < numCols; c++) {
+                    array[r][c] = rnd.nextDouble() < density ? 1 : 0;
+                }
+            }
+            final SparseMatrix matrix = new SparseMatrix(array);
+            Assert.assertEquals(countPairwise(matrix), ButterflyCounter.countButterflies(matrix));
+        }
+    }
+
+    @Test
+    public void datasets() {
+        for (String dataset : new String[]{DatasetNames.foodmart, DatasetNames.chess}) {
+            final Transformer transformer = new Transformer();
+            final SparseMatrix matrix = transformer.createMatrix(Paths.concat(Config.datasetsDir, dataset));
+            Assert.assertEquals(
+                    CountingWedges.countWedges(matrix.getRows(), matrix.getNumCols()),
+                    ButterflyCounter.countButterflies(matrix));
+        }
+    }
+}
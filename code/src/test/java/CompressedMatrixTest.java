@@ -0,0 +1,120 @@
+import alice.config.DatasetNames;
+import alice.config.Paths;
+import alice.samplers.BJDMSampler;
+import alice.samplers.CurveballBJDMSampler;
+import alice.samplers.GmmtSampler;
+import alice.samplers.Sampler;
+import alice.samplers.SelfLoopBJDMSampler;
+import alice.samplers.SelfLoopGmmtSampler;
+import alice.structures.GmmtMatrix;
+import alice.structures.CompressedMatrix;
+import alice.structures.SparseMatrix;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Timer;
+import alice.utils.Transformer;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link CompressedMatrix}.
+ */
+public class CompressedMatrixTest {
+
+    @Test
+    public void rowsAndCols() {
+        final Random rnd = new FastRandom(31);
+        final int numRows = 50;
+        final int numCols = 70;
+        final int[][] array = new int[numRows][numCols];
+        for (int r = 0; r < numRows; r++) {
+            final double density = r % 3 == 0 ? 0.8 : 0.05;
+            for (int c = 0; c < numCols; c++) {
+                array[r][c] = rnd.nextDouble() < density ? 1 : 0;
+            }
+        }
+        final SparseMatrix matrix = new SparseMatrix(array);
+        final CompressedMatrix compressed = CompressedMatrix.of(matrix);
+        Assert.assertEquals(numRows, compressed.getNumRows());
+        Assert.assertEquals(numCols, compressed.getNumCols());
+        int numEdges = 0;
+        for (int r = 0; r < numRows; r++) {
+            final int[] row = compressed.getNonzeroIndices(r);
+            final int[] expected = matrix.getNonzeroIndices(r).toIntArray();
+            Arrays.sort(expected);
+            Assert.assertArrayEquals(expected, row);
+            Assert.assertEquals(expected.length, compressed.getRowSum(r));
+            numEdges += expected.length;
+            for (int c = 0; c < numCols; c++) {
+                Assert.assertEquals(array[r][c], compressed.isInRow(r, c));
+            }
+        }
+        Assert.assertEquals(numEdges, compressed.getNumEdges());
+        for (int c = 0; c < numCols; c++) {
+            final int[] expected = matrix.getNonzeroColIndices(c).toIntArray();
+            Arrays.sort(expected);
+            Assert.assertArrayEquals(expected, compressed.getNonzeroColIndices(c));
+            Assert.assertEquals(expected.length, compressed.getColSum(c));
+        }
+        final SparseMatrix copy = compressed.toSparseMatrix();
+        Assert.assertEquals(matrix, copy);
+        Assert.assertArrayEquals(matrix.getCols(), copy.getCols());
+        Assert.assertEquals(compressed, CompressedMatrix.of(copy));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void colOutOfRange() {
+        new CompressedMatrix.Builder(3).addRow(new int[]{0, 3});
+    }
+
+    @Test
+    public void createCompressedMatrix() {
+        final String path = Paths.concat(Config.datasetsDir, DatasetNames.foodmart);
+        final Transformer transformer = new Transformer();
+        final CompressedMatrix compressed = transformer.createCompressedMatrix(path);
+        final SparseMatrix matrix = transformer.createMatrix(path);
+        Assert.assertEquals(compressed, CompressedMatrix.of(matrix));
+        Assert.assertEquals(matrix, compressed.toSparseMatrix());
+    }
+
+    @Test
+    public void sampleCompressed() {
+        final String path = Paths.concat(Config.datasetsDir, DatasetNames.foodmart);
+        final SparseMatrix matrix = new Transformer().createMatrix(path);
+        final long degree = new GmmtMatrix(matrix).getDegree();
+        final Sampler[] samplers = new Sampler[]{
+            new BJDMSampler(),
+            new CurveballBJDMSampler(),
+            new GmmtSampler(),
+            new SelfLoopBJDMSampler(),
+            new SelfLoopGmmtSampler()
+        };
+        for (Sampler sampler : samplers) {
+            final CompressedMatrix expected = CompressedMatrix.of(
+                    sampler.sample(matrix, degree, 1000, 7, new Timer(false)));
+            final CompressedMatrix compressed = sampler.sampleCompressed(matrix, degree, 1000, 7, new Timer(false));
+            Assert.assertEquals(expected, compressed);
+            for (int c = 0; c < compressed.getNumCols(); c++) {
+                Assert.assertArrayEquals(expected.getNonzeroColIndices(c), compressed.getNonzeroColIndices(c));
+            }
+        }
+    }
+}
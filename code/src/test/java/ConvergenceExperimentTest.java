@@ -11,6 +11,7 @@ import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Random;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -71,6 +72,65 @@ public class ConvergenceExperimentTest {
         Assert.assertEquals(expectedSampleItemsetToSup, actualSampleItemsetToSup);
     }
 
+    @Test
+    public void getItemsetToSupMap() {
+        final Transformer transformer = new Transformer();
+        final SparseMatrix sample = transformer.createMatrix(Config.datasetPath);
+        final ObjectSet<IntOpenHashSet> freqItemsets = new ObjectOpenHashSet();
+        freqItemsets.add(new IntOpenHashSet(Arrays.asList(4)));
+        freqItemsets.add(new IntOpenHashSet(Arrays.asList(1, 4)));
+        freqItemsets.add(new IntOpenHashSet(Arrays.asList(2, 4)));
+        freqItemsets.add(new IntOpenHashSet(Arrays.asList(2, 4, 5)));
+        freqItemsets.add(new IntOpenHashSet(Arrays.asList(3, 5)));
+        freqItemsets.add(new IntOpenHashSet(Arrays.asList(1, 3, 5)));
+
+        final Map<IntOpenHashSet, Integer> expectedSampleItemsetToSup = Maps.newHashMap();
+        expectedSampleItemsetToSup.put(new IntOpenHashSet(Arrays.asList(4)), 3);
+        expectedSampleItemsetToSup.put(new IntOpenHashSet(Arrays.asList(1, 4)), 1);
+        expectedSampleItemsetToSup.put(new IntOpenHashSet(Arrays.asList(2, 4)), 2);
+        expectedSampleItemsetToSup.put(new IntOpenHashSet(Arrays.asList(2, 4, 5)), 2);
+        expectedSampleItemsetToSup.put(new IntOpenHashSet(Arrays.asList(3, 5)), 0);
+        expectedSampleItemsetToSup.put(new IntOpenHashSet(Arrays.asList(1, 3, 5)), 0);
+
+        final Map<IntOpenHashSet, Integer> actualSampleItemsetToSup
+                = Convergence.getItemsetToSupMap(sample, transformer, freqItemsets);
+        Assert.assertEquals(expectedSampleItemsetToSup, actualSampleItemsetToSup);
+    }
+
+    @Test
+    public void getItemsetToSupMapDenseAndSparseCols() {
+        // chess has both columns stored as bitsets and as sorted arrays
+        final Transformer transformer = new Transformer();
+        final SparseMatrix sample = transformer.createMatrix(Paths.concat(Config.datasetsDir, DatasetNames.chess));
+        final int[] items = transformer.getItemToColIndex().keySet().toIntArray();
+        final Random rnd = new Random(0);
+        final ObjectSet<IntOpenHashSet> itemsets = new ObjectOpenHashSet();
+        for (int r = 0; r < sample.getNumRows(); r += 10) {
+            final int[] row = sample.getNonzeroIndices(r).toIntArray();
+            final IntOpenHashSet itemset = new IntOpenHashSet();
+            for (int c : row) {
+                itemset.add(transformer.itemsList.getInt(c));
+                itemsets.add(new IntOpenHashSet(itemset));
+            }
+        }
+        for (int i = 0; i < 2000; i++) {
+            final IntOpenHashSet itemset = new IntOpenHashSet();
+            final int size = 1 + rnd.nextInt(3);
+            while (itemset.size() < size) {
+                itemset.add(items[rnd.nextInt(items.length)]);
+            }
+            itemsets.add(itemset);
+        }
+
+        final Map<IntOpenHashSet, Integer> actualSampleItemsetToSup
+                = Convergence.getItemsetToSupMap(sample, transformer, itemsets);
+        Assert.assertEquals(itemsets.size(), actualSampleItemsetToSup.size());
+        for (IntOpenHashSet itemset : itemsets) {
+            final int expectedSup = Convergence.getItemsetInSampleCount(sample, transformer.getItemToColIndex(), itemset);
+            Assert.assertEquals(expectedSup, (int) actualSampleItemsetToSup.get(itemset));
+        }
+    }
+
     @Test
     public void getAvgRelFreqDiff() {
         final Object2IntOpenHashMap<IntOpenHashSet> itemsetToSup = new Object2IntOpenHashMap();
@@ -0,0 +1,237 @@
+import alice.config.Paths;
+import alice.samplers.AliceSSampler;
+import alice.samplers.CurveballSeqSampler;
+import alice.samplers.SeqSampler;
+import alice.structures.MultiGraph;
+import alice.structures.RawFastIntCollectionFixedSizeWithOrder;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Timer;
+import alice.utils.Transformer;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link CurveballSeqSampler}.
+ */
+public class CurveballSeqSamplerTest {
+
+    private static MultiGraph load() throws IOException {
+        return new Transformer().createMultiGraph(Paths.concat(Config.datasetsDir, "sequential/SIGN.txt"));
+    }
+
+    private static int[] sorted(RawFastIntCollectionFixedSizeWithOrder c) {
+        final int[] values = Arrays.copyOf(c.values, c.size());
+        Arrays.sort(values);
+        return values;
+    }
+
+    /**
+     * Checks that the sample has the same degrees as the observed graph, that
+     * the neighborhoods of the left and right nodes describe the same edges,
+     * and that the number of equal neighborhoods is up to date.
+     */
+    private static void checkSample(MultiGraph observed, MultiGraph sample) {
+        final int numRows = observed.getNumRows();
+        final int numCols = observed.getColIdToNeighbors().length;
+        final Object2IntOpenHashMap<RawFastIntCollectionFixedSizeWithOrder> numEqRows = new Object2IntOpenHashMap<>();
+        final Int2IntOpenHashMap[] colToRowCounts = new Int2IntOpenHashMap[numCols];
+        for (int c = 0; c < numCols; c++) {
+            colToRowCounts[c] = new Int2IntOpenHashMap();
+            Assert.assertEquals(observed.getColInstance(c).size(), sample.getColInstance(c).size());
+        }
+        for (int r = 0; r < numRows; r++) {
+            final RawFastIntCollectionFixedSizeWithOrder row = sample.getRowInstance(r);
+            Assert.assertEquals(observed.getRowInstance(r).size(), row.size());
+            numEqRows.addTo(row, 1);
+            for (int c : row.values) {
+                colToRowCounts[c].addTo(r, 1);
+            }
+        }
+        for (int c = 0; c < numCols; c++) {
+            final Int2IntOpenHashMap counts = new Int2IntOpenHashMap();
+            for (int r : sample.getColInstance(c).values) {
+                counts.addTo(r, 1);
+            }
+            Assert.assertEquals(colToRowCounts[c], counts);
+        }
+        numEqRows.object2IntEntrySet().forEach(entry -> {
+            Assert.assertEquals(entry.getIntValue(), sample.getNumEqRows(entry.getKey()));
+        });
+    }
+
+    @Test
+    public void validSample() throws IOException {
+        final MultiGraph graph = load();
+        final MultiGraph sample = new CurveballSeqSampler().sample(graph, graph.getNumEdges(), 1, new Timer(false));
+        checkSample(graph, sample);
+        int numChangedRows = 0;
+        for (int r = 0; r < graph.getNumRows(); r++) {
+            if (!Arrays.equals(sorted(graph.getRowInstance(r)), sorted(sample.getRowInstance(r)))) {
+                numChangedRows++;
+            }
+        }
+        Assert.assertTrue(numChangedRows > 0);
+    }
+
+    @Test
+    public void movesMoreThanAliceS() throws IOException {
+        final MultiGraph graph = load();
+        final int numSteps = 200;
+        final SeqSampler[] samplers = {new AliceSSampler(), new CurveballSeqSampler()};
+        final int[] numMoved = new int[samplers.length];
+        for (int s = 0; s < samplers.length; s++) {
+            final int index = s;
+            samplers[s].setSwapListener((removed, added) -> numMoved[index] += removed.length);
+            samplers[s].sample(graph, numSteps, 3, new Timer(false));
+        }
+        // each step of ALICE-S moves at most two edges
+        Assert.assertTrue(numMoved[0] <= 2 * numSteps);
+        Assert.assertTrue(numMoved[1] > numMoved[0]);
+    }
+
+    /**
+     * Builds a graph with a row for each sequence, each itemset being a column.
+     */
+    private static MultiGraph newGraph(int[][] sequences, int numCols) {
+        final RawFastIntCollectionFixedSizeWithOrder[] rows = new RawFastIntCollectionFixedSizeWithOrder[sequences.length];
+        final IntArrayList[] colToRows = new IntArrayList[numCols];
+        for (int c = 0; c < numCols; c++) {
+            colToRows[c] = new IntArrayList();
+        }
+        final Int2ObjectOpenHashMap<IntArrayList> rowSumToRows = new Int2ObjectOpenHashMap<>();
+        for (int r = 0; r < sequences.length; r++) {
+            rows[r] = new RawFastIntCollectionFixedSizeWithOrder(sequences[r].clone());
+            for (int c : sequences[r]) {
+                colToRows[c].add(r);
+            }
+            rowSumToRows.computeIfAbsent(sequences[r].length, k -> new IntArrayList()).add(r);
+        }
+        final RawFastIntCollectionFixedSizeWithOrder[] cols = new RawFastIntCollectionFixedSizeWithOrder[numCols];
+        final Int2ObjectOpenHashMap<IntArrayList> colSumToCols = new Int2ObjectOpenHashMap<>();
+        for (int c = 0; c < numCols; c++) {
+            cols[c] = new RawFastIntCollectionFixedSizeWithOrder(colToRows[c].toIntArray());
+            colSumToCols.computeIfAbsent(colToRows[c].size(), k -> new IntArrayList()).add(c);
+        }
+        final Int2ObjectOpenHashMap<int[]> rowSumToVertices = new Int2ObjectOpenHashMap<>();
+        rowSumToRows.int2ObjectEntrySet().forEach(entry -> rowSumToVertices.put(entry.getIntKey(), entry.getValue().toIntArray()));
+        final Int2ObjectOpenHashMap<int[]> colSumToVertices = new Int2ObjectOpenHashMap<>();
+        colSumToCols.int2ObjectEntrySet().forEach(entry -> colSumToVertices.put(entry.getIntKey(), entry.getValue().toIntArray()));
+        return new MultiGraph(rows, cols, rowSumToVertices, colSumToVertices);
+    }
+
+    private static String getState(MultiGraph graph) {
+        final StringBuilder state = new StringBuilder();
+        for (int r = 0; r < graph.getNumRows(); r++) {
+            state.append(Arrays.toString(graph.getRowInstance(r).values));
+        }
+        return state.toString();
+    }
+
+    private static int count(int[] sequence, int itemset) {
+        int count = 0;
+        for (int v : sequence) {
+            if (v == itemset) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Enumerates the matrices reachable from a tiny dataset, where the
+     * sequence with itemset 3 repeated never changes, and checks that the
+     * frequencies of the matrices at the end of independent chains are those
+     * of the stationary distribution, where each matrix has probability
+     * inversely proportional to its number of equivalent matrices. Each trade
+     * is a sequence of exchanges of an itemset appearing once in a sequence
+     * and not in another one, with an itemset appearing once in the other
+     * sequence and not in the first one, so the matrices reachable with such
+     * exchanges are all the matrices reachable by the chain.
+     */
+    @Test
+    public void stationaryDistribution() {
+        final int[][] observed = {{0, 1}, {0, 1}, {0, 2}, {1, 2}, {3, 3}};
+        final int numCols = 4;
+        final Object2DoubleOpenHashMap<String> stateToProb = new Object2DoubleOpenHashMap<>();
+        final ArrayDeque<int[][]> queue = new ArrayDeque<>();
+        queue.add(observed);
+        double sum = 0;
+        while (!queue.isEmpty()) {
+            final int[][] sequences = queue.poll();
+            final MultiGraph graph = newGraph(sequences, numCols);
+            final String state = getState(graph);
+            if (stateToProb.containsKey(state)) {
+                continue;
+            }
+            final double prob = Math.exp(-graph.getLogNumEquivMatrices());
+            stateToProb.put(state, prob);
+            sum += prob;
+            for (int r1 = 0; r1 < sequences.length; r1++) {
+                for (int r2 = 0; r2 < sequences.length; r2++) {
+                    for (int p1 = 0; p1 < sequences[r1].length; p1++) {
+                        for (int p2 = 0; p2 < sequences[r2].length; p2++) {
+                            final int a = sequences[r1][p1];
+                            final int b = sequences[r2][p2];
+                            if (r1 != r2 && count(sequences[r1], a) == 1 && count(sequences[r2], a) == 0
+                                    && count(sequences[r2], b) == 1 && count(sequences[r1], b) == 0) {
+                                final int[][] next = new int[sequences.length][];
+                                for (int r = 0; r < sequences.length; r++) {
+                                    next[r] = sequences[r].clone();
+                                }
+                                next[r1][p1] = b;
+                                next[r2][p2] = a;
+                                queue.add(next);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        final MultiGraph graph = newGraph(observed, numCols);
+        final int numRuns = 20000;
+        final Object2IntOpenHashMap<String> stateToCount = new Object2IntOpenHashMap<>();
+        final CurveballSeqSampler sampler = new CurveballSeqSampler();
+        for (int run = 0; run < numRuns; run++) {
+            final MultiGraph sample = sampler.sample(graph, 200, FastRandom.streamSeed(1, run), new Timer(false));
+            checkSample(graph, sample);
+            stateToCount.addTo(getState(sample), 1);
+        }
+        Assert.assertTrue(stateToProb.keySet().containsAll(stateToCount.keySet()));
+        double chiSquare = 0;
+        for (Object2DoubleOpenHashMap.Entry<String> entry : stateToProb.object2DoubleEntrySet()) {
+            final double expected = numRuns * entry.getDoubleValue() / sum;
+            final double diff = stateToCount.getInt(entry.getKey()) - expected;
+            chiSquare += diff * diff / expected;
+        }
+        // the statistic is below the mean of the chi-square distribution plus
+        // 6 standard deviations
+        final int df = stateToProb.size() - 1;
+        Assert.assertTrue("chi-square " + chiSquare + " with " + df + " degrees of freedom",
+                chiSquare < df + 6 * Math.sqrt(2 * df));
+    }
+}
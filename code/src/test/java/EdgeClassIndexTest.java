@@ -0,0 +1,164 @@
+import alice.config.Paths;
+import alice.helpers.Swappables;
+import alice.samplers.GmmtSeqSampler;
+import alice.samplers.SelfLoopBJDMSampler;
+import alice.structures.BJDMMatrix;
+import alice.structures.Edge;
+import alice.structures.EdgeClassIndex;
+import alice.structures.MultiGraph;
+import alice.structures.SparseMatrix;
+import alice.structures.Vector;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Timer;
+import alice.utils.Transformer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link EdgeClassIndex}.
+ */
+public class EdgeClassIndexTest {
+
+    private static SparseMatrix randomMatrix(Random rnd, int numRows, int numCols, double density) {
+        final int[][] array = new int[numRows][numCols];
+        for (int r = 0; r < numRows; r++) {
+            // no empty rows
+            array[r][rnd.nextInt(numCols)] = 1;
+            for (int c = 0; c < numCols; c++) {
+                if (rnd.nextDouble() < density) {
+                    array[r][c] = 1;
+                }
+            }
+        }
+        return new SparseMatrix(array);
+    }
+
+    private static boolean passesCheck(BJDMMatrix matrix, Edge e1, Edge e2) {
+        return matrix.getRowSum(e1.row) == matrix.getRowSum(e2.row)
+                || matrix.getColSum(e1.col) == matrix.getColSum(e2.col);
+    }
+
+    /**
+     * Checks that the probability that a uniform proposal passes the check is
+     * exact, and that the proposals are sampled uniformly among those passing
+     * the check, also after some swaps.
+     */
+    @Test
+    public void uniformFeasibleProposals() {
+        final Random rnd = new FastRandom(13);
+        final BJDMMatrix matrix = new BJDMMatrix(randomMatrix(rnd, 7, 6, 0.35));
+        final EdgeClassIndex index = new EdgeClassIndex(matrix);
+        for (int round = 0; round < 3; round++) {
+            final List<Edge> edges = new ArrayList<>(matrix.getEdgesSet());
+            final int numEdges = edges.size();
+            int numFeasible = 0;
+            for (Edge e1 : edges) {
+                for (Edge e2 : edges) {
+                    if (passesCheck(matrix, e1, e2)) {
+                        numFeasible++;
+                    }
+                }
+            }
+            Assert.assertEquals((double) numFeasible / numEdges / numEdges, index.getFeasibleProb(), 1e-9);
+
+            final int[][] counts = new int[numEdges][numEdges];
+            final int numSamples = 200000;
+            for (int i = 0; i < numSamples; i++) {
+                final Swappables sne = index.sampleFeasibleSwappables(rnd);
+                Assert.assertTrue(passesCheck(matrix, sne.swappableEdge1, sne.swappableEdge2));
+                final int a = edges.indexOf(sne.swappableEdge1);
+                final int b = edges.indexOf(sne.swappableEdge2);
+                Assert.assertTrue(a >= 0 && b >= 0);
+                counts[a][b]++;
+            }
+            final double p = 1. / numFeasible;
+            for (int a = 0; a < numEdges; a++) {
+                for (int b = 0; b < numEdges; b++) {
+                    final double expected = passesCheck(matrix, edges.get(a), edges.get(b)) ? p : 0;
+                    Assert.assertEquals(expected * numSamples, counts[a][b],
+                            5 * Math.sqrt(numSamples * expected * (1 - expected)) + 1);
+                }
+            }
+
+            // make some swaps to check that the index follows the matrix
+            int numSwapped = 0;
+            while (numSwapped < 20) {
+                final Swappables sne = index.sampleFeasibleSwappables(rnd);
+                if (matrix.areSwappable(sne)) {
+                    final Edge e1 = sne.swappableEdge1;
+                    final Edge e2 = sne.swappableEdge2;
+                    final Vector[] newRows = matrix.getNewRows(
+                            new Edge(e1.row, e2.col), new Edge(e2.row, e1.col));
+                    matrix.transition(sne, matrix.getRowInstance(e1.row), matrix.getRowInstance(e2.row),
+                            newRows[0], newRows[1]);
+                    index.transition(sne);
+                    numSwapped++;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void multiGraphFeasibleProb() throws IOException {
+        final MultiGraph graph = new Transformer().createMultiGraph(
+                Paths.concat(Config.datasetsDir, "sequential/SIGN.txt"));
+        final EdgeClassIndex index = new EdgeClassIndex(graph);
+        final Random rnd = new FastRandom(17);
+        final int numSamples = 200000;
+        int numFeasible = 0;
+        for (int i = 0; i < numSamples; i++) {
+            final Swappables sne = graph.getRandomSwappables(rnd);
+            final Edge e1 = sne.swappableEdge1;
+            final Edge e2 = sne.swappableEdge2;
+            if (graph.getRowInstance(e1.row).size() == graph.getRowInstance(e2.row).size()
+                    || graph.getColInstance(e1.col).size() == graph.getColInstance(e2.col).size()) {
+                numFeasible++;
+            }
+        }
+        final double p = index.getFeasibleProb();
+        Assert.assertEquals(p * numSamples, numFeasible, 5 * Math.sqrt(numSamples * p * (1 - p)) + 1);
+    }
+
+    @Test
+    public void samplersKeepMargins() throws IOException {
+        final Random rnd = new FastRandom(19);
+        final SparseMatrix matrix = randomMatrix(rnd, 30, 20, 0.2);
+        final SparseMatrix sample = new SelfLoopBJDMSampler().sample(matrix, 5000, 3, new Timer(false));
+        final BJDMMatrix observed = new BJDMMatrix(matrix);
+        final BJDMMatrix sampled = new BJDMMatrix(sample);
+        Assert.assertArrayEquals(observed.getRowSums(), sampled.getRowSums());
+        Assert.assertArrayEquals(observed.getColSums(), sampled.getColSums());
+        Assert.assertNotEquals(observed.getEdgesSet(), sampled.getEdgesSet());
+
+        final MultiGraph graph = new Transformer().createMultiGraph(
+                Paths.concat(Config.datasetsDir, "sequential/SIGN.txt"));
+        final MultiGraph seqSample = new GmmtSeqSampler().sample(graph, graph.getNumEdges(), 3, new Timer(false));
+        for (int r = 0; r < graph.getNumRows(); r++) {
+            Assert.assertEquals(graph.getRowInstance(r).size(), seqSample.getRowInstance(r).size());
+        }
+        for (int c = 0; c < graph.getColIdToNeighbors().length; c++) {
+            Assert.assertEquals(graph.getColInstance(c).size(), seqSample.getColInstance(c).size());
+        }
+    }
+}
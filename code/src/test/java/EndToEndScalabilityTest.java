@@ -0,0 +1,75 @@
+import alice.config.DatasetNames;
+import alice.config.JsonKeys;
+import alice.config.Paths;
+import alice.test.EndToEndScalability;
+import alice.utils.Config;
+import alice.utils.JsonFile;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link EndToEndScalability}.
+ */
+public class EndToEndScalabilityTest {
+
+    @BeforeClass
+    public static void before() {
+        Paths.makeDir("test");
+
+        Config.scalingDatasets = new String[]{DatasetNames.test};
+        Config.scalingNumSamples = new int[]{4};
+        Config.scalingNumThreads = new int[]{2, 1};
+        Config.numSwaps = 100;
+        Config.minFreq = 0.5;
+        Config.seed = 0;
+        Config.resultsDir = "test";
+        Config.cleanup = true;
+    }
+
+    @AfterClass
+    public static void after() {
+        Paths.deleteDir("test");
+    }
+
+    @Test
+    public void endToEndScalabilityExperiment() {
+        final String[] args = {};
+        EndToEndScalability.main(args);
+
+        final JSONObject results = JsonFile.read(Paths.getJsonFilePath("test", "scalingStats-100-0"));
+        final JSONArray scalingStats = results.getJSONArray(JsonKeys.scalingStats);
+        // three samplers and two numbers of threads
+        Assert.assertEquals(6, scalingStats.length());
+        for (int i = 0; i < scalingStats.length(); i++) {
+            final JSONObject stats = scalingStats.getJSONObject(i);
+            Assert.assertEquals(4, stats.getInt(JsonKeys.numTransactions));
+            Assert.assertTrue(stats.getDouble(JsonKeys.throughput) > 0);
+            Assert.assertTrue(stats.getDouble(JsonKeys.sampleTime) > 0);
+            if (stats.getInt(JsonKeys.numThreads) == 1) {
+                // the baseline comes first
+                Assert.assertEquals(0, i % 2);
+                Assert.assertEquals(1, stats.getDouble(JsonKeys.speedup), 0);
+            }
+        }
+    }
+}
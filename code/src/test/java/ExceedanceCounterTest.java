@@ -0,0 +1,109 @@
+import alice.config.Paths;
+import alice.fpm.ExceedanceCounter;
+import alice.fpm.Itemsets;
+import alice.utils.FastRandom;
+import alice.utils.PatternsReader;
+import alice.utils.PatternsWriter;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link ExceedanceCounter}.
+ */
+public class ExceedanceCounterTest {
+
+    private static final Paths paths = new Paths("exceedances.txt", "testexceedances/");
+
+    private static final int numEstSamples = 12;
+
+    private static final String freqItemsetsPath = paths.getFreqItemsetsPath(Paths.observedTag, 0);
+
+    private static final String[] estFreqItemsetsPaths = new String[numEstSamples];
+
+    /**
+     * Writes random itemsets over few items, so that the samples share many
+     * of them.
+     *
+     * @param path the path of the file
+     * @param rnd a Random instance
+     */
+    private static void writeRandomItemsets(String path, Random rnd) throws IOException {
+        final PatternsWriter writer = new PatternsWriter(path, false);
+        final IntOpenHashSet written = new IntOpenHashSet();
+        for (int i = 0; i < 400; i++) {
+            // an itemset of items below 12 as a bit mask
+            final int mask = 1 + rnd.nextInt((1 << 12) - 1);
+            if (Integer.bitCount(mask) <= 4 && written.add(mask)) {
+                final int[] items = new int[Integer.bitCount(mask)];
+                int numItems = 0;
+                for (int item = 0; item < 12; item++) {
+                    if ((mask & (1 << item)) != 0) {
+                        items[numItems++] = item;
+                    }
+                }
+                writer.add(items, numItems, 1 + rnd.nextInt(10));
+            }
+        }
+        writer.close();
+    }
+
+    @BeforeClass
+    public static void before() throws IOException {
+        Paths.makeDir(paths.freqItemsetsDirPath);
+        final Random rnd = new FastRandom(7);
+        writeRandomItemsets(freqItemsetsPath, rnd);
+        for (int i = 0; i < numEstSamples; i++) {
+            estFreqItemsetsPaths[i] = paths.getFreqItemsetsPath(Paths.estTag, i);
+            writeRandomItemsets(estFreqItemsetsPaths[i], rnd);
+        }
+    }
+
+    @AfterClass
+    public static void after() {
+        Paths.deleteDir("testexceedances");
+    }
+
+    @Test
+    public void sameAsMaps() throws IOException {
+        final Object2IntOpenHashMap<IntOpenHashSet> expectedFreqItemsetToSum
+                = Itemsets.getFreqItemsetToSumMap(paths, freqItemsetsPath, numEstSamples);
+        Assert.assertFalse(expectedFreqItemsetToSum.isEmpty());
+        final double expectedMinPvalue = Itemsets.getMinPvalue(paths, freqItemsetsPath, numEstSamples);
+
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int numPartitions : new int[]{1, 3, 8, 1000}) {
+            final ExceedanceCounter counter
+                    = new ExceedanceCounter(estFreqItemsetsPaths, numPartitions, pool);
+            final PatternsReader freqItemsets = new PatternsReader(freqItemsetsPath);
+            Assert.assertEquals(expectedFreqItemsetToSum,
+                    counter.getFreqItemsetToSumMapAsync(freqItemsets).join());
+            Assert.assertEquals(expectedMinPvalue,
+                    Itemsets.getPvalue(counter.getMinSum(freqItemsets), numEstSamples), 0);
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,109 @@
+import alice.config.DatasetNames;
+import alice.config.Paths;
+import alice.samplers.CurveballBJDMSampler;
+import alice.samplers.GmmtSampler;
+import alice.structures.SparseMatrix;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Timer;
+import alice.utils.Transformer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link FastRandom}.
+ */
+public class FastRandomTest {
+
+    @Test
+    public void reproducible() {
+        final FastRandom rnd1 = new FastRandom(42);
+        final FastRandom rnd2 = new FastRandom(42);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(rnd1.nextLong(), rnd2.nextLong());
+        }
+        rnd1.setSeed(7);
+        rnd2.setSeed(7);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(rnd1.nextInt(1000), rnd2.nextInt(1000));
+        }
+    }
+
+    @Test
+    public void streamSeeds() {
+        Assert.assertEquals(FastRandom.streamSeed(10, 3), FastRandom.streamSeed(10, 3));
+        Assert.assertNotEquals(FastRandom.streamSeed(10, 3), FastRandom.streamSeed(10, 4));
+        Assert.assertNotEquals(FastRandom.streamSeed(10, 3), FastRandom.streamSeed(11, 3));
+        Assert.assertNotEquals(new FastRandom(FastRandom.streamSeed(10, 0)).nextLong(),
+                new FastRandom(FastRandom.streamSeed(10, 1)).nextLong());
+    }
+
+    @Test
+    public void boundedNextInt() {
+        final FastRandom rnd = new FastRandom(0);
+        final int bound = 7;
+        final int numDraws = 700000;
+        final int[] counts = new int[bound];
+        for (int i = 0; i < numDraws; i++) {
+            final int x = rnd.nextInt(bound);
+            Assert.assertTrue(x >= 0 && x < bound);
+            counts[x]++;
+        }
+        // chi-square goodness of fit with 6 degrees of freedom, p = 0.001
+        double chiSquare = 0;
+        final double expected = (double) numDraws / bound;
+        for (int c : counts) {
+            chiSquare += (c - expected) * (c - expected) / expected;
+        }
+        Assert.assertTrue(chiSquare < 22.458);
+
+        // a bound that does not divide 2^32 and is close to it
+        final int largeBound = (1 << 30) + 1;
+        for (int i = 0; i < 10000; i++) {
+            final int x = rnd.nextInt(largeBound);
+            Assert.assertTrue(x >= 0 && x < largeBound);
+        }
+        Assert.assertEquals(0, rnd.nextInt(1));
+    }
+
+    @Test
+    public void doublesInUnitInterval() {
+        final FastRandom rnd = new FastRandom(1);
+        double sum = 0;
+        for (int i = 0; i < 100000; i++) {
+            final double x = rnd.nextDouble();
+            Assert.assertTrue(x >= 0 && x < 1);
+            sum += x;
+        }
+        Assert.assertEquals(0.5, sum / 100000, 0.01);
+    }
+
+    @Test
+    public void samplersAreReproducible() {
+        final Transformer transformer = new Transformer();
+        final SparseMatrix matrix = transformer.createMatrix(Paths.concat(Config.datasetsDir, DatasetNames.foodmart));
+        final long seed = FastRandom.streamSeed(Config.seed, 5);
+        Assert.assertEquals(
+                new GmmtSampler().sample(matrix, 1000, seed, new Timer(false)),
+                new GmmtSampler().sample(matrix, 1000, seed, new Timer(false)));
+        Assert.assertEquals(
+                new CurveballBJDMSampler().sample(matrix, 1000, seed, new Timer(false)),
+                new CurveballBJDMSampler().sample(matrix, 1000, seed, new Timer(false)));
+    }
+}
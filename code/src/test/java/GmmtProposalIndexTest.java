@@ -0,0 +1,132 @@
+import alice.helpers.Swappables;
+import alice.samplers.GmmtSampler;
+import alice.structures.Edge;
+import alice.structures.GmmtMatrix;
+import alice.structures.GmmtProposalIndex;
+import alice.structures.SparseMatrix;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Timer;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link GmmtProposalIndex}.
+ */
+public class GmmtProposalIndexTest {
+
+    private static SparseMatrix randomMatrix(Random rnd, int numRows, int numCols, double density) {
+        final int[][] array = new int[numRows][numCols];
+        for (int r = 0; r < numRows; r++) {
+            array[r][rnd.nextInt(numCols)] = 1;
+            for (int c = 0; c < numCols; c++) {
+                if (rnd.nextDouble() < density) {
+                    array[r][c] = 1;
+                }
+            }
+        }
+        return new SparseMatrix(array);
+    }
+
+    private static boolean swappable(GmmtMatrix matrix, Edge e1, Edge e2) {
+        return e1.row != e2.row && e1.col != e2.col
+                && matrix.getVal(e1.row, e2.col) == 0 && matrix.getVal(e2.row, e1.col) == 0;
+    }
+
+    /**
+     * Checks that the pairs are uniform among the swappable ones and that the
+     * index follows the matrix through the swaps.
+     */
+    @Test
+    public void uniformSwappablePairs() {
+        final Random rnd = new FastRandom(23);
+        final GmmtMatrix matrix = new GmmtMatrix(randomMatrix(rnd, 8, 6, 0.5));
+        final GmmtProposalIndex index = new GmmtProposalIndex(matrix);
+        for (int round = 0; round < 3; round++) {
+            final Edge[] edges = new Edge[matrix.getNumEdges()];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = Edge.unpack(matrix.edges[i]);
+            }
+            Assert.assertEquals(2 * matrix.getDegree(), index.getNumSwappablePairs());
+            final int numPairs = (int) index.getNumSwappablePairs();
+            final int[][] counts = new int[edges.length][edges.length];
+            final int numSamples = 200000;
+            for (int i = 0; i < numSamples; i++) {
+                final Swappables sne = index.sample(rnd);
+                Assert.assertEquals(edges[sne.e1Index], sne.swappableEdge1);
+                Assert.assertEquals(edges[sne.e2Index], sne.swappableEdge2);
+                Assert.assertTrue(swappable(matrix, sne.swappableEdge1, sne.swappableEdge2));
+                counts[sne.e1Index][sne.e2Index]++;
+            }
+            final double p = 1. / numPairs;
+            for (int a = 0; a < edges.length; a++) {
+                for (int b = 0; b < edges.length; b++) {
+                    final double expected = swappable(matrix, edges[a], edges[b]) ? p : 0;
+                    Assert.assertEquals(expected * numSamples, counts[a][b],
+                            5 * Math.sqrt(numSamples * expected * (1 - expected)) + 1);
+                }
+            }
+            for (int i = 0; i < 10; i++) {
+                final Swappables sne = index.sample(rnd);
+                matrix.transition(sne);
+                index.transition(sne);
+            }
+        }
+    }
+
+    @Test
+    public void noSwappablePairs() {
+        final GmmtMatrix matrix = new GmmtMatrix(new SparseMatrix(new int[][]{{1, 1}, {1, 0}}));
+        Assert.assertTrue(matrix.chooseProposalStrategy(matrix.getDegree()));
+        Assert.assertNull(matrix.getSwappableAndNewEdges(new FastRandom(1)));
+    }
+
+    @Test
+    public void samplerStrategies() {
+        final Random rnd = new FastRandom(29);
+        final SparseMatrix matrix = randomMatrix(rnd, 40, 12, 0.6);
+        final double maxValidFraction = Config.gmmtIndexMaxValidFraction;
+        try {
+            final int[] numRowsLimits = {0, Config.gmmtIndexMaxRows};
+            final GmmtSampler[] samplers = {new GmmtSampler(), new GmmtSampler()};
+            Config.gmmtIndexMaxValidFraction = 1;
+            for (int s = 0; s < samplers.length; s++) {
+                final int maxRows = Config.gmmtIndexMaxRows;
+                Config.gmmtIndexMaxRows = numRowsLimits[s];
+                final SparseMatrix sample;
+                try {
+                    sample = samplers[s].sample(matrix, 2000, 3, new Timer(false));
+                } finally {
+                    Config.gmmtIndexMaxRows = maxRows;
+                }
+                final GmmtMatrix observed = new GmmtMatrix(matrix);
+                final GmmtMatrix sampled = new GmmtMatrix(sample);
+                Assert.assertArrayEquals(observed.getRowSums(), sampled.getRowSums());
+                Assert.assertArrayEquals(observed.getColSums(), sampled.getColSums());
+                Assert.assertNotEquals(observed.getEdgesSet(), sampled.getEdgesSet());
+            }
+            // only the rejection sampler retries
+            Assert.assertTrue(samplers[0].getNumRetries() > 0);
+            Assert.assertEquals(0, samplers[1].getNumRetries());
+        } finally {
+            Config.gmmtIndexMaxValidFraction = maxValidFraction;
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import alice.helpers.PackedSwappables;
 import alice.helpers.Swappables;
 import alice.structures.GmmtMatrix;
 import alice.structures.SparseMatrix;
@@ -7,6 +8,7 @@ import alice.config.DatasetNames;
 import alice.structures.Edge;
 import alice.structures.Matrix;
 import alice.utils.Config;
+import alice.utils.FastRandom;
 import alice.utils.Transformer;
 import alice.utils.Timer;
 import java.util.ArrayList;
@@ -267,6 +269,44 @@ public class GmmtSamplerTest {
         }
     }
 
+    @Test
+    public void packedTransition() {
+        final String datasetPath = Paths.concat(Config.datasetsDir, DatasetNames.foodmart);
+        final SparseMatrix inMatrix = this.transformer.createMatrix(datasetPath);
+        final double maxValidFraction = Config.gmmtIndexMaxValidFraction;
+        final int maxRows = Config.gmmtIndexMaxRows;
+        for (boolean index : new boolean[]{false, true}) {
+            final GmmtMatrix matrix = new GmmtMatrix(inMatrix);
+            final GmmtMatrix packedMatrix = new GmmtMatrix(inMatrix);
+            final long degree = matrix.getDegree();
+            // sample with the proposal index or by rejection
+            Config.gmmtIndexMaxValidFraction = index ? 1 : 0;
+            Config.gmmtIndexMaxRows = Integer.MAX_VALUE;
+            try {
+                Assert.assertEquals(index, matrix.chooseProposalStrategy(degree));
+                Assert.assertEquals(index, packedMatrix.chooseProposalStrategy(degree));
+            } finally {
+                Config.gmmtIndexMaxValidFraction = maxValidFraction;
+                Config.gmmtIndexMaxRows = maxRows;
+            }
+            final Random rnd = new FastRandom(5);
+            final Random packedRnd = new FastRandom(5);
+            final PackedSwappables swap = new PackedSwappables();
+            for (int t = 0; t < 200; t++) {
+                final Swappables sne = matrix.getSwappableAndNewEdges(rnd);
+                Assert.assertTrue(packedMatrix.getSwappableAndNewEdges(packedRnd, swap));
+                Assert.assertEquals(sne.toString(), swap.toString());
+                Assert.assertEquals(
+                        matrix.getAdjMatrixDegree(sne.swappableEdge1, sne.swappableEdge2, degree),
+                        packedMatrix.getAdjMatrixDegree(swap, degree));
+                matrix.transition(sne);
+                packedMatrix.transition(swap);
+                Assert.assertEquals(matrix, packedMatrix);
+                Assert.assertArrayEquals(matrix.edges, packedMatrix.edges);
+            }
+        }
+    }
+
     @Test
     public void equalMargins() {
         final String datasetPath = Paths.concat(Config.datasetsDir, DatasetNames.foodmart);
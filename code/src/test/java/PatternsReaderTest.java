@@ -0,0 +1,218 @@
+import alice.config.Paths;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.PatternsReader;
+import alice.utils.PatternsWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link PatternsReader} and {@link PatternsWriter}.
+ */
+public class PatternsReaderTest {
+
+    private static final String dir = "testpatterns";
+
+    private static final String path = Paths.concat(dir, "patterns.bin");
+
+    @Before
+    public void setUp() {
+        Paths.makeDir(dir);
+    }
+
+    @After
+    public void tearDown() {
+        Config.outputCompression = false;
+        Paths.deleteDir(dir);
+    }
+
+    /**
+     *
+     * @param reader a reader
+     * @return the patterns read from the current one, each as its tokens
+     * followed by its support
+     */
+    private static List<int[]> readAll(PatternsReader reader) {
+        final List<int[]> patterns = new ArrayList<>();
+        while (reader.next()) {
+            final int[] pattern = Arrays.copyOf(reader.getTokens(), reader.getNumTokens() + 1);
+            pattern[reader.getNumTokens()] = reader.getSupport();
+            patterns.add(pattern);
+        }
+        return patterns;
+    }
+
+    @Test
+    public void itemsetsInCanonicalOrder() throws IOException {
+        final PatternsWriter writer = new PatternsWriter(path, false);
+        writer.add(new int[]{5, 1, 4}, 3, 2);
+        writer.add(new int[]{300, 2}, 2, 7);
+        writer.add(new int[]{5}, 1, 9);
+        writer.add(new int[]{2, 1}, 2, 3);
+        writer.add(new int[]{1000000}, 1, 1);
+        writer.close();
+
+        Assert.assertTrue(PatternsReader.isPatternsFile(path));
+        final PatternsReader reader = new PatternsReader(path);
+        Assert.assertFalse(reader.isSequences());
+        Assert.assertEquals(5, reader.getNumPatterns());
+        Assert.assertEquals(3, reader.getMaxLength());
+        Assert.assertEquals(2, reader.getCount(1));
+        Assert.assertEquals(2, reader.getCount(2));
+        Assert.assertEquals(1, reader.getCount(3));
+        Assert.assertEquals(0, reader.getCount(4));
+
+        final List<int[]> patterns = readAll(reader);
+        Assert.assertArrayEquals(new int[]{5, 9}, patterns.get(0));
+        Assert.assertArrayEquals(new int[]{1000000, 1}, patterns.get(1));
+        Assert.assertArrayEquals(new int[]{1, 2, 3}, patterns.get(2));
+        Assert.assertArrayEquals(new int[]{2, 300, 7}, patterns.get(3));
+        Assert.assertArrayEquals(new int[]{1, 4, 5, 2}, patterns.get(4));
+    }
+
+    @Test
+    public void sequentialPatterns() throws IOException {
+        final PatternsWriter writer = new PatternsWriter(path, true);
+        writer.add(new int[]{3, -1, 2, 1, -1}, 5, 4);
+        writer.add(new int[]{7, -1}, 2, 6);
+        writer.add(new int[]{2, -1, 3, -1}, 4, 5);
+        writer.close();
+
+        final PatternsReader reader = new PatternsReader(path);
+        Assert.assertTrue(reader.isSequences());
+        Assert.assertEquals(1, reader.getCount(1));
+        Assert.assertEquals(2, reader.getCount(2));
+
+        final List<int[]> patterns = readAll(reader);
+        Assert.assertArrayEquals(new int[]{7, -1, 6}, patterns.get(0));
+        Assert.assertArrayEquals(new int[]{2, -1, 3, -1, 5}, patterns.get(1));
+        Assert.assertArrayEquals(new int[]{3, -1, 1, 2, -1, 4}, patterns.get(2));
+        Assert.assertEquals(4, reader.find(new int[]{3, -1, 1, 2, -1}, 5));
+        Assert.assertEquals(-1, reader.find(new int[]{3, -1, 2, -1}, 4));
+    }
+
+    @Test
+    public void findAcrossIndex() throws IOException {
+        final int numItems = 40;
+        final PatternsWriter writer = new PatternsWriter(path, false);
+        for (int i = 0; i < numItems; i++) {
+            writer.add(new int[]{i}, 1, i + 1);
+            for (int j = i + 1; j < numItems; j++) {
+                writer.add(new int[]{j, i}, 2, i * numItems + j);
+            }
+        }
+        writer.close();
+
+        final PatternsReader reader = new PatternsReader(path);
+        Assert.assertEquals(numItems + numItems * (numItems - 1) / 2, reader.getNumPatterns());
+        for (int i = 0; i < numItems; i++) {
+            Assert.assertEquals(i + 1, reader.find(new int[]{i}, 1));
+            for (int j = i + 1; j < numItems; j++) {
+                Assert.assertEquals(i * numItems + j, reader.find(new int[]{i, j}, 2));
+            }
+        }
+        Assert.assertEquals(-1, reader.find(new int[]{numItems}, 1));
+        Assert.assertEquals(-1, reader.find(new int[]{-5}, 1));
+        Assert.assertEquals(-1, reader.find(new int[]{0, 1, 2}, 3));
+
+        // seek to a pattern in the middle of a block
+        reader.seek(100);
+        Assert.assertTrue(reader.next());
+        final int[] pattern = Arrays.copyOf(reader.getTokens(), reader.getNumTokens());
+        Assert.assertEquals(reader.getSupport(), reader.find(pattern, pattern.length));
+    }
+
+    @Test
+    public void compressed() throws IOException {
+        Config.outputCompression = true;
+        final PatternsWriter writer = new PatternsWriter(path, false);
+        writer.add(new int[]{2, 1}, 2, 3);
+        writer.close();
+
+        Assert.assertTrue(PatternsReader.isPatternsFile(path));
+        final PatternsReader reader = new PatternsReader(path);
+        Assert.assertEquals(3, reader.find(new int[]{1, 2}, 2));
+    }
+
+    @Test
+    public void empty() throws IOException {
+        new PatternsWriter(path, false).close();
+
+        final PatternsReader reader = new PatternsReader(path);
+        Assert.assertEquals(0, reader.getNumPatterns());
+        Assert.assertFalse(reader.next());
+        Assert.assertEquals(-1, reader.find(new int[]{1}, 1));
+    }
+
+    /**
+     * Writes random patterns with runs of a given size.
+     *
+     * @param sequences whether the patterns are sequential patterns
+     * @param runSize the number of items after which the patterns are spilled
+     * @return the bytes of the file
+     */
+    private static byte[] writeRandomPatterns(boolean sequences, int runSize) throws IOException {
+        final Random rnd = new FastRandom(3);
+        final PatternsWriter writer = new PatternsWriter(path, sequences, runSize);
+        final int[] patternTokens = new int[32];
+        final Set<String> added = new HashSet<>();
+        while (added.size() < 1000) {
+            int numTokens = 0;
+            for (int i = 0, length = 1 + rnd.nextInt(4); i < length; i++) {
+                final int numItems = sequences ? 1 + rnd.nextInt(3) : 1;
+                for (int j = 0; j < numItems; j++) {
+                    // distinct items within an itemset
+                    patternTokens[numTokens++] = 300 * (sequences ? j : i) + rnd.nextInt(300);
+                }
+                if (sequences) {
+                    patternTokens[numTokens++] = PatternsReader.itemsetEnd;
+                }
+            }
+            // the patterns are distinct, so that their order is unique
+            if (added.add(Arrays.toString(Arrays.copyOf(patternTokens, numTokens)))) {
+                writer.add(patternTokens, numTokens, 1 + rnd.nextInt(1000));
+            }
+        }
+        writer.close();
+        return Files.readAllBytes(java.nio.file.Paths.get(path));
+    }
+
+    @Test
+    public void spilledRunsSameFile() throws IOException {
+        for (boolean sequences : new boolean[]{false, true}) {
+            final byte[] expected = writeRandomPatterns(sequences, Integer.MAX_VALUE);
+            for (int runSize : new int[]{1, 7, 100, 1000}) {
+                Assert.assertArrayEquals(expected, writeRandomPatterns(sequences, runSize));
+                // the runs are deleted
+                Assert.assertEquals(1, new File(dir).list().length);
+            }
+        }
+    }
+}
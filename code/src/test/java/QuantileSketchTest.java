@@ -0,0 +1,115 @@
+import alice.utils.FastRandom;
+import alice.utils.QuantileSketch;
+import alice.utils.Timer;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link QuantileSketch}.
+ */
+public class QuantileSketchTest {
+
+    private static final double[] PERCENTILES = {0, 10, 25, 50, 75, 90, 99, 100};
+
+    @Test
+    public void percentilesWithinRelativeError() {
+        final Random rnd = new FastRandom(37);
+        final int precisionBits = 7;
+        final QuantileSketch sketch = new QuantileSketch(precisionBits);
+        final long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            // log-uniform values between 1 ns and about 1 s
+            values[i] = (long) Math.exp(rnd.nextDouble() * Math.log(1e9));
+            sketch.record(values[i]);
+        }
+        Arrays.sort(values);
+        Assert.assertEquals(values.length, sketch.getCount());
+        Assert.assertEquals(values[0], sketch.getMin());
+        Assert.assertEquals(values[values.length - 1], sketch.getMax());
+        final double maxError = 1. / (1 << precisionBits);
+        for (double p : PERCENTILES) {
+            final int rank = Math.max(1, (int) Math.ceil(p / 100 * values.length));
+            final long exact = values[rank - 1];
+            Assert.assertEquals("Percentile " + p, exact, sketch.getPercentile(p), exact * maxError + 1);
+        }
+    }
+
+    @Test
+    public void mergeEqualsUnion() {
+        final Random rnd = new FastRandom(41);
+        final QuantileSketch all = new QuantileSketch();
+        final QuantileSketch first = new QuantileSketch();
+        final QuantileSketch second = new QuantileSketch();
+        for (int i = 0; i < 10000; i++) {
+            final long value = rnd.nextInt(1000000);
+            all.record(value);
+            (i % 3 == 0 ? first : second).record(value);
+        }
+        first.merge(second);
+        Assert.assertEquals(all.getCount(), first.getCount());
+        Assert.assertEquals(all.getMin(), first.getMin());
+        Assert.assertEquals(all.getMax(), first.getMax());
+        Assert.assertEquals(all.getMean(), first.getMean(), 1e-6);
+        for (double p : PERCENTILES) {
+            Assert.assertEquals(all.getPercentile(p), first.getPercentile(p), 0);
+        }
+    }
+
+    @Test
+    public void emptySketch() {
+        final QuantileSketch sketch = new QuantileSketch();
+        Assert.assertEquals(0, sketch.getMin());
+        Assert.assertEquals(0, sketch.getMax());
+        Assert.assertEquals(0, sketch.getPercentile(50), 0);
+    }
+
+    @Test
+    public void timerSamplesSteps() {
+        final Timer timer = new Timer(true, 4);
+        for (int i = 0; i < 100; i++) {
+            timer.start();
+            timer.stop();
+        }
+        Assert.assertEquals(25, timer.getNumMeasuredSteps());
+        final Timer other = new Timer(true, 1);
+        other.start();
+        other.stop();
+        timer.merge(other);
+        Assert.assertEquals(26, timer.getNumMeasuredSteps());
+        Assert.assertTrue(timer.getMin() <= timer.getPercentile(50));
+        Assert.assertTrue(timer.getPercentile(50) <= timer.getMax());
+        Assert.assertEquals(0, new Timer(false).getNumMeasuredSteps());
+    }
+
+    @Test
+    public void timerSkipsUnstoppedSteps() {
+        final Timer timer = new Timer(true, 2);
+        // the first step is measured but not stopped, e.g., a self loop
+        timer.start();
+        // the second step is not measured
+        timer.start();
+        timer.stop();
+        Assert.assertEquals(0, timer.getNumMeasuredSteps());
+        timer.start();
+        timer.stop();
+        Assert.assertEquals(1, timer.getNumMeasuredSteps());
+    }
+}
@@ -0,0 +1,130 @@
+import alice.structures.RawFastIntCollectionFixedSize;
+import alice.structures.RawFastIntCollectionFixedSizeWithOrder;
+import alice.utils.FastRandom;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link RawFastIntCollectionFixedSize}.
+ */
+public class RawFastIntCollectionFixedSizeTest {
+
+    private static int[] randomMultiSet(Random rnd, int maxSize, int maxValue) {
+        final int[] values = new int[rnd.nextInt(maxSize + 1)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rnd.nextInt(maxValue);
+        }
+        return values;
+    }
+
+    /**
+     * The hash-based computation of the XOR multisets.
+     */
+    private static int[][] hashXOR(int[] a, int[] b) {
+        final Int2IntOpenHashMap first = new Int2IntOpenHashMap();
+        final Int2IntOpenHashMap second = new Int2IntOpenHashMap();
+        for (int v : a) {
+            first.addTo(v, 1);
+        }
+        for (int v : b) {
+            if (first.containsKey(v)) {
+                first.remove(v);
+            } else {
+                second.addTo(v, 1);
+            }
+        }
+        final int[] x = first.keySet().toIntArray();
+        final int[] y = second.keySet().toIntArray();
+        Arrays.sort(x);
+        Arrays.sort(y);
+        return new int[][]{x, y};
+    }
+
+    private static int[] sorted(RawFastIntCollectionFixedSize c) {
+        final int[] values = Arrays.copyOf(c.values, c.size());
+        Arrays.sort(values);
+        return values;
+    }
+
+    @Test
+    public void mergeOperations() {
+        final Random rnd = new FastRandom(3);
+        for (int t = 0; t < 2000; t++) {
+            final int[] a = randomMultiSet(rnd, 20, 15);
+            final int[] b = randomMultiSet(rnd, 20, 15);
+            final RawFastIntCollectionFixedSize ca = new RawFastIntCollectionFixedSize(a);
+            final RawFastIntCollectionFixedSize cb = new RawFastIntCollectionFixedSize(b);
+            final IntOpenHashSet setB = new IntOpenHashSet(b);
+
+            final int[][] expected = hashXOR(a, b);
+            final RawFastIntCollectionFixedSize[] xor = ca.computeXORMultiSets(cb);
+            Assert.assertArrayEquals(expected[0], sorted(xor[0]));
+            Assert.assertArrayEquals(expected[1], sorted(xor[1]));
+
+            final int[] diff = Arrays.stream(a).filter(v -> !setB.contains(v)).sorted().toArray();
+            final int[] inter = Arrays.stream(a).filter(v -> setB.contains(v)).sorted().toArray();
+            Assert.assertArrayEquals(diff, sorted(ca.computeDifference(cb)));
+            Assert.assertArrayEquals(inter, sorted(ca.computeIntersection(cb)));
+            Assert.assertEquals(inter.length, ca.computeInterSize(cb));
+            for (int v = -1; v <= 15; v++) {
+                Assert.assertEquals(setB.contains(v), cb.contains(v));
+            }
+
+            final int[] out = new int[2];
+            final boolean sampled = ca.sampleXORMultiSets(cb, rnd, out);
+            Assert.assertEquals(expected[0].length > 0 && expected[1].length > 0, sampled);
+            if (sampled) {
+                Assert.assertTrue(Arrays.binarySearch(expected[0], out[0]) >= 0);
+                Assert.assertTrue(Arrays.binarySearch(expected[1], out[1]) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void replaceKeepsOrder() {
+        final Random rnd = new FastRandom(5);
+        final int[] values = randomMultiSet(rnd, 30, 10);
+        final RawFastIntCollectionFixedSizeWithOrder c = new RawFastIntCollectionFixedSizeWithOrder(
+                Arrays.copyOf(values, Math.max(1, values.length)));
+        final int[] expected = Arrays.copyOf(c.values, c.size());
+        for (int t = 0; t < 5000; t++) {
+            final int pos = rnd.nextInt(expected.length);
+            final int a = expected[pos];
+            final int b = rnd.nextInt(12);
+            c.fastReplaceWithoutChecks(a, b);
+            // the last occurrence of a is replaced in the positional order
+            int last = expected.length - 1;
+            while (expected[last] != a) {
+                last--;
+            }
+            expected[last] = b;
+            Assert.assertArrayEquals(expected, c.values);
+            final RawFastIntCollectionFixedSize copy = new RawFastIntCollectionFixedSize(expected);
+            Assert.assertEquals(0, c.computeXORMultiSets(copy)[0].size());
+            Assert.assertEquals(expected.length, c.computeInterSize(copy));
+            for (int v = 0; v < 12; v++) {
+                Assert.assertEquals(copy.contains(v), c.contains(v));
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import alice.config.DatasetNames;
+import alice.config.Paths;
+import alice.fpm.SampleAndMinePipeline;
+import alice.samplers.BJDMSampler;
+import alice.structures.CompressedMatrix;
+import alice.structures.SparseMatrix;
+import alice.utils.Config;
+import alice.utils.FastRandom;
+import alice.utils.Timer;
+import alice.utils.Transformer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link SampleAndMinePipeline}.
+ */
+public class SampleAndMinePipelineTest {
+
+    private static final String dir = "testpipeline";
+
+    private static final int numSamples = 8;
+
+    @BeforeClass
+    public static void before() {
+        Paths.makeDir(dir);
+    }
+
+    @AfterClass
+    public static void after() {
+        Paths.deleteDir(dir);
+    }
+
+    /**
+     * Samples and mines the test dataset with the pools and the queue of the
+     * given sizes.
+     *
+     * @return the paths of the sets of frequent itemsets
+     */
+    private static String[] sampleAndMine(int numSamplerThreads, int numMinerThreads, int queueCapacity) {
+        final String datasetPath = Paths.concat(Config.datasetsDir, DatasetNames.test);
+        final Transformer transformer = new Transformer();
+        final SparseMatrix matrix = transformer.createMatrix(datasetPath);
+        final String tag = "-" + numSamplerThreads + "-" + numMinerThreads + "-" + queueCapacity;
+        final long[] seeds = new long[numSamples];
+        final String[] samplePaths = new String[numSamples];
+        final String[] freqItemsetsPaths = new String[numSamples];
+        for (int i = 0; i < numSamples; i++) {
+            seeds[i] = FastRandom.streamSeed(0, i);
+            samplePaths[i] = Paths.getTextFilePath(dir, Paths.appendId("ds" + tag, i));
+            freqItemsetsPaths[i] = Paths.getTextFilePath(dir, Paths.appendId("fis" + tag, i));
+        }
+        final SampleAndMinePipeline pipeline = new SampleAndMinePipeline(
+                new BJDMSampler(), transformer, matrix, 0, 100, 0.25,
+                numSamplerThreads, numMinerThreads, queueCapacity);
+        pipeline.sampleAndMine(seeds, samplePaths, freqItemsetsPaths);
+        pipeline.shutdown();
+        Assert.assertTrue(pipeline.getSampleTime() > 0);
+        Assert.assertTrue(pipeline.getMineTime() > 0);
+        return freqItemsetsPaths;
+    }
+
+    @Test
+    public void poolSizesDoNotChangeSamples() throws IOException {
+        final String[] expected = sampleAndMine(1, 1, 1);
+        final int[][] sizes = {{4, 1, 1}, {1, 4, 1}, {3, 2, 8}};
+        for (int[] size : sizes) {
+            final String[] actual = sampleAndMine(size[0], size[1], size[2]);
+            for (int i = 0; i < numSamples; i++) {
+                final List<String> expectedLines = Files.readAllLines(java.nio.file.Paths.get(expected[i]));
+                final List<String> actualLines = Files.readAllLines(java.nio.file.Paths.get(actual[i]));
+                expectedLines.sort(null);
+                actualLines.sort(null);
+                Assert.assertEquals(expectedLines, actualLines);
+            }
+        }
+    }
+
+    @Test
+    public void failedSampleCompletes() {
+        final String datasetPath = Paths.concat(Config.datasetsDir, DatasetNames.test);
+        final Transformer transformer = new Transformer();
+        final SparseMatrix matrix = transformer.createMatrix(datasetPath);
+        final long[] seeds = new long[numSamples];
+        final String[] samplePaths = new String[numSamples];
+        final String[] freqItemsetsPaths = new String[numSamples];
+        for (int i = 0; i < numSamples; i++) {
+            seeds[i] = i;
+            samplePaths[i] = Paths.getTextFilePath(dir, Paths.appendId("dsfailed", i));
+            freqItemsetsPaths[i] = Paths.getTextFilePath(dir, Paths.appendId("fisfailed", i));
+        }
+        // the sampler of the sample with seed 3 fails with an Error
+        final BJDMSampler sampler = new BJDMSampler() {
+            @Override
+            public CompressedMatrix sampleCompressed(SparseMatrix inMatrix, long degree, int numSwaps, long seed, Timer timer) {
+                if (seed == 3) {
+                    throw new OutOfMemoryError("test");
+                }
+                return super.sampleCompressed(inMatrix, degree, numSwaps, seed, timer);
+            }
+        };
+        final SampleAndMinePipeline pipeline = new SampleAndMinePipeline(
+                sampler, transformer, matrix, 0, 100, 0.25, 2, 2, 1);
+        final CompletableFuture<Void>[] mined = pipeline.sampleAndMineAsync(seeds, samplePaths, freqItemsetsPaths);
+        for (int i = 0; i < numSamples; i++) {
+            boolean failed = false;
+            try {
+                mined[i].join();
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+            Assert.assertEquals(i == 3, failed);
+        }
+        // the miner pool still runs the tasks of the caller
+        Assert.assertEquals(1, (int) CompletableFuture.supplyAsync(() -> 1, pipeline.getMinerExecutor()).join());
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void runsTwice() throws IOException {
+        final String datasetPath = Paths.concat(Config.datasetsDir, DatasetNames.test);
+        final Transformer transformer = new Transformer();
+        final SparseMatrix matrix = transformer.createMatrix(datasetPath);
+        final SampleAndMinePipeline pipeline = new SampleAndMinePipeline(
+                new BJDMSampler(), transformer, matrix, 0, 100, 0.25, 2, 2, 1);
+        final String[][] freqItemsetsPaths = new String[2][numSamples];
+        for (int run = 0; run < 2; run++) {
+            final long[] seeds = new long[numSamples];
+            final String[] samplePaths = new String[numSamples];
+            for (int i = 0; i < numSamples; i++) {
+                seeds[i] = FastRandom.streamSeed(0, i);
+                samplePaths[i] = Paths.getTextFilePath(dir, Paths.appendId("dstwice" + run, i));
+                freqItemsetsPaths[run][i] = Paths.getTextFilePath(dir, Paths.appendId("fistwice" + run, i));
+            }
+            pipeline.sampleAndMine(seeds, samplePaths, freqItemsetsPaths[run]);
+        }
+        pipeline.shutdown();
+        // the same seeds give the same samples in both runs
+        for (int i = 0; i < numSamples; i++) {
+            final List<String> expectedLines = Files.readAllLines(java.nio.file.Paths.get(freqItemsetsPaths[0][i]));
+            final List<String> actualLines = Files.readAllLines(java.nio.file.Paths.get(freqItemsetsPaths[1][i]));
+            expectedLines.sort(null);
+            actualLines.sort(null);
+            Assert.assertEquals(expectedLines, actualLines);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyQueue() {
+        new SampleAndMinePipeline(new BJDMSampler(), new Transformer(), null, 0, 100, 0.25, 1, 1, 0);
+    }
+}
@@ -0,0 +1,225 @@
+import alice.config.Paths;
+import alice.fpm.Itemsets;
+import alice.fpm.SequentialExceedanceCounter;
+import alice.utils.FastRandom;
+import alice.utils.PatternsReader;
+import alice.utils.PatternsWriter;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link SequentialExceedanceCounter}.
+ */
+public class SequentialExceedanceCounterTest {
+
+    private static final Paths paths = new Paths("sequential.txt", "testsequential/");
+
+    private static final int numEstSamples = 40;
+
+    private static final int numWySamples = 10;
+
+    private static final String freqItemsetsPath = paths.getFreqItemsetsPath(Paths.observedTag, 0);
+
+    private static final String lowSupFreqItemsetsPath = paths.getFreqItemsetsPath(Paths.observedTag, 1);
+
+    private static final String[] wyFreqItemsetsPaths = new String[numWySamples];
+
+    private static final PatternsReader[] estFreqItemsets = new PatternsReader[numEstSamples];
+
+    /**
+     * Writes random itemsets over few items, so that the samples share many
+     * of them.
+     *
+     * @param path the path of the file
+     * @param maxSup the maximum support of the itemsets
+     * @param rnd a Random instance
+     */
+    private static void writeRandomItemsets(String path, int maxSup, Random rnd) throws IOException {
+        final PatternsWriter writer = new PatternsWriter(path, false);
+        final IntOpenHashSet written = new IntOpenHashSet();
+        for (int i = 0; i < 200; i++) {
+            // an itemset of items below 10 as a bit mask
+            final int mask = 1 + rnd.nextInt((1 << 10) - 1);
+            if (Integer.bitCount(mask) <= 3 && written.add(mask)) {
+                final int[] items = new int[Integer.bitCount(mask)];
+                int numItems = 0;
+                for (int item = 0; item < 10; item++) {
+                    if ((mask & (1 << item)) != 0) {
+                        items[numItems++] = item;
+                    }
+                }
+                writer.add(items, numItems, 1 + rnd.nextInt(maxSup));
+            }
+        }
+        writer.close();
+    }
+
+    @BeforeClass
+    public static void before() throws IOException {
+        Paths.makeDir(paths.freqItemsetsDirPath);
+        final Random rnd = new FastRandom(11);
+        writeRandomItemsets(freqItemsetsPath, 12, rnd);
+        writeRandomItemsets(lowSupFreqItemsetsPath, 1, rnd);
+        for (int i = 0; i < numWySamples; i++) {
+            wyFreqItemsetsPaths[i] = paths.getFreqItemsetsPath(Paths.wyTag, i);
+            writeRandomItemsets(wyFreqItemsetsPaths[i], 10, rnd);
+        }
+        for (int i = 0; i < numEstSamples; i++) {
+            final String estFreqItemsetsPath = paths.getFreqItemsetsPath(Paths.estTag, i);
+            writeRandomItemsets(estFreqItemsetsPath, 10, rnd);
+            estFreqItemsets[i] = new PatternsReader(estFreqItemsetsPath);
+        }
+    }
+
+    @AfterClass
+    public static void after() {
+        Paths.deleteDir("testsequential");
+    }
+
+    /**
+     * Gets the sequential p-values of the itemsets of a file by looking up
+     * each itemset in all the est samples.
+     *
+     * @param path the path of the file
+     * @param maxExceedances the number of exceedances after which the
+     * counting of an itemset stops
+     * @return a map where each key is an itemset with an exceedance and the
+     * value is its p-value
+     */
+    private static Object2DoubleOpenHashMap<IntOpenHashSet> getPvalues(String path, int maxExceedances)
+            throws IOException {
+        final Object2DoubleOpenHashMap<IntOpenHashSet> freqItemsetToPvalue = new Object2DoubleOpenHashMap();
+        final PatternsReader freqItemsets = new PatternsReader(path);
+        while (freqItemsets.next()) {
+            int sum = 0;
+            int stop = 0;
+            for (int i = 0; i < numEstSamples && stop == 0; i++) {
+                if (estFreqItemsets[i].find(freqItemsets.getTokens(), freqItemsets.getNumTokens())
+                        >= freqItemsets.getSupport() && ++sum == maxExceedances) {
+                    stop = i + 1;
+                }
+            }
+            if (sum > 0) {
+                freqItemsetToPvalue.put(Itemsets.getFreqItemset(freqItemsets), stop > 0
+                        ? (double) maxExceedances / stop
+                        : Itemsets.getPvalue(sum, numEstSamples));
+            }
+        }
+        return freqItemsetToPvalue;
+    }
+
+    /**
+     *
+     * @param path the path of the frequent itemsets of the observed dataset
+     * @param maxExceedances the number of exceedances after which the
+     * counting of an itemset stops
+     * @param fwer the family wise error rate
+     * @return a counter of the itemsets of the files
+     */
+    private static SequentialExceedanceCounter newCounter(String path, int maxExceedances, double fwer)
+            throws IOException {
+        final PatternsReader[] wyFreqItemsets = new PatternsReader[numWySamples];
+        for (int i = 0; i < numWySamples; i++) {
+            wyFreqItemsets[i] = new PatternsReader(wyFreqItemsetsPaths[i]);
+        }
+        return new SequentialExceedanceCounter(new PatternsReader(path),
+                wyFreqItemsets, numEstSamples, maxExceedances, fwer);
+    }
+
+    @Test
+    public void sameAsAllSamples() throws IOException {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        // the counting of no itemset stops
+        final SequentialExceedanceCounter counter = newCounter(freqItemsetsPath, numEstSamples + 1, 0.5);
+        for (int i = 0; i < numEstSamples; i++) {
+            counter.addAsync(estFreqItemsets[i], pool).join();
+        }
+        Assert.assertTrue(counter.isResolved());
+        Assert.assertEquals(getPvalues(freqItemsetsPath, numEstSamples + 1), counter.getFreqItemsetToPvalueMap());
+        final double[] minPvalues = counter.getMinPvalues();
+        for (int i = 0; i < numWySamples; i++) {
+            Assert.assertEquals(Itemsets.getMinPvalue(paths, wyFreqItemsetsPaths[i], numEstSamples),
+                    minPvalues[i], 0);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void sameSigFreqItemsets() throws IOException {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int maxExceedances : new int[]{1, 2, 4, 8, numEstSamples + 1}) {
+            for (double fwer : new double[]{0.05, 0.5, 0.9}) {
+                // the significant itemsets with the p-values of all the est
+                // samples
+                final double[] minPvalues = new double[numWySamples];
+                for (int i = 0; i < numWySamples; i++) {
+                    minPvalues[i] = getPvalues(wyFreqItemsetsPaths[i], maxExceedances).values().stream()
+                            .mapToDouble(Double::doubleValue)
+                            .min()
+                            .orElse(Itemsets.getPvalue(0, numEstSamples));
+                }
+                Arrays.sort(minPvalues);
+                final double adjustedCriticalValue = minPvalues[(int) (numWySamples * fwer)];
+                final Set<IntOpenHashSet> expected = getPvalues(freqItemsetsPath, maxExceedances)
+                        .object2DoubleEntrySet().stream()
+                        .filter(entry -> entry.getDoubleValue() <= adjustedCriticalValue)
+                        .map(entry -> entry.getKey())
+                        .collect(Collectors.toSet());
+
+                final SequentialExceedanceCounter counter = newCounter(freqItemsetsPath, maxExceedances, fwer);
+                for (int i = 0; !counter.isResolved(); i++) {
+                    counter.addAsync(estFreqItemsets[i], pool).join();
+                }
+                final Set<IntOpenHashSet> actual = counter.getFreqItemsetToPvalueMap()
+                        .object2DoubleEntrySet().stream()
+                        .filter(entry -> entry.getDoubleValue() <= counter.getAdjustedCriticalValue())
+                        .map(entry -> entry.getKey())
+                        .collect(Collectors.toSet());
+                Assert.assertEquals(expected, actual);
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void stopsEarly() throws IOException {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        // the itemsets have support 1, so they have an exceedance in any est
+        // sample where they are
+        final SequentialExceedanceCounter counter = newCounter(lowSupFreqItemsetsPath, 4, 0.5);
+        for (int i = 0; !counter.isResolved(); i++) {
+            counter.addAsync(estFreqItemsets[i], pool).join();
+        }
+        Assert.assertTrue(counter.getNumAddedSamples() < numEstSamples);
+        Assert.assertTrue(counter.getFreqItemsetToPvalueMap().values().stream()
+                .allMatch(pvalue -> pvalue > counter.getAdjustedCriticalValue()));
+        pool.shutdown();
+    }
+}
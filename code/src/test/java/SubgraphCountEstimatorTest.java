@@ -0,0 +1,83 @@
+import alice.config.DatasetNames;
+import alice.config.Paths;
+import alice.helpers.SubgraphCountEstimator;
+import alice.structures.GmmtMatrix;
+import alice.structures.MultiGraph;
+import alice.structures.SparseMatrix;
+import alice.utils.Config;
+import alice.utils.Transformer;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link SubgraphCountEstimator}.
+ */
+public class SubgraphCountEstimatorTest {
+
+    private final Random rnd = new Random(0);
+
+    @Test
+    public void completeBipartiteGraph() {
+        final SparseMatrix matrix = new SparseMatrix(new int[][]{
+            {1, 1, 1},
+            {1, 1, 1},
+            {1, 1, 1}
+        });
+        // every sampled edge and wedge gives the same value, so the estimates
+        // are exact
+        final SubgraphCountEstimator.Estimate butterflies = SubgraphCountEstimator.estimateButterflies(
+                matrix.getRows(), matrix.getCols(), 0.01, 0.95, 10000, rnd);
+        Assert.assertEquals(9, butterflies.value, 1e-9);
+        Assert.assertEquals(0, butterflies.halfWidth, 1e-9);
+        final SubgraphCountEstimator.Estimate caterpillars = SubgraphCountEstimator.estimateCaterpillars(
+                matrix.getRows(), matrix.getCols(), 0.01, 0.95, 10000, rnd);
+        Assert.assertEquals(new GmmtMatrix(matrix).getNumZstructs(), caterpillars.value, 1e-9);
+    }
+
+    @Test
+    public void datasets() {
+        for (String dataset : new String[]{DatasetNames.foodmart, DatasetNames.chess}) {
+            final Transformer transformer = new Transformer();
+            final GmmtMatrix matrix = new GmmtMatrix(
+                    transformer.createMatrix(Paths.concat(Config.datasetsDir, dataset)));
+
+            final SubgraphCountEstimator.Estimate caterpillars = SubgraphCountEstimator.estimateCaterpillars(
+                    matrix.getRows(), matrix.getCols(), 0.02, 0.99, 1000000, rnd);
+            Assert.assertEquals(matrix.getNumZstructs(), caterpillars.value, 3 * caterpillars.halfWidth);
+
+            final SubgraphCountEstimator.Estimate butterflies = SubgraphCountEstimator.estimateButterflies(
+                    matrix.getRows(), matrix.getCols(), 0.02, 0.99, 1000000, rnd);
+            Assert.assertEquals(matrix.getNumK22Cliques(), butterflies.value, 3 * butterflies.halfWidth);
+
+            final SubgraphCountEstimator.Estimate degree = matrix.getApproxDegree(0.02, 0.99, 1000000, rnd);
+            Assert.assertEquals(matrix.getDegree(), degree.value, 3 * degree.halfWidth);
+        }
+    }
+
+    @Test
+    public void multiGraph() throws IOException {
+        final Transformer transformer = new Transformer();
+        final MultiGraph graph = transformer.createMultiGraph(
+                Paths.concat(Config.datasetsDir, "sequential/SIGN.txt"));
+        final SubgraphCountEstimator.Estimate caterpillars = graph.getApproxNumZstructs(0.02, 0.99, 1000000, rnd);
+        Assert.assertEquals(graph.getNumZstructs(), caterpillars.value, 3 * caterpillars.halfWidth);
+    }
+}
@@ -0,0 +1,175 @@
+import alice.config.DatasetNames;
+import alice.config.Paths;
+import alice.helpers.BJDMTracker;
+import alice.helpers.ButterflyTracker;
+import alice.helpers.ItemsetSupportTracker;
+import alice.samplers.BJDMSampler;
+import alice.samplers.CurveballBJDMSampler;
+import alice.samplers.GmmtSampler;
+import alice.samplers.Sampler;
+import alice.samplers.SelfLoopBJDMSampler;
+import alice.samplers.SelfLoopGmmtSampler;
+import alice.samplers.SwapListener;
+import alice.structures.Edge;
+import alice.structures.GmmtMatrix;
+import alice.structures.SparseMatrix;
+import alice.test.Convergence;
+import alice.utils.Config;
+import alice.utils.Timer;
+import alice.utils.Transformer;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import java.util.Random;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Copyright (C) 2024 Alexander Lee, Giulia Preti, and Matteo Riondato
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+/**
+ * A class to test {@link SwapListener} and the trackers built on it.
+ */
+public class SwapListenerTest {
+
+    private final Transformer transformer = new Transformer();
+    private final SparseMatrix matrix = transformer.createMatrix(
+            Paths.concat(Config.datasetsDir, DatasetNames.foodmart));
+    private final int numSwaps = 5000;
+
+    /**
+     * Replays the notified changes on a copy of the initial matrix.
+     */
+    private static class ReplayListener implements SwapListener {
+
+        final SparseMatrix replay;
+
+        ReplayListener(SparseMatrix matrix) {
+            this.replay = new SparseMatrix(matrix.getRows(), matrix.getCols());
+        }
+
+        @Override
+        public void onSwap(Edge[] removed, Edge[] added) {
+            Assert.assertEquals(removed.length, added.length);
+            for (Edge edge : removed) {
+                Assert.assertEquals(1, replay.isInRow(edge.row, edge.col));
+                replay.setInRow(edge.row, edge.col, 0);
+                replay.setInCol(edge.row, edge.col, 0);
+            }
+            for (Edge edge : added) {
+                Assert.assertEquals(0, replay.isInRow(edge.row, edge.col));
+                replay.setInRow(edge.row, edge.col, 1);
+                replay.setInCol(edge.row, edge.col, 1);
+            }
+        }
+    }
+
+    @Test
+    public void replaySwaps() {
+        final Sampler[] samplers = new Sampler[]{
+            new GmmtSampler(),
+            new SelfLoopGmmtSampler(),
+            new BJDMSampler(),
+            new SelfLoopBJDMSampler(),
+            new CurveballBJDMSampler()
+        };
+        for (Sampler sampler : samplers) {
+            final ReplayListener listener = new ReplayListener(matrix);
+            sampler.setSwapListener(listener);
+            final SparseMatrix sample = sampler.sample(matrix, numSwaps, 0, new Timer(false));
+            Assert.assertEquals(sampler.getClass().getSimpleName(), sample, listener.replay);
+        }
+    }
+
+    @Test
+    public void trackers() {
+        final Random rnd = new Random(0);
+        final IntOpenHashSet[] itemsets = new IntOpenHashSet[1000];
+        final int[][] itemsetCols = new int[itemsets.length][];
+        for (int i = 0; i < itemsets.length; i++) {
+            final int[] row = matrix.getNonzeroIndices(rnd.nextInt(matrix.getNumRows())).toIntArray();
+            final int size = Math.min(row.length, 1 + rnd.nextInt(2));
+            itemsetCols[i] = new int[size];
+            itemsets[i] = new IntOpenHashSet();
+            for (int j = 0; j < size; j++) {
+                itemsetCols[i][j] = row[j];
+                itemsets[i].add(transformer.itemsList.getInt(row[j]));
+            }
+        }
+
+        final double[] start = new GmmtMatrix(matrix).getBJDMVector(true);
+        final Sampler[] samplers = new Sampler[]{new GmmtSampler(), new CurveballBJDMSampler()};
+        for (Sampler sampler : samplers) {
+            final BJDMTracker bjdm = new BJDMTracker(matrix);
+            final ButterflyTracker butterflies = new ButterflyTracker(matrix);
+            final ItemsetSupportTracker supports = new ItemsetSupportTracker(matrix, itemsetCols);
+            sampler.setSwapListener((removed, added) -> {
+                bjdm.onSwap(removed, added);
+                butterflies.onSwap(removed, added);
+                supports.onSwap(removed, added);
+            });
+            final SparseMatrix sample = sampler.sample(matrix, numSwaps, 1, new Timer(false));
+
+            final GmmtMatrix expected = new GmmtMatrix(sample);
+            Assert.assertArrayEquals(expected.getBJDMVector(false), bjdm.getBJDMVector(false), 0);
+            Assert.assertEquals(expected.getNumZstructs(), bjdm.getNumCaterpillars());
+            Assert.assertEquals(expected.getDistanceFrom(start, true), bjdm.getDistanceFrom(start, true), 1e-12);
+            Assert.assertEquals(expected.getDistanceFrom(start, true), bjdm.getDistanceFromStart(), 1e-12);
+            Assert.assertEquals(expected.getNumButterflies(), butterflies.getNumButterflies());
+            for (int i = 0; i < itemsets.length; i++) {
+                Assert.assertEquals(
+                        Convergence.getItemsetInSampleCount(sample, transformer.getItemToColIndex(), itemsets[i]),
+                        supports.getSupport(i));
+            }
+        }
+    }
+
+    @Test
+    public void packedBJDMTracker() {
+        final double[] start = new GmmtMatrix(matrix).getBJDMVector(true);
+        final Sampler[] samplers = new Sampler[]{new GmmtSampler(), new CurveballBJDMSampler()};
+        for (Sampler sampler : samplers) {
+            // notified through the packed and the Swappables overloads
+            final BJDMTracker bjdm = new BJDMTracker(matrix);
+            sampler.setSwapListener(bjdm);
+            final SparseMatrix sample = sampler.sample(matrix, numSwaps, 3, new Timer(false));
+
+            final GmmtMatrix expected = new GmmtMatrix(sample);
+            Assert.assertArrayEquals(expected.getBJDMVector(false), bjdm.getBJDMVector(false), 0);
+            Assert.assertEquals(expected.getNumZstructs(), bjdm.getNumCaterpillars());
+            Assert.assertEquals(expected.getDistanceFrom(start, true), bjdm.getDistanceFromStart(), 1e-12);
+        }
+    }
+
+    @Test
+    public void bjdmDistances() {
+        final Sampler[] samplers = new Sampler[]{
+            new GmmtSampler(),
+            new SelfLoopGmmtSampler(),
+            new BJDMSampler(),
+            new SelfLoopBJDMSampler(),
+            new CurveballBJDMSampler()
+        };
+        for (Sampler sampler : samplers) {
+            final DescriptiveStatistics stats = new DescriptiveStatistics();
+            final DescriptiveStatistics numCater = new DescriptiveStatistics();
+            final SparseMatrix sample = sampler.sample(matrix, numSwaps, 2, new Timer(false), stats, numCater);
+            // the BJDM samplers skip the measurement when there is no feasible swap
+            Assert.assertTrue(stats.getN() > 0);
+            Assert.assertTrue(stats.getN() <= (numSwaps + Config.bjdmInterval - 1) / Config.bjdmInterval);
+            Assert.assertEquals(new GmmtMatrix(sample).getNumZstructs(), (long) numCater.getMax());
+        }
+    }
+}
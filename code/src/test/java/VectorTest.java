@@ -1,4 +1,7 @@
 import alice.structures.Vector;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Random;
@@ -147,4 +150,137 @@ public class VectorTest {
 
     Assert.assertEquals(v, u);
   }
+
+  /**
+   * Checks the vectors against hash sets while they grow dense, become
+   * sparse and shrink, so that they go through all the containers.
+   */
+  @Test
+  public void containers() {
+    final Random random = new Random(3);
+    final int numVectors = 6;
+    final Vector[] vectors = new Vector[numVectors];
+    final IntOpenHashSet[] expected = new IntOpenHashSet[numVectors];
+    for (int i = 0; i < numVectors; i++) {
+      vectors[i] = new Vector();
+      expected[i] = new IntOpenHashSet();
+    }
+    // dense, sparse, dense, few indices
+    final int[] ranges = {200, 20000, 300, 60};
+    for (int range : ranges) {
+      for (int t = 0; t < 3000; t++) {
+        final int i = random.nextInt(numVectors);
+        final int index = random.nextInt(range);
+        final int value = random.nextInt(3) == 0 ? 0 : 1;
+        vectors[i].set(index, value);
+        if (value == 0) {
+          expected[i].remove(index);
+        } else {
+          expected[i].add(index);
+        }
+        if (t % 100 != 0) {
+          continue;
+        }
+        for (int j = 0; j < numVectors; j++) {
+          final Vector v = vectors[j];
+          Assert.assertEquals(expected[j].size(), v.getNumNonzeroIndices());
+          Assert.assertEquals(expected[j], v.getNonzeroIndices());
+          Assert.assertEquals(expected[j].hashCode(), v.hashCode());
+          Assert.assertEquals(v, v.copy());
+          Assert.assertEquals(v.hashCode(), v.copy().hashCode());
+          Assert.assertEquals(v, new Vector(expected[j]));
+          for (int c = 0; c < 50; c++) {
+            final int k = random.nextInt(range + 10);
+            Assert.assertEquals(expected[j].contains(k) ? 1 : 0, v.get(k));
+          }
+          final int[] values = v.toIntArray();
+          for (int k = 0; k < values.length; k++) {
+            Assert.assertEquals(values[k], v.getNthNonzeroIndex(k));
+          }
+          assertForEachIndex(v);
+          for (int l = 0; l < numVectors; l++) {
+            assertNthIndexNotIn(v, vectors[l]);
+            final IntOpenHashSet inter = new IntOpenHashSet(expected[j]);
+            inter.retainAll(expected[l]);
+            Assert.assertEquals(inter.size(), v.interSize(vectors[l]));
+            final IntOpenHashSet diff = new IntOpenHashSet(expected[j]);
+            diff.removeAll(expected[l]);
+            Assert.assertEquals(diff, v.difference(vectors[l]).getNonzeroIndices());
+            Assert.assertEquals(expected[j].equals(expected[l]), v.equals(vectors[l]));
+          }
+        }
+      }
+      // shrink the vectors
+      for (int i = 0; i < numVectors; i++) {
+        final int[] values = expected[i].toIntArray();
+        Arrays.sort(values);
+        for (int k = 0; k < values.length; k += 2) {
+          vectors[i].set(values[k], 0);
+          expected[i].remove(values[k]);
+        }
+        Assert.assertEquals(expected[i], vectors[i].getNonzeroIndices());
+      }
+    }
+  }
+
+  /**
+   * Checks that forEachIndex visits the indices in the order of toIntArray.
+   */
+  private static void assertForEachIndex(Vector v) {
+    final IntArrayList visited = new IntArrayList();
+    v.forEachIndex(visited::add);
+    Assert.assertArrayEquals(v.toIntArray(), visited.toIntArray());
+  }
+
+  /**
+   * Checks getNthIndexNotIn against the indices of toIntArray that are not in
+   * the other vector.
+   */
+  private static void assertNthIndexNotIn(Vector v, Vector other) {
+    final IntArrayList diff = new IntArrayList();
+    for (int index : v.toIntArray()) {
+      if (other.get(index) == 0) {
+        diff.add(index);
+      }
+    }
+    for (int k = 0; k < diff.size(); k++) {
+      Assert.assertEquals(diff.getInt(k), v.getNthIndexNotIn(other, k));
+    }
+  }
+
+  /**
+   * Checks a sparse vector that grows past the sorted array into a hash set
+   * and shrinks back.
+   */
+  @Test
+  public void largeSparse() {
+    final Random random = new Random(5);
+    final Vector v = new Vector();
+    final Vector other = new Vector();
+    final IntOpenHashSet expected = new IntOpenHashSet();
+    while (expected.size() < 6000) {
+      final int index = random.nextInt(1 << 24);
+      v.set(index, 1);
+      expected.add(index);
+      if (random.nextInt(4) == 0) {
+        other.set(index, 1);
+      }
+      if (expected.size() % 1000 == 0) {
+        Assert.assertEquals(expected, v.getNonzeroIndices());
+        assertForEachIndex(v);
+        assertNthIndexNotIn(v, other);
+        Assert.assertEquals(v, v.copy());
+      }
+    }
+    final int[] values = expected.toIntArray();
+    for (int k = 0; k < 5000; k++) {
+      v.set(values[k], 0);
+      expected.remove(values[k]);
+    }
+    Assert.assertEquals(expected, v.getNonzeroIndices());
+    assertForEachIndex(v);
+    assertNthIndexNotIn(v, other);
+    // the remaining sparse indices are in a sorted array
+    Assert.assertArrayEquals(v.toIntArray(), Arrays.stream(v.toIntArray()).sorted().toArray());
+  }
 }